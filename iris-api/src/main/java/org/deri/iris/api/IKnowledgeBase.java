@@ -23,10 +23,12 @@
 package org.deri.iris.api;
 
 import java.util.List;
+import java.util.Map;
 
 import org.deri.iris.EvaluationException;
 import org.deri.iris.ProgramNotStratifiedException;
 import org.deri.iris.RuleUnsafeException;
+import org.deri.iris.api.basics.IPredicate;
 import org.deri.iris.api.basics.IQuery;
 import org.deri.iris.api.basics.IRule;
 import org.deri.iris.api.terms.IVariable;
@@ -59,6 +61,38 @@ public interface IKnowledgeBase
 	 * @throws EvaluationException If the execution of a query fails for any other reason.
 	 */
 	IRelation execute( IQuery query, List<IVariable> variableBindings ) throws ProgramNotStratifiedException, RuleUnsafeException, EvaluationException;
+
+	/**
+	 * Prepare a query for being executed many times with different values for some of its
+	 * variables. The work that does not depend on these values is done only once.
+	 * @param query The query to prepare.
+	 * @param parameters The variables of the query that are bound by the tuple given to
+	 * {@link IPreparedQuery#execute(org.deri.iris.api.basics.ITuple)}.
+	 * @return The prepared query.
+	 * @throws ProgramNotStratifiedException If the program (knowledge-base)can not be stratified
+	 * @throws RuleUnsafeException If the program (knowledge-base) contains an unsafe rule.
+	 * @throws EvaluationException If the query can not be prepared for any other reason.
+	 */
+	IPreparedQuery prepare( IQuery query, List<IVariable> parameters ) throws ProgramNotStratifiedException, RuleUnsafeException, EvaluationException;
+	
+	/**
+	 * Add facts to this knowledge-base. The facts that can be deduced from the new facts
+	 * are added as well, and the deduced facts that depended on the absence of a new fact
+	 * are removed. This must not be called while queries are executed.
+	 * @param facts The tuples to add for each predicate.
+	 * @throws EvaluationException If the deduced facts can not be updated.
+	 */
+	void addFacts( Map<IPredicate, IRelation> facts ) throws EvaluationException;
+	
+	/**
+	 * Remove facts from this knowledge-base. The deduced facts that can not be deduced
+	 * any more are removed as well, and the facts that depended on the absence of a removed
+	 * fact are added. Only facts that have been given to the knowledge-base can be removed,
+	 * all other tuples are ignored. This must not be called while queries are executed.
+	 * @param facts The tuples to remove for each predicate.
+	 * @throws EvaluationException If the deduced facts can not be updated.
+	 */
+	void removeFacts( Map<IPredicate, IRelation> facts ) throws EvaluationException;
 	
 	/**
 	 * Get the rules hidden within the knowledge-base.
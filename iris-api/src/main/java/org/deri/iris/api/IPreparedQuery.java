@@ -0,0 +1,69 @@
+/*
+ * Integrated Rule Inference System (IRIS):
+ * An extensible rule inference system for datalog with extensions.
+ * 
+ * Copyright (C) 2008 Semantic Technology Institute (STI) Innsbruck, 
+ * University of Innsbruck, Technikerstrasse 21a, 6020 Innsbruck, Austria.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ */
+package org.deri.iris.api;
+
+import java.util.List;
+
+import org.deri.iris.EvaluationException;
+import org.deri.iris.ProgramNotStratifiedException;
+import org.deri.iris.RuleUnsafeException;
+import org.deri.iris.api.basics.ITuple;
+import org.deri.iris.api.terms.IVariable;
+import org.deri.iris.storage.IRelation;
+
+/**
+ * A query that was prepared once for a knowledge-base and is then executed
+ * many times with different values for its parameters.
+ */
+public interface IPreparedQuery
+{
+	/**
+	 * Get the parameters of the query, i.e. the variables that are bound to
+	 * the terms of the tuple given to {@link #execute(ITuple)}.
+	 * @return The list of parameters in order.
+	 */
+	List<IVariable> getParameters();
+
+	/**
+	 * Execute the query with the given values for its parameters.
+	 * @param bindings The tuple of values, one for each parameter.
+	 * @return The relation of results.
+	 * @throws ProgramNotStratifiedException If the program (knowledge-base)can not be stratified
+	 * @throws RuleUnsafeException If the program (knowledge-base) contains an unsafe rule.
+	 * @throws EvaluationException If the execution of a query fails for any other reason.
+	 */
+	IRelation execute( ITuple bindings ) throws ProgramNotStratifiedException, RuleUnsafeException, EvaluationException;
+
+	/**
+	 * Execute the query with the given values for its parameters and optionally return
+	 * the variable bindings.
+	 * @param bindings The tuple of values, one for each parameter.
+	 * @param variableBindings If this is not null, it will be filled with the variable bindings
+	 * of the result relation. The parameters are not part of the result.
+	 * @return The relation of results.
+	 * @throws ProgramNotStratifiedException If the program (knowledge-base)can not be stratified
+	 * @throws RuleUnsafeException If the program (knowledge-base) contains an unsafe rule.
+	 * @throws EvaluationException If the execution of a query fails for any other reason.
+	 */
+	IRelation execute( ITuple bindings, List<IVariable> variableBindings ) throws ProgramNotStratifiedException, RuleUnsafeException, EvaluationException;
+}
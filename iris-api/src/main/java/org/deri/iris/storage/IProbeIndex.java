@@ -0,0 +1,79 @@
+/*
+ * Integrated Rule Inference System (IRIS):
+ * An extensible rule inference system for datalog with extensions.
+ * 
+ * Copyright (C) 2008 Semantic Technology Institute (STI) Innsbruck, 
+ * University of Innsbruck, Technikerstrasse 21a, 6020 Innsbruck, Austria.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ */
+package org.deri.iris.storage;
+
+import org.deri.iris.api.basics.ITuple;
+
+/**
+ * <p>
+ * An index that can be probed with terms taken directly from a tuple, i.e.
+ * without creating a key object for each look-up.
+ * </p>
+ * <p>
+ * The tuples matching one key form a bucket. A successful probe returns the
+ * number of the bucket, which can then be used to access the matching
+ * tuples. Bucket numbers stay valid until the next probe.
+ * </p>
+ * <p>
+ * The tuples of a bucket are kept in the same order as in the indexed
+ * relation.
+ * </p>
+ */
+public interface IProbeIndex extends IIndex
+{
+	/**
+	 * Find the bucket of tuples matching the key formed by the terms at the
+	 * given positions of the given tuple.
+	 * @param tuple The tuple containing the terms of the key.
+	 * @param positions The positions of the key terms in the tuple. The number
+	 * of positions must match the number of indexed terms.
+	 * @return The bucket number, or -1 if no tuple matches the key.
+	 */
+	int probe( ITuple tuple, int[] positions );
+	
+	/**
+	 * Get the number of tuples in a bucket.
+	 * @param bucket The bucket number returned by {@link #probe(ITuple, int[])}.
+	 * @return The number of matching tuples.
+	 */
+	int size( int bucket );
+	
+	/**
+	 * Get a matching tuple from a bucket.
+	 * @param bucket The bucket number returned by {@link #probe(ITuple, int[])}.
+	 * @param index The index of the tuple in the bucket, 0 <= index < size( bucket ).
+	 * @return The matching tuple.
+	 */
+	ITuple get( int bucket, int index );
+	
+	/**
+	 * Find the first tuple of a bucket, that is stored at or after the given
+	 * position in the indexed relation.
+	 * This allows to restrict matches to the tuples recently added to the relation.
+	 * @param bucket The bucket number returned by {@link #probe(ITuple, int[])}.
+	 * @param relationIndex The position in the indexed relation.
+	 * @return The index of the first such tuple in the bucket, or size( bucket )
+	 * if there is none.
+	 */
+	int lowerBound( int bucket, int relationIndex );
+}
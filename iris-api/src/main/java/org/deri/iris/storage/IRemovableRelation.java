@@ -0,0 +1,61 @@
+/*
+ * Integrated Rule Inference System (IRIS):
+ * An extensible rule inference system for datalog with extensions.
+ * 
+ * Copyright (C) 2008 Semantic Technology Institute (STI) Innsbruck, 
+ * University of Innsbruck, Technikerstrasse 21a, 6020 Innsbruck, Austria.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ */
+package org.deri.iris.storage;
+
+import org.deri.iris.api.basics.ITuple;
+
+/**
+ * <p>
+ * A relation that tuples can be removed from.
+ * </p>
+ * <p>
+ * A removed tuple is replaced by the last tuple of the relation, so the
+ * positions of all other tuples stay the same. Objects that keep state about
+ * the positions of the tuples, e.g. indexes, register an
+ * {@link IRemovalListener} to be told about every removal.
+ * </p>
+ */
+public interface IRemovableRelation extends IRelation
+{
+	/**
+	 * Remove a tuple from the relation.
+	 * @param tuple The tuple to remove.
+	 * @return true, if the tuple was in the relation.
+	 */
+	boolean remove( ITuple tuple );
+	
+	/**
+	 * Get the position of a tuple in the relation.
+	 * @param tuple The tuple to look for.
+	 * @return The index of the tuple, or -1 if the relation does not contain it.
+	 */
+	int indexOf( ITuple tuple );
+	
+	/**
+	 * Register a listener that is called before each removal. The relation
+	 * only keeps a weak reference to the listener, so the listener must be
+	 * referenced by the object it belongs to.
+	 * @param listener The listener.
+	 */
+	void addRemovalListener( IRemovalListener listener );
+}
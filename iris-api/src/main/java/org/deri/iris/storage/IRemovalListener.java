@@ -0,0 +1,38 @@
+/*
+ * Integrated Rule Inference System (IRIS):
+ * An extensible rule inference system for datalog with extensions.
+ * 
+ * Copyright (C) 2008 Semantic Technology Institute (STI) Innsbruck, 
+ * University of Innsbruck, Technikerstrasse 21a, 6020 Innsbruck, Austria.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ */
+package org.deri.iris.storage;
+
+/**
+ * Is told about the tuples removed from an {@link IRemovableRelation}.
+ */
+public interface IRemovalListener
+{
+	/**
+	 * Called before a tuple is removed from a relation. After the removal,
+	 * the last tuple of the relation takes the position of the removed tuple,
+	 * unless the removed tuple is the last one.
+	 * @param relation The relation, which still contains the tuple.
+	 * @param index The position of the tuple to be removed.
+	 */
+	void removing( IRelation relation, int index );
+}
@@ -22,6 +22,7 @@
  */
 package org.deri.iris.utils.equivalence;
 
+import java.util.Collection;
 import java.util.Set;
 
 import org.deri.iris.api.terms.ITerm;
@@ -70,4 +71,37 @@ public interface IEquivalentTerms {
 	 */
 	public Set<ITerm> getEquivalent(ITerm term);
 
+	/**
+	 * Returns the version of this equivalence relation. The version starts at
+	 * 0 and increases every time two classes of equivalent terms are merged,
+	 * so that users can cheaply detect changes.
+	 * 
+	 * @return The version of this equivalence relation.
+	 */
+	public long getVersion();
+
+	/**
+	 * Returns the terms whose representative changed since the specified
+	 * version, i.e. the members of all classes that were merged in to another
+	 * class.
+	 * 
+	 * @param version A version previously returned by {@link #getVersion()}.
+	 * @return The terms whose representative changed, or <code>null</code>
+	 *         if these are not known, in which case users have to assume that
+	 *         the representatives of all terms changed.
+	 */
+	public Collection<ITerm> getChangedSince(long version);
+
+	/**
+	 * Tells this equivalence relation that a user of
+	 * {@link #getChangedSince(long)}, e.g. an index, has caught up with the
+	 * specified version. The changes that all users still in use have caught
+	 * up with may be discarded, after which {@link #getChangedSince(long)}
+	 * returns <code>null</code> for older versions.
+	 * 
+	 * @param user The user, which is only referenced weakly.
+	 * @param version The version the user has caught up with.
+	 */
+	public void caughtUp(Object user, long version);
+
 }
@@ -24,18 +24,21 @@ package org.deri.iris;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 
 import org.deri.iris.api.IProgramOptimisation;
 import org.deri.iris.evaluation.IEvaluationStrategyFactory;
 import org.deri.iris.evaluation.stratifiedbottomup.StratifiedBottomUpEvaluationStrategyFactory;
 import org.deri.iris.evaluation.stratifiedbottomup.seminaive.SemiNaiveEvaluatorFactory;
 import org.deri.iris.facts.IDataSource;
+import org.deri.iris.rules.IJoinOrderOptimiser;
 import org.deri.iris.rules.IRuleHeadEqualityPreProcessor;
 import org.deri.iris.rules.IRuleOptimiser;
 import org.deri.iris.rules.IRuleReOrderingOptimiser;
 import org.deri.iris.rules.IRuleSafetyProcessor;
 import org.deri.iris.rules.IRuleStratifier;
 import org.deri.iris.rules.IgnoreRuleHeadEquality;
+import org.deri.iris.rules.optimisation.CostBasedJoinOrderOptimiser;
 import org.deri.iris.rules.optimisation.JoinConditionOptimiser;
 import org.deri.iris.rules.optimisation.ReOrderLiteralsOptimiser;
 import org.deri.iris.rules.optimisation.RemoveDuplicateLiteralOptimiser;
@@ -92,9 +95,67 @@ public class Configuration
 	/** The factory for creating relations required during evaluation. */
 	public IRelationFactory relationFactory = new SimpleRelationFactory();
 	
-	/** The factory for creating indexes required during evaluation. */
+	/**
+	 * The factory for creating indexes required during evaluation.
+	 * Use a HashIndexFactory to probe indexes without key objects and to extend the
+	 * indexes on deltas during semi-naive evaluation instead of rebuilding them.
+	 */
 	public IIndexFactory indexFactory = new SimpleIndexFactory();
 
+	/**
+	 * Indicates if compiled rules are evaluated one tuple at a time, streaming bindings
+	 * from one rule element to the next without building intermediate relations.
+	 */
+	public boolean pipelinedRuleEvaluation = false;
+
+	/**
+	 * The minimum number of input tuples for which joins, built-ins and negated
+	 * sub-goals split their input in to chunks that are processed on several threads.
+	 * Zero means that rule elements always run on a single thread.
+	 */
+	public int parallelRuleElementThreshold = 0;
+
+	/** The number of threads used to process the input chunks of a rule element. */
+	public int parallelRuleElementThreads = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * The thread pool on which rule elements process their input chunks. If this is null
+	 * and rule elements are processed on several threads, each knowledge-base creates its
+	 * own pool. The threads of that pool are daemon threads that are released when idle,
+	 * so knowledge-bases need not be disposed of.
+	 */
+	public ExecutorService parallelRuleElementExecutor = null;
+
+	/**
+	 * Indicates if rules store only the representatives of equivalent terms (from rule
+	 * head equality). All equivalent forms of a tuple are then only created when
+	 * answering a query, instead of storing all combinations in every relation.
+	 * Stored tuples are replaced by the tuples of the representatives when classes
+	 * of equivalent terms are merged, if their relations support removal.
+	 */
+	public boolean canonicalEquivalentTerms = false;
+
+	/**
+	 * Indicates if the term factories return the same instance for equal ground terms
+	 * that are created on a thread using this configuration (see
+	 * ConfigurationThreadLocalStorage and TermInterner).
+	 */
+	public boolean termInterning = false;
+
+	/**
+	 * The maximum number of compiled queries that bottom-up evaluation strategies keep
+	 * for queries of the same shape, i.e. that differ only in their variable names or
+	 * their string and IRI constants. Zero means that every query is compiled again.
+	 */
+	public int compiledQueryCacheSize = 64;
+
+	/**
+	 * The maximum number of binding patterns for which the optimised programs (e.g. the
+	 * magic sets rewriting) and the facts deduced with them are kept between queries.
+	 * Zero means that the program is optimised again for every query.
+	 */
+	public int optimisedProgramCacheSize = 16;
+
 	/** The number of bits of precision to use for comparing double term values. */ 
 	public int floatingPointDoublePrecision = 42;
 
@@ -110,6 +171,13 @@ public class Configuration
 	/** The collection of rule optimisers. */
 	public final List<IRuleOptimiser> ruleOptimisers = new ArrayList<IRuleOptimiser>();
 	
+	/**
+	 * The optimiser that orders the body literals of rules using the current facts,
+	 * applied just before rules are compiled, e.g. a {@link CostBasedJoinOrderOptimiser}.
+	 * Null (the default) means that the order chosen by the rule optimisers is kept.
+	 */
+	public IJoinOrderOptimiser joinOrderOptimiser = null;
+	
 	/** The collection of rule-reordering optimisers. */
 	public IRuleReOrderingOptimiser reOrderingOptimiser = new SimpleReOrdering();
 	
@@ -22,9 +22,6 @@
  */
 package org.deri.iris;
 
-import java.util.HashMap;
-import java.util.Map;
-
 /**
  * A utility to allocate a configuration object to the current thread.
  */
@@ -36,10 +33,7 @@ public class ConfigurationThreadLocalStorage
 	 */
 	public static void setConfiguration( Configuration configuration )
 	{
-		synchronized( mConfigMap )
-        {
-	        mConfigMap.put( Thread.currentThread(), configuration );
-        }
+		mConfiguration.set( configuration );
 	}
 	
 	/**
@@ -48,12 +42,18 @@ public class ConfigurationThreadLocalStorage
 	 */
 	public static Configuration getConfiguration()
 	{
-		synchronized( mConfigMap )
-        {
-	        return mConfigMap.get( Thread.currentThread() );
-        }
+		return mConfiguration.get();
+	}
+	
+	/**
+	 * Remove this thread's configuration object, e.g. when a pooled worker thread
+	 * has finished its task.
+	 */
+	public static void removeConfiguration()
+	{
+		mConfiguration.remove();
 	}
 	
-	/** The thread to configuration map. */
-	private static Map<Thread, Configuration> mConfigMap = new HashMap<Thread, Configuration>();
+	/** The configuration of each thread. */
+	private static final ThreadLocal<Configuration> mConfiguration = new ThreadLocal<Configuration>();
 }
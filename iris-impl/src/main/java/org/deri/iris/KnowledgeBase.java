@@ -24,10 +24,14 @@ package org.deri.iris;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
 
 import org.deri.iris.api.IKnowledgeBase;
+import org.deri.iris.api.IPreparedQuery;
 import org.deri.iris.api.basics.IPredicate;
 import org.deri.iris.api.basics.IQuery;
 import org.deri.iris.api.basics.IRule;
@@ -35,11 +39,13 @@ import org.deri.iris.api.basics.ITuple;
 import org.deri.iris.api.terms.IVariable;
 import org.deri.iris.evaluation.IEvaluationStrategy;
 import org.deri.iris.evaluation.OptimisedProgramStrategyAdaptor;
+import org.deri.iris.evaluation.stratifiedbottomup.StratifiedBottomUpEvaluationStrategy;
 import org.deri.iris.facts.Facts;
 import org.deri.iris.facts.FactsWithExternalData;
 import org.deri.iris.facts.IFacts;
 import org.deri.iris.rules.RuleManipulator;
 import org.deri.iris.storage.IRelation;
+import org.deri.iris.utils.ThreadPools;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -75,13 +81,37 @@ public class KnowledgeBase implements IKnowledgeBase {
 
 		mConfiguration = configuration;
 
+		if (mConfiguration.parallelRuleElementThreshold > 0
+				&& mConfiguration.parallelRuleElementThreads > 1
+				&& mConfiguration.parallelRuleElementExecutor == null)
+			mRuleElementExecutor = ThreadPools.newDaemonPool(
+					"iris-rule-element",
+					mConfiguration.parallelRuleElementThreads);
+		else
+			mRuleElementExecutor = null;
+
 		// Store the configuration object against the current thread.
 		ConfigurationThreadLocalStorage.setConfiguration(mConfiguration);
+		RuleElementExecutorThreadLocalStorage.setExecutor(mRuleElementExecutor);
 
 		// Set up the rule-base
 		mRules = rules;
 
-		// Set up the facts object(s)
+		// The evaluation adds the deduced facts to the relations of the
+		// input facts, so only remember how many explicit facts they have.
+		mInputFacts = inputFacts;
+
+		for (Map.Entry<IPredicate, IRelation> entry : inputFacts.entrySet())
+			mInputSizes.put(entry.getKey(), entry.getValue().size());
+
+		createEvaluationStrategy(inputFacts);
+	}
+
+	/**
+	 * Set up the facts object(s) and create the evaluation strategy.
+	 */
+	private void createEvaluationStrategy(Map<IPredicate, IRelation> inputFacts)
+			throws EvaluationException {
 		IFacts facts = new Facts(inputFacts, mConfiguration.relationFactory);
 
 		if (mConfiguration.externalDataSources.size() > 0)
@@ -94,7 +124,7 @@ public class KnowledgeBase implements IKnowledgeBase {
 			logger.debug("IRIS knowledge-base init");
 			logger.debug("========================");
 
-			for (IRule rule : rules) {
+			for (IRule rule : mRules) {
 				logger.debug(rule.toString());
 			}
 
@@ -111,10 +141,10 @@ public class KnowledgeBase implements IKnowledgeBase {
 
 		if (mConfiguration.programOptmimisers.size() > 0)
 			mEvaluationStrategy = new OptimisedProgramStrategyAdaptor(facts,
-					rules, mConfiguration);
+					mRules, mConfiguration);
 		else
 			mEvaluationStrategy = mConfiguration.evaluationStrategyFactory
-					.createEvaluator(facts, rules, configuration);
+					.createEvaluator(facts, mRules, mConfiguration);
 	}
 
 	public IRelation execute(IQuery query, List<IVariable> variableBindings)
@@ -129,24 +159,216 @@ public class KnowledgeBase implements IKnowledgeBase {
 
 		// Store the configuration object against the current thread.
 		ConfigurationThreadLocalStorage.setConfiguration(mConfiguration);
+		RuleElementExecutorThreadLocalStorage.setExecutor(mRuleElementExecutor);
 
 		logger.debug("IRIS query");
 		logger.debug("==========");
 		logger.debug(query.toString());
 
-		IRelation result = mEvaluationStrategy.evaluateQuery(RuleManipulator
-				.removeDuplicateLiterals(query), variableBindings);
+		// Queries read the facts, which updates modify.
+		synchronized (this) {
+			IRelation result = mEvaluationStrategy.evaluateQuery(
+					RuleManipulator.removeDuplicateLiterals(query),
+					variableBindings);
 
-		logger.debug("------------");
-		logger.debug(result.toString());
+			logger.debug("------------");
+			logger.debug(result.toString());
 
-		return result;
+			return result;
+		}
 	}
 
 	public IRelation execute(IQuery query) throws EvaluationException {
 		return execute(query, null);
 	}
 
+	public IPreparedQuery prepare(IQuery query, List<IVariable> parameters)
+			throws EvaluationException {
+		if (query == null)
+			throw new IllegalArgumentException(
+					"KnowledgeBase.prepare() - the query is null.");
+
+		if (parameters == null)
+			parameters = new ArrayList<IVariable>();
+
+		// Store the configuration object against the current thread.
+		ConfigurationThreadLocalStorage.setConfiguration(mConfiguration);
+		RuleElementExecutorThreadLocalStorage.setExecutor(mRuleElementExecutor);
+
+		logger.debug("IRIS prepared query");
+		logger.debug("===================");
+		logger.debug(query.toString());
+
+		synchronized (this) {
+			return new Prepared(RuleManipulator
+					.removeDuplicateLiterals(query), parameters);
+		}
+	}
+
+	public void addFacts(Map<IPredicate, IRelation> facts)
+			throws EvaluationException {
+		if (facts == null)
+			throw new IllegalArgumentException(
+					"KnowledgeBase.addFacts() - the facts are null.");
+
+		updateFacts(facts, new HashMap<IPredicate, IRelation>());
+	}
+
+	public void removeFacts(Map<IPredicate, IRelation> facts)
+			throws EvaluationException {
+		if (facts == null)
+			throw new IllegalArgumentException(
+					"KnowledgeBase.removeFacts() - the facts are null.");
+
+		updateFacts(new HashMap<IPredicate, IRelation>(), facts);
+	}
+
+	/**
+	 * Add and remove facts. A stratified bottom-up evaluation strategy updates
+	 * the deduced facts incrementally. For all other evaluation strategies,
+	 * the evaluation strategy is created again from the explicit facts.
+	 */
+	private synchronized void updateFacts(Map<IPredicate, IRelation> added,
+			Map<IPredicate, IRelation> removed) throws EvaluationException {
+		// Store the configuration object against the current thread.
+		ConfigurationThreadLocalStorage.setConfiguration(mConfiguration);
+		RuleElementExecutorThreadLocalStorage.setExecutor(mRuleElementExecutor);
+
+		logger.debug("IRIS update");
+
+		if (mEvaluationStrategy instanceof StratifiedBottomUpEvaluationStrategy
+				&& ((StratifiedBottomUpEvaluationStrategy) mEvaluationStrategy)
+						.canRemoveFacts()) {
+			StratifiedBottomUpEvaluationStrategy strategy = (StratifiedBottomUpEvaluationStrategy) mEvaluationStrategy;
+
+			if (!removed.isEmpty()) {
+				strategy.removeFacts(removed);
+
+				// The compiled queries only follow added tuples.
+				strategy.getCompiledQueryCache().clear();
+			}
+			if (!added.isEmpty())
+				strategy.addFacts(added);
+		} else {
+			Map<IPredicate, Set<ITuple>> explicitFacts = explicitFacts();
+
+			for (Map.Entry<IPredicate, IRelation> entry : removed.entrySet()) {
+				Set<ITuple> explicit = explicitFacts.get(entry.getKey());
+
+				for (int t = 0; explicit != null
+						&& t < entry.getValue().size(); ++t)
+					explicit.remove(entry.getValue().get(t));
+			}
+
+			for (Map.Entry<IPredicate, IRelation> entry : added.entrySet()) {
+				Set<ITuple> explicit = explicitFacts.get(entry.getKey());
+
+				if (explicit == null) {
+					explicit = new LinkedHashSet<ITuple>();
+					explicitFacts.put(entry.getKey(), explicit);
+				}
+
+				for (int t = 0; t < entry.getValue().size(); ++t)
+					explicit.add(entry.getValue().get(t));
+			}
+
+			Map<IPredicate, IRelation> inputFacts = new HashMap<IPredicate, IRelation>();
+
+			for (Map.Entry<IPredicate, Set<ITuple>> entry : explicitFacts
+					.entrySet()) {
+				IRelation relation = mConfiguration.relationFactory
+						.createRelation();
+
+				for (ITuple tuple : entry.getValue())
+					relation.add(tuple);
+
+				inputFacts.put(entry.getKey(), relation);
+			}
+
+			createEvaluationStrategy(inputFacts);
+
+			// Prepared queries have to be prepared again.
+			mVersion++;
+		}
+	}
+
+	/**
+	 * Get the explicit facts of the knowledge-base, which are the first
+	 * tuples of the relations of the input facts.
+	 */
+	private Map<IPredicate, Set<ITuple>> explicitFacts() {
+		if (mExplicitFacts == null) {
+			mExplicitFacts = new HashMap<IPredicate, Set<ITuple>>();
+
+			for (Map.Entry<IPredicate, IRelation> entry : mInputFacts
+					.entrySet()) {
+				Set<ITuple> explicit = new LinkedHashSet<ITuple>();
+				int size = mInputSizes.get(entry.getKey());
+
+				for (int t = 0; t < size; ++t)
+					explicit.add(entry.getValue().get(t));
+
+				mExplicitFacts.put(entry.getKey(), explicit);
+			}
+
+			mInputFacts = null;
+			mInputSizes.clear();
+		}
+
+		return mExplicitFacts;
+	}
+
+	/**
+	 * A prepared query that is prepared again, if the facts of the
+	 * knowledge-base have changed.
+	 */
+	private class Prepared implements IPreparedQuery {
+		Prepared(IQuery query, List<IVariable> parameters)
+				throws EvaluationException {
+			mQuery = query;
+			mParameters = parameters;
+
+			prepare();
+		}
+
+		public List<IVariable> getParameters() {
+			return mPrepared.getParameters();
+		}
+
+		public IRelation execute(ITuple bindings) throws EvaluationException {
+			return execute(bindings, null);
+		}
+
+		public IRelation execute(ITuple bindings,
+				List<IVariable> variableBindings) throws EvaluationException {
+			// The prepared query may be executed on other threads.
+			ConfigurationThreadLocalStorage.setConfiguration(mConfiguration);
+			RuleElementExecutorThreadLocalStorage
+					.setExecutor(mRuleElementExecutor);
+
+			// Queries read the facts, which updates modify.
+			synchronized (KnowledgeBase.this) {
+				if (mPreparedVersion != mVersion)
+					prepare();
+
+				return mPrepared.execute(bindings, variableBindings);
+			}
+		}
+
+		private void prepare() throws EvaluationException {
+			mPrepared = mEvaluationStrategy.prepareQuery(mQuery, mParameters);
+			mPreparedVersion = mVersion;
+		}
+
+		private final IQuery mQuery;
+
+		private final List<IVariable> mParameters;
+
+		private IPreparedQuery mPrepared;
+
+		private int mPreparedVersion;
+	}
+
 	public List<IRule> getRules() {
 		return mRules;
 	}
@@ -164,7 +386,22 @@ public class KnowledgeBase implements IKnowledgeBase {
 	}
 
 	/** The facts of the knowledge-base. */
-	private final IFacts mFacts;
+	private IFacts mFacts;
+
+	/**
+	 * The input facts, until the explicit facts are needed to create the
+	 * evaluation strategy again.
+	 */
+	private Map<IPredicate, IRelation> mInputFacts;
+
+	/** The number of explicit facts of each relation of the input facts. */
+	private final Map<IPredicate, Integer> mInputSizes = new HashMap<IPredicate, Integer>();
+
+	/** The explicit facts, if facts have been added or removed. */
+	private Map<IPredicate, Set<ITuple>> mExplicitFacts;
+
+	/** The number of times facts have been added or removed. */
+	private int mVersion;
 
 	/** The rules of the knowledge-base. */
 	private final List<IRule> mRules;
@@ -174,4 +411,11 @@ public class KnowledgeBase implements IKnowledgeBase {
 
 	/** The evaluation strategy for the knowledge-base. */
 	private IEvaluationStrategy mEvaluationStrategy;
+
+	/**
+	 * The thread pool for rule elements, if it was created by this
+	 * knowledge-base. Its threads are daemon threads that are released when
+	 * idle, so the pool is never shut down.
+	 */
+	private final ExecutorService mRuleElementExecutor;
 }
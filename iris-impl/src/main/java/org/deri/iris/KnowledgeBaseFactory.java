@@ -49,7 +49,8 @@ public class KnowledgeBaseFactory
 	
 	/**
 	 * Create a knowledge base with a custom configuration.
-	 * @param facts The starting facts.
+	 * @param facts The starting facts. Facts can be added and removed later with
+	 * {@link IKnowledgeBase#addFacts(Map)} and {@link IKnowledgeBase#removeFacts(Map)}.
 	 * @param rules The rules to use.
 	 * @param configuration The configuration to use for the new knowledge-base.
 	 * @return A new knowledge-base instance.
@@ -0,0 +1,53 @@
+/*
+ * Integrated Rule Inference System (IRIS):
+ * An extensible rule inference system for datalog with extensions.
+ * 
+ * Copyright (C) 2008 Semantic Technology Institute (STI) Innsbruck, 
+ * University of Innsbruck, Technikerstrasse 21a, 6020 Innsbruck, Austria.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ */
+package org.deri.iris;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * A utility to allocate the thread pool of a knowledge-base, on which rule
+ * elements process their input chunks, to the current thread.
+ */
+public class RuleElementExecutorThreadLocalStorage
+{
+	/**
+	 * Set this thread's thread pool for rule elements.
+	 * @param executor The thread pool of the knowledge-base, or null if it has none.
+	 */
+	public static void setExecutor( ExecutorService executor )
+	{
+		mExecutor.set( executor );
+	}
+	
+	/**
+	 * Get this thread's thread pool for rule elements.
+	 * @return The thread pool of the knowledge-base, or null if there is none.
+	 */
+	public static ExecutorService getExecutor()
+	{
+		return mExecutor.get();
+	}
+	
+	/** The thread pool of each thread. */
+	private static final ThreadLocal<ExecutorService> mExecutor = new ThreadLocal<ExecutorService>();
+}
@@ -27,6 +27,7 @@ import java.util.List;
 import org.deri.iris.EvaluationException;
 import org.deri.iris.ProgramNotStratifiedException;
 import org.deri.iris.RuleUnsafeException;
+import org.deri.iris.api.IPreparedQuery;
 import org.deri.iris.api.basics.IQuery;
 import org.deri.iris.api.terms.IVariable;
 import org.deri.iris.storage.IRelation;
@@ -48,4 +49,16 @@ public interface IEvaluationStrategy
 	 * @throws EvaluationException If the evaluation fails for any other reason.
 	 */
 	IRelation evaluateQuery( IQuery query, List<IVariable> outputVariables ) throws ProgramNotStratifiedException, RuleUnsafeException, EvaluationException;
+
+	/**
+	 * Prepare a query for being evaluated many times with different values for its parameters.
+	 * @param query The query to prepare.
+	 * @param parameters The variables of the query that are bound by the values given to
+	 * the prepared query.
+	 * @return The prepared query.
+	 * @throws ProgramNotStratifiedException If the program (knowledge-base)can not be stratified
+	 * @throws RuleUnsafeException If the program (knowledge-base) contains an unsafe rule.
+	 * @throws EvaluationException If the preparation fails for any other reason.
+	 */
+	IPreparedQuery prepareQuery( IQuery query, List<IVariable> parameters ) throws ProgramNotStratifiedException, RuleUnsafeException, EvaluationException;
 }
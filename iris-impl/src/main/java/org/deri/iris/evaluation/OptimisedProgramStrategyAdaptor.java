@@ -22,23 +22,40 @@
  */
 package org.deri.iris.evaluation;
 
-import java.util.Collections;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.deri.iris.Configuration;
 import org.deri.iris.EvaluationException;
+import org.deri.iris.api.IPreparedQuery;
 import org.deri.iris.api.IProgramOptimisation;
+import org.deri.iris.api.basics.IAtom;
+import org.deri.iris.api.basics.ILiteral;
+import org.deri.iris.api.basics.IPredicate;
 import org.deri.iris.api.basics.IQuery;
 import org.deri.iris.api.basics.IRule;
+import org.deri.iris.api.basics.ITuple;
+import org.deri.iris.api.terms.IConstructedTerm;
+import org.deri.iris.api.terms.ITerm;
 import org.deri.iris.api.terms.IVariable;
+import org.deri.iris.evaluation.stratifiedbottomup.StratifiedBottomUpEvaluationStrategy;
+import org.deri.iris.factory.Factory;
 import org.deri.iris.facts.IFacts;
 import org.deri.iris.facts.OriginalFactsPreservingFacts;
+import org.deri.iris.rules.RuleManipulator;
 import org.deri.iris.storage.IRelation;
 
 /**
  * An evaluation strategy adaptor that uses program optimisations. <br />
- * This adaptor applies the optimisations each time a query is executed.
- * This requires a new evaluation strategy to also be created for each query.
+ * This adaptor applies the optimisations once for each binding pattern of a query, i.e.
+ * with stand-in constants in place of the constants of the query, and keeps the optimised
+ * programs of the last few binding patterns. If the only rules of an optimised program
+ * that contain the constants of the query are facts (the seeds of magic sets), then the
+ * evaluation strategy of the optimised program is kept as well and each query only adds
+ * its seeds to the facts that were deduced for the earlier queries.
  */
 public class OptimisedProgramStrategyAdaptor implements IEvaluationStrategy
 {
@@ -53,6 +70,19 @@ public class OptimisedProgramStrategyAdaptor implements IEvaluationStrategy
 		mFacts = facts;
 		mRules = rules;
 		mConfiguration = configuration;
+		
+		final int capacity = configuration.optimisedProgramCacheSize;
+		
+		mPrograms = new LinkedHashMap<IQuery, OptimisedProgram>( 16, 0.75f, true )
+		{
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry( Map.Entry<IQuery, OptimisedProgram> eldest )
+			{
+				return size() > capacity;
+			}
+		};
 	}
 	
 	// Need to think about this.
@@ -62,56 +92,367 @@ public class OptimisedProgramStrategyAdaptor implements IEvaluationStrategy
 	public IRelation evaluateQuery( IQuery query, List<IVariable> outputVariables ) throws EvaluationException
 	{
 		if( mMinimalModelComputed )
-		{
 			return mStrategy.evaluateQuery( query, outputVariables );
+		
+		List<ITerm> values = new ArrayList<ITerm>();
+		IQuery placeholderQuery = liftConstants( query, values );
+		
+		OptimisedProgram program;
+		
+		synchronized( mPrograms )
+		{
+			program = mPrograms.get( placeholderQuery );
 		}
-		else
+		
+		if( program == null )
 		{
-			List<IRule> rules = mRules;
-			boolean optimised = false;
+			IProgramOptimisation.Result result = optimise( placeholderQuery );
+			
+			if( result == null )
+			{
+				computeMinimalModel();
+
+				return mStrategy.evaluateQuery( query, outputVariables );
+			}
+			
+			program = new OptimisedProgram( result, placeholders( values.size() ) );
+			
+			if( mConfiguration.optimisedProgramCacheSize > 0 )
+			{
+				synchronized( mPrograms )
+				{
+					mPrograms.put( placeholderQuery, program );
+				}
+			}
+		}
+		
+		return program.evaluate( Factory.BASIC.createTuple( values ), outputVariables );
+	}
 	
-			for( IProgramOptimisation optimisation : mConfiguration.programOptmimisers )
+	/**
+	 * Prepare a query. The optimisations are applied once, with stand-in constants for the
+	 * parameters, and each execution of the prepared query only puts the values of the
+	 * parameters in to the optimised rules and query.
+	 */
+	public IPreparedQuery prepareQuery( IQuery query, final List<IVariable> parameters ) throws EvaluationException
+	{
+		if( mMinimalModelComputed )
+			return mStrategy.prepareQuery( query, parameters );
+		
+		List<ITerm> placeholders = placeholders( parameters.size() );
+		
+		IQuery placeholderQuery = PreparedQuery.substitute( query, parameters, Factory.BASIC.createTuple( placeholders ) );
+		
+		IProgramOptimisation.Result result = optimise( placeholderQuery );
+		
+		if( result == null )
+		{
+			computeMinimalModel();
+			
+			return mStrategy.prepareQuery( query, parameters );
+		}
+		
+		final OptimisedProgram program = new OptimisedProgram( result, placeholders );
+		final List<IVariable> preparedParameters = new ArrayList<IVariable>( parameters );
+		
+		return new IPreparedQuery()
+		{
+			public List<IVariable> getParameters()
+			{
+				return preparedParameters;
+			}
+
+			public IRelation execute( ITuple bindings ) throws EvaluationException
+			{
+				return execute( bindings, null );
+			}
+
+			public IRelation execute( ITuple bindings, List<IVariable> variableBindings ) throws EvaluationException
 			{
-				IProgramOptimisation.Result result = optimisation.optimise( rules, query );
+				if( variableBindings == null )
+					variableBindings = new ArrayList<IVariable>();
 				
-				// If the optimisation succeeded then replace the rules and query with the optimised version. 
-				if( result != null )
+				return program.evaluate( bindings, variableBindings );
+			}
+		};
+	}
+	
+	/**
+	 * Replace the constants of the ordinary literals of a query with stand-in constants.
+	 * The optimised program of the resulting query can be used for all queries with the
+	 * same binding pattern.
+	 * @param query The query.
+	 * @param values The list to which the replaced constants are added, in the order of their
+	 * stand-in constants.
+	 * @return The query with the stand-in constants, or the query itself if it has no constants.
+	 */
+	private static IQuery liftConstants( IQuery query, List<ITerm> values )
+	{
+		List<ILiteral> literals = new ArrayList<ILiteral>();
+		
+		for( ILiteral literal : query.getLiterals() )
+		{
+			IAtom atom = literal.getAtom();
+			
+			if( ! atom.isBuiltin() )
+			{
+				List<ITerm> terms = new ArrayList<ITerm>();
+				
+				for( ITerm term : atom.getTuple() )
 				{
-					query = result.query;
-					rules = result.rules;
-					optimised = true;
+					if( term.isGround() )
+					{
+						terms.add( Factory.TERM.createString( PLACEHOLDER_PREFIX + values.size() ) );
+						values.add( term );
+					}
+					else
+						terms.add( term );
 				}
+				
+				atom = Factory.BASIC.createAtom( atom.getPredicate(), Factory.BASIC.createTuple( terms ) );
 			}
+			
+			literals.add( Factory.BASIC.createLiteral( literal.isPositive(), atom ) );
+		}
+		
+		return values.isEmpty() ? query : Factory.BASIC.createQuery( literals );
+	}
+	
+	/**
+	 * Create the stand-in constants.
+	 * @param count The number of stand-in constants.
+	 * @return The stand-in constants.
+	 */
+	private static List<ITerm> placeholders( int count )
+	{
+		List<ITerm> placeholders = new ArrayList<ITerm>();
+		
+		for( int p = 0; p < count; ++p )
+			placeholders.add( Factory.TERM.createString( PLACEHOLDER_PREFIX + p ) );
+		
+		return placeholders;
+	}
+	
+	/**
+	 * Apply all program optimisations for a query.
+	 * @param query The query.
+	 * @return The optimised rules and query, or null if no optimisation succeeded.
+	 */
+	private IProgramOptimisation.Result optimise( IQuery query )
+	{
+		List<IRule> rules = mRules;
+		boolean optimised = false;
 
-			// Uncomment for dumping the optimised rule set
-//			System.out.println( "==================================================================");
-//			for( IRule rule : rules ) {
-//				System.out.println( rule );
-//			}
-//			System.out.println( "Rule count: " + rules.size() );
-//			System.out.println( "==================================================================");
-			
-			if( optimised )
+		for( IProgramOptimisation optimisation : mConfiguration.programOptmimisers )
+		{
+			IProgramOptimisation.Result result = optimisation.optimise( rules, query );
+			
+			// If the optimisation succeeded then replace the rules and query with the optimised version. 
+			if( result != null )
+			{
+				query = result.query;
+				rules = result.rules;
+				optimised = true;
+			}
+		}
+
+		// Uncomment for dumping the optimised rule set
+//		System.out.println( "==================================================================");
+//		for( IRule rule : rules ) {
+//			System.out.println( rule );
+//		}
+//		System.out.println( "Rule count: " + rules.size() );
+//		System.out.println( "==================================================================");
+		
+		return optimised ? new IProgramOptimisation.Result( rules, query ) : null;
+	}
+	
+	/**
+	 * Couldn't optimise at all, so the entire minimal model must be calculated
+	 * (assuming a bottom-up evaluation strategy is used!)
+	 */
+	private void computeMinimalModel() throws EvaluationException
+	{
+		mStrategy = mConfiguration.evaluationStrategyFactory.createEvaluator( mFacts, mRules, mConfiguration );
+		
+		mMinimalModelComputed = true;
+	}
+	
+	/**
+	 * The rules and query optimised for the stand-in constants of a binding pattern.
+	 */
+	private class OptimisedProgram
+	{
+		OptimisedProgram( IProgramOptimisation.Result result, List<ITerm> placeholders )
+		{
+			mQuery = result.query;
+			mPlaceholders = placeholders;
+			
+			List<IRule> plainRules = new ArrayList<IRule>();
+			
+			for( IRule rule : result.rules )
+			{
+				if( ! containsPlaceholder( rule ) )
+					plainRules.add( rule );
+				else if( rule.getBody().isEmpty() && rule.getHead().size() == 1 )
+					mSeedRules.add( rule );
+				else
+					mRulesWithPlaceholders.add( rule );
+			}
+			
+			mPlainRules = plainRules.size() == result.rules.size() ? result.rules : plainRules;
+			mIncremental = mRulesWithPlaceholders.isEmpty();
+		}
+		
+		/**
+		 * Evaluate the optimised query for the given values of the stand-in constants.
+		 * @param values The values of the stand-in constants.
+		 * @param outputVariables The list to fill with the variables of the query.
+		 * @return The answer.
+		 */
+		synchronized IRelation evaluate( ITuple values, List<IVariable> outputVariables ) throws EvaluationException
+		{
+			PreparedQuery.checkBindings( mPlaceholders, values );
+			
+			IQuery query = mPlaceholders.isEmpty() ? mQuery : PreparedQuery.substitute( mQuery, mPlaceholders, values );
+			
+			if( mIncremental && mIncrementalStrategy == null )
 			{
 				IFacts facts = new OriginalFactsPreservingFacts( mFacts, mConfiguration.relationFactory );
 				
-				mStrategy = mConfiguration.evaluationStrategyFactory.createEvaluator( facts, rules, mConfiguration );
+				IEvaluationStrategy strategy = mConfiguration.evaluationStrategyFactory.createEvaluator( facts, mPlainRules, mConfiguration );
 				
-				return mStrategy.evaluateQuery( query, outputVariables );
+				// Only a stratified bottom-up evaluation can continue with more facts.
+				if( strategy instanceof StratifiedBottomUpEvaluationStrategy &&
+								( (StratifiedBottomUpEvaluationStrategy) strategy ).canAddFacts() )
+					mIncrementalStrategy = (StratifiedBottomUpEvaluationStrategy) strategy;
+				else
+				{
+					mIncremental = false;
+					
+					if( mSeedRules.isEmpty() )
+						return strategy.evaluateQuery( query, outputVariables );
+				}
 			}
-			else
+			
+			if( mIncremental )
 			{
-				// Couldn't optimise at all, so the entire minimal model must be calculated
-				// (assuming a bottom-up evaluation strategy is used!)
-				mStrategy = mConfiguration.evaluationStrategyFactory.createEvaluator( mFacts, mRules, mConfiguration );
+				mIncrementalStrategy.addFacts( seeds( values ) );
 				
-				mMinimalModelComputed = true;
-
-				return mStrategy.evaluateQuery( query, outputVariables );
+				return mIncrementalStrategy.evaluateQuery( query, outputVariables );
+			}
+			
+			List<IRule> rules = new ArrayList<IRule>( mPlainRules );
+			rules.addAll( substitute( mSeedRules, values ) );
+			rules.addAll( substitute( mRulesWithPlaceholders, values ) );
+			
+			IFacts facts = new OriginalFactsPreservingFacts( mFacts, mConfiguration.relationFactory );
+			
+			IEvaluationStrategy strategy = mConfiguration.evaluationStrategyFactory.createEvaluator( facts, rules, mConfiguration );
+			
+			return strategy.evaluateQuery( query, outputVariables );
+		}
+		
+		/**
+		 * Create the facts of the seed rules for the given values of the stand-in constants.
+		 */
+		private Map<IPredicate, IRelation> seeds( ITuple values )
+		{
+			Map<IPredicate, IRelation> seeds = new HashMap<IPredicate, IRelation>();
+			
+			for( IRule rule : substitute( mSeedRules, values ) )
+			{
+				IAtom atom = rule.getHead().get( 0 ).getAtom();
+				
+				IRelation relation = seeds.get( atom.getPredicate() );
+				
+				if( relation == null )
+				{
+					relation = mConfiguration.relationFactory.createRelation();
+					seeds.put( atom.getPredicate(), relation );
+				}
+				
+				relation.add( atom.getTuple() );
+			}
+			
+			return seeds;
+		}
+		
+		private List<IRule> substitute( List<IRule> rules, ITuple values )
+		{
+			RuleManipulator manipulator = new RuleManipulator();
+			
+			List<IRule> result = new ArrayList<IRule>();
+			
+			for( IRule rule : rules )
+			{
+				for( int p = 0; p < mPlaceholders.size(); ++p )
+					rule = manipulator.replace( rule, true, mPlaceholders.get( p ), values.get( p ) );
+				
+				result.add( rule );
+			}
+			
+			return result;
+		}
+		
+		private boolean containsPlaceholder( IRule rule )
+		{
+			List<ILiteral> literals = new ArrayList<ILiteral>( rule.getHead() );
+			literals.addAll( rule.getBody() );
+			
+			for( ILiteral literal : literals )
+			{
+				for( ITerm term : literal.getAtom().getTuple() )
+				{
+					if( containsPlaceholder( term ) )
+						return true;
+				}
+			}
+			
+			return false;
+		}
+		
+		private boolean containsPlaceholder( ITerm term )
+		{
+			if( term instanceof IConstructedTerm )
+			{
+				for( ITerm parameter : ( (IConstructedTerm) term ).getParameters() )
+				{
+					if( containsPlaceholder( parameter ) )
+						return true;
+				}
+				
+				return false;
 			}
+			
+			return mPlaceholders.contains( term );
 		}
+		
+		/** The optimised rules without stand-in constants. */
+		private final List<IRule> mPlainRules;
+		
+		/** The facts of the optimised rules that contain stand-in constants. */
+		private final List<IRule> mSeedRules = new ArrayList<IRule>();
+		
+		/** The other optimised rules that contain stand-in constants. */
+		private final List<IRule> mRulesWithPlaceholders = new ArrayList<IRule>();
+		
+		/** The optimised query with the stand-in constants. */
+		private final IQuery mQuery;
+		
+		/** The stand-in constants. */
+		private final List<ITerm> mPlaceholders;
+		
+		/** Indicates if the seeds of each query are added to the facts of the earlier queries. */
+		private boolean mIncremental;
+		
+		/** The evaluation strategy that keeps the facts deduced for the earlier queries. */
+		private StratifiedBottomUpEvaluationStrategy mIncrementalStrategy;
 	}
 
+	/** The prefix of the stand-in constants for the constants and parameters of queries. */
+	private static final String PLACEHOLDER_PREFIX = "parameter_xXx_prefix_xXx";
+
 	/** The original facts. */
 	private final IFacts mFacts;
 	
@@ -121,6 +462,9 @@ public class OptimisedProgramStrategyAdaptor implements IEvaluationStrategy
 	/** The knowledge-base configuration. */
 	private final Configuration mConfiguration;
 	
+	/** The optimised programs of the most recently used binding patterns. */
+	private final Map<IQuery, OptimisedProgram> mPrograms;
+	
 	/** This flag is set of no optimisations can be made. */
 	private boolean mMinimalModelComputed = false;
 	
@@ -0,0 +1,136 @@
+/*
+ * Integrated Rule Inference System (IRIS):
+ * An extensible rule inference system for datalog with extensions.
+ * 
+ * Copyright (C) 2008 Semantic Technology Institute (STI) Innsbruck, 
+ * University of Innsbruck, Technikerstrasse 21a, 6020 Innsbruck, Austria.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ */
+package org.deri.iris.evaluation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.deri.iris.EvaluationException;
+import org.deri.iris.api.IPreparedQuery;
+import org.deri.iris.api.basics.IAtom;
+import org.deri.iris.api.basics.ILiteral;
+import org.deri.iris.api.basics.IQuery;
+import org.deri.iris.api.basics.ITuple;
+import org.deri.iris.api.terms.ITerm;
+import org.deri.iris.api.terms.IVariable;
+import org.deri.iris.factory.Factory;
+import org.deri.iris.rules.RuleManipulator;
+import org.deri.iris.storage.IRelation;
+
+/**
+ * A prepared query for evaluation strategies that have nothing to prepare.
+ * Each execution substitutes the values of the parameters in to the query
+ * and evaluates it with the evaluation strategy.
+ */
+public class PreparedQuery implements IPreparedQuery
+{
+	/**
+	 * Constructor.
+	 * @param strategy The evaluation strategy that evaluates the query.
+	 * @param query The query.
+	 * @param parameters The parameters of the query.
+	 */
+	public PreparedQuery( IEvaluationStrategy strategy, IQuery query, List<IVariable> parameters )
+	{
+		assert strategy != null;
+		assert query != null;
+		assert parameters != null;
+		
+		mStrategy = strategy;
+		mQuery = query;
+		mParameters = new ArrayList<IVariable>( parameters );
+	}
+
+	public List<IVariable> getParameters()
+	{
+		return mParameters;
+	}
+
+	public IRelation execute( ITuple bindings ) throws EvaluationException
+	{
+		return execute( bindings, null );
+	}
+
+	public IRelation execute( ITuple bindings, List<IVariable> variableBindings ) throws EvaluationException
+	{
+		if( variableBindings == null )
+			variableBindings = new ArrayList<IVariable>();
+		
+		return mStrategy.evaluateQuery( substitute( mQuery, mParameters, bindings ), variableBindings );
+	}
+
+	/**
+	 * Replace the parameters of a query with their values.
+	 * @param query The query.
+	 * @param parameters The parameters, or the terms that stand in for them.
+	 * @param bindings The values of the parameters.
+	 * @return The query with the values in place of the parameters.
+	 */
+	public static IQuery substitute( IQuery query, List<? extends ITerm> parameters, ITuple bindings )
+	{
+		checkBindings( parameters, bindings );
+		
+		RuleManipulator manipulator = new RuleManipulator();
+		
+		List<ILiteral> literals = new ArrayList<ILiteral>();
+		
+		for( ILiteral literal : query.getLiterals() )
+		{
+			IAtom atom = literal.getAtom();
+			
+			for( int p = 0; p < parameters.size(); ++p )
+				atom = manipulator.replace( atom, parameters.get( p ), bindings.get( p ) );
+			
+			literals.add( Factory.BASIC.createLiteral( literal.isPositive(), atom ) );
+		}
+		
+		return Factory.BASIC.createQuery( literals );
+	}
+	
+	/**
+	 * Check that there is a ground value for every parameter.
+	 * @param parameters The parameters.
+	 * @param bindings The values of the parameters.
+	 */
+	public static void checkBindings( List<? extends ITerm> parameters, ITuple bindings )
+	{
+		if( bindings == null )
+			throw new IllegalArgumentException( "PreparedQuery.execute() - bindings must not be null." );
+		
+		if( bindings.size() != parameters.size() )
+			throw new IllegalArgumentException( "PreparedQuery.execute() - expected " +
+					parameters.size() + " bindings, but got " + bindings.size() + "." );
+		
+		if( ! bindings.isGround() )
+			throw new IllegalArgumentException( "PreparedQuery.execute() - bindings must be ground." );
+	}
+
+	/** The evaluation strategy. */
+	private final IEvaluationStrategy mStrategy;
+	
+	/** The query with the parameters. */
+	private final IQuery mQuery;
+	
+	/** The parameters. */
+	private final List<IVariable> mParameters;
+}
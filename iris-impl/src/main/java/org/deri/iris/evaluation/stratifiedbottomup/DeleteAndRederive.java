@@ -0,0 +1,736 @@
+/*
+ * Integrated Rule Inference System (IRIS):
+ * An extensible rule inference system for datalog with extensions.
+ * 
+ * Copyright (C) 2008 Semantic Technology Institute (STI) Innsbruck, 
+ * University of Innsbruck, Technikerstrasse 21a, 6020 Innsbruck, Austria.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ */
+package org.deri.iris.evaluation.stratifiedbottomup;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.deri.iris.Configuration;
+import org.deri.iris.EvaluationException;
+import org.deri.iris.api.basics.IAtom;
+import org.deri.iris.api.basics.ILiteral;
+import org.deri.iris.api.basics.IPredicate;
+import org.deri.iris.api.basics.IRule;
+import org.deri.iris.api.basics.ITuple;
+import org.deri.iris.evaluation.stratifiedbottomup.seminaive.SemiNaiveEvaluator;
+import org.deri.iris.factory.Factory;
+import org.deri.iris.facts.Facts;
+import org.deri.iris.facts.IFacts;
+import org.deri.iris.rules.compiler.ICompiledRule;
+import org.deri.iris.rules.compiler.RuleCompiler;
+import org.deri.iris.storage.IRelation;
+import org.deri.iris.storage.IRemovableRelation;
+import org.deri.iris.storage.IRemovalListener;
+import org.deri.iris.utils.equivalence.IEquivalentTerms;
+
+/**
+ * Maintains the facts deduced by a stratified bottom-up evaluation, when facts
+ * are added or removed, with the Delete and Rederive (DRed) algorithm. The
+ * strata are updated in order. For each stratum, first all deduced facts that
+ * may depend on a removed fact, or on the absence of an added fact, are
+ * deleted. Then the deleted facts that still have a derivation are deduced
+ * again, and finally the new facts are propagated with semi-naive evaluation.
+ * <br />
+ * Tuples are removed from the relations in place (see
+ * {@link IRemovableRelation}), so the compiled rules and queries stay valid
+ * and update their indexes for the removed tuples only. The rules that find
+ * the deleted and rederived facts are compiled once for each stratum.
+ */
+class DeleteAndRederive {
+	/**
+	 * Constructor.
+	 * 
+	 * @param facts The facts, which contain the explicit and the deduced facts.
+	 *            Their relations must support removal, unless facts are only
+	 *            added to a program without negation.
+	 * @param strata The rules of each stratum, as compiled.
+	 * @param compiledStrata The compiled rules of each stratum.
+	 * @param explicitSizes The number of tuples of each relation before the
+	 *            evaluation, i.e. the number of explicit facts.
+	 * @param equivalentTerms The equivalent terms.
+	 * @param configuration The knowledge-base configuration object.
+	 */
+	DeleteAndRederive(IFacts facts, List<List<IRule>> strata,
+			List<List<ICompiledRule>> compiledStrata,
+			Map<IPredicate, Integer> explicitSizes,
+			IEquivalentTerms equivalentTerms, Configuration configuration) {
+		mFacts = facts;
+		mStrata = strata;
+		mCompiledStrata = compiledStrata;
+		mEquivalentTerms = equivalentTerms;
+		mConfiguration = configuration;
+		mMaintenance = new ArrayList<Maintenance>(Collections
+				.<Maintenance> nCopies(strata.size(), null));
+
+		// Only the explicit facts of deduced predicates are kept, the
+		// relations of all other predicates contain nothing else.
+		for (List<IRule> stratum : strata) {
+			for (IRule rule : stratum) {
+				IPredicate predicate = head(rule);
+
+				if (mExplicitFacts.containsKey(predicate))
+					continue;
+
+				Integer size = explicitSizes.get(predicate);
+
+				mExplicitFacts.put(predicate, new ExplicitFacts(facts
+						.get(predicate), size != null ? size : 0));
+			}
+		}
+	}
+
+	/**
+	 * Add and remove explicit facts and update the deduced facts.
+	 * 
+	 * @param added The tuples to add for each predicate.
+	 * @param removed The tuples to remove for each predicate. Tuples that are
+	 *            not explicit facts are ignored.
+	 * @throws EvaluationException If the evaluation fails.
+	 */
+	void update(Map<IPredicate, IRelation> added,
+			Map<IPredicate, IRelation> removed) throws EvaluationException {
+		IFacts explicitAdded = new Facts(mConfiguration.relationFactory);
+		IFacts explicitRemoved = new Facts(mConfiguration.relationFactory);
+
+		for (Map.Entry<IPredicate, IRelation> entry : removed.entrySet()) {
+			IPredicate predicate = entry.getKey();
+			ExplicitFacts explicit = mExplicitFacts.get(predicate);
+			IRelation tuples = entry.getValue();
+
+			for (int t = 0; t < tuples.size(); ++t) {
+				ITuple tuple = tuples.get(t);
+
+				if (explicit != null ? explicit.clear(tuple) : mFacts.get(
+						predicate).contains(tuple))
+					explicitRemoved.get(predicate).add(tuple);
+			}
+		}
+
+		for (Map.Entry<IPredicate, IRelation> entry : added.entrySet()) {
+			IPredicate predicate = entry.getKey();
+			ExplicitFacts explicit = mExplicitFacts.get(predicate);
+			IRelation tuples = entry.getValue();
+
+			for (int t = 0; t < tuples.size(); ++t) {
+				ITuple tuple = tuples.get(t);
+
+				if (explicit != null ? !explicit.contains(tuple) : !mFacts
+						.get(predicate).contains(tuple))
+					explicitAdded.get(predicate).add(tuple);
+			}
+		}
+
+		mInserted = new Facts(mConfiguration.relationFactory);
+		mDeleted = new Facts(mConfiguration.relationFactory);
+
+		try {
+			// The predicates without rules change by the explicit facts only.
+			for (IPredicate predicate : explicitRemoved.getPredicates()) {
+				if (!mExplicitFacts.containsKey(predicate)) {
+					remove(predicate, explicitRemoved.get(predicate));
+					mDeleted.get(predicate).addAll(
+							explicitRemoved.get(predicate));
+				}
+			}
+
+			for (IPredicate predicate : explicitAdded.getPredicates()) {
+				if (!mExplicitFacts.containsKey(predicate)) {
+					mFacts.get(predicate).addAll(explicitAdded.get(predicate));
+					mInserted.get(predicate).addAll(
+							explicitAdded.get(predicate));
+				}
+			}
+
+			for (int s = 0; s < mStrata.size(); ++s) {
+				if (isAffected(mStrata.get(s), explicitAdded, explicitRemoved))
+					maintenance(s).update(explicitAdded, explicitRemoved);
+			}
+		} finally {
+			mInserted = null;
+			mDeleted = null;
+		}
+	}
+
+	/**
+	 * Get the maintenance rules of a stratum, and compile them the first time.
+	 */
+	private Maintenance maintenance(int stratum) throws EvaluationException {
+		Maintenance maintenance = mMaintenance.get(stratum);
+
+		if (maintenance == null) {
+			maintenance = new Maintenance(stratum);
+			mMaintenance.set(stratum, maintenance);
+		}
+
+		return maintenance;
+	}
+
+	/**
+	 * The rules that update the deduced facts of one stratum. They read the
+	 * relations of the facts, and relations of the changed facts of each
+	 * predicate, which are filled for an update and emptied afterwards.
+	 */
+	private class Maintenance {
+		Maintenance(int stratum) throws EvaluationException {
+			mStratum = stratum;
+
+			List<IRule> rules = mStrata.get(stratum);
+
+			for (IRule rule : rules)
+				mHeads.add(head(rule));
+
+			for (IPredicate predicate : mHeads)
+				markedRelation(mOverdeleted, OVERDELETED, predicate);
+
+			List<IRule> overdeleteRules = new ArrayList<IRule>();
+			List<IRule> rederiveRules = new ArrayList<IRule>();
+
+			for (IRule rule : rules) {
+				ILiteral head = rule.getHead().get(0);
+				List<ILiteral> body = rule.getBody();
+
+				// Overdelete the facts that have a derivation that uses a
+				// deleted fact, or the absence of an inserted fact. Negated
+				// literals other than the one of an inserted fact are
+				// ignored, which can only find more facts.
+				for (int l = 0; l < body.size(); ++l) {
+					ILiteral literal = body.get(l);
+					IAtom atom = literal.getAtom();
+
+					if (atom.isBuiltin())
+						continue;
+
+					IPredicate predicate = atom.getPredicate();
+					IPredicate delta;
+
+					if (literal.isPositive() && mHeads.contains(predicate))
+						delta = marked(OVERDELETED, predicate);
+					else if (literal.isPositive()) {
+						delta = markedRelation(mDeletedFacts, DELETED,
+								predicate);
+						mPositive.add(predicate);
+					} else
+						delta = markedRelation(mInsertedFacts, INSERTED,
+								predicate);
+
+					List<ILiteral> newBody = new ArrayList<ILiteral>();
+					newBody.add(literal(delta, atom));
+
+					for (int other = 0; other < body.size(); ++other) {
+						if (other != l && body.get(other).isPositive())
+							newBody.add(body.get(other));
+					}
+
+					// Only facts that exist can be deleted.
+					newBody.add(head);
+
+					overdeleteRules.add(Factory.BASIC.createRule(Collections
+							.singletonList(literal(marked(OVERDELETED,
+									head(rule)), head.getAtom())), newBody));
+				}
+
+				// Rederive the overdeleted facts that have a derivation from
+				// the remaining facts.
+				List<ILiteral> newBody = new ArrayList<ILiteral>();
+				newBody.add(literal(marked(OVERDELETED, head(rule)), head
+						.getAtom()));
+				newBody.addAll(body);
+
+				rederiveRules.add(Factory.BASIC.createRule(rule.getHead(),
+						newBody));
+
+				// Deduce the facts that use the absence of a deleted fact.
+				for (int l = 0; l < body.size(); ++l) {
+					ILiteral literal = body.get(l);
+					IAtom atom = literal.getAtom();
+
+					if (literal.isPositive() || atom.isBuiltin())
+						continue;
+
+					newBody = new ArrayList<ILiteral>();
+					newBody.add(literal(markedRelation(mDeletedFacts,
+							DELETED, atom.getPredicate()), atom));
+
+					for (int other = 0; other < body.size(); ++other) {
+						if (other != l)
+							newBody.add(body.get(other));
+					}
+
+					rederiveRules.add(Factory.BASIC.createRule(rule
+							.getHead(), newBody));
+				}
+			}
+
+			// All other predicates are read with the relations of the facts.
+			List<IRule> allRules = new ArrayList<IRule>(overdeleteRules);
+			allRules.addAll(rederiveRules);
+
+			for (IRule rule : allRules) {
+				for (ILiteral literal : rule.getBody()) {
+					IPredicate predicate = literal.getAtom().getPredicate();
+
+					if (!literal.getAtom().isBuiltin()
+							&& !mView.getPredicates().contains(predicate))
+						mView.set(predicate, mFacts.get(predicate));
+				}
+			}
+
+			for (IRule rule : rederiveRules) {
+				if (!mView.getPredicates().contains(head(rule)))
+					mView.set(head(rule), mFacts.get(head(rule)));
+			}
+
+			mOverdeleteRules = compile(overdeleteRules, mView);
+			mRederiveRules = compile(rederiveRules, mView);
+		}
+
+		/**
+		 * Update the deduced facts of the stratum.
+		 */
+		void update(IFacts explicitAdded, IFacts explicitRemoved)
+				throws EvaluationException {
+			try {
+				// 1. Delete everything that might not be deducible any more.
+				overdelete(explicitRemoved);
+
+				Map<IPredicate, List<ITuple>> explicitOverdeleted = new HashMap<IPredicate, List<ITuple>>();
+
+				for (IPredicate predicate : mHeads) {
+					IRelation overdeleted = mOverdeleted.get(predicate);
+					ExplicitFacts explicit = mExplicitFacts.get(predicate);
+					List<ITuple> tuples = new ArrayList<ITuple>();
+
+					for (int t = 0; t < overdeleted.size(); ++t) {
+						if (explicit.contains(overdeleted.get(t)))
+							tuples.add(overdeleted.get(t));
+					}
+
+					explicitOverdeleted.put(predicate, tuples);
+					remove(predicate, overdeleted);
+				}
+
+				// 2. Deduce the deleted facts again, that are explicit or have
+				// a derivation from the remaining facts, and the facts that
+				// have a derivation now, because a negated fact has been
+				// deleted.
+				IFacts deltas = new Facts(mConfiguration.relationFactory);
+
+				for (IPredicate predicate : mHeads) {
+					ExplicitFacts explicit = mExplicitFacts.get(predicate);
+
+					for (ITuple tuple : explicitOverdeleted.get(predicate)) {
+						add(predicate, tuple, deltas);
+						explicit.set(tuple);
+					}
+
+					IRelation tuples = explicitAdded.get(predicate);
+
+					for (int t = 0; t < tuples.size(); ++t) {
+						add(predicate, tuples.get(t), deltas);
+						explicit.set(tuples.get(t));
+					}
+				}
+
+				for (ICompiledRule rule : mRederiveRules) {
+					IRelation tuples = rule.evaluate();
+
+					for (int t = 0; t < tuples.size(); ++t)
+						add(rule.headPredicate(), tuples.get(t), deltas);
+				}
+
+				// 3. Propagate the new facts.
+				for (IPredicate predicate : mInserted.getPredicates()) {
+					if (!mHeads.contains(predicate))
+						deltas.get(predicate).addAll(mInserted.get(predicate));
+				}
+
+				new SemiNaiveEvaluator().evaluateRulesIncrementally(
+						mCompiledStrata.get(mStratum), mFacts, deltas,
+						mConfiguration);
+
+				for (IPredicate predicate : mHeads) {
+					IRelation relation = mFacts.get(predicate);
+					IRelation overdeleted = mOverdeleted.get(predicate);
+
+					for (int t = 0; t < overdeleted.size(); ++t) {
+						if (!relation.contains(overdeleted.get(t)))
+							mDeleted.get(predicate).add(overdeleted.get(t));
+					}
+
+					IRelation tuples = deltas.get(predicate);
+
+					for (int t = 0; t < tuples.size(); ++t) {
+						if (!overdeleted.contains(tuples.get(t)))
+							mInserted.get(predicate).add(tuples.get(t));
+					}
+				}
+			} finally {
+				clear(mOverdeleted);
+				clear(mDeletedFacts);
+				clear(mInsertedFacts);
+			}
+		}
+
+		/**
+		 * Find all facts of the stratum, that have a derivation that uses a
+		 * deleted fact, or the absence of an inserted fact. The rules are
+		 * evaluated on the facts before the update.
+		 */
+		private void overdelete(IFacts explicitRemoved)
+				throws EvaluationException {
+			boolean triggered = false;
+
+			for (IPredicate predicate : mHeads) {
+				IRelation relation = mFacts.get(predicate);
+				IRelation overdeleted = mOverdeleted.get(predicate);
+				IRelation tuples = explicitRemoved.get(predicate);
+
+				for (int t = 0; t < tuples.size(); ++t) {
+					if (relation.contains(tuples.get(t)))
+						triggered |= overdeleted.add(tuples.get(t));
+				}
+			}
+
+			triggered |= fill(mDeletedFacts, mDeleted);
+			triggered |= fill(mInsertedFacts, mInserted);
+
+			if (!triggered)
+				return;
+
+			// The deleted facts of the predicates of lower strata are added
+			// again while the rules are evaluated, and then removed from the
+			// end of the relations.
+			Map<IPredicate, List<ITuple>> restored = new HashMap<IPredicate, List<ITuple>>();
+
+			try {
+				for (IPredicate predicate : mPositive) {
+					if (size(mDeleted, predicate) == 0)
+						continue;
+
+					IRelation relation = mFacts.get(predicate);
+					IRelation deleted = mDeleted.get(predicate);
+					List<ITuple> tuples = new ArrayList<ITuple>();
+					restored.put(predicate, tuples);
+
+					for (int t = 0; t < deleted.size(); ++t) {
+						if (relation.add(deleted.get(t)))
+							tuples.add(deleted.get(t));
+					}
+				}
+
+				new SemiNaiveEvaluator().evaluateRules(mOverdeleteRules,
+						mView, mConfiguration);
+			} finally {
+				for (Map.Entry<IPredicate, List<ITuple>> entry : restored
+						.entrySet()) {
+					IRemovableRelation relation = removable(mFacts.get(entry
+							.getKey()));
+					List<ITuple> tuples = entry.getValue();
+
+					for (int t = tuples.size() - 1; t >= 0; --t)
+						relation.remove(tuples.get(t));
+				}
+			}
+		}
+
+		/**
+		 * Create the relation of the changed facts of a predicate.
+		 */
+		private IPredicate markedRelation(
+				Map<IPredicate, IRelation> relations, String prefix,
+				IPredicate predicate) {
+			IPredicate marked = marked(prefix, predicate);
+
+			if (!relations.containsKey(predicate)) {
+				IRelation relation = mConfiguration.relationFactory
+						.createRelation();
+
+				relations.put(predicate, relation);
+				mView.set(marked, relation);
+			}
+
+			return marked;
+		}
+
+		private final int mStratum;
+
+		/** The predicates the rules of the stratum deduce. */
+		private final Set<IPredicate> mHeads = new HashSet<IPredicate>();
+
+		/** The predicates of other strata the rules read positively. */
+		private final Set<IPredicate> mPositive = new HashSet<IPredicate>();
+
+		/** The overdeleted facts of each predicate of the stratum. */
+		private final Map<IPredicate, IRelation> mOverdeleted = new HashMap<IPredicate, IRelation>();
+
+		/** The deleted facts of each predicate of other strata. */
+		private final Map<IPredicate, IRelation> mDeletedFacts = new HashMap<IPredicate, IRelation>();
+
+		/** The inserted facts of each predicate of other strata. */
+		private final Map<IPredicate, IRelation> mInsertedFacts = new HashMap<IPredicate, IRelation>();
+
+		/** The relations the maintenance rules are compiled for. */
+		private final Facts mView = new Facts(mConfiguration.relationFactory);
+
+		private final List<ICompiledRule> mOverdeleteRules;
+
+		private final List<ICompiledRule> mRederiveRules;
+	}
+
+	/**
+	 * The explicit facts of a predicate that rules deduce, as the rows of its
+	 * relation that hold explicit facts. The rows are moved, when the relation
+	 * moves a tuple to the row of a removed one. If no tuples can be removed
+	 * from the relation, nothing is kept, as facts are only ever added.
+	 */
+	private static class ExplicitFacts implements IRemovalListener {
+		ExplicitFacts(IRelation relation, int size) {
+			mRelation = relation;
+			mRows.set(0, size);
+
+			if (relation instanceof IRemovableRelation)
+				((IRemovableRelation) relation).addRemovalListener(this);
+		}
+
+		boolean contains(ITuple tuple) {
+			if (!(mRelation instanceof IRemovableRelation))
+				return mRelation.contains(tuple);
+
+			int row = indexOf(tuple);
+
+			return row >= 0 && mRows.get(row);
+		}
+
+		/**
+		 * Mark a tuple of the relation as an explicit fact.
+		 */
+		void set(ITuple tuple) {
+			int row = indexOf(tuple);
+
+			if (row >= 0)
+				mRows.set(row);
+		}
+
+		/**
+		 * Mark a tuple of the relation as not an explicit fact.
+		 * 
+		 * @return true, if the tuple was an explicit fact.
+		 */
+		boolean clear(ITuple tuple) {
+			int row = indexOf(tuple);
+
+			if (row < 0 || !mRows.get(row))
+				return false;
+
+			mRows.clear(row);
+
+			return true;
+		}
+
+		public void removing(IRelation relation, int index) {
+			int last = relation.size() - 1;
+
+			mRows.set(index, mRows.get(last));
+			mRows.clear(last);
+		}
+
+		/**
+		 * Get the row of a tuple, or -1 if the relation does not contain it
+		 * or does not support removal.
+		 */
+		private int indexOf(ITuple tuple) {
+			if (mRelation instanceof IRemovableRelation)
+				return ((IRemovableRelation) mRelation).indexOf(tuple);
+
+			return -1;
+		}
+
+		private final IRelation mRelation;
+
+		private final BitSet mRows = new BitSet();
+	}
+
+	/**
+	 * Add a tuple to the facts, and to the deltas if it is new.
+	 */
+	private void add(IPredicate predicate, ITuple tuple, IFacts deltas) {
+		if (mFacts.get(predicate).add(tuple))
+			deltas.get(predicate).add(tuple);
+	}
+
+	/**
+	 * Remove tuples from the relation of a predicate.
+	 */
+	private void remove(IPredicate predicate, IRelation tuples)
+			throws EvaluationException {
+		if (tuples.size() == 0)
+			return;
+
+		IRemovableRelation relation = removable(mFacts.get(predicate));
+
+		for (int t = 0; t < tuples.size(); ++t)
+			relation.remove(tuples.get(t));
+	}
+
+	/**
+	 * Add the changed facts of the predicates to the relations of a
+	 * stratum.
+	 * 
+	 * @return true, if any facts have been added.
+	 */
+	private static boolean fill(Map<IPredicate, IRelation> relations,
+			IFacts changed) {
+		boolean filled = false;
+
+		for (Map.Entry<IPredicate, IRelation> entry : relations.entrySet()) {
+			if (size(changed, entry.getKey()) > 0) {
+				entry.getValue().addAll(changed.get(entry.getKey()));
+				filled = true;
+			}
+		}
+
+		return filled;
+	}
+
+	/**
+	 * Remove all tuples from the relations, starting at the end, so that no
+	 * tuples are moved.
+	 */
+	private static void clear(Map<IPredicate, IRelation> relations)
+			throws EvaluationException {
+		for (IRelation relation : relations.values()) {
+			if (relation.size() == 0)
+				continue;
+
+			IRemovableRelation removable = removable(relation);
+
+			for (int t = relation.size() - 1; t >= 0; --t)
+				removable.remove(relation.get(t));
+		}
+	}
+
+	private static IRemovableRelation removable(IRelation relation)
+			throws EvaluationException {
+		if (!(relation instanceof IRemovableRelation))
+			throw new EvaluationException(
+					"Facts can only be deleted from relations that support removal.");
+
+		return (IRemovableRelation) relation;
+	}
+
+	private List<ICompiledRule> compile(List<IRule> rules, IFacts facts)
+			throws EvaluationException {
+		RuleCompiler compiler = new RuleCompiler(facts, mEquivalentTerms,
+				mConfiguration);
+
+		List<ICompiledRule> compiledRules = new ArrayList<ICompiledRule>();
+
+		for (IRule rule : rules)
+			compiledRules.add(compiler.compile(rule));
+
+		return compiledRules;
+	}
+
+	/**
+	 * Check if the rules of a stratum read changed facts, or deduce predicates
+	 * with changed explicit facts.
+	 */
+	private boolean isAffected(List<IRule> rules, IFacts explicitAdded,
+			IFacts explicitRemoved) {
+		for (IRule rule : rules) {
+			IPredicate head = head(rule);
+
+			if (size(explicitAdded, head) > 0
+					|| size(explicitRemoved, head) > 0)
+				return true;
+
+			for (ILiteral literal : rule.getBody()) {
+				IPredicate predicate = literal.getAtom().getPredicate();
+
+				if (size(mInserted, predicate) > 0
+						|| size(mDeleted, predicate) > 0)
+					return true;
+			}
+		}
+
+		return false;
+	}
+
+	private static int size(IFacts facts, IPredicate predicate) {
+		return facts.getPredicates().contains(predicate) ? facts.get(
+				predicate).size() : 0;
+	}
+
+	private static IPredicate head(IRule rule) {
+		return rule.getHead().get(0).getAtom().getPredicate();
+	}
+
+	/**
+	 * Create the predicate of the changed facts of a predicate.
+	 */
+	private static IPredicate marked(String prefix, IPredicate predicate) {
+		return Factory.BASIC.createPredicate(prefix
+				+ predicate.getPredicateSymbol(), predicate.getArity());
+	}
+
+	/**
+	 * Create a positive literal with the terms of an atom.
+	 */
+	private static ILiteral literal(IPredicate predicate, IAtom atom) {
+		return Factory.BASIC.createLiteral(true, predicate, atom.getTuple());
+	}
+
+	private static final String OVERDELETED = "overdeleted_xXx_prefix_xXx_";
+
+	private static final String DELETED = "deleted_xXx_prefix_xXx_";
+
+	private static final String INSERTED = "inserted_xXx_prefix_xXx_";
+
+	private final IFacts mFacts;
+
+	private final List<List<IRule>> mStrata;
+
+	private final List<List<ICompiledRule>> mCompiledStrata;
+
+	private final IEquivalentTerms mEquivalentTerms;
+
+	private final Configuration mConfiguration;
+
+	/** The explicit facts of the predicates that rules deduce. */
+	private final Map<IPredicate, ExplicitFacts> mExplicitFacts = new HashMap<IPredicate, ExplicitFacts>();
+
+	/** The maintenance rules of each stratum, or null if not compiled yet. */
+	private final List<Maintenance> mMaintenance;
+
+	/** The facts inserted by the current update. */
+	private IFacts mInserted;
+
+	/** The facts deleted by the current update. */
+	private IFacts mDeleted;
+}
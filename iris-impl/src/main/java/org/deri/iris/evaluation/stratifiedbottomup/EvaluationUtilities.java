@@ -29,6 +29,7 @@ import org.deri.iris.Configuration;
 import org.deri.iris.ProgramNotStratifiedException;
 import org.deri.iris.RuleUnsafeException;
 import org.deri.iris.api.basics.IRule;
+import org.deri.iris.facts.IFacts;
 import org.deri.iris.rules.IRuleOptimiser;
 import org.deri.iris.rules.IRuleStratifier;
 
@@ -101,6 +102,25 @@ public class EvaluationUtilities
 		return optimisedRules;
 	}
 	
+	/**
+	 * Choose the join order of the body literals of each rule using the current facts.
+	 * @param rules The rules to re-order.
+	 * @param facts The facts that the rules will be evaluated against.
+	 * @return The re-ordered rules.
+	 */
+	public List<IRule> applyJoinOrderOptimiser( final List<IRule> rules, IFacts facts )
+	{
+		if( mConfiguration.joinOrderOptimiser == null )
+			return rules;
+		
+		List<IRule> reorderedRules = new ArrayList<IRule>();
+		
+		for( IRule rule : rules )
+			reorderedRules.add( mConfiguration.joinOrderOptimiser.optimise( rule, facts ) );
+		
+		return reorderedRules;
+	}
+	
 	/**
 	 * Check the given rules for rule-safety (unbound variables).
 	 * In the future, this method will be allowed to modify the input rules.
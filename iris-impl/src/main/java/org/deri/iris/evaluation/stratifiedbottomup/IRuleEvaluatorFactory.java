@@ -22,6 +22,8 @@
  */
 package org.deri.iris.evaluation.stratifiedbottomup;
 
+import org.deri.iris.utils.equivalence.IEquivalentTerms;
+
 /**
  * Interface of all evaluator factories.
  */
@@ -31,4 +33,11 @@ public interface IRuleEvaluatorFactory
 	 * Create a new evaluator.
 	 */
 	IRuleEvaluator createEvaluator();
+	
+	/**
+	 * Create a new evaluator for rules with rule head equality. The evaluator
+	 * must continue as long as the rules make terms equivalent.
+	 * @param equivalentTerms The equivalent terms changed by the rules.
+	 */
+	IRuleEvaluator createEvaluator( IEquivalentTerms equivalentTerms );
 }
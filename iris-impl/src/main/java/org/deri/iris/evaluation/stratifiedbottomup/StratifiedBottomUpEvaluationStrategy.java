@@ -23,22 +23,38 @@
 package org.deri.iris.evaluation.stratifiedbottomup;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
 
 import org.deri.iris.Configuration;
+import org.deri.iris.ConfigurationThreadLocalStorage;
 import org.deri.iris.EvaluationException;
+import org.deri.iris.api.IPreparedQuery;
+import org.deri.iris.api.basics.ILiteral;
+import org.deri.iris.api.basics.IPredicate;
 import org.deri.iris.api.basics.IQuery;
 import org.deri.iris.api.basics.IRule;
+import org.deri.iris.api.builtins.IBuiltinAtom;
 import org.deri.iris.api.terms.IVariable;
 import org.deri.iris.evaluation.IEvaluationStrategy;
-import org.deri.iris.evaluation.stratifiedbottomup.naive.NaiveEvaluator;
 import org.deri.iris.facts.FiniteUniverseFacts;
 import org.deri.iris.facts.IFacts;
 import org.deri.iris.rules.RuleHeadEquality;
+import org.deri.iris.rules.compiler.CompiledQueryCache;
 import org.deri.iris.rules.compiler.ICompiledRule;
 import org.deri.iris.rules.compiler.RuleCompiler;
 import org.deri.iris.rules.safety.AugmentingRuleSafetyProcessor;
 import org.deri.iris.storage.IRelation;
+import org.deri.iris.storage.IRemovableRelation;
 import org.deri.iris.utils.equivalence.IEquivalentTerms;
 
 /**
@@ -49,11 +65,31 @@ public class StratifiedBottomUpEvaluationStrategy implements
 	StratifiedBottomUpEvaluationStrategy(IFacts facts, List<IRule> rules,
 			IRuleEvaluatorFactory ruleEvaluatorFactory,
 			Configuration configuration) throws EvaluationException {
+		this(facts, rules, ruleEvaluatorFactory, null, configuration);
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param executor The thread pool used to evaluate independent components
+	 *            of the strata in parallel, or null to evaluate the strata in
+	 *            order on the calling thread.
+	 */
+	StratifiedBottomUpEvaluationStrategy(IFacts facts, List<IRule> rules,
+			IRuleEvaluatorFactory ruleEvaluatorFactory,
+			ExecutorService executor, Configuration configuration)
+			throws EvaluationException {
 		mConfiguration = configuration;
 		mRuleEvaluatorFactory = ruleEvaluatorFactory;
 		mFacts = facts;
 		mEquivalentTerms = mConfiguration.equivalentTermsFactory
 				.createEquivalentTerms();
+		mCompiledQueries = new CompiledQueryCache(mFacts, mEquivalentTerms,
+				mConfiguration);
+
+		// Before the evaluation, the relations only contain explicit facts.
+		for (IPredicate predicate : facts.getPredicates())
+			mExplicitSizes.put(predicate, facts.get(predicate).size());
 
 		List<IRule> allRules = mConfiguration.ruleHeadEqualityPreProcessor
 				.process(rules, facts);
@@ -72,6 +108,19 @@ public class StratifiedBottomUpEvaluationStrategy implements
 		RuleCompiler rc = new RuleCompiler(facts, mEquivalentTerms,
 				mConfiguration);
 
+		mUpdatable = !(facts instanceof FiniteUniverseFacts)
+				&& !hasRuleHeadEquality(safeRules);
+		mNegation = hasNegation(safeRules);
+
+		// Rules with head equality change the term equivalence relation used
+		// by all rules, and finite universe facts share one universe relation,
+		// so these can not be evaluated in parallel.
+		if (executor != null && !(facts instanceof FiniteUniverseFacts)
+				&& !hasRuleHeadEquality(safeRules)) {
+			evaluateInParallel(stratifiedRules, facts, rc, utils, executor);
+			return;
+		}
+
 		int stratumNumber = 0;
 		for (List<IRule> stratum : stratifiedRules) {
 			// Re-order stratum
@@ -81,31 +130,276 @@ public class StratifiedBottomUpEvaluationStrategy implements
 			List<IRule> optimisedRules = utils
 					.applyRuleOptimisers(reorderedRules);
 
-			List<ICompiledRule> compiledRules = new ArrayList<ICompiledRule>();
+			evaluateRules(optimisedRules, stratumNumber, facts, rc, utils);
+
+			stratumNumber++;
+		}
+	}
+
+	/**
+	 * Compile and evaluate the optimised rules of a stratum, or of a component
+	 * of a stratum.
+	 */
+	private void evaluateRules(List<IRule> optimisedRules, int stratumNumber,
+			IFacts facts, RuleCompiler rc, EvaluationUtilities utils)
+			throws EvaluationException {
+		// Join ordering, using the facts computed by the previous strata
+		optimisedRules = utils.applyJoinOrderOptimiser(optimisedRules, facts);
+
+		List<ICompiledRule> compiledRules = new ArrayList<ICompiledRule>();
 
-			for (IRule rule : optimisedRules) {
-				compiledRules.add(rc.compile(rule));
+		for (IRule rule : optimisedRules) {
+			compiledRules.add(rc.compile(rule));
+		}
+
+		// Keep the rules for updating the facts later.
+		synchronized (mCompiledStrata) {
+			while (mCompiledStrata.size() <= stratumNumber) {
+				mStrata.add(new ArrayList<IRule>());
+				mCompiledStrata.add(new ArrayList<ICompiledRule>());
 			}
 
-			// TODO Enable rule head equality support for semi-naive evaluation.
-			// Choose the correct evaluation technique for the specified rules and stratum.
-			IRuleEvaluator evaluator = chooseEvaluator(stratumNumber,
-					optimisedRules, mRuleEvaluatorFactory);
+			mStrata.get(stratumNumber).addAll(optimisedRules);
+			mCompiledStrata.get(stratumNumber).addAll(compiledRules);
+		}
+
+		// Choose the correct evaluation technique for the specified rules and stratum.
+		IRuleEvaluator evaluator = chooseEvaluator(stratumNumber,
+				optimisedRules, mRuleEvaluatorFactory);
+
+		evaluator.evaluateRules(compiledRules, facts, mConfiguration);
+	}
+
+	/**
+	 * Evaluate the strata as a graph of components. The rules of each stratum
+	 * are split in to components that do not depend on each other. A component
+	 * waits for all components of lower strata that write a predicate it reads
+	 * or writes, or that read a predicate it writes. All other components are
+	 * evaluated in parallel.
+	 */
+	private void evaluateInParallel(List<List<IRule>> stratifiedRules,
+			final IFacts facts, final RuleCompiler rc,
+			final EvaluationUtilities utils, ExecutorService executor)
+			throws EvaluationException {
+		List<Component> components = new ArrayList<Component>();
+
+		// Re-ordering and the rule optimisers are not thread-safe, so prepare
+		// all strata up front.
+		int stratumNumber = 0;
+		for (List<IRule> stratum : stratifiedRules) {
+			List<IRule> optimisedRules = utils.applyRuleOptimisers(utils
+					.reOrderRules(stratum));
 
-			evaluator.evaluateRules(compiledRules, facts, configuration);
+			components.addAll(Component.split(optimisedRules, stratumNumber));
 
 			stratumNumber++;
 		}
+
+		// Create all relations now, so that the facts are only read by the
+		// worker threads.
+		for (Component component : components) {
+			for (IPredicate predicate : component.mHeads)
+				facts.get(predicate);
+			for (IPredicate predicate : component.mBodies)
+				facts.get(predicate);
+		}
+
+		for (int later = 0; later < components.size(); ++later) {
+			for (int earlier = 0; earlier < later; ++earlier) {
+				Component first = components.get(earlier);
+				Component second = components.get(later);
+
+				if (first.mStratum < second.mStratum
+						&& first.conflictsWith(second)) {
+					first.mDependents.add(second);
+					second.mWaitingFor++;
+				}
+			}
+		}
+
+		CompletionService<Component> completion = new ExecutorCompletionService<Component>(
+				executor);
+
+		for (Component component : components) {
+			if (component.mWaitingFor == 0)
+				submit(completion, component, facts, rc, utils);
+		}
+
+		for (int finished = 0; finished < components.size(); ++finished) {
+			Component component;
+
+			try {
+				component = completion.take().get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new EvaluationException(
+						"Interrupted while waiting for parallel strata evaluation.");
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof EvaluationException)
+					throw (EvaluationException) cause;
+				if (cause instanceof RuntimeException)
+					throw (RuntimeException) cause;
+				if (cause instanceof Error)
+					throw (Error) cause;
+
+				throw new EvaluationException(
+						"Parallel strata evaluation failed: " + cause);
+			}
+
+			for (Component dependent : component.mDependents) {
+				if (--dependent.mWaitingFor == 0)
+					submit(completion, dependent, facts, rc, utils);
+			}
+		}
 	}
 
-	private IRuleEvaluator chooseEvaluator(int stratum, List<IRule> rules,
-			IRuleEvaluatorFactory factory) {
-		if (stratum == 0) {
+	private void submit(CompletionService<Component> completion,
+			final Component component, final IFacts facts,
+			final RuleCompiler rc, final EvaluationUtilities utils) {
+		completion.submit(new Callable<Component>() {
+			public Component call() throws EvaluationException {
+				// Built-ins look up the configuration of the current thread.
+				ConfigurationThreadLocalStorage.setConfiguration(mConfiguration);
+
+				try {
+					evaluateRules(component.mRules, component.mStratum, facts,
+							rc, utils);
+				} finally {
+					ConfigurationThreadLocalStorage.removeConfiguration();
+				}
+
+				return component;
+			}
+		});
+	}
+
+	private static boolean hasNegation(List<IRule> rules) {
+		for (IRule rule : rules) {
+			for (ILiteral literal : rule.getBody()) {
+				if (!literal.isPositive())
+					return true;
+			}
+		}
+
+		return false;
+	}
+
+	private static boolean hasRuleHeadEquality(List<IRule> rules) {
+		for (IRule rule : rules) {
+			if (RuleHeadEquality.hasRuleHeadEquality(rule))
+				return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * A set of rules of one stratum that must be evaluated together, because
+	 * they depend on each other.
+	 */
+	private static class Component {
+		Component(int stratum) {
+			mStratum = stratum;
+		}
+
+		/**
+		 * Split the rules of a stratum in to components. Rules end up in the
+		 * same component if they have the same head predicate, or if one rule
+		 * uses the head predicate of the other in its body.
+		 */
+		static List<Component> split(List<IRule> rules, int stratum) {
+			Map<IPredicate, IPredicate> parents = new HashMap<IPredicate, IPredicate>();
+
+			for (IRule rule : rules)
+				parents.put(head(rule), head(rule));
+
 			for (IRule rule : rules) {
-				if (RuleHeadEquality.hasRuleHeadEquality(rule)) {
-					return new NaiveEvaluator();
+				for (ILiteral literal : rule.getBody()) {
+					IPredicate predicate = literal.getAtom().getPredicate();
+
+					if (parents.containsKey(predicate))
+						parents.put(find(parents, predicate), find(parents,
+								head(rule)));
 				}
 			}
+
+			Map<IPredicate, Component> components = new LinkedHashMap<IPredicate, Component>();
+
+			for (IRule rule : rules) {
+				IPredicate root = find(parents, head(rule));
+
+				Component component = components.get(root);
+				if (component == null) {
+					component = new Component(stratum);
+					components.put(root, component);
+				}
+
+				component.mRules.add(rule);
+				component.mHeads.add(head(rule));
+
+				for (ILiteral literal : rule.getBody()) {
+					if (!(literal.getAtom() instanceof IBuiltinAtom))
+						component.mBodies.add(literal.getAtom().getPredicate());
+				}
+			}
+
+			return new ArrayList<Component>(components.values());
+		}
+
+		boolean conflictsWith(Component other) {
+			return intersects(mHeads, other.mBodies)
+					|| intersects(mHeads, other.mHeads)
+					|| intersects(mBodies, other.mHeads);
+		}
+
+		private static boolean intersects(Set<IPredicate> set1,
+				Set<IPredicate> set2) {
+			for (IPredicate predicate : set1) {
+				if (set2.contains(predicate))
+					return true;
+			}
+
+			return false;
+		}
+
+		private static IPredicate head(IRule rule) {
+			return rule.getHead().get(0).getAtom().getPredicate();
+		}
+
+		private static IPredicate find(Map<IPredicate, IPredicate> parents,
+				IPredicate predicate) {
+			IPredicate parent = parents.get(predicate);
+
+			while (!parent.equals(predicate)) {
+				predicate = parent;
+				parent = parents.get(predicate);
+			}
+
+			return predicate;
+		}
+
+		final int mStratum;
+
+		final List<IRule> mRules = new ArrayList<IRule>();
+
+		final Set<IPredicate> mHeads = new HashSet<IPredicate>();
+
+		final Set<IPredicate> mBodies = new HashSet<IPredicate>();
+
+		/** The components that wait for this component. */
+		final List<Component> mDependents = new ArrayList<Component>();
+
+		/** The number of components this component waits for. */
+		int mWaitingFor;
+	}
+
+	private IRuleEvaluator chooseEvaluator(int stratum, List<IRule> rules,
+			IRuleEvaluatorFactory factory) {
+		// Rules with head equality need an evaluator that continues while
+		// terms are made equivalent.
+		if (hasRuleHeadEquality(rules)) {
+			return factory.createEvaluator(mEquivalentTerms);
 		}
 
 		// Create default evaluator.
@@ -122,17 +416,107 @@ public class StratifiedBottomUpEvaluationStrategy implements
 			throw new IllegalArgumentException(
 					"StratifiedBottomUpEvaluationStrategy.evaluateQuery() - outputVariables must not be null.");
 
-		RuleCompiler compiler = new RuleCompiler(mFacts, mEquivalentTerms,
-				mConfiguration);
+		return mCompiledQueries.evaluate(query, outputVariables);
+	}
 
-		ICompiledRule compiledQuery = compiler.compile(query);
+	public IPreparedQuery prepareQuery(IQuery query, List<IVariable> parameters)
+			throws EvaluationException {
+		if (query == null)
+			throw new IllegalArgumentException(
+					"StratifiedBottomUpEvaluationStrategy.prepareQuery() - query must not be null.");
 
-		IRelation result = compiledQuery.evaluate();
+		return mCompiledQueries.prepare(query, parameters);
+	}
 
-		outputVariables.clear();
-		outputVariables.addAll(compiledQuery.getVariablesBindings());
+	/**
+	 * Indicates if facts can be added with {@link #addFacts(Map)}. This is
+	 * not the case for rules with rule head equality, or rules that need a
+	 * finite universe. Facts can only be added to programs with negation, if
+	 * facts can be removed as well, as adding facts may invalidate deduced
+	 * facts.
+	 * 
+	 * @return true, if facts can be added.
+	 */
+	public boolean canAddFacts() {
+		return mUpdatable && (!mNegation || canRemoveFacts());
+	}
 
-		return result;
+	/**
+	 * Indicates if facts can be removed with {@link #removeFacts(Map)}. In
+	 * addition to the conditions of {@link #canAddFacts()}, all relations of
+	 * the facts must support removal (see {@link IRemovableRelation}).
+	 * 
+	 * @return true, if facts can be removed.
+	 */
+	public boolean canRemoveFacts() {
+		if (!mUpdatable)
+			return false;
+
+		for (IPredicate predicate : mFacts.getPredicates()) {
+			if (!(mFacts.get(predicate) instanceof IRemovableRelation))
+				return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Add explicit facts and update the deduced facts. The new facts are
+	 * propagated through the strata with semi-naive evaluation. Deduced facts
+	 * that depend on the absence of an added fact are deleted and rederived
+	 * (see {@link DeleteAndRederive}).
+	 * 
+	 * @param facts The tuples to add for each predicate.
+	 * @throws EvaluationException If facts can not be added to this program
+	 *             (see {@link #canAddFacts()}) or the evaluation fails.
+	 */
+	public synchronized void addFacts(Map<IPredicate, IRelation> facts)
+			throws EvaluationException {
+		if (!canAddFacts())
+			throw new EvaluationException(
+					"StratifiedBottomUpEvaluationStrategy.addFacts() - facts can not be added to programs with rule head equality, unsafe rules, or negation and relations that do not support removal.");
+
+		update(facts, new HashMap<IPredicate, IRelation>());
+	}
+
+	/**
+	 * Remove explicit facts and update the deduced facts with the Delete and
+	 * Rederive algorithm (see {@link DeleteAndRederive}). Facts that are not
+	 * explicit facts can not be removed and are ignored.
+	 * 
+	 * @param facts The tuples to remove for each predicate.
+	 * @throws EvaluationException If facts can not be removed from this
+	 *             program (see {@link #canRemoveFacts()}) or the evaluation
+	 *             fails.
+	 */
+	public synchronized void removeFacts(Map<IPredicate, IRelation> facts)
+			throws EvaluationException {
+		if (!canRemoveFacts())
+			throw new EvaluationException(
+					"StratifiedBottomUpEvaluationStrategy.removeFacts() - facts can not be removed from programs with rule head equality, unsafe rules, or relations that do not support removal.");
+
+		update(new HashMap<IPredicate, IRelation>(), facts);
+	}
+
+	private void update(Map<IPredicate, IRelation> added,
+			Map<IPredicate, IRelation> removed) throws EvaluationException {
+		if (mMaintenance == null) {
+			mMaintenance = new DeleteAndRederive(mFacts, mStrata,
+					mCompiledStrata, mExplicitSizes, mEquivalentTerms,
+					mConfiguration);
+			mExplicitSizes.clear();
+		}
+
+		mMaintenance.update(added, removed);
+	}
+
+	/**
+	 * Get the cache of the compiled queries evaluated by this strategy.
+	 * 
+	 * @return The compiled query cache.
+	 */
+	public CompiledQueryCache getCompiledQueryCache() {
+		return mCompiledQueries;
 	}
 
 	protected IEquivalentTerms mEquivalentTerms;
@@ -142,4 +526,24 @@ public class StratifiedBottomUpEvaluationStrategy implements
 	protected final IFacts mFacts;
 
 	protected final IRuleEvaluatorFactory mRuleEvaluatorFactory;
+
+	protected final CompiledQueryCache mCompiledQueries;
+
+	/** The rules of each stratum, as compiled. */
+	private final List<List<IRule>> mStrata = new ArrayList<List<IRule>>();
+
+	/** The compiled rules of each stratum. */
+	private final List<List<ICompiledRule>> mCompiledStrata = new ArrayList<List<ICompiledRule>>();
+
+	/** The number of explicit facts of each predicate. */
+	private final Map<IPredicate, Integer> mExplicitSizes = new HashMap<IPredicate, Integer>();
+
+	/** Indicates if facts can be added and removed. */
+	private final boolean mUpdatable;
+
+	/** Indicates if the rules have negation. */
+	private final boolean mNegation;
+
+	/** Maintains the deduced facts when facts are added or removed. */
+	private DeleteAndRederive mMaintenance;
 }
@@ -23,6 +23,7 @@
 package org.deri.iris.evaluation.stratifiedbottomup;
 
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 
 import org.deri.iris.Configuration;
 import org.deri.iris.EvaluationException;
@@ -30,6 +31,7 @@ import org.deri.iris.api.basics.IRule;
 import org.deri.iris.evaluation.IEvaluationStrategy;
 import org.deri.iris.evaluation.IEvaluationStrategyFactory;
 import org.deri.iris.facts.IFacts;
+import org.deri.iris.utils.ThreadPools;
 
 /**
  * Factory for StratifiedBottomUpEvaluationStrategy.
@@ -39,13 +41,30 @@ public class StratifiedBottomUpEvaluationStrategyFactory implements IEvaluationS
 	public StratifiedBottomUpEvaluationStrategyFactory( IRuleEvaluatorFactory ruleEvaluatorFactory )
 	{
 		mRuleEvaluatorFactory = ruleEvaluatorFactory;
+		mExecutor = null;
+	}
+	
+	/**
+	 * Constructor for a factory whose strategies evaluate independent parts of
+	 * the strata in parallel.
+	 * @param ruleEvaluatorFactory The factory for the evaluators of each stratum.
+	 * @param threads The number of threads shared by all strategies created by this factory.
+	 * One thread means that strata are evaluated in order.
+	 */
+	public StratifiedBottomUpEvaluationStrategyFactory( IRuleEvaluatorFactory ruleEvaluatorFactory, int threads )
+	{
+		mRuleEvaluatorFactory = ruleEvaluatorFactory;
+		mExecutor = threads > 1 ? ThreadPools.newDaemonPool( "iris-stratum", threads ) : null;
 	}
 	
 	public IEvaluationStrategy createEvaluator( IFacts facts, List<IRule> rules, Configuration configuration )
 	                throws EvaluationException
 	{
-		return new StratifiedBottomUpEvaluationStrategy( facts, rules, mRuleEvaluatorFactory, configuration );
+		return new StratifiedBottomUpEvaluationStrategy( facts, rules, mRuleEvaluatorFactory, mExecutor, configuration );
 	}
 
 	private final IRuleEvaluatorFactory mRuleEvaluatorFactory;
+	
+	/** The thread pool for evaluating strata in parallel, or null. */
+	private final ExecutorService mExecutor;
 }
@@ -30,18 +30,45 @@ import org.deri.iris.api.basics.IPredicate;
 import org.deri.iris.evaluation.stratifiedbottomup.IRuleEvaluator;
 import org.deri.iris.facts.IFacts;
 import org.deri.iris.rules.compiler.ICompiledRule;
+import org.deri.iris.rules.compiler.Utils;
 import org.deri.iris.storage.IRelation;
+import org.deri.iris.storage.IRemovableRelation;
+import org.deri.iris.utils.equivalence.IEquivalentTerms;
 
 /**
  * Naive evaluation. see Ullman, Vol. 1
+ * 
+ * For rules with rule head equality, the evaluation also continues while the
+ * rules make terms equivalent. With canonical equivalent terms, the stored
+ * tuples are then replaced by the tuples of the representatives.
  */
 public class NaiveEvaluator implements IRuleEvaluator
 {
+	/**
+	 * Constructor for rules without rule head equality.
+	 */
+	public NaiveEvaluator()
+	{
+		this( null );
+	}
+	
+	/**
+	 * Constructor for rules with rule head equality.
+	 * @param equivalentTerms The equivalent terms changed by the rules, or null
+	 * if the rules do not have rule head equality.
+	 */
+	public NaiveEvaluator( IEquivalentTerms equivalentTerms )
+	{
+		mEquivalentTerms = equivalentTerms;
+	}
+	
 	public void evaluateRules( List<ICompiledRule> rules, IFacts facts, Configuration configuration ) throws EvaluationException
 	{
 		boolean cont = true;
 		while( cont )
 		{
+			long version = mEquivalentTerms == null ? 0 : mEquivalentTerms.getVersion();
+			
 			cont = false;
 			
 			// For each rule in the collection (stratum)
@@ -56,6 +83,33 @@ public class NaiveEvaluator implements IRuleEvaluator
 						cont = true;
 				}
 			}
+			
+			if( mEquivalentTerms != null && mEquivalentTerms.getVersion() != version )
+			{
+				cont = true;
+				
+				if( configuration.canonicalEquivalentTerms )
+					canonicalise( facts );
+			}
+		}
+	}
+	
+	/**
+	 * Replace the stored tuples by the tuples of the representatives of their
+	 * terms, in all relations that support removal.
+	 * @param facts The facts.
+	 */
+	private void canonicalise( IFacts facts )
+	{
+		for( IPredicate predicate : facts.getPredicates() )
+		{
+			IRelation relation = facts.get( predicate );
+			
+			if( relation instanceof IRemovableRelation )
+				Utils.canonicalise( (IRemovableRelation) relation, mEquivalentTerms );
 		}
 	}
+	
+	/** The equivalent terms changed by rule head equality, or null. */
+	private final IEquivalentTerms mEquivalentTerms;
 }
@@ -24,6 +24,7 @@ package org.deri.iris.evaluation.stratifiedbottomup.naive;
 
 import org.deri.iris.evaluation.stratifiedbottomup.IRuleEvaluator;
 import org.deri.iris.evaluation.stratifiedbottomup.IRuleEvaluatorFactory;
+import org.deri.iris.utils.equivalence.IEquivalentTerms;
 
 /**
  * Factory for naive rules evaluator.
@@ -34,4 +35,9 @@ public class NaiveEvaluatorFactory implements IRuleEvaluatorFactory
 	{
 		return new NaiveEvaluator();
 	}
+
+	public IRuleEvaluator createEvaluator( IEquivalentTerms equivalentTerms )
+	{
+		return new NaiveEvaluator( equivalentTerms );
+	}
 }
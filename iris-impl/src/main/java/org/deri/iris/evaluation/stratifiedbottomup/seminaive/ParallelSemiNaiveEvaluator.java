@@ -0,0 +1,280 @@
+/*
+ * Integrated Rule Inference System (IRIS):
+ * An extensible rule inference system for datalog with extensions.
+ * 
+ * Copyright (C) 2008 Semantic Technology Institute (STI) Innsbruck, 
+ * University of Innsbruck, Technikerstrasse 21a, 6020 Innsbruck, Austria.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ */
+package org.deri.iris.evaluation.stratifiedbottomup.seminaive;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.deri.iris.Configuration;
+import org.deri.iris.ConfigurationThreadLocalStorage;
+import org.deri.iris.EvaluationException;
+import org.deri.iris.api.basics.IPredicate;
+import org.deri.iris.builtins.EqualBuiltin;
+import org.deri.iris.evaluation.stratifiedbottomup.IRuleEvaluator;
+import org.deri.iris.facts.Facts;
+import org.deri.iris.facts.IFacts;
+import org.deri.iris.rules.compiler.ICompiledRule;
+import org.deri.iris.storage.IRelation;
+
+/**
+ * <p>
+ * Semi-naive evaluation that evaluates the rules of each iteration in parallel.
+ * </p>
+ * <p>
+ * All rules of an iteration only read the facts and the deltas of the previous
+ * iteration, so they are evaluated as independent tasks, each producing its own
+ * output relation. When all tasks are finished, the outputs are merged in to the
+ * new deltas and the facts on the calling thread, before the next iteration starts.
+ * </p>
+ * <p>
+ * Rules with equality in the head change the term equivalence relation seen by
+ * all other rules, so these are evaluated on the calling thread after the other
+ * rules of the same iteration.
+ * </p>
+ */
+public class ParallelSemiNaiveEvaluator implements IRuleEvaluator
+{
+	/**
+	 * Constructor.
+	 * @param executor The thread pool to evaluate rules with.
+	 */
+	public ParallelSemiNaiveEvaluator( ExecutorService executor )
+	{
+		if( executor == null )
+			throw new IllegalArgumentException( "'executor' argument must not be null." );
+		
+		mExecutor = executor;
+	}
+	
+	public void evaluateRules( List<ICompiledRule> rules, IFacts facts, Configuration configuration ) throws EvaluationException
+	{
+		// Create all head relations now, so that the facts are only read during parallel evaluation.
+		for( ICompiledRule rule : rules )
+			facts.get( rule.headPredicate() );
+		
+		IFacts deltas = new Facts( configuration.relationFactory );
+		
+		// One pass with simple evaluation to generate deltas
+		List<IRelation> outputs = evaluate( rules, null, configuration );
+		
+		for( int r = 0; r < rules.size(); ++r )
+		{
+			IRelation delta = outputs.get( r );
+
+			if( delta != null && delta.size() > 0 )
+				deltas.get( rules.get( r ).headPredicate() ).addAll( delta );
+		}
+		
+		// Update the facts
+		SemiNaiveEvaluator.addAll( facts, deltas );
+		
+		// Now do iterative evaluation (semi-naive)
+		for(;;)
+		{
+			boolean newTuples = false;
+			
+			IFacts previousDeltas = deltas;
+			
+			deltas = new Facts( configuration.relationFactory );
+			
+			outputs = evaluate( rules, new ReadOnlyFacts( previousDeltas, configuration ), configuration );
+			
+			// The merge barrier: remove already known tuples and collect the new deltas.
+			for( int r = 0; r < rules.size(); ++r )
+			{
+				IPredicate predicate = rules.get( r ).headPredicate();
+				IRelation delta = outputs.get( r );
+				
+				if( delta != null && delta.size() > 0 )
+					delta = SemiNaiveEvaluator.removeDeducedTuples( delta, facts.get( predicate ), configuration );
+
+				if( delta != null && delta.size() > 0 )
+				{
+					newTuples = true;
+					deltas.get( predicate ).addAll( delta );
+				}
+			}
+			
+			if( ! newTuples )
+				break;
+
+			SemiNaiveEvaluator.addAll( facts, deltas );
+		}
+	}
+	
+	/**
+	 * Evaluate all rules once.
+	 * @param rules The rules.
+	 * @param previousDeltas The deltas of the previous iteration, or null for the first pass.
+	 * @param configuration The knowledge-base configuration object.
+	 * @return The output of each rule, in the same order as the rules.
+	 * @throws EvaluationException If any rule fails to evaluate.
+	 */
+	private List<IRelation> evaluate( List<ICompiledRule> rules, IFacts previousDeltas, Configuration configuration ) throws EvaluationException
+	{
+		List<Future<IRelation>> futures = new ArrayList<Future<IRelation>>();
+		
+		for( ICompiledRule rule : rules )
+		{
+			if( hasRuleHeadEquality( rule ) )
+				futures.add( null );
+			else
+				futures.add( mExecutor.submit( new RuleTask( rule, previousDeltas, configuration ) ) );
+		}
+		
+		List<IRelation> outputs = new ArrayList<IRelation>();
+		
+		for( Future<IRelation> future : futures )
+			outputs.add( future == null ? null : waitFor( future, futures ) );
+		
+		// Now the rules that change the term equivalence relation.
+		for( int r = 0; r < rules.size(); ++r )
+		{
+			if( futures.get( r ) == null )
+			{
+				ICompiledRule rule = rules.get( r );
+				outputs.set( r, previousDeltas == null ? rule.evaluate() : rule.evaluateIteratively( previousDeltas ) );
+			}
+		}
+		
+		return outputs;
+	}
+	
+	/**
+	 * Wait for the result of a rule task.
+	 * If the task failed, all outstanding tasks are cancelled.
+	 */
+	private static IRelation waitFor( Future<IRelation> future, List<Future<IRelation>> futures ) throws EvaluationException
+	{
+		try
+		{
+			return future.get();
+		}
+		catch( InterruptedException e )
+		{
+			cancel( futures );
+			Thread.currentThread().interrupt();
+			throw new EvaluationException( "Interrupted while waiting for parallel rule evaluation." );
+		}
+		catch( ExecutionException e )
+		{
+			cancel( futures );
+			
+			Throwable cause = e.getCause();
+			if( cause instanceof EvaluationException )
+				throw (EvaluationException) cause;
+			if( cause instanceof RuntimeException )
+				throw (RuntimeException) cause;
+			if( cause instanceof Error )
+				throw (Error) cause;
+			
+			throw new EvaluationException( "Parallel rule evaluation failed: " + cause );
+		}
+	}
+	
+	private static void cancel( List<Future<IRelation>> futures )
+	{
+		for( Future<IRelation> future : futures )
+		{
+			if( future != null )
+				future.cancel( true );
+		}
+	}
+	
+	private static boolean hasRuleHeadEquality( ICompiledRule rule )
+	{
+		return EqualBuiltin.PREDICATE.equals( rule.headPredicate() );
+	}
+
+	/**
+	 * The evaluation of one rule, producing the rule's own output relation.
+	 */
+	private static class RuleTask implements Callable<IRelation>
+	{
+		RuleTask( ICompiledRule rule, IFacts previousDeltas, Configuration configuration )
+		{
+			mRule = rule;
+			mPreviousDeltas = previousDeltas;
+			mConfiguration = configuration;
+		}
+		
+		public IRelation call() throws EvaluationException
+		{
+			// Built-ins look up the configuration of the current thread.
+			ConfigurationThreadLocalStorage.setConfiguration( mConfiguration );
+			
+			try
+			{
+				if( mPreviousDeltas == null )
+					return mRule.evaluate();
+				else
+					return mRule.evaluateIteratively( mPreviousDeltas );
+			}
+			finally
+			{
+				ConfigurationThreadLocalStorage.removeConfiguration();
+			}
+		}
+		
+		private final ICompiledRule mRule;
+		
+		private final IFacts mPreviousDeltas;
+		
+		private final Configuration mConfiguration;
+	}
+	
+	/**
+	 * A view on the deltas that does not create relations for unknown predicates,
+	 * so that it can be read from several threads at once.
+	 */
+	private static class ReadOnlyFacts implements IFacts
+	{
+		ReadOnlyFacts( IFacts facts, Configuration configuration )
+		{
+			mFacts = facts;
+			mEmptyRelation = configuration.relationFactory.createRelation();
+		}
+		
+		public IRelation get( IPredicate predicate )
+		{
+			return mFacts.getPredicates().contains( predicate ) ? mFacts.get( predicate ) : mEmptyRelation;
+		}
+		
+		public Set<IPredicate> getPredicates()
+		{
+			return mFacts.getPredicates();
+		}
+		
+		private final IFacts mFacts;
+		
+		private final IRelation mEmptyRelation;
+	}
+	
+	/** The thread pool used to evaluate rules. */
+	private final ExecutorService mExecutor;
+}
@@ -0,0 +1,71 @@
+/*
+ * Integrated Rule Inference System (IRIS):
+ * An extensible rule inference system for datalog with extensions.
+ * 
+ * Copyright (C) 2008 Semantic Technology Institute (STI) Innsbruck, 
+ * University of Innsbruck, Technikerstrasse 21a, 6020 Innsbruck, Austria.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ */
+package org.deri.iris.evaluation.stratifiedbottomup.seminaive;
+
+import java.util.concurrent.ExecutorService;
+
+import org.deri.iris.evaluation.stratifiedbottomup.IRuleEvaluator;
+import org.deri.iris.evaluation.stratifiedbottomup.IRuleEvaluatorFactory;
+import org.deri.iris.utils.ThreadPools;
+import org.deri.iris.utils.equivalence.IEquivalentTerms;
+
+/**
+ * Factory for the parallel semi-naive rules evaluator.
+ * All evaluators created by one factory share the same thread pool.
+ */
+public class ParallelSemiNaiveEvaluatorFactory implements IRuleEvaluatorFactory
+{
+	/**
+	 * Constructor. Uses one thread per available processor.
+	 */
+	public ParallelSemiNaiveEvaluatorFactory()
+	{
+		this( Runtime.getRuntime().availableProcessors() );
+	}
+	
+	/**
+	 * Constructor.
+	 * @param threads The number of threads used to evaluate rules.
+	 */
+	public ParallelSemiNaiveEvaluatorFactory( int threads )
+	{
+		mExecutor = ThreadPools.newDaemonPool( "iris-rule-evaluator", threads );
+	}
+	
+	public IRuleEvaluator createEvaluator()
+	{
+		return new ParallelSemiNaiveEvaluator( mExecutor );
+	}
+	
+	/**
+	 * The parallel evaluator does not treat new equivalences as deltas, so
+	 * rules with rule head equality are evaluated by the semi-naive evaluator.
+	 */
+	public IRuleEvaluator createEvaluator( IEquivalentTerms equivalentTerms )
+	{
+		return new SemiNaiveEvaluator( equivalentTerms );
+	}
+	
+	/** The thread pool shared by all evaluators. */
+	private final ExecutorService mExecutor;
+}
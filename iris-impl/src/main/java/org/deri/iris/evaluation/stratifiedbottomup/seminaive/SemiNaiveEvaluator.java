@@ -22,25 +22,61 @@
  */
 package org.deri.iris.evaluation.stratifiedbottomup.seminaive;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.deri.iris.Configuration;
 import org.deri.iris.EvaluationException;
 import org.deri.iris.api.basics.IPredicate;
 import org.deri.iris.api.basics.ITuple;
+import org.deri.iris.api.terms.ITerm;
 import org.deri.iris.evaluation.stratifiedbottomup.IRuleEvaluator;
 import org.deri.iris.facts.Facts;
 import org.deri.iris.facts.IFacts;
 import org.deri.iris.rules.compiler.ICompiledRule;
+import org.deri.iris.rules.compiler.Utils;
 import org.deri.iris.storage.IRelation;
+import org.deri.iris.storage.IRemovableRelation;
+import org.deri.iris.utils.equivalence.IEquivalentTerms;
 
 /**
  * Semi-naive evaluation. see Ullman, Vol. 1
+ * 
+ * For rules with rule head equality, the terms made equivalent in a round are
+ * treated as deltas as well: all known tuples containing a term of a merged
+ * class are joined again in the next round, because they may match tuples
+ * they did not match before. These tuples are found with a map from terms to
+ * rows for each relation, which is only built when classes are merged for the
+ * first time.
  */
 public class SemiNaiveEvaluator implements IRuleEvaluator
 {
+	/**
+	 * Constructor for rules without rule head equality.
+	 */
+	public SemiNaiveEvaluator()
+	{
+		this( null );
+	}
+	
+	/**
+	 * Constructor for rules with rule head equality.
+	 * @param equivalentTerms The equivalent terms changed by the rules, or null
+	 * if the rules do not have rule head equality.
+	 */
+	public SemiNaiveEvaluator( IEquivalentTerms equivalentTerms )
+	{
+		mEquivalentTerms = equivalentTerms;
+	}
+	
 	public void evaluateRules( List<ICompiledRule> rules, IFacts facts, Configuration configuration ) throws EvaluationException
 	{
+		long version = caughtUp();
+		
 		IFacts deltas = new Facts( configuration.relationFactory );
 		
 		// One pass with simple evaluation to generate deltas
@@ -59,6 +95,44 @@ public class SemiNaiveEvaluator implements IRuleEvaluator
 		// Update the facts
 		addAll( facts, deltas );
 		
+		version = addTouchedTuples( deltas, facts, version, configuration );
+		
+		iterate( rules, facts, deltas, null, version, configuration );
+	}
+	
+	/**
+	 * Continue the evaluation of rules, whose fixed point has been reached before, after
+	 * tuples have been added to the facts. Only the tuples that follow from the added
+	 * tuples are deduced. This is only correct if the added tuples can not invalidate
+	 * deduced tuples, i.e. if the rules do not negate the predicates of the added tuples.
+	 * @param rules The collection of compiled rules.
+	 * @param facts The facts, which already contain the added tuples.
+	 * @param added The added tuples. The newly deduced tuples are added to these as well.
+	 * @param configuration The knowledge-base configuration object.
+	 * @throws EvaluationException 
+	 */
+	public void evaluateRulesIncrementally( List<ICompiledRule> rules, IFacts facts, IFacts added, Configuration configuration ) throws EvaluationException
+	{
+		long version = caughtUp();
+		
+		IFacts deltas = new Facts( configuration.relationFactory );
+		addAll( deltas, added );
+		
+		iterate( rules, facts, deltas, added, version, configuration );
+	}
+	
+	/**
+	 * Evaluate the rules with the deltas of each round, until there are no new tuples.
+	 * @param rules The collection of compiled rules.
+	 * @param facts The facts, which already contain the deltas.
+	 * @param deltas The tuples deduced in the previous round.
+	 * @param deduced Where to collect all deduced tuples, or null.
+	 * @param version The version of the equivalent terms of the last check.
+	 * @param configuration The knowledge-base configuration object.
+	 * @throws EvaluationException 
+	 */
+	private void iterate( List<ICompiledRule> rules, IFacts facts, IFacts deltas, IFacts deduced, long version, Configuration configuration ) throws EvaluationException
+	{
 		// Now do iterative evaluation (semi-naive)
 		boolean newTuples;
 		for(;;)
@@ -79,7 +153,7 @@ public class SemiNaiveEvaluator implements IRuleEvaluator
 				if( delta != null && delta.size() > 0 )
 				{
 					IRelation programFacts = facts.get( predicate );
-					delta = removeDeducedTuples( predicate, delta, programFacts, configuration );
+					delta = removeDeducedTuples( delta, programFacts, configuration );
 				}
 
 				if( delta != null && delta.size() > 0)
@@ -89,20 +163,119 @@ public class SemiNaiveEvaluator implements IRuleEvaluator
 				}
 			}
 			
-			if( ! newTuples )
-				break;
-
 			// Iterate new tuples in dP[i] and add to program
 			addAll( facts, deltas );
+			
+			if( deduced != null )
+				addAll( deduced, deltas );
+			
+			// Known tuples affected by new equivalences are deltas as well.
+			long previousVersion = version;
+			version = addTouchedTuples( deltas, facts, version, configuration );
+			
+			if( version != previousVersion )
+				newTuples = true;
+			
+			if( ! newTuples )
+				break;
 		}
 	}
 
+	/**
+	 * Add all tuples that contain a term of a class of equivalent terms that
+	 * has been merged since the given version, to the deltas. With canonical
+	 * equivalent terms, these tuples are replaced by the tuples of the
+	 * representatives in the relations that support removal first.
+	 * @param deltas The deltas to add to.
+	 * @param facts The known facts.
+	 * @param version The version of the equivalent terms of the last check.
+	 * @param configuration The knowledge-base configuration object.
+	 * @return The current version of the equivalent terms.
+	 */
+	private long addTouchedTuples( IFacts deltas, IFacts facts, long version, Configuration configuration )
+	{
+		if( mEquivalentTerms == null || mEquivalentTerms.getVersion() == version )
+			return version;
+		
+		Collection<ITerm> changed = mEquivalentTerms.getChangedSince( version );
+		
+		// This evaluator tells the equivalent terms what it has caught up with,
+		// so the changes are only missing for implementations that do not keep
+		// them. Then all known tuples count as touched.
+		if( changed == null )
+		{
+			for( IPredicate predicate : facts.getPredicates() )
+			{
+				IRelation relation = facts.get( predicate );
+				
+				if( configuration.canonicalEquivalentTerms && relation instanceof IRemovableRelation )
+					Utils.canonicalise( (IRemovableRelation) relation, mEquivalentTerms );
+				
+				if( relation.size() > 0 )
+					deltas.get( predicate ).addAll( relation );
+			}
+			
+			return caughtUp();
+		}
+		
+		// The members of the classes the changed terms have been merged in to.
+		Set<ITerm> touched = new HashSet<ITerm>();
+		for( ITerm term : changed )
+		{
+			if( ! touched.contains( term ) )
+				touched.addAll( mEquivalentTerms.getEquivalent( term ) );
+		}
+		
+		for( IPredicate predicate : facts.getPredicates() )
+		{
+			IRelation relation = facts.get( predicate );
+			TermRows termRows = mTermRows.get( predicate );
+			
+			if( termRows == null || termRows.getRelation() != relation )
+			{
+				termRows = new TermRows( relation );
+				mTermRows.put( predicate, termRows );
+			}
+			
+			List<ITuple> tuples = termRows.find( touched );
+			
+			if( configuration.canonicalEquivalentTerms && relation instanceof IRemovableRelation && ! tuples.isEmpty() )
+				tuples = Utils.canonicalise( (IRemovableRelation) relation, tuples, mEquivalentTerms );
+			
+			if( ! tuples.isEmpty() )
+			{
+				IRelation delta = deltas.get( predicate );
+				
+				for( ITuple tuple : tuples )
+					delta.add( tuple );
+			}
+		}
+		
+		return caughtUp();
+	}
+	
+	/**
+	 * Tell the equivalent terms that all changes up to now are known.
+	 * @return The current version of the equivalent terms.
+	 */
+	private long caughtUp()
+	{
+		if( mEquivalentTerms == null )
+			return 0;
+		
+		long version = mEquivalentTerms.getVersion();
+		mEquivalentTerms.caughtUp( this, version );
+		
+		return version;
+	}
+	
 	/**
 	 * Add all the tuples from each of the deltas to the target facts.
+	 * Shared with the parallel semi-naive evaluator.
 	 * @param target The facts to be added to.
 	 * @param deltas The facts to be added.
 	 */
-	private static void addAll( IFacts target, IFacts deltas )
+	static void addAll( IFacts target, IFacts deltas )
 	{
 		for( IPredicate predicate : deltas.getPredicates() )
 			target.get( predicate ).addAll( deltas.get( predicate ) );
@@ -110,12 +283,13 @@ public class SemiNaiveEvaluator implements IRuleEvaluator
 
 	/**
 	 * Helper to remove tuples from a delta that are already known or computed.
-	 * @param predicate The predicate identifying the relation.
+	 * Shared with the parallel semi-naive evaluator.
 	 * @param delta The deltas produced by the last round of evaluation.
 	 * @param programFacts The already known or computed facts.
-	 * @return
+	 * @param configuration The knowledge-base configuration object.
+	 * @return The new tuples.
 	 */
-	private static IRelation removeDeducedTuples( IPredicate predicate, IRelation delta, IRelation programFacts, Configuration configuration )
+	static IRelation removeDeducedTuples( IRelation delta, IRelation programFacts, Configuration configuration )
 	{
 		// If there is nothing to take away from, or just nothing to take-away...
 		if( delta.size() == 0 || programFacts.size() == 0 )
@@ -132,4 +306,10 @@ public class SemiNaiveEvaluator implements IRuleEvaluator
 		
 		return result;
 	}
+	
+	/** The equivalent terms changed by rule head equality, or null. */
+	private final IEquivalentTerms mEquivalentTerms;
+	
+	/** The rows of the terms of each relation, once classes have been merged. */
+	private final Map<IPredicate, TermRows> mTermRows = new HashMap<IPredicate, TermRows>();
 }
@@ -24,6 +24,7 @@ package org.deri.iris.evaluation.stratifiedbottomup.seminaive;
 
 import org.deri.iris.evaluation.stratifiedbottomup.IRuleEvaluator;
 import org.deri.iris.evaluation.stratifiedbottomup.IRuleEvaluatorFactory;
+import org.deri.iris.utils.equivalence.IEquivalentTerms;
 
 /**
  * Factory for semi-naive rules evaluator.
@@ -34,4 +35,9 @@ public class SemiNaiveEvaluatorFactory implements IRuleEvaluatorFactory
 	{
 		return new SemiNaiveEvaluator();
 	}
+
+	public IRuleEvaluator createEvaluator( IEquivalentTerms equivalentTerms )
+	{
+		return new SemiNaiveEvaluator( equivalentTerms );
+	}
 }
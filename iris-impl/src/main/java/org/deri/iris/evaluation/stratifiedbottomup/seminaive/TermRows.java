@@ -0,0 +1,172 @@
+/*
+ * Integrated Rule Inference System (IRIS):
+ * An extensible rule inference system for datalog with extensions.
+ * 
+ * Copyright (C) 2008 Semantic Technology Institute (STI) Innsbruck, 
+ * University of Innsbruck, Technikerstrasse 21a, 6020 Innsbruck, Austria.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ */
+package org.deri.iris.evaluation.stratifiedbottomup.seminaive;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.deri.iris.api.basics.ITuple;
+import org.deri.iris.api.terms.IConstructedTerm;
+import org.deri.iris.api.terms.ITerm;
+import org.deri.iris.storage.IRelation;
+import org.deri.iris.storage.IRemovableRelation;
+import org.deri.iris.storage.IRemovalListener;
+
+/**
+ * The rows of a relation that contain each term, also as a parameter of a
+ * constructed term. The semi-naive evaluator uses it to find the tuples that
+ * contain a term of a merged class of equivalent terms, without scanning the
+ * relation. Like an index, it reads the tuples added to the relation since the
+ * last look-up.
+ */
+class TermRows implements IRemovalListener
+{
+	/**
+	 * Constructor.
+	 * @param relation The relation.
+	 */
+	TermRows( IRelation relation )
+	{
+		mRelation = relation;
+		
+		if( relation instanceof IRemovableRelation )
+			( (IRemovableRelation) relation ).addRemovalListener( this );
+	}
+	
+	/**
+	 * Get the relation.
+	 * @return The relation.
+	 */
+	IRelation getRelation()
+	{
+		return mRelation;
+	}
+	
+	/**
+	 * Find the tuples that contain any of the given terms.
+	 * @param terms The terms.
+	 * @return The tuples. A tuple may be listed more than once.
+	 */
+	List<ITuple> find( Set<ITerm> terms )
+	{
+		update();
+		
+		List<ITuple> tuples = new ArrayList<ITuple>();
+		
+		for( ITerm term : terms )
+		{
+			List<Integer> rows = mRows.get( term );
+			
+			if( rows == null )
+				continue;
+			
+			// The rows of removed tuples may still be listed, and are dropped now.
+			int valid = 0;
+			for( int row : rows )
+			{
+				if( row < mSeen && contains( mRelation.get( row ), term ) )
+				{
+					rows.set( valid++, row );
+					tuples.add( mRelation.get( row ) );
+				}
+			}
+			
+			if( valid == 0 )
+				mRows.remove( term );
+			else
+				rows.subList( valid, rows.size() ).clear();
+		}
+		
+		return tuples;
+	}
+	
+	public void removing( IRelation relation, int row )
+	{
+		// Tuples not seen yet are read later.
+		if( row >= mSeen )
+			return;
+		
+		// The last tuple takes the place of the removed one.
+		int last = relation.size() - 1;
+		
+		if( last < mSeen )
+			--mSeen;
+		
+		if( last != row )
+			add( relation.get( last ), row );
+	}
+	
+	/**
+	 * Read the tuples added to the relation since the last look-up.
+	 */
+	private void update()
+	{
+		for( ; mSeen < mRelation.size(); ++mSeen )
+			add( mRelation.get( mSeen ), mSeen );
+	}
+	
+	private void add( Iterable<ITerm> terms, int row )
+	{
+		for( ITerm term : terms )
+		{
+			List<Integer> rows = mRows.get( term );
+			
+			if( rows == null )
+			{
+				rows = new ArrayList<Integer>();
+				mRows.put( term, rows );
+			}
+			
+			rows.add( row );
+			
+			if( term instanceof IConstructedTerm )
+				add( ( (IConstructedTerm) term ).getParameters(), row );
+		}
+	}
+	
+	private static boolean contains( Iterable<ITerm> terms, ITerm term )
+	{
+		for( ITerm t : terms )
+		{
+			if( t.equals( term ) )
+				return true;
+			
+			if( t instanceof IConstructedTerm && contains( ( (IConstructedTerm) t ).getParameters(), term ) )
+				return true;
+		}
+		
+		return false;
+	}
+	
+	/** The relation. */
+	private final IRelation mRelation;
+	
+	/** The rows of the tuples containing each term. */
+	private final Map<ITerm, List<Integer>> mRows = new HashMap<ITerm, List<Integer>>();
+	
+	/** The number of tuples of the relation read so far. */
+	private int mSeen;
+}
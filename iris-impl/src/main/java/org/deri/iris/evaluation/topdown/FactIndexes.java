@@ -0,0 +1,156 @@
+/*
+ * Integrated Rule Inference System (IRIS):
+ * An extensible rule inference system for datalog with extensions.
+ * 
+ * Copyright (C) 2008 Semantic Technology Institute (STI) Innsbruck, 
+ * University of Innsbruck, Technikerstrasse 21a, 6020 Innsbruck, Austria.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ */
+package org.deri.iris.evaluation.topdown;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.deri.iris.api.basics.IAtom;
+import org.deri.iris.api.basics.IPredicate;
+import org.deri.iris.api.basics.ITuple;
+import org.deri.iris.api.terms.ITerm;
+import org.deri.iris.api.terms.IVariable;
+import org.deri.iris.facts.FiniteUniverseFacts;
+import org.deri.iris.facts.IFacts;
+import org.deri.iris.storage.IIndex;
+import org.deri.iris.storage.IIndexFactory;
+import org.deri.iris.storage.IRelation;
+import org.deri.iris.utils.TermMatchingAndSubstitution;
+
+/**
+ * <p>
+ * Indexes on the facts of a top-down evaluation, used to find the facts
+ * matching a selected literal.
+ * </p>
+ * <p>
+ * A fact relation is indexed on the positions at which the atom of the literal
+ * has ground terms (its adornment), so that only the facts with the same terms
+ * at these positions have to be unified with the atom. The indexes are kept
+ * for later lookups with the same adornment.
+ * </p>
+ */
+public class FactIndexes {
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param facts The facts to index.
+	 * @param indexFactory The factory to create the indexes with.
+	 */
+	public FactIndexes(IFacts facts, IIndexFactory indexFactory) {
+		mFacts = facts;
+		mIndexFactory = indexFactory;
+	}
+
+	/**
+	 * Tries to find the facts that match the given atom. For each matching
+	 * fact the substitution is added to the list of variable maps.
+	 * 
+	 * @param atom The atom.
+	 * @param variableMapList The list of substitutions to add to.
+	 * @return true if a matching fact is found, false otherwise
+	 */
+	public boolean getMatchingFacts(IAtom atom,
+			List<Map<IVariable, ITerm>> variableMapList) {
+		ITuple queryTuple = atom.getTuple();
+		boolean found = false;
+
+		Map<IVariable, ITerm> variableMap = new HashMap<IVariable, ITerm>();
+		for (ITuple factTuple : getCandidates(atom)) {
+			if (TermMatchingAndSubstitution.unify(queryTuple, factTuple,
+					variableMap)) {
+				variableMapList.add(variableMap);
+				variableMap = new HashMap<IVariable, ITerm>();
+				found = true;
+			} else if (!variableMap.isEmpty()) {
+				variableMap.clear();
+			}
+		}
+
+		return found;
+	}
+
+	/**
+	 * Get the facts that may match the given atom, i.e. the facts of the
+	 * predicate of the atom, which have the same terms at the positions of
+	 * the ground terms of the atom.
+	 * 
+	 * @param atom The atom.
+	 * @return The candidate facts.
+	 */
+	public synchronized List<ITuple> getCandidates(IAtom atom) {
+		IPredicate predicate = atom.getPredicate();
+		if (!mFacts.getPredicates().contains(predicate)
+				&& !predicate.equals(FiniteUniverseFacts.UNIVERSE))
+			return new ArrayList<ITuple>(0);
+
+		IRelation relation = mFacts.get(predicate);
+		ITuple tuple = atom.getTuple();
+
+		List<Integer> positions = new ArrayList<Integer>();
+		List<ITerm> key = new ArrayList<ITerm>();
+		for (int i = 0; i < tuple.size(); ++i) {
+			if (tuple.get(i).isGround()) {
+				positions.add(i);
+				key.add(tuple.get(i));
+			}
+		}
+
+		if (positions.isEmpty()) {
+			List<ITuple> tuples = new ArrayList<ITuple>(relation.size());
+			for (int i = 0; i < relation.size(); ++i)
+				tuples.add(relation.get(i));
+
+			return tuples;
+		}
+
+		Map<List<Integer>, IIndex> indexes = mIndexes.get(predicate);
+		if (indexes == null) {
+			indexes = new HashMap<List<Integer>, IIndex>();
+			mIndexes.put(predicate, indexes);
+		}
+
+		IIndex index = indexes.get(positions);
+		if (index == null) {
+			int[] indices = new int[positions.size()];
+			for (int i = 0; i < indices.length; ++i)
+				indices[i] = positions.get(i);
+
+			index = mIndexFactory.createIndex(relation, indices);
+			indexes.put(positions, index);
+		}
+
+		return index.get(key);
+	}
+
+	/** The indexed facts. */
+	private final IFacts mFacts;
+
+	/** The factory to create the indexes with. */
+	private final IIndexFactory mIndexFactory;
+
+	/** The indexes by predicate and indexed positions. */
+	private final Map<IPredicate, Map<List<Integer>, IIndex>> mIndexes = new HashMap<IPredicate, Map<List<Integer>, IIndex>>();
+}
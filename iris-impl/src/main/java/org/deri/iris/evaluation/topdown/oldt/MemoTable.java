@@ -23,18 +23,33 @@
 
 package org.deri.iris.evaluation.topdown.oldt;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.deri.iris.api.basics.IAtom;
+import org.deri.iris.api.basics.IPredicate;
 import org.deri.iris.api.basics.ITuple;
+import org.deri.iris.api.terms.IConstructedTerm;
 import org.deri.iris.api.terms.ITerm;
 import org.deri.iris.api.terms.IVariable;
+import org.deri.iris.factory.Factory;
 import org.deri.iris.storage.IRelation;
 import org.deri.iris.storage.simple.SimpleRelationFactory;
 import org.deri.iris.utils.TermMatchingAndSubstitution;
 
 /**
+ * <p>
+ * The memo table of the OLDT evaluation, mapping atoms to their answers.
+ * </p>
+ * <p>
+ * Atoms are looked up by subsumption. To avoid checking every atom in the
+ * table, the atoms are indexed by predicate. For each predicate there is an
+ * index of the variants of the atoms (the atoms with their variables renamed
+ * by position), and an index of the atoms by the values of their ground
+ * terms, which holds the candidates for subsumption.
+ * </p>
  * 
  * @author gigi
  * 
@@ -73,39 +88,26 @@ public class MemoTable extends HashMap<IAtom, IRelation> implements Map<IAtom, I
 		if (atom == null)
 			return null;
 		
-		// An entry which subsums the atom is already present
-		for (IAtom a : this.keySet()) {
-			if ( TermMatchingAndSubstitution.subsums(a, atom) ) {
-				
-				IRelation relation = (IRelation) (this.get(a) == null ? srf.createRelation() : this.get(a));
-				if ( tuple != null && !relation.contains(tuple) ) {
-					relation.add(tuple);
-				}
-				
-				return this.put(a, relation);
-			}
-		}
+		// An entry which subsums the atom may already be present
+		IAtom key = findSubsuming(atom);
+		if (key == null)
+			key = atom; // Atom is not in the memo table, add it
 		
 		// Initialize relation if necessary
-		IRelation relation = (IRelation) (this.get(atom) == null ? srf.createRelation() : this.get(atom));
-		if ( tuple != null && !relation.contains(tuple) ) {
-			relation.add(tuple);
-		}
+		IRelation relation = super.get(key);
+		if (relation == null)
+			relation = srf.createRelation();
+		
+		if (tuple != null)
+			relation.add(tuple); // the relation ignores known tuples
 		
-		// Atom is not in the memo table, add it
-		return this.put(atom, relation);
+		return this.put(key, relation);
 	}
 	
 	public IRelation get(IAtom atom, Map<IVariable, ITerm> variableMap) {
-		
-		for (IAtom a : this.keySet()) {
-			if ( TermMatchingAndSubstitution.subsums(a, atom) ) {
-				return this.get(a); 
-			}
-		}
+		IAtom key = findSubsuming(atom);
 
-		return null;
-		
+		return key == null ? null : super.get(key);
 	}
 	
 	/**
@@ -125,13 +127,45 @@ public class MemoTable extends HashMap<IAtom, IRelation> implements Map<IAtom, I
 	}
 	
 	public boolean containsKey(IAtom atom) {
-		for (IAtom a : this.keySet()) {
-			if ( TermMatchingAndSubstitution.subsums(a, atom) ) {
-				return true;
+		return findSubsuming(atom) != null;
+	}
+	
+	@Override
+	public IRelation put(IAtom atom, IRelation relation) {
+		if (!super.containsKey(atom))
+			index(atom);
+		
+		return super.put(atom, relation);
+	}
+	
+	@Override
+	public void putAll(Map<? extends IAtom, ? extends IRelation> map) {
+		for (Map.Entry<? extends IAtom, ? extends IRelation> entry : map.entrySet())
+			put(entry.getKey(), entry.getValue());
+	}
+	
+	@Override
+	public IRelation remove(Object atom) {
+		IRelation relation = super.remove(atom);
+		
+		// Rebuild the index of the predicate of the removed atom.
+		if (relation != null) {
+			IPredicate predicate = ((IAtom) atom).getPredicate();
+			mIndex.remove(predicate);
+			
+			for (IAtom key : keySet()) {
+				if (key.getPredicate().equals(predicate))
+					index(key);
 			}
 		}
 		
-		return false;
+		return relation;
+	}
+	
+	@Override
+	public void clear() {
+		super.clear();
+		mIndex.clear();
 	}
 	
 	private static final SimpleRelationFactory srf = new SimpleRelationFactory();
@@ -142,4 +176,174 @@ public class MemoTable extends HashMap<IAtom, IRelation> implements Map<IAtom, I
 			this.add(atom, tuple);
 		}
 	}
+	
+	/**
+	 * Find an atom in the table that subsums the given atom.
+	 * 
+	 * @param atom The atom.
+	 * @return The atom of the table, or <code>null</code> if there is none.
+	 */
+	private IAtom findSubsuming(IAtom atom) {
+		if (super.containsKey(atom))
+			return atom;
+		
+		PredicateIndex index = mIndex.get(atom.getPredicate());
+		if (index == null)
+			return null;
+		
+		IAtom variant = index.mVariants.get(variant(atom));
+		if (variant != null && TermMatchingAndSubstitution.subsums(variant, atom))
+			return variant;
+		
+		for (GroundTermsIndex groundTermsIndex : index.mGroundTerms) {
+			List<IAtom> candidates = groundTermsIndex.candidates(atom.getTuple());
+			
+			for (IAtom candidate : candidates) {
+				if (TermMatchingAndSubstitution.subsums(candidate, atom))
+					return candidate;
+			}
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * Add an atom to the index of its predicate.
+	 */
+	private void index(IAtom atom) {
+		PredicateIndex index = mIndex.get(atom.getPredicate());
+		if (index == null) {
+			index = new PredicateIndex();
+			mIndex.put(atom.getPredicate(), index);
+		}
+		
+		IAtom variant = variant(atom);
+		if (!index.mVariants.containsKey(variant))
+			index.mVariants.put(variant, atom);
+		
+		ITuple tuple = atom.getTuple();
+		List<Integer> positions = new ArrayList<Integer>();
+		for (int i = 0; i < tuple.size(); ++i) {
+			if (tuple.get(i).isGround())
+				positions.add(i);
+		}
+		
+		GroundTermsIndex groundTermsIndex = null;
+		for (GroundTermsIndex existing : index.mGroundTerms) {
+			if (existing.mPositions.equals(positions)) {
+				groundTermsIndex = existing;
+				break;
+			}
+		}
+		
+		if (groundTermsIndex == null) {
+			groundTermsIndex = new GroundTermsIndex(positions);
+			index.mGroundTerms.add(groundTermsIndex);
+		}
+		
+		groundTermsIndex.add(atom);
+	}
+	
+	/**
+	 * Create the canonical variant of an atom, in which the variables are
+	 * renamed in the order of their first occurrence.
+	 */
+	private static IAtom variant(IAtom atom) {
+		Map<IVariable, IVariable> renaming = new HashMap<IVariable, IVariable>();
+		
+		return Factory.BASIC.createAtom(atom.getPredicate(), Factory.BASIC
+				.createTuple(rename(atom.getTuple(), renaming)));
+	}
+	
+	private static List<ITerm> rename(List<ITerm> terms, Map<IVariable, IVariable> renaming) {
+		List<ITerm> renamed = new ArrayList<ITerm>(terms.size());
+		
+		for (ITerm term : terms) {
+			if (term instanceof IVariable) {
+				IVariable variable = renaming.get(term);
+				if (variable == null) {
+					variable = Factory.TERM.createVariable("_" + renaming.size());
+					renaming.put((IVariable) term, variable);
+				}
+				renamed.add(variable);
+			} else if (term instanceof IConstructedTerm && !term.isGround()) {
+				IConstructedTerm constructed = (IConstructedTerm) term;
+				renamed.add(Factory.TERM.createConstruct(constructed
+						.getFunctionSymbol(), rename(constructed.getParameters(), renaming)));
+			} else {
+				renamed.add(term);
+			}
+		}
+		
+		return renamed;
+	}
+	
+	/**
+	 * The indexes of the atoms of one predicate.
+	 */
+	private static class PredicateIndex {
+		/** The first atom of each variant. */
+		private final Map<IAtom, IAtom> mVariants = new HashMap<IAtom, IAtom>();
+		
+		/** The atoms by the positions of their ground terms. */
+		private final List<GroundTermsIndex> mGroundTerms = new ArrayList<GroundTermsIndex>();
+	}
+	
+	/**
+	 * The atoms with ground terms at the same positions, by these ground terms.
+	 */
+	private static class GroundTermsIndex {
+		GroundTermsIndex(List<Integer> positions) {
+			mPositions = positions;
+		}
+		
+		void add(IAtom atom) {
+			List<ITerm> key = key(atom.getTuple());
+			
+			List<IAtom> atoms = mAtoms.get(key);
+			if (atoms == null) {
+				atoms = new ArrayList<IAtom>();
+				mAtoms.put(key, atoms);
+			}
+			
+			atoms.add(atom);
+			mAll.add(atom);
+		}
+		
+		/**
+		 * Get the atoms that may subsum an atom with the given tuple. If the
+		 * tuple is ground at all positions of this index, only the atoms with
+		 * the same ground terms qualify.
+		 */
+		List<IAtom> candidates(ITuple tuple) {
+			for (int position : mPositions) {
+				if (!tuple.get(position).isGround())
+					return mAll;
+			}
+			
+			List<IAtom> atoms = mAtoms.get(key(tuple));
+			
+			return atoms == null ? EMPTY : atoms;
+		}
+		
+		private List<ITerm> key(ITuple tuple) {
+			List<ITerm> key = new ArrayList<ITerm>(mPositions.size());
+			
+			for (int position : mPositions)
+				key.add(tuple.get(position));
+			
+			return key;
+		}
+		
+		private final List<Integer> mPositions;
+		
+		private final Map<List<ITerm>, List<IAtom>> mAtoms = new HashMap<List<ITerm>, List<IAtom>>();
+		
+		private final List<IAtom> mAll = new ArrayList<IAtom>();
+		
+		private static final List<IAtom> EMPTY = new ArrayList<IAtom>(0);
+	}
+	
+	/** The indexes of the atoms in this table, by predicate. */
+	private final Map<IPredicate, PredicateIndex> mIndex = new HashMap<IPredicate, PredicateIndex>();
 }
@@ -41,6 +41,7 @@ import org.deri.iris.api.terms.ITerm;
 import org.deri.iris.api.terms.IVariable;
 import org.deri.iris.builtins.EqualBuiltin;
 import org.deri.iris.builtins.ExactEqualBuiltin;
+import org.deri.iris.evaluation.topdown.FactIndexes;
 import org.deri.iris.evaluation.topdown.FirstLiteralSelector;
 import org.deri.iris.evaluation.topdown.ILiteralSelector;
 import org.deri.iris.evaluation.topdown.IPredicateTagger;
@@ -52,6 +53,7 @@ import org.deri.iris.factory.Factory;
 import org.deri.iris.facts.IFacts;
 import org.deri.iris.rules.RuleManipulator;
 import org.deri.iris.storage.IRelation;
+import org.deri.iris.storage.hash.HashIndexFactory;
 import org.deri.iris.storage.simple.SimpleRelationFactory;
 import org.deri.iris.utils.TermMatchingAndSubstitution;
 import org.slf4j.Logger;
@@ -71,6 +73,7 @@ public class OLDTEvaluator implements ITopDownEvaluator {
 	private Logger logger = LoggerFactory.getLogger(getClass());
 	private IQuery mInitialQuery;
 	private IFacts mFacts;
+	private FactIndexes mFactIndexes;
 	private List<IRule> mRules;
 	private MemoTable mMemoTable;
 	private Set<IPredicate> mMemoPredicates;
@@ -89,8 +92,24 @@ public class OLDTEvaluator implements ITopDownEvaluator {
 	 *            list of rules
 	 */
 	public OLDTEvaluator(IFacts facts, List<IRule> rules) {
+		this(facts, rules, new FactIndexes(facts, new HashIndexFactory()));
+	}
+
+	/**
+	 * Constructor
+	 * 
+	 * @param facts
+	 *            one or many facts
+	 * @param rules
+	 *            list of rules
+	 * @param factIndexes
+	 *            the indexes on the facts
+	 */
+	public OLDTEvaluator(IFacts facts, List<IRule> rules,
+			FactIndexes factIndexes) {
 		// Initialize Facts and Rules
 		mFacts = facts;
+		mFactIndexes = factIndexes;
 		mRules = rules;
 
 		// Initialize Memo Predicates
@@ -925,39 +944,8 @@ public class OLDTEvaluator implements ITopDownEvaluator {
 		 */
 		private boolean getMatchingFacts(
 				List<Map<IVariable, ITerm>> variableMapList) {
-
-			// Check all the facts
-			for (IPredicate factPredicate : mFacts.getPredicates()) {
-				// Check if the predicate and the arity matches
-				if (TopDownHelper.match(this.getSelectedLiteral(),
-						factPredicate)) {
-					// We've found a match (predicates and arity match)
-					// Is the QueryTuple unifiable with one of the FactTuples?
-
-					IRelation factRelation = mFacts.get(factPredicate);
-
-					// Substitute variables into the query
-					for (int i = 0; i < factRelation.size(); i++) {
-						ITuple queryTuple = this.getSelectedLiteral().getAtom()
-								.getTuple();
-						boolean tupleUnifyable = false;
-						ITuple factTuple = factRelation.get(i);
-						Map<IVariable, ITerm> variableMap = new HashMap<IVariable, ITerm>();
-						tupleUnifyable = TermMatchingAndSubstitution.unify(
-								queryTuple, factTuple, variableMap);
-						if (tupleUnifyable) {
-							queryTuple = TermMatchingAndSubstitution
-									.substituteVariablesInToTuple(queryTuple,
-											variableMap);
-							variableMapList.add(variableMap);
-						}
-					}
-				}
-			}
-			if (variableMapList.isEmpty())
-				return false; // No fact found
-
-			return true;
+			return mFactIndexes.getMatchingFacts(this.getSelectedLiteral()
+					.getAtom(), variableMapList);
 		}
 
 		/**
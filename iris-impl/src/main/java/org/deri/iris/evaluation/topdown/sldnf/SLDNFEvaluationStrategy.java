@@ -28,10 +28,13 @@ import org.deri.iris.Configuration;
 import org.deri.iris.EvaluationException;
 import org.deri.iris.ProgramNotStratifiedException;
 import org.deri.iris.RuleUnsafeException;
+import org.deri.iris.api.IPreparedQuery;
 import org.deri.iris.api.basics.IQuery;
 import org.deri.iris.api.basics.IRule;
 import org.deri.iris.api.terms.IVariable;
 import org.deri.iris.evaluation.IEvaluationStrategy;
+import org.deri.iris.evaluation.PreparedQuery;
+import org.deri.iris.evaluation.topdown.FactIndexes;
 import org.deri.iris.facts.IFacts;
 import org.deri.iris.storage.IRelation;
 
@@ -56,6 +59,7 @@ public class SLDNFEvaluationStrategy implements IEvaluationStrategy {
 		mFacts = facts;
 		mRules = rules;
 		mConfiguration = configuration;
+		mFactIndexes = new FactIndexes( facts, configuration.indexFactory );
 	}
 	
 	/**
@@ -65,15 +69,22 @@ public class SLDNFEvaluationStrategy implements IEvaluationStrategy {
 		if( query == null )
 			throw new IllegalArgumentException( "SLDEvaluationStrategy.evaluateQuery() - query must not be null." ); 
 		
-		SLDNFEvaluator evaluator = new SLDNFEvaluator( mFacts, mRules );
+		SLDNFEvaluator evaluator = new SLDNFEvaluator( mFacts, mRules, mFactIndexes );
 		IRelation relation = evaluator.evaluate(query);
  		outputVariables.addAll( evaluator.getOutputVariables() );
  		
 		return relation;
 	}
 	
+	public IPreparedQuery prepareQuery(IQuery query, List<IVariable> parameters) {
+		return new PreparedQuery( this, query, parameters );
+	}
+	
 	protected final IFacts mFacts;
 	protected final List<IRule> mRules;
 	protected final Configuration mConfiguration;
+	
+	/** The indexes on the facts, shared by the evaluations of all queries. */
+	protected final FactIndexes mFactIndexes;
 
 }
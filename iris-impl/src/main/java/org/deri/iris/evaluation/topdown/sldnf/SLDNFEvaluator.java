@@ -31,7 +31,6 @@ import java.util.Set;
 import org.deri.iris.EvaluationException;
 import org.deri.iris.api.basics.IAtom;
 import org.deri.iris.api.basics.ILiteral;
-import org.deri.iris.api.basics.IPredicate;
 import org.deri.iris.api.basics.IQuery;
 import org.deri.iris.api.basics.IRule;
 import org.deri.iris.api.basics.ITuple;
@@ -40,6 +39,7 @@ import org.deri.iris.api.terms.ITerm;
 import org.deri.iris.api.terms.IVariable;
 import org.deri.iris.builtins.EqualBuiltin;
 import org.deri.iris.builtins.ExactEqualBuiltin;
+import org.deri.iris.evaluation.topdown.FactIndexes;
 import org.deri.iris.evaluation.topdown.ILiteralSelector;
 import org.deri.iris.evaluation.topdown.ITopDownEvaluator;
 import org.deri.iris.evaluation.topdown.MaximumRecursionDepthReachedException;
@@ -52,6 +52,7 @@ import org.deri.iris.rules.RuleManipulator;
 import org.deri.iris.rules.optimisation.ReOrderLiteralsOptimiser;
 import org.deri.iris.rules.ordering.SimpleReOrdering;
 import org.deri.iris.storage.IRelation;
+import org.deri.iris.storage.hash.HashIndexFactory;
 import org.deri.iris.storage.simple.SimpleRelationFactory;
 import org.deri.iris.utils.TermMatchingAndSubstitution;
 import org.slf4j.Logger;
@@ -76,6 +77,7 @@ public class SLDNFEvaluator implements ITopDownEvaluator {
 	
 	private IQuery mInitialQuery;
 	private IFacts mFacts;
+	private FactIndexes mFactIndexes;
 	private List<IRule> mRules;
 	
 	private static final SimpleRelationFactory srf = new SimpleRelationFactory();
@@ -88,7 +90,18 @@ public class SLDNFEvaluator implements ITopDownEvaluator {
 	 * @param rules list of rules
 	 */
 	public SLDNFEvaluator(IFacts facts, List<IRule> rules) {
+		this(facts, rules, new FactIndexes(facts, new HashIndexFactory()));
+	}
+	
+	/**
+	 * Constructor
+	 * @param facts one or many facts 
+	 * @param rules list of rules
+	 * @param factIndexes the indexes on the facts
+	 */
+	public SLDNFEvaluator(IFacts facts, List<IRule> rules, FactIndexes factIndexes) {
 		mFacts = facts;
+		mFactIndexes = factIndexes;
 		mRules = new LinkedList<IRule>();
 		ReOrderLiteralsOptimiser rolo = new ReOrderLiteralsOptimiser();
 		for (IRule rule : rules) {
@@ -574,34 +587,7 @@ public class SLDNFEvaluator implements ITopDownEvaluator {
 	 * @return true if a matching fact is found, false otherwise
 	 */
 	private boolean getMatchingFacts(ILiteral queryLiteral, List<Map<IVariable, ITerm>> variableMapList) {
-		
-		// Check all the facts
-		for ( IPredicate factPredicate : mFacts.getPredicates() ) {
-			// Check if the predicate and the arity matches
-			if ( TopDownHelper.match(queryLiteral, factPredicate) ) {
-				// We've found a match (predicates and arity match) 
-				// Is the QueryTuple unifiable with one of the FactTuples?
-				
-				IRelation factRelation = mFacts.get(factPredicate);
-				
-				// Substitute variables into the query
-				for ( int i = 0; i < factRelation.size(); i++ ) {
-					ITuple queryTuple = queryLiteral.getAtom().getTuple();
-					boolean tupleUnifyable = false;
-					ITuple factTuple = factRelation.get(i);
-					Map<IVariable, ITerm> variableMap = new HashMap<IVariable, ITerm>();
-					tupleUnifyable = TermMatchingAndSubstitution.unify(queryTuple, factTuple, variableMap);
-					if (tupleUnifyable) {
-						queryTuple = TermMatchingAndSubstitution.substituteVariablesInToTuple(queryTuple, variableMap);
-						variableMapList.add(variableMap);
-					}
-				}
-			}
-		}
-		if (variableMapList.isEmpty())
-			return false; // No fact found
-		
-		return true;
+		return mFactIndexes.getMatchingFacts(queryLiteral.getAtom(), variableMapList);
 	}
 
 	
@@ -0,0 +1,114 @@
+/*
+ * Integrated Rule Inference System (IRIS):
+ * An extensible rule inference system for datalog with extensions.
+ * 
+ * Copyright (C) 2008 Semantic Technology Institute (STI) Innsbruck, 
+ * University of Innsbruck, Technikerstrasse 21a, 6020 Innsbruck, Austria.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ */
+package org.deri.iris.evaluation.topdown.slg;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.deri.iris.api.basics.ITuple;
+
+/**
+ * An answer of a subgoal. An answer is either unconditional, or it depends
+ * on one or more lists of delayed literals, each of them being a derivation of
+ * the answer. Conditional answers are resolved by the simplification once the
+ * evaluation is complete.
+ */
+class Answer {
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param tuple The answer tuple.
+	 * @param delays The delayed literals of the derivation of the answer. If
+	 *            empty, the answer is unconditional.
+	 */
+	Answer(ITuple tuple, List<Delay> delays) {
+		mTuple = tuple;
+		addDerivation(delays);
+	}
+
+	ITuple getTuple() {
+		return mTuple;
+	}
+
+	/**
+	 * Add another derivation of this answer.
+	 * 
+	 * @param delays The delayed literals of the derivation.
+	 */
+	void addDerivation(List<Delay> delays) {
+		if (mUnconditional)
+			return;
+
+		if (delays.isEmpty())
+			setUnconditional();
+		else
+			mDelayLists.add(delays);
+	}
+
+	/**
+	 * Get the delay lists of the conditional derivations of this answer.
+	 * 
+	 * @return The delay lists.
+	 */
+	List<List<Delay>> getDelayLists() {
+		return mDelayLists;
+	}
+
+	boolean isUnconditional() {
+		return mUnconditional;
+	}
+
+	void setUnconditional() {
+		mUnconditional = true;
+		mDelayLists.clear();
+	}
+
+	/**
+	 * Checks if this answer was deleted, because none of its derivations
+	 * holds.
+	 * 
+	 * @return true if deleted, false otherwise
+	 */
+	boolean isDeleted() {
+		return mDeleted;
+	}
+
+	void delete() {
+		mDeleted = true;
+		mDelayLists.clear();
+	}
+
+	@Override
+	public String toString() {
+		return mTuple.toString() + (mUnconditional ? "" : " " + mDelayLists);
+	}
+
+	private final ITuple mTuple;
+
+	private final List<List<Delay>> mDelayLists = new ArrayList<List<Delay>>();
+
+	private boolean mUnconditional;
+
+	private boolean mDeleted;
+}
@@ -0,0 +1,103 @@
+/*
+ * Integrated Rule Inference System (IRIS):
+ * An extensible rule inference system for datalog with extensions.
+ * 
+ * Copyright (C) 2008 Semantic Technology Institute (STI) Innsbruck, 
+ * University of Innsbruck, Technikerstrasse 21a, 6020 Innsbruck, Austria.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ */
+package org.deri.iris.evaluation.topdown.slg;
+
+import java.util.List;
+
+import org.deri.iris.api.basics.ILiteral;
+import org.deri.iris.api.basics.ITuple;
+
+/**
+ * The state of the resolution of a rule body for a subgoal, i.e. the
+ * instantiated rule head, the literals that are left to resolve and the
+ * literals that were delayed so far. A continuation waiting for another
+ * subgoal also keeps the literal that called it.
+ */
+class Continuation {
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param owner The subgoal the rule is resolved for.
+	 * @param head The instantiated rule head.
+	 * @param literals The literals left to resolve.
+	 * @param delays The delayed literals.
+	 */
+	Continuation(Subgoal owner, ITuple head, List<ILiteral> literals,
+			List<Delay> delays) {
+		this(owner, head, literals, delays, null);
+	}
+
+	/**
+	 * Constructor for a continuation waiting for another subgoal.
+	 * 
+	 * @param owner The subgoal the rule is resolved for.
+	 * @param head The instantiated rule head.
+	 * @param literals The literals left to resolve, without the call.
+	 * @param delays The delayed literals.
+	 * @param call The literal of the call.
+	 */
+	Continuation(Subgoal owner, ITuple head, List<ILiteral> literals,
+			List<Delay> delays, ILiteral call) {
+		mOwner = owner;
+		mHead = head;
+		mLiterals = literals;
+		mDelays = delays;
+		mCall = call;
+	}
+
+	Subgoal getOwner() {
+		return mOwner;
+	}
+
+	ITuple getHead() {
+		return mHead;
+	}
+
+	List<ILiteral> getLiterals() {
+		return mLiterals;
+	}
+
+	List<Delay> getDelays() {
+		return mDelays;
+	}
+
+	ILiteral getCall() {
+		return mCall;
+	}
+
+	@Override
+	public String toString() {
+		return mOwner + " :- " + mDelays + " | " + mLiterals;
+	}
+
+	private final Subgoal mOwner;
+
+	private final ITuple mHead;
+
+	private final List<ILiteral> mLiterals;
+
+	private final List<Delay> mDelays;
+
+	private final ILiteral mCall;
+}
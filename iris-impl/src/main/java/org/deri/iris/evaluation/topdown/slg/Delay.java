@@ -0,0 +1,91 @@
+/*
+ * Integrated Rule Inference System (IRIS):
+ * An extensible rule inference system for datalog with extensions.
+ * 
+ * Copyright (C) 2008 Semantic Technology Institute (STI) Innsbruck, 
+ * University of Innsbruck, Technikerstrasse 21a, 6020 Innsbruck, Austria.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ */
+package org.deri.iris.evaluation.topdown.slg;
+
+import org.deri.iris.api.basics.ITuple;
+
+/**
+ * A delayed literal. A positive delayed literal is a conditional answer of
+ * a subgoal, that was used before its truth value was known. A negative
+ * delayed literal is the negation of a ground subgoal, which depends on
+ * itself through negation.
+ */
+class Delay {
+
+	/** The truth values of a delayed literal. */
+	enum Truth {
+		TRUE, FALSE, UNKNOWN
+	}
+
+	/**
+	 * Creates a positive delayed literal.
+	 * 
+	 * @param subgoal The subgoal.
+	 * @param answer The conditional answer of the subgoal.
+	 */
+	Delay(Subgoal subgoal, ITuple answer) {
+		mSubgoal = subgoal;
+		mAnswer = answer;
+	}
+
+	/**
+	 * Creates a negative delayed literal.
+	 * 
+	 * @param subgoal The negated ground subgoal.
+	 */
+	Delay(Subgoal subgoal) {
+		this(subgoal, null);
+	}
+
+	/**
+	 * Get the truth value of this delayed literal from the current state of
+	 * the answer tables.
+	 * 
+	 * @return The truth value.
+	 */
+	Truth getTruth() {
+		if (mAnswer != null) {
+			Answer answer = mSubgoal.getAnswer(mAnswer);
+
+			if (answer == null || answer.isDeleted())
+				return Truth.FALSE;
+
+			return answer.isUnconditional() ? Truth.TRUE : Truth.UNKNOWN;
+		}
+
+		if (mSubgoal.hasUnconditionalAnswer())
+			return Truth.FALSE;
+
+		return mSubgoal.hasNoAnswers() ? Truth.TRUE : Truth.UNKNOWN;
+	}
+
+	@Override
+	public String toString() {
+		return mAnswer == null ? "not " + mSubgoal : mSubgoal + "" + mAnswer;
+	}
+
+	private final Subgoal mSubgoal;
+
+	/** The answer tuple, <code>null</code> for a negative delayed literal. */
+	private final ITuple mAnswer;
+}
@@ -0,0 +1,136 @@
+/*
+ * Integrated Rule Inference System (IRIS):
+ * An extensible rule inference system for datalog with extensions.
+ * 
+ * Copyright (C) 2008 Semantic Technology Institute (STI) Innsbruck, 
+ * University of Innsbruck, Technikerstrasse 21a, 6020 Innsbruck, Austria.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ */
+package org.deri.iris.evaluation.topdown.slg;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.deri.iris.Configuration;
+import org.deri.iris.EvaluationException;
+import org.deri.iris.ProgramNotStratifiedException;
+import org.deri.iris.RuleUnsafeException;
+import org.deri.iris.api.IPreparedQuery;
+import org.deri.iris.api.basics.ILiteral;
+import org.deri.iris.api.basics.IQuery;
+import org.deri.iris.api.basics.IRule;
+import org.deri.iris.api.terms.IVariable;
+import org.deri.iris.evaluation.IEvaluationStrategy;
+import org.deri.iris.evaluation.PreparedQuery;
+import org.deri.iris.evaluation.topdown.FactIndexes;
+import org.deri.iris.factory.Factory;
+import org.deri.iris.facts.FiniteUniverseFacts;
+import org.deri.iris.facts.IFacts;
+import org.deri.iris.rules.RuleHeadEquality;
+import org.deri.iris.storage.IRelation;
+
+/**
+ * Implementation of the SLG evaluation strategy.
+ */
+public class SLGEvaluationStrategy implements IEvaluationStrategy {
+
+	/**
+	 * Constructor
+	 * @param facts Given facts.
+	 * @param rules Given rules.
+	 * @param configuration Configuration
+	 * @throws EvaluationException If a rule has rule head equality.
+	 */
+	public SLGEvaluationStrategy(IFacts facts, List<IRule> rules, Configuration configuration ) throws EvaluationException {
+		for( IRule rule : rules )
+			if( RuleHeadEquality.hasRuleHeadEquality( rule ) )
+				throw new EvaluationException( "SLG resolution does not support rule head equality: " + rule );
+		
+		List<IRule> safeRules = bindHeadVariables( rules );
+		if( safeRules != rules )
+			facts = new FiniteUniverseFacts( facts, rules );
+		
+		mFacts = facts;
+		mRules = safeRules;
+		mConfiguration = configuration;
+		mFactIndexes = new FactIndexes( facts, configuration.indexFactory );
+	}
+	
+	/**
+	 * Bind the head variables of unsafe rules, which do not occur in a positive
+	 * body literal, to the terms of the finite universe.
+	 * @param rules The rules.
+	 * @return The rules with the added universe literals, or the given rules
+	 * if all rules are safe.
+	 */
+	private static List<IRule> bindHeadVariables( List<IRule> rules ) {
+		List<IRule> safeRules = new ArrayList<IRule>();
+		boolean changed = false;
+		
+		for( IRule rule : rules ) {
+			Set<IVariable> unbound = new LinkedHashSet<IVariable>();
+			for( ILiteral literal : rule.getHead() )
+				unbound.addAll( literal.getAtom().getTuple().getVariables() );
+			
+			for( ILiteral literal : rule.getBody() )
+				if( literal.isPositive() )
+					unbound.removeAll( literal.getAtom().getTuple().getVariables() );
+			
+			if( unbound.isEmpty() ) {
+				safeRules.add( rule );
+				continue;
+			}
+			
+			List<ILiteral> body = new ArrayList<ILiteral>( rule.getBody() );
+			for( IVariable variable : unbound )
+				body.add( Factory.BASIC.createLiteral( true, FiniteUniverseFacts.UNIVERSE, Factory.BASIC.createTuple( variable ) ) );
+			
+			safeRules.add( Factory.BASIC.createRule( rule.getHead(), body ) );
+			changed = true;
+		}
+		
+		return changed ? safeRules : rules;
+	}
+	
+	/**
+	 * Evaluate the query
+	 */
+	public IRelation evaluateQuery(IQuery query, List<IVariable> outputVariables) throws ProgramNotStratifiedException, RuleUnsafeException, EvaluationException {
+		if( query == null )
+			throw new IllegalArgumentException( "SLGEvaluationStrategy.evaluateQuery() - query must not be null." ); 
+		
+		SLGEvaluator evaluator = new SLGEvaluator( mFacts, mRules, mFactIndexes );
+		IRelation relation = evaluator.evaluate(query);
+ 		outputVariables.addAll( evaluator.getOutputVariables() );
+ 		
+		return relation;
+	}
+	
+	public IPreparedQuery prepareQuery(IQuery query, List<IVariable> parameters) {
+		return new PreparedQuery( this, query, parameters );
+	}
+	
+	protected final IFacts mFacts;
+	protected final List<IRule> mRules;
+	protected final Configuration mConfiguration;
+	
+	/** The indexes on the facts, shared by the evaluations of all queries. */
+	protected final FactIndexes mFactIndexes;
+
+}
@@ -0,0 +1,892 @@
+/*
+ * Integrated Rule Inference System (IRIS):
+ * An extensible rule inference system for datalog with extensions.
+ * 
+ * Copyright (C) 2008 Semantic Technology Institute (STI) Innsbruck, 
+ * University of Innsbruck, Technikerstrasse 21a, 6020 Innsbruck, Austria.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ */
+package org.deri.iris.evaluation.topdown.slg;
+
+import java.lang.reflect.Constructor;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.deri.iris.Configuration;
+import org.deri.iris.EvaluationException;
+import org.deri.iris.api.basics.IAtom;
+import org.deri.iris.api.basics.ILiteral;
+import org.deri.iris.api.basics.IPredicate;
+import org.deri.iris.api.basics.IQuery;
+import org.deri.iris.api.basics.IRule;
+import org.deri.iris.api.basics.ITuple;
+import org.deri.iris.api.builtins.IBuiltinAtom;
+import org.deri.iris.api.terms.IConstructedTerm;
+import org.deri.iris.api.terms.ITerm;
+import org.deri.iris.api.terms.IVariable;
+import org.deri.iris.builtins.EqualBuiltin;
+import org.deri.iris.builtins.ExactEqualBuiltin;
+import org.deri.iris.evaluation.topdown.FactIndexes;
+import org.deri.iris.evaluation.topdown.ILiteralSelector;
+import org.deri.iris.evaluation.topdown.ITopDownEvaluator;
+import org.deri.iris.evaluation.topdown.SafeStandardLiteralSelector;
+import org.deri.iris.factory.Factory;
+import org.deri.iris.facts.IFacts;
+import org.deri.iris.storage.IRelation;
+import org.deri.iris.storage.simple.SimpleRelationFactory;
+import org.deri.iris.utils.TermMatchingAndSubstitution;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * Implementation of the SLG resolution, a top-down evaluation with tabling
+ * that computes the well-founded model of the relevant part of a program.
+ * </p>
+ * <p>
+ * Every call of an intensional predicate is a subgoal, which is tabled by its
+ * variant. The rules are only resolved once for each subgoal, all other calls
+ * of the variant consume the answers from its answer table. The computations
+ * are scheduled on an agenda. Once it is empty, the subgoals are completed by
+ * strongly connected components of their dependencies, starting with the
+ * components not depending on any other incomplete subgoal. Negative literals
+ * on incomplete subgoals wait for their completion, unless the negated
+ * subgoal is in the same component, in which case the literal is delayed and
+ * the answer becomes conditional. After the evaluation the conditional
+ * answers are simplified, and the answers which remain conditional are
+ * undefined in the well-founded model.
+ * </p>
+ * <p>
+ * Unlike in the SLG-WAM, completion is not incremental. The components are
+ * only computed once the agenda is empty, from all incomplete subgoals, so a
+ * subgoal whose answers are final stays incomplete until then, and negative
+ * literals on it wait until then as well.
+ * </p>
+ * <p>
+ * For details see 'Tabled Evaluation with Delaying for General Logic
+ * Programs' by Chen and Warren (JACM 43(1), 1996).
+ * </p>
+ */
+public class SLGEvaluator implements ITopDownEvaluator {
+
+	private Logger logger = LoggerFactory.getLogger(getClass());
+
+	/**
+	 * Constructor
+	 * 
+	 * @param facts
+	 *            one or many facts
+	 * @param rules
+	 *            list of rules
+	 * @param configuration
+	 *            the configuration, giving the index factory for the facts
+	 */
+	public SLGEvaluator(IFacts facts, List<IRule> rules,
+			Configuration configuration) {
+		this(facts, rules, new FactIndexes(facts, configuration.indexFactory));
+	}
+
+	/**
+	 * Constructor
+	 * 
+	 * @param facts
+	 *            one or many facts
+	 * @param rules
+	 *            list of rules
+	 * @param factIndexes
+	 *            the indexes on the facts
+	 */
+	public SLGEvaluator(IFacts facts, List<IRule> rules,
+			FactIndexes factIndexes) {
+		mFactIndexes = factIndexes;
+
+		for (IRule rule : rules) {
+			IPredicate predicate = rule.getHead().get(0).getAtom()
+					.getPredicate();
+
+			List<IRule> predicateRules = mRules.get(predicate);
+			if (predicateRules == null) {
+				predicateRules = new ArrayList<IRule>();
+				mRules.put(predicate, predicateRules);
+			}
+
+			predicateRules.add(renameVariables(rule));
+		}
+	}
+
+	/**
+	 * Evaluate given query
+	 */
+	public IRelation evaluate(IQuery query) throws EvaluationException {
+		mInitialQuery = query;
+
+		List<ITerm> variables = new ArrayList<ITerm>(getOutputVariables());
+		IAtom rootAtom = Factory.BASIC.createAtom(Factory.BASIC
+				.createPredicate("$query", variables.size()), Factory.BASIC
+				.createTuple(variables));
+
+		mRoot = new Subgoal(rootAtom);
+		mIncomplete.add(mRoot);
+		mAgenda.push(new Continuation(mRoot, rootAtom.getTuple(), query
+				.getLiterals(), NO_DELAYS));
+
+		do {
+			while (!mAgenda.isEmpty())
+				step(mAgenda.pop());
+		} while (completeComponents());
+
+		simplify();
+
+		IRelation relation = srf.createRelation();
+		for (Answer answer : mRoot.getAnswers()) {
+			if (answer.isUnconditional())
+				relation.add(answer.getTuple());
+		}
+
+		logger.debug("------------");
+		logger.debug("Relation " + relation);
+		logger.debug("Original Query: " + query);
+		logger.debug("Subgoals: " + mTable.size());
+
+		return relation;
+	}
+
+	/**
+	 * Return variables of the initial query
+	 */
+	public List<IVariable> getOutputVariables() {
+		// Variables only occurring in negative literals are not bound
+		Set<IVariable> positiveVariables = new HashSet<IVariable>();
+		for (ILiteral literal : mInitialQuery.getLiterals()) {
+			if (literal.isPositive())
+				positiveVariables.addAll(literal.getAtom().getTuple()
+						.getVariables());
+		}
+
+		Set<IVariable> variables = new LinkedHashSet<IVariable>(mInitialQuery
+				.getVariables());
+		variables.retainAll(positiveVariables);
+
+		return new ArrayList<IVariable>(variables);
+	}
+
+	/**
+	 * Resolve the next literal of a continuation. The resulting continuations
+	 * are put on the agenda.
+	 * 
+	 * @param continuation The continuation.
+	 * @throws EvaluationException on failure
+	 */
+	private void step(Continuation continuation) throws EvaluationException {
+		Subgoal owner = continuation.getOwner();
+		ITuple head = continuation.getHead();
+		List<Delay> delays = continuation.getDelays();
+
+		if (continuation.getLiterals().isEmpty()) {
+			addAnswer(owner, head, delays);
+			return;
+		}
+
+		ILiteral literal = mLiteralSelector.select(continuation.getLiterals());
+		if (literal == null)
+			literal = selectNegatedNonGround(continuation.getLiterals());
+
+		List<ILiteral> literals = new ArrayList<ILiteral>(continuation
+				.getLiterals());
+		literals.remove(literal);
+
+		IAtom atom = literal.getAtom();
+
+		if (atom instanceof IBuiltinAtom) {
+			resolveBuiltin(continuation, literal, literals);
+		} else if (!mRules.containsKey(atom.getPredicate())) {
+			// Extensional predicate, look up the facts
+			List<ITuple> facts = mFactIndexes.getCandidates(atom);
+
+			if (literal.isPositive()) {
+				for (ITuple fact : facts) {
+					Map<IVariable, ITerm> variableMap = new HashMap<IVariable, ITerm>();
+					if (unify(atom.getTuple(), fact, variableMap))
+						mAgenda.push(new Continuation(owner, substitute(head,
+								variableMap), substitute(literals, variableMap),
+								delays));
+				}
+			} else {
+				for (ITuple fact : facts) {
+					if (unify(atom.getTuple(), fact,
+							new HashMap<IVariable, ITerm>()))
+						return;
+				}
+
+				mAgenda.push(new Continuation(owner, head, literals, delays));
+			}
+		} else {
+			Subgoal subgoal = call(atom, owner, literal.isPositive());
+			Continuation waiting = new Continuation(owner, head, literals,
+					delays, literal);
+
+			if (literal.isPositive()) {
+				if (!subgoal.isComplete())
+					subgoal.getConsumers().add(waiting);
+
+				for (Answer answer : subgoal.getAnswers())
+					consume(waiting, subgoal, answer);
+			} else if (subgoal.isComplete()) {
+				negate(waiting, subgoal);
+			} else {
+				subgoal.getNegativeConsumers().add(waiting);
+			}
+		}
+	}
+
+	/**
+	 * Select a negative ordinary literal with variables, which do not occur in
+	 * any other literal. Such a literal holds if there is no answer at all
+	 * for it.
+	 */
+	private ILiteral selectNegatedNonGround(List<ILiteral> literals)
+			throws EvaluationException {
+		for (ILiteral literal : literals) {
+			if (!literal.isPositive()
+					&& !(literal.getAtom() instanceof IBuiltinAtom))
+				return literal;
+		}
+
+		throw new EvaluationException("No literal of " + literals
+				+ " can be selected, the rule is not safe.");
+	}
+
+	/**
+	 * Resolve a builtin literal of a continuation.
+	 */
+	private void resolveBuiltin(Continuation continuation, ILiteral literal,
+			List<ILiteral> literals) throws EvaluationException {
+		IBuiltinAtom builtinAtom = (IBuiltinAtom) literal.getAtom();
+		ITuple tuple = builtinAtom.getTuple();
+		Map<IVariable, ITerm> variableMap = new HashMap<IVariable, ITerm>();
+
+		if (literal.isPositive()
+				&& (builtinAtom instanceof EqualBuiltin || builtinAtom instanceof ExactEqualBuiltin)
+				&& !tuple.isGround()) {
+			// UNIFICATION
+			if (unify(tuple.get(0), tuple.get(1), variableMap))
+				mAgenda.push(new Continuation(continuation.getOwner(),
+						substitute(continuation.getHead(), variableMap),
+						substitute(literals, variableMap), continuation
+								.getDelays()));
+			return;
+		}
+
+		ITuple result;
+		try {
+			result = builtinAtom.evaluate(tuple);
+		} catch (IllegalArgumentException iae) {
+			// The builtin can't be evaluated
+			result = null;
+		}
+
+		if (!literal.isPositive()) {
+			if (result == null)
+				mAgenda.push(new Continuation(continuation.getOwner(),
+						continuation.getHead(), literals, continuation
+								.getDelays()));
+			return;
+		}
+
+		if (result == null)
+			return;
+
+		Set<IVariable> variables = tuple.getVariables();
+		if (variables.size() != result.size())
+			throw new EvaluationException("Builtin Evaluation failed. Expected "
+					+ variables.size() + " results, got " + result.size());
+
+		Iterator<ITerm> terms = result.iterator();
+		for (IVariable variable : variables)
+			variableMap.put(variable, terms.next());
+
+		mAgenda.push(new Continuation(continuation.getOwner(), substitute(
+				continuation.getHead(), variableMap), substitute(literals,
+				variableMap), continuation.getDelays()));
+	}
+
+	/**
+	 * Call the subgoal of an atom. If the variant of the atom was not called
+	 * before, a new subgoal is created and resolved with the facts and rules.
+	 * 
+	 * @param atom The atom.
+	 * @param caller The calling subgoal.
+	 * @param abstraction Whether constructed terms nested deeper than
+	 *            {@link #MAX_CALL_DEPTH} may be replaced by variables. The
+	 *            answers of such a subgoal are more general than the call, so
+	 *            this is only done for positive calls, whose answers are
+	 *            unified with the call.
+	 * @return The subgoal.
+	 */
+	private Subgoal call(IAtom atom, Subgoal caller, boolean abstraction) {
+		IAtom variant = variant(atom, abstraction ? MAX_CALL_DEPTH
+				: Integer.MAX_VALUE);
+
+		Subgoal subgoal = mTable.get(variant);
+		if (subgoal == null) {
+			subgoal = new Subgoal(variant);
+			mTable.put(variant, subgoal);
+			mIncomplete.add(subgoal);
+
+			resolve(subgoal);
+		}
+
+		if (!subgoal.isComplete())
+			caller.getDependencies().add(subgoal);
+
+		return subgoal;
+	}
+
+	/**
+	 * Resolve a new subgoal with the facts and the rules of its predicate.
+	 */
+	private void resolve(Subgoal subgoal) {
+		IAtom atom = subgoal.getAtom();
+		ITuple tuple = atom.getTuple();
+
+		for (ITuple fact : mFactIndexes.getCandidates(atom)) {
+			if (unify(tuple, fact, new HashMap<IVariable, ITerm>()))
+				addAnswer(subgoal, fact, NO_DELAYS);
+		}
+
+		for (IRule rule : mRules.get(atom.getPredicate())) {
+			ITuple head = rule.getHead().get(0).getAtom().getTuple();
+
+			Map<IVariable, ITerm> variableMap = new HashMap<IVariable, ITerm>();
+			if (unify(tuple, head, variableMap))
+				mAgenda.push(new Continuation(subgoal, substitute(head,
+						variableMap), substitute(rule.getBody(), variableMap),
+						NO_DELAYS));
+		}
+	}
+
+	/**
+	 * Add an answer to a subgoal. A new answer is passed on to all consumers
+	 * of the subgoal.
+	 */
+	private void addAnswer(Subgoal subgoal, ITuple tuple, List<Delay> delays) {
+		Answer answer = subgoal.getAnswer(tuple);
+
+		if (answer != null) {
+			answer.addDerivation(delays);
+			return;
+		}
+
+		answer = new Answer(tuple, delays);
+		subgoal.addAnswer(answer);
+
+		for (Continuation consumer : subgoal.getConsumers())
+			consume(consumer, subgoal, answer);
+	}
+
+	/**
+	 * Continue a waiting continuation with an answer of the called subgoal. A
+	 * conditional answer is delayed.
+	 */
+	private void consume(Continuation waiting, Subgoal subgoal, Answer answer) {
+		Map<IVariable, ITerm> variableMap = new HashMap<IVariable, ITerm>();
+
+		if (!unify(waiting.getCall().getAtom().getTuple(), answer.getTuple(),
+				variableMap))
+			return;
+
+		List<Delay> delays = waiting.getDelays();
+		if (!answer.isUnconditional())
+			delays = append(delays, new Delay(subgoal, answer.getTuple()));
+
+		mAgenda.push(new Continuation(waiting.getOwner(), substitute(waiting
+				.getHead(), variableMap), substitute(waiting.getLiterals(),
+				variableMap), delays));
+	}
+
+	/**
+	 * Continue a continuation waiting for the completion of a negated
+	 * subgoal. If the subgoal has only conditional answers, the negative
+	 * literal is delayed.
+	 */
+	private void negate(Continuation waiting, Subgoal subgoal) {
+		if (subgoal.hasUnconditionalAnswer())
+			return;
+
+		List<Delay> delays = waiting.getDelays();
+		if (!subgoal.hasNoAnswers())
+			delays = append(delays, new Delay(subgoal));
+
+		mAgenda.push(new Continuation(waiting.getOwner(), waiting.getHead(),
+				waiting.getLiterals(), delays));
+	}
+
+	/**
+	 * Complete the components of the incomplete subgoals, which do not depend
+	 * on other incomplete subgoals. A component that waits for the completion
+	 * of one of its own subgoals through negation, delays these negative
+	 * literals instead.
+	 * 
+	 * @return true if there are subgoals left to evaluate, false if all
+	 *         subgoals are complete
+	 */
+	private boolean completeComponents() {
+		for (Iterator<Subgoal> it = mIncomplete.iterator(); it.hasNext();) {
+			if (it.next().isComplete())
+				it.remove();
+		}
+
+		if (mIncomplete.isEmpty())
+			return false;
+
+		for (Set<Subgoal> component : components()) {
+			boolean delayed = false;
+
+			for (Subgoal subgoal : component) {
+				for (Iterator<Continuation> it = subgoal.getNegativeConsumers()
+						.iterator(); it.hasNext();) {
+					Continuation waiting = it.next();
+
+					if (component.contains(waiting.getOwner())) {
+						it.remove();
+						mAgenda.push(new Continuation(waiting.getOwner(),
+								waiting.getHead(), waiting.getLiterals(),
+								append(waiting.getDelays(), new Delay(subgoal))));
+						delayed = true;
+					}
+				}
+			}
+
+			if (delayed)
+				return true;
+
+			for (Subgoal subgoal : component)
+				subgoal.complete();
+
+			boolean resumed = false;
+			for (Subgoal subgoal : component) {
+				for (Continuation waiting : subgoal.getNegativeConsumers()) {
+					negate(waiting, subgoal);
+					resumed = true;
+				}
+				subgoal.getNegativeConsumers().clear();
+			}
+
+			if (resumed)
+				return true;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Compute the strongly connected components of the incomplete subgoals
+	 * (Tarjan's algorithm). A component is listed only after all the
+	 * components it depends on.
+	 * 
+	 * @return The components.
+	 */
+	private List<Set<Subgoal>> components() {
+		List<Set<Subgoal>> components = new ArrayList<Set<Subgoal>>();
+
+		for (Subgoal subgoal : mIncomplete) {
+			subgoal.mIndex = -1;
+			subgoal.mOnStack = false;
+		}
+
+		int index = 0;
+		Deque<Subgoal> stack = new ArrayDeque<Subgoal>();
+		Deque<Subgoal> path = new ArrayDeque<Subgoal>();
+		Deque<Iterator<Subgoal>> iterators = new ArrayDeque<Iterator<Subgoal>>();
+
+		for (Subgoal start : mIncomplete) {
+			if (start.mIndex != -1)
+				continue;
+
+			Subgoal next = start;
+			while (next != null || !path.isEmpty()) {
+				if (next != null) {
+					next.mIndex = next.mLowLink = index++;
+					next.mOnStack = true;
+					stack.push(next);
+					path.push(next);
+					iterators.push(next.getDependencies().iterator());
+					next = null;
+					continue;
+				}
+
+				Subgoal subgoal = path.peek();
+				Iterator<Subgoal> dependencies = iterators.peek();
+
+				if (dependencies.hasNext()) {
+					Subgoal dependency = dependencies.next();
+
+					if (dependency.isComplete())
+						continue;
+
+					if (dependency.mIndex == -1)
+						next = dependency;
+					else if (dependency.mOnStack)
+						subgoal.mLowLink = Math.min(subgoal.mLowLink,
+								dependency.mIndex);
+					continue;
+				}
+
+				path.pop();
+				iterators.pop();
+
+				if (!path.isEmpty())
+					path.peek().mLowLink = Math.min(path.peek().mLowLink,
+							subgoal.mLowLink);
+
+				if (subgoal.mLowLink == subgoal.mIndex) {
+					Set<Subgoal> component = new HashSet<Subgoal>();
+					Subgoal member;
+					do {
+						member = stack.pop();
+						member.mOnStack = false;
+						component.add(member);
+					} while (member != subgoal);
+
+					components.add(component);
+				}
+			}
+		}
+
+		return components;
+	}
+
+	/**
+	 * Simplify the conditional answers, until no more answer becomes
+	 * unconditional or is deleted.
+	 */
+	private void simplify() {
+		List<Subgoal> subgoals = new ArrayList<Subgoal>(mTable.values());
+		subgoals.add(mRoot);
+
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+
+			for (Subgoal subgoal : subgoals) {
+				for (Answer answer : subgoal.getAnswers()) {
+					if (answer.isUnconditional() || answer.isDeleted())
+						continue;
+
+					boolean holds = false;
+					for (Iterator<List<Delay>> it = answer.getDelayLists()
+							.iterator(); it.hasNext() && !holds;) {
+						boolean unknown = false;
+						boolean failed = false;
+
+						for (Delay delay : it.next()) {
+							Delay.Truth truth = delay.getTruth();
+
+							if (truth == Delay.Truth.FALSE)
+								failed = true;
+							else if (truth == Delay.Truth.UNKNOWN)
+								unknown = true;
+						}
+
+						if (failed)
+							it.remove();
+						else if (!unknown)
+							holds = true;
+					}
+
+					if (holds) {
+						answer.setUnconditional();
+						changed = true;
+					} else if (answer.getDelayLists().isEmpty()) {
+						answer.delete();
+						changed = true;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Create the variant of an atom, in which the variables are renamed in the
+	 * order of their first occurrence.
+	 */
+	private static IAtom variant(IAtom atom, int depth) {
+		Map<IVariable, ITerm> renaming = new HashMap<IVariable, ITerm>();
+
+		return Factory.BASIC.createAtom(atom.getPredicate(), Factory.BASIC
+				.createTuple(rename(atom.getTuple(), renaming, "#c", depth)));
+	}
+
+	/**
+	 * Rename the variables of a rule apart from the variables of the calls.
+	 */
+	private static IRule renameVariables(IRule rule) {
+		Map<IVariable, ITerm> renaming = new HashMap<IVariable, ITerm>();
+
+		ILiteral head = rule.getHead().get(0);
+		rename(head.getAtom().getTuple(), renaming, "#v");
+
+		for (ILiteral literal : rule.getBody())
+			rename(literal.getAtom().getTuple(), renaming, "#v");
+
+		List<ILiteral> headLiterals = new ArrayList<ILiteral>();
+		headLiterals.add(substitute(head, renaming));
+
+		return Factory.BASIC.createRule(headLiterals, substitute(rule
+				.getBody(), renaming));
+	}
+
+	private static List<ITerm> rename(List<ITerm> terms,
+			Map<IVariable, ITerm> renaming, String prefix) {
+		return rename(terms, renaming, prefix, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Rename the variables of the terms. Constructed terms below the given
+	 * depth are replaced by new variables.
+	 */
+	private static List<ITerm> rename(List<ITerm> terms,
+			Map<IVariable, ITerm> renaming, String prefix, int depth) {
+		List<ITerm> renamed = new ArrayList<ITerm>(terms.size());
+
+		for (ITerm term : terms) {
+			if (term instanceof IConstructedTerm && depth == 0) {
+				ITerm variable = Factory.TERM.createVariable(prefix
+						+ renaming.size());
+				renaming.put((IVariable) variable, variable);
+				renamed.add(variable);
+			} else if (term instanceof IVariable) {
+				ITerm variable = renaming.get(term);
+				if (variable == null) {
+					variable = Factory.TERM.createVariable(prefix
+							+ renaming.size());
+					renaming.put((IVariable) term, variable);
+				}
+				renamed.add(variable);
+			} else if (term instanceof IConstructedTerm
+					&& (!term.isGround() || depth != Integer.MAX_VALUE)) {
+				IConstructedTerm constructed = (IConstructedTerm) term;
+				renamed.add(Factory.TERM.createConstruct(constructed
+						.getFunctionSymbol(), rename(constructed
+						.getParameters(), renaming, prefix, depth - 1)));
+			} else {
+				renamed.add(term);
+			}
+		}
+
+		return renamed;
+	}
+
+	/**
+	 * Unify two tuples of the same arity.
+	 */
+	private static boolean unify(ITuple tuple1, ITuple tuple2,
+			Map<IVariable, ITerm> variableMap) {
+		for (int i = 0; i < tuple1.size(); ++i) {
+			if (!unify(tuple1.get(i), tuple2.get(i), variableMap))
+				return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Unify two terms. The variable map may bind variables to terms that
+	 * contain bound variables again.
+	 */
+	private static boolean unify(ITerm term1, ITerm term2,
+			Map<IVariable, ITerm> variableMap) {
+		term1 = dereference(term1, variableMap);
+		term2 = dereference(term2, variableMap);
+
+		if (term1.equals(term2))
+			return true;
+
+		if (term1 instanceof IVariable) {
+			variableMap.put((IVariable) term1, term2);
+			return true;
+		}
+
+		if (term2 instanceof IVariable) {
+			variableMap.put((IVariable) term2, term1);
+			return true;
+		}
+
+		if (term1 instanceof IConstructedTerm
+				&& term2 instanceof IConstructedTerm) {
+			IConstructedTerm constructed1 = (IConstructedTerm) term1;
+			IConstructedTerm constructed2 = (IConstructedTerm) term2;
+
+			if (!constructed1.getFunctionSymbol().equals(
+					constructed2.getFunctionSymbol())
+					|| constructed1.getParameters().size() != constructed2
+							.getParameters().size())
+				return false;
+
+			for (int i = 0; i < constructed1.getParameters().size(); ++i) {
+				if (!unify(constructed1.getParameters().get(i), constructed2
+						.getParameters().get(i), variableMap))
+					return false;
+			}
+
+			return true;
+		}
+
+		return false;
+	}
+
+	private static ITerm dereference(ITerm term,
+			Map<IVariable, ITerm> variableMap) {
+		while (term instanceof IVariable && variableMap.containsKey(term))
+			term = variableMap.get(term);
+
+		return term;
+	}
+
+	/**
+	 * Resolve the bindings of a variable map, so that no bound variable
+	 * occurs in the bound terms.
+	 */
+	private static Map<IVariable, ITerm> resolve(
+			Map<IVariable, ITerm> variableMap) {
+		Map<IVariable, ITerm> resolved = new HashMap<IVariable, ITerm>();
+
+		for (IVariable variable : variableMap.keySet())
+			resolved.put(variable, resolve(variable, variableMap));
+
+		return resolved;
+	}
+
+	private static ITerm resolve(ITerm term, Map<IVariable, ITerm> variableMap) {
+		term = dereference(term, variableMap);
+
+		if (term instanceof IConstructedTerm && !term.isGround()) {
+			IConstructedTerm constructed = (IConstructedTerm) term;
+			List<ITerm> parameters = new ArrayList<ITerm>();
+
+			for (ITerm parameter : constructed.getParameters())
+				parameters.add(resolve(parameter, variableMap));
+
+			return Factory.TERM.createConstruct(constructed.getFunctionSymbol(),
+					parameters);
+		}
+
+		return term;
+	}
+
+	private static ITuple substitute(ITuple tuple,
+			Map<IVariable, ITerm> variableMap) {
+		if (variableMap.isEmpty())
+			return tuple;
+
+		return TermMatchingAndSubstitution.substituteVariablesInToTuple(tuple,
+				resolve(variableMap));
+	}
+
+	private static List<ILiteral> substitute(List<ILiteral> literals,
+			Map<IVariable, ITerm> variableMap) {
+		if (variableMap.isEmpty())
+			return literals;
+
+		Map<IVariable, ITerm> resolved = resolve(variableMap);
+		List<ILiteral> substituted = new ArrayList<ILiteral>(literals.size());
+
+		for (ILiteral literal : literals)
+			substituted.add(substitute(literal, resolved));
+
+		return substituted;
+	}
+
+	/**
+	 * Substitute the variables of a literal. The substitution must be
+	 * resolved.
+	 */
+	private static ILiteral substitute(ILiteral literal,
+			Map<IVariable, ITerm> variableMap) {
+		IAtom atom = literal.getAtom();
+		ITuple tuple = TermMatchingAndSubstitution
+				.substituteVariablesInToTuple(atom.getTuple(), variableMap);
+
+		if (atom instanceof IBuiltinAtom) {
+			ITerm[] terms = tuple.toArray(new ITerm[tuple.size()]);
+
+			try {
+				Constructor<? extends IAtom> constructor = atom.getClass()
+						.getConstructor(terms.getClass());
+				atom = constructor.newInstance((Object) terms);
+			} catch (Exception e) {
+				throw new RuntimeException("Unknown built in class type: "
+						+ atom.getClass().getName(), e);
+			}
+
+			return Factory.BASIC.createLiteral(literal.isPositive(), atom);
+		}
+
+		return Factory.BASIC.createLiteral(literal.isPositive(), atom
+				.getPredicate(), tuple);
+	}
+
+	private static List<Delay> append(List<Delay> delays, Delay delay) {
+		List<Delay> appended = new ArrayList<Delay>(delays.size() + 1);
+		appended.addAll(delays);
+		appended.add(delay);
+
+		return appended;
+	}
+
+	/**
+	 * The depth of constructed terms from which on the terms of positive calls
+	 * are abstracted, so that there are finitely many subgoals.
+	 */
+	private static final int MAX_CALL_DEPTH = 2;
+
+	private static final List<Delay> NO_DELAYS = Collections.emptyList();
+
+	private static final SimpleRelationFactory srf = new SimpleRelationFactory();
+
+	private IQuery mInitialQuery;
+
+	/** The indexes on the facts. */
+	private final FactIndexes mFactIndexes;
+
+	/** The rules by the predicate of their head. */
+	private final Map<IPredicate, List<IRule>> mRules = new HashMap<IPredicate, List<IRule>>();
+
+	/** The subgoals by their variant. */
+	private final Map<IAtom, Subgoal> mTable = new LinkedHashMap<IAtom, Subgoal>();
+
+	/** The subgoals that are not complete yet, in the order of their calls. */
+	private final List<Subgoal> mIncomplete = new ArrayList<Subgoal>();
+
+	/** The continuations to resolve. */
+	private final Deque<Continuation> mAgenda = new ArrayDeque<Continuation>();
+
+	private final ILiteralSelector mLiteralSelector = new SafeStandardLiteralSelector();
+
+	/** The subgoal of the query. */
+	private Subgoal mRoot;
+}
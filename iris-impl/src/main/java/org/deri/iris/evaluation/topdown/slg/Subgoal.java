@@ -0,0 +1,180 @@
+/*
+ * Integrated Rule Inference System (IRIS):
+ * An extensible rule inference system for datalog with extensions.
+ * 
+ * Copyright (C) 2008 Semantic Technology Institute (STI) Innsbruck, 
+ * University of Innsbruck, Technikerstrasse 21a, 6020 Innsbruck, Austria.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ */
+package org.deri.iris.evaluation.topdown.slg;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.deri.iris.api.basics.IAtom;
+import org.deri.iris.api.basics.ITuple;
+
+/**
+ * A tabled subgoal of the SLG resolution, i.e. a call variant together with
+ * its answer table and the computations waiting for its answers.
+ */
+class Subgoal {
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param atom The call variant, with the variables renamed in the order of
+	 *            their first occurrence.
+	 */
+	Subgoal(IAtom atom) {
+		mAtom = atom;
+	}
+
+	/**
+	 * Get the call variant of this subgoal.
+	 * 
+	 * @return The atom.
+	 */
+	IAtom getAtom() {
+		return mAtom;
+	}
+
+	/**
+	 * Get the answer for the given tuple.
+	 * 
+	 * @param tuple The answer tuple.
+	 * @return The answer, or <code>null</code> if there is none.
+	 */
+	Answer getAnswer(ITuple tuple) {
+		return mAnswers.get(tuple);
+	}
+
+	/**
+	 * Get the answers of this subgoal, in the order they were found.
+	 * 
+	 * @return The answers.
+	 */
+	List<Answer> getAnswers() {
+		return new ArrayList<Answer>(mAnswers.values());
+	}
+
+	/**
+	 * Add an answer to the answer table.
+	 * 
+	 * @param answer The answer.
+	 */
+	void addAnswer(Answer answer) {
+		mAnswers.put(answer.getTuple(), answer);
+	}
+
+	/**
+	 * Checks if this subgoal has an unconditional answer.
+	 * 
+	 * @return true if it has, false otherwise
+	 */
+	boolean hasUnconditionalAnswer() {
+		for (Answer answer : mAnswers.values()) {
+			if (answer.isUnconditional())
+				return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Checks if all answers of this subgoal have been deleted during the
+	 * simplification (or there never were any).
+	 * 
+	 * @return true if there are no answers left, false otherwise
+	 */
+	boolean hasNoAnswers() {
+		for (Answer answer : mAnswers.values()) {
+			if (!answer.isDeleted())
+				return false;
+		}
+
+		return true;
+	}
+
+	boolean isComplete() {
+		return mComplete;
+	}
+
+	/**
+	 * Mark this subgoal as complete. A complete subgoal does not get any new
+	 * answers, so the waiting computations are dropped.
+	 */
+	void complete() {
+		mComplete = true;
+		mConsumers.clear();
+		mDependencies.clear();
+	}
+
+	/**
+	 * The computations waiting for the answers of this subgoal.
+	 */
+	List<Continuation> getConsumers() {
+		return mConsumers;
+	}
+
+	/**
+	 * The computations waiting for the completion of this subgoal to decide
+	 * the negation of it.
+	 */
+	List<Continuation> getNegativeConsumers() {
+		return mNegativeConsumers;
+	}
+
+	/**
+	 * The incomplete subgoals that were called while evaluating this subgoal.
+	 */
+	Set<Subgoal> getDependencies() {
+		return mDependencies;
+	}
+
+	@Override
+	public String toString() {
+		return mAtom.toString();
+	}
+
+	/** The call variant. */
+	private final IAtom mAtom;
+
+	/** The answer table. */
+	private final Map<ITuple, Answer> mAnswers = new LinkedHashMap<ITuple, Answer>();
+
+	private final List<Continuation> mConsumers = new ArrayList<Continuation>();
+
+	private final List<Continuation> mNegativeConsumers = new ArrayList<Continuation>();
+
+	private final Set<Subgoal> mDependencies = new LinkedHashSet<Subgoal>();
+
+	private boolean mComplete;
+
+	/** The depth-first number while computing the components. */
+	int mIndex = -1;
+
+	/** The lowest depth-first number reachable while computing the components. */
+	int mLowLink;
+
+	/** Whether this subgoal is on the stack while computing the components. */
+	boolean mOnStack;
+}
@@ -27,6 +27,7 @@ import java.util.List;
 
 import org.deri.iris.Configuration;
 import org.deri.iris.EvaluationException;
+import org.deri.iris.api.IPreparedQuery;
 import org.deri.iris.api.basics.IPredicate;
 import org.deri.iris.api.basics.IQuery;
 import org.deri.iris.api.basics.IRule;
@@ -34,11 +35,11 @@ import org.deri.iris.api.terms.IVariable;
 import org.deri.iris.evaluation.IEvaluationStrategy;
 import org.deri.iris.evaluation.stratifiedbottomup.EvaluationUtilities;
 import org.deri.iris.evaluation.stratifiedbottomup.IRuleEvaluator;
-import org.deri.iris.evaluation.stratifiedbottomup.naive.NaiveEvaluator;
 import org.deri.iris.evaluation.stratifiedbottomup.seminaive.SemiNaiveEvaluator;
 import org.deri.iris.facts.FiniteUniverseFacts;
 import org.deri.iris.facts.IFacts;
 import org.deri.iris.rules.RuleHeadEquality;
+import org.deri.iris.rules.compiler.CompiledQueryCache;
 import org.deri.iris.rules.compiler.ICompiledRule;
 import org.deri.iris.rules.compiler.RuleCompiler;
 import org.deri.iris.storage.IRelation;
@@ -88,6 +89,7 @@ public class WellFoundedEvaluationStrategy implements IEvaluationStrategy
 
 		mFacts = calculateWellFoundedModel( reorderedRules, facts );
 
+		mCompiledQueries = new CompiledQueryCache( mFacts, mEquivalentTerms, mConfiguration );
 	}
 	
 	/**
@@ -107,6 +109,9 @@ public class WellFoundedEvaluationStrategy implements IEvaluationStrategy
 		
 		RuleCompiler rc = new RuleCompiler( facts, mEquivalentTerms, mConfiguration );
 
+		// The facts change between rounds, so choose the join order every time.
+		rules = new EvaluationUtilities( mConfiguration ).applyJoinOrderOptimiser( rules, facts );
+
 		for( IRule rule : rules )
 			compiledRules.add( rc.compile( rule ) );
 		
@@ -155,7 +160,6 @@ public class WellFoundedEvaluationStrategy implements IEvaluationStrategy
 
 		List<ICompiledRule> startingCompiledRules = compile( startingRules, finiteFacts );
 		
-		// TODO Enable rule head equality support for semi-naive evaluation.
 		// Choose the correct evaluation technique for the specified rules.
 		IRuleEvaluator evaluator = chooseEvaluator(rules);
 		
@@ -203,7 +207,7 @@ public class WellFoundedEvaluationStrategy implements IEvaluationStrategy
 	private IRuleEvaluator chooseEvaluator(List<IRule> rules) {
 		for (IRule rule : rules) {
 			if (RuleHeadEquality.hasRuleHeadEquality(rule)) {
-				return new NaiveEvaluator();
+				return new SemiNaiveEvaluator(mEquivalentTerms);
 			}
 		}
 		
@@ -252,16 +256,24 @@ public class WellFoundedEvaluationStrategy implements IEvaluationStrategy
 		if( outputVariables == null )
 			throw new IllegalArgumentException( "StratifiedBottomUpEvaluationStrategy.evaluateQuery() - outputVariables must not be null." ); 
 
-		RuleCompiler compiler = new RuleCompiler( mFacts, mEquivalentTerms, mConfiguration );
-
-		ICompiledRule compiledQuery = compiler.compile( query );
+		return mCompiledQueries.evaluate( query, outputVariables );
+	}
 
-		IRelation result = compiledQuery.evaluate();
+	public IPreparedQuery prepareQuery( IQuery query, List<IVariable> parameters ) throws EvaluationException
+	{
+		if( query == null )
+			throw new IllegalArgumentException( "WellFoundedEvaluationStrategy.prepareQuery() - query must not be null." ); 
 
-		outputVariables.clear();
-		outputVariables.addAll( compiledQuery.getVariablesBindings() );
+		return mCompiledQueries.prepare( query, parameters );
+	}
 
-		return result;
+	/**
+	 * Get the cache of the compiled queries evaluated by this strategy.
+	 * @return The compiled query cache.
+	 */
+	public CompiledQueryCache getCompiledQueryCache()
+	{
+		return mCompiledQueries;
 	}
 
 	/** The equivalent terms. */
@@ -272,4 +284,7 @@ public class WellFoundedEvaluationStrategy implements IEvaluationStrategy
 
 	/** The collection of facts that holds the well-founded model. */
 	private final IFacts mFacts;
+
+	/** The compiled queries evaluated on the well-founded model. */
+	private final CompiledQueryCache mCompiledQueries;
 }
@@ -70,6 +70,16 @@ public class Facts implements IFacts
 		return relation;
 	}
 	
+	/**
+	 * Replace the relation of a predicate.
+	 * @param predicate The predicate.
+	 * @param relation The new relation of the predicate.
+	 */
+	public void set( IPredicate predicate, IRelation relation )
+	{
+		mPredicateRelationMap.put( predicate, relation );
+	}
+	
 	/* (non-Javadoc)
      * @see org.deri.iris.new_stuff.facts.IFacts#getPredicates()
      */
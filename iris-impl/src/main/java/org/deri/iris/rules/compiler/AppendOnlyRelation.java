@@ -0,0 +1,97 @@
+/*
+ * Integrated Rule Inference System (IRIS):
+ * An extensible rule inference system for datalog with extensions.
+ * 
+ * Copyright (C) 2008 Semantic Technology Institute (STI) Innsbruck, 
+ * University of Innsbruck, Technikerstrasse 21a, 6020 Innsbruck, Austria.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ */
+package org.deri.iris.rules.compiler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.deri.iris.api.basics.ITuple;
+import org.deri.iris.storage.IRelation;
+import org.deri.iris.storage.IRelationFactory;
+
+/**
+ * A relation that keeps every tuple added to it, in order, without checking
+ * for duplicates. Used for the delta logs of joiners, so that the tuples of
+ * the current delta always form a contiguous range at the end, and for the
+ * input chunks of partitioned rule elements.
+ */
+class AppendOnlyRelation implements IRelation {
+	/** Creates append-only relations. */
+	static final IRelationFactory FACTORY = new IRelationFactory() {
+		public IRelation createRelation() {
+			return new AppendOnlyRelation();
+		}
+	};
+
+	/**
+	 * Constructor for an empty relation.
+	 */
+	AppendOnlyRelation() {
+		mTuples = new ArrayList<ITuple>();
+	}
+
+	/**
+	 * Constructor for a relation holding a range of the tuples of another
+	 * relation.
+	 * 
+	 * @param relation The relation to copy the tuples from.
+	 * @param from The position of the first tuple to copy.
+	 * @param to The position after the last tuple to copy.
+	 */
+	AppendOnlyRelation(IRelation relation, int from, int to) {
+		mTuples = new ArrayList<ITuple>(to - from);
+
+		for (int t = from; t < to; ++t)
+			mTuples.add(relation.get(t));
+	}
+
+	public boolean add(ITuple tuple) {
+		return mTuples.add(tuple);
+	}
+
+	public boolean addAll(IRelation relation) {
+		for (int t = 0; t < relation.size(); ++t)
+			mTuples.add(relation.get(t));
+
+		return relation.size() > 0;
+	}
+
+	public int size() {
+		return mTuples.size();
+	}
+
+	public ITuple get(int index) {
+		return mTuples.get(index);
+	}
+
+	public boolean contains(ITuple tuple) {
+		return mTuples.contains(tuple);
+	}
+
+	@Override
+	public String toString() {
+		return mTuples.toString();
+	}
+
+	private final List<ITuple> mTuples;
+}
@@ -23,6 +23,7 @@
 package org.deri.iris.rules.compiler;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -130,49 +131,77 @@ public class Builtin extends RuleElement
 	{
 		assert leftRelation != null;
 		
-		IRelation result = mConfiguration.relationFactory.createRelation();
+		final IRelation result = mConfiguration.relationFactory.createRelation();
 		
-		for( int i = 0; i < leftRelation.size(); ++i )
+		ITupleSink sink = new ITupleSink()
 		{
-			ITuple input = leftRelation.get( i );
-			
-			// Make the tuple for input to the built-in predicate
-			ITerm[] terms = new ITerm[ mIndicesFromInputRelationToMakeInputTuple.length ];
-			
-			for( int t = 0; t < mIndicesFromInputRelationToMakeInputTuple.length; ++t )
+			public void add( ITuple tuple )
 			{
-				int index = mIndicesFromInputRelationToMakeInputTuple[ t ];
-				terms[ t ] = index == -1 ? mBuiltinAtom.getTuple().get( t ) : input.get( index );
+				result.add( tuple );
 			}
+		};
+		
+		for( int i = 0; i < leftRelation.size(); ++i )
+			evaluate( leftRelation.get( i ), sink );
 			
-			ITuple builtinInputTuple = Factory.BASIC.createTuple( terms );
+		return result;
+	}
 
+	@Override
+	public void push( ITuple input, ITupleSink sink ) throws EvaluationException
+	{
+		evaluate( input, sink );
+	}
+	
+	/**
+	 * Evaluate the built-in for one input tuple and pass the output tuples on to the sink.
+	 * @param input The tuple from the previous rule element.
+	 * @param sink The receiver of the output tuples.
+	 * @throws EvaluationException
+	 */
+	private void evaluate( ITuple input, ITupleSink sink ) throws EvaluationException
+	{
+		// Make the tuple for input to the built-in predicate
+		ITerm[] terms = new ITerm[ mIndicesFromInputRelationToMakeInputTuple.length ];
+		
+		for( int t = 0; t < mIndicesFromInputRelationToMakeInputTuple.length; ++t )
+		{
+			int index = mIndicesFromInputRelationToMakeInputTuple[ t ];
+			terms[ t ] = index == -1 ? mBuiltinAtom.getTuple().get( t ) : input.get( index );
+		}
+		
+		ITuple builtinInputTuple = Factory.BASIC.createTuple( terms );
+		
+		Iterable<ITuple> combinationsForBuiltin;
+		
+		// With canonical equivalent terms the built-in only sees the representatives,
+		// like the relations do.
+		if( mConfiguration.canonicalEquivalentTerms )
+			combinationsForBuiltin = Collections.singletonList( Utils.canonicalise( builtinInputTuple, mEquivalentTerms ) );
+		else
 			// FIXME Check if this is still necessary.
-			List<ITuple> combinationsForBuiltin = Utils.createAllCombinations(
-					builtinInputTuple, mEquivalentTerms);
+			combinationsForBuiltin = Utils.combinations( builtinInputTuple, mEquivalentTerms );
+		
+		for (ITuple combinationForBuiltin : combinationsForBuiltin) {
+			ITuple builtinOutputTuple = mBuiltinAtom.evaluate( combinationForBuiltin );
 			
-			for (ITuple combinationForBuiltin : combinationsForBuiltin) {
-				ITuple builtinOutputTuple = mBuiltinAtom.evaluate( combinationForBuiltin );
-				
-				if( mPositive )
-				{
-					if( builtinOutputTuple != null ) {
-						ITuple concatenated = makeResultTuple(input, builtinOutputTuple);
-						result.add(concatenated);
-					}
-				}
-				else
+			if( mPositive )
+			{
+				if( builtinOutputTuple != null )
+					sink.add( makeResultTuple( input, builtinOutputTuple ) );
+			}
+			else
+			{
+				// The input tuple is passed on only once.
+				if( builtinOutputTuple == null )
 				{
-					if( builtinOutputTuple == null ) {
-						result.add( input );
-					}
+					sink.add( input );
+					return;
 				}
 			}
 		}
-			
-		return result;
 	}
-
+	
 	/**
 	 * Transform the input tuple (from previous rule elements) and the tuple produced by the
 	 * built-in atom in to a tuple to pass on to the next rule element.
@@ -0,0 +1,453 @@
+/*
+ * Integrated Rule Inference System (IRIS):
+ * An extensible rule inference system for datalog with extensions.
+ * 
+ * Copyright (C) 2008 Semantic Technology Institute (STI) Innsbruck, 
+ * University of Innsbruck, Technikerstrasse 21a, 6020 Innsbruck, Austria.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ */
+package org.deri.iris.rules.compiler;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.deri.iris.Configuration;
+import org.deri.iris.EvaluationException;
+import org.deri.iris.api.IPreparedQuery;
+import org.deri.iris.api.basics.IAtom;
+import org.deri.iris.api.basics.ILiteral;
+import org.deri.iris.api.basics.IQuery;
+import org.deri.iris.api.basics.ITuple;
+import org.deri.iris.api.builtins.IBuiltinAtom;
+import org.deri.iris.api.terms.IStringTerm;
+import org.deri.iris.api.terms.ITerm;
+import org.deri.iris.api.terms.IVariable;
+import org.deri.iris.api.terms.concrete.IIri;
+import org.deri.iris.factory.Factory;
+import org.deri.iris.facts.IFacts;
+import org.deri.iris.rules.RuleManipulator;
+import org.deri.iris.storage.IRelation;
+import org.deri.iris.utils.TermMatchingAndSubstitution;
+import org.deri.iris.utils.equivalence.IEquivalentTerms;
+
+/**
+ * A bounded cache of compiled queries, that are evaluated again and again on
+ * the same facts.
+ * <p>
+ * Queries are cached by their shape: the variables are renamed in order of
+ * their first occurrence and the string and IRI constants of ordinary
+ * literals are lifted in to parameters. The compiled query joins the values of
+ * the parameters with the literals, so its views and indexes on the facts are
+ * reused by all queries of the same shape. Numeric constants are not lifted,
+ * because equal numbers of different types do not have equal hash codes.
+ * </p>
+ * <p>
+ * The least recently used compiled query is dropped when the cache is full.
+ * The cache must be cleared when the facts change in any other way than by
+ * adding tuples to their relations, as the knowledge-base does when facts are
+ * removed.
+ * </p>
+ */
+public class CompiledQueryCache {
+	/**
+	 * Creates a new cache of compiled queries.
+	 * 
+	 * @param facts The facts the queries are evaluated on.
+	 * @param equivalentTerms The equivalent terms.
+	 * @param configuration The configuration, which gives the capacity of the
+	 *            cache.
+	 */
+	public CompiledQueryCache(IFacts facts, IEquivalentTerms equivalentTerms,
+			Configuration configuration) {
+		assert facts != null;
+		assert equivalentTerms != null;
+		assert configuration != null;
+
+		mCompiler = new RuleCompiler(facts, equivalentTerms, configuration);
+		mConfiguration = configuration;
+		mCapacity = configuration.compiledQueryCacheSize;
+
+		mEntries = new LinkedHashMap<IQuery, CompiledQueryCache.Entry>(16,
+				0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(
+					Map.Entry<IQuery, CompiledQueryCache.Entry> eldest) {
+				return size() > mCapacity;
+			}
+		};
+	}
+
+	/**
+	 * Evaluate a query, using the compiled query of its shape if there is one.
+	 * 
+	 * @param query The query to evaluate.
+	 * @param outputVariables Filled with the variables of the result relation,
+	 *            in order.
+	 * @return The result relation.
+	 * @throws EvaluationException If the query can not be compiled or
+	 *             evaluated.
+	 */
+	public IRelation evaluate(IQuery query, List<IVariable> outputVariables)
+			throws EvaluationException {
+		if (mCapacity <= 0) {
+			ICompiledRule compiledQuery = mCompiler.compile(query);
+
+			IRelation result = compiledQuery.evaluate();
+
+			outputVariables.clear();
+			outputVariables.addAll(compiledQuery.getVariablesBindings());
+
+			return result;
+		}
+
+		Shape shape = new Shape(query);
+
+		Entry entry;
+
+		synchronized (mEntries) {
+			entry = mEntries.get(shape.mQuery);
+		}
+
+		if (entry != null) {
+			mHits.incrementAndGet();
+		} else {
+			mMisses.incrementAndGet();
+
+			Entry compiled = compile(shape);
+
+			synchronized (mEntries) {
+				entry = mEntries.get(shape.mQuery);
+
+				if (entry == null) {
+					mEntries.put(shape.mQuery, compiled);
+					entry = compiled;
+				}
+			}
+		}
+
+		IRelation result = entry.evaluate(shape.mValues);
+
+		outputVariables.clear();
+		for (IVariable variable : entry.mVariables)
+			outputVariables.add(shape.original(variable));
+
+		return result;
+	}
+
+	/**
+	 * Compile a query whose parameters are bound to new values for each
+	 * execution. The prepared query is not kept in the cache.
+	 * 
+	 * @param query The query to prepare.
+	 * @param parameters The parameters of the query.
+	 * @return The prepared query.
+	 * @throws EvaluationException If the query can not be compiled.
+	 */
+	public IPreparedQuery prepare(IQuery query, List<IVariable> parameters)
+			throws EvaluationException {
+		ICompiledRule compiledQuery = mCompiler.compile(query, parameters);
+
+		List<IVariable> bindings = compiledQuery.getVariablesBindings();
+		List<IVariable> variables = new ArrayList<IVariable>(bindings);
+		variables.removeAll(parameters);
+
+		return new Prepared(createEntry(compiledQuery, variables), parameters);
+	}
+
+	/**
+	 * Get the number of queries that were evaluated with a cached compiled
+	 * query.
+	 * 
+	 * @return The number of cache hits.
+	 */
+	public long getHits() {
+		return mHits.get();
+	}
+
+	/**
+	 * Get the number of queries that had to be compiled.
+	 * 
+	 * @return The number of cache misses.
+	 */
+	public long getMisses() {
+		return mMisses.get();
+	}
+
+	/**
+	 * Get the number of compiled queries in the cache.
+	 * 
+	 * @return The number of cached compiled queries.
+	 */
+	public int size() {
+		synchronized (mEntries) {
+			return mEntries.size();
+		}
+	}
+
+	/**
+	 * Remove all compiled queries from the cache. The hit and miss counters
+	 * are kept.
+	 */
+	public void clear() {
+		synchronized (mEntries) {
+			mEntries.clear();
+		}
+	}
+
+	/**
+	 * Compile the query of a shape.
+	 */
+	private Entry compile(Shape shape) throws EvaluationException {
+		ICompiledRule compiledQuery = mCompiler.compile(shape.mQuery,
+				shape.mParameters);
+
+		List<IVariable> variables = compiledQuery.getVariablesBindings();
+
+		// The parameters change the order in which variables are bound, so
+		// the result is arranged in the order of the query without
+		// parameters.
+		if (shape.mParameters.size() > 0)
+			variables = mCompiler.compile(shape.mPlainQuery)
+					.getVariablesBindings();
+
+		return createEntry(compiledQuery, variables);
+	}
+
+	/**
+	 * Create the entry for a compiled query, whose result has the given
+	 * variables.
+	 */
+	private Entry createEntry(ICompiledRule compiledQuery,
+			List<IVariable> variables) {
+		List<IVariable> bindings = compiledQuery.getVariablesBindings();
+
+		int[] indices = new int[variables.size()];
+
+		for (int i = 0; i < indices.length; ++i) {
+			indices[i] = bindings.indexOf(variables.get(i));
+
+			assert indices[i] >= 0;
+		}
+
+		return new Entry(compiledQuery, variables, indices);
+	}
+
+	/**
+	 * A compiled query and the arrangement of its result.
+	 */
+	private class Entry {
+		Entry(ICompiledRule compiledQuery, List<IVariable> variables,
+				int[] indices) {
+			mCompiledQuery = compiledQuery;
+			mVariables = variables;
+			mIndices = indices;
+		}
+
+		/**
+		 * Evaluate the compiled query for the given parameter values.
+		 */
+		IRelation evaluate(ITuple values) throws EvaluationException {
+			IRelation output;
+
+			// The views of the rule elements are not thread-safe.
+			synchronized (this) {
+				output = mCompiledQuery.evaluate(values);
+			}
+
+			// Copy the result, as the views keep changing with the facts.
+			IRelation result = mConfiguration.relationFactory.createRelation();
+
+			for (int t = 0; t < output.size(); ++t) {
+				ITuple tuple = output.get(t);
+
+				List<ITerm> terms = new ArrayList<ITerm>(mIndices.length);
+				for (int index : mIndices)
+					terms.add(tuple.get(index));
+
+				result.add(Factory.BASIC.createTuple(terms));
+			}
+
+			return result;
+		}
+
+		private final ICompiledRule mCompiledQuery;
+
+		/** The variables of the result, as named in the shape. */
+		private final List<IVariable> mVariables;
+
+		/** The columns of the compiled query's output for each variable. */
+		private final int[] mIndices;
+	}
+
+	/**
+	 * A prepared query, which is evaluated with the compiled query of an
+	 * entry.
+	 */
+	private static class Prepared implements IPreparedQuery {
+		Prepared(Entry entry, List<IVariable> parameters) {
+			mEntry = entry;
+			mParameters = new ArrayList<IVariable>(parameters);
+		}
+
+		public List<IVariable> getParameters() {
+			return mParameters;
+		}
+
+		public IRelation execute(ITuple bindings) throws EvaluationException {
+			return execute(bindings, null);
+		}
+
+		public IRelation execute(ITuple bindings,
+				List<IVariable> variableBindings) throws EvaluationException {
+			if (bindings == null || bindings.size() != mParameters.size()
+					|| !bindings.isGround())
+				throw new IllegalArgumentException(
+						"The bindings must be one ground term for each parameter.");
+
+			IRelation result = mEntry.evaluate(bindings);
+
+			if (variableBindings != null) {
+				variableBindings.clear();
+				variableBindings.addAll(mEntry.mVariables);
+			}
+
+			return result;
+		}
+
+		private final Entry mEntry;
+
+		private final List<IVariable> mParameters;
+	}
+
+	/**
+	 * The normalised form of a query.
+	 */
+	private static class Shape {
+		Shape(IQuery query) {
+			RuleManipulator manipulator = new RuleManipulator();
+
+			List<ILiteral> plain = new ArrayList<ILiteral>();
+			List<ILiteral> lifted = new ArrayList<ILiteral>();
+
+			Map<ITerm, IVariable> parameters = new LinkedHashMap<ITerm, IVariable>();
+
+			for (ILiteral literal : query.getLiterals()) {
+				IAtom atom = literal.getAtom();
+
+				for (IVariable variable : TermMatchingAndSubstitution
+						.getVariables(atom.getTuple(), true)) {
+					int index = mVariables.indexOf(variable);
+
+					if (index < 0) {
+						index = mVariables.size();
+						mVariables.add(variable);
+					}
+
+					atom = manipulator.replace(atom, variable, Factory.TERM
+							.createVariable(VARIABLE_PREFIX + index));
+				}
+
+				plain.add(Factory.BASIC.createLiteral(literal.isPositive(),
+						atom));
+
+				if (!(atom instanceof IBuiltinAtom)) {
+					List<ITerm> terms = new ArrayList<ITerm>();
+
+					for (ITerm term : atom.getTuple()) {
+						if (term instanceof IStringTerm || term instanceof IIri) {
+							IVariable parameter = parameters.get(term);
+
+							if (parameter == null) {
+								parameter = Factory.TERM
+										.createVariable(PARAMETER_PREFIX
+												+ parameters.size());
+								parameters.put(term, parameter);
+							}
+
+							term = parameter;
+						}
+
+						terms.add(term);
+					}
+
+					atom = Factory.BASIC.createAtom(atom.getPredicate(),
+							Factory.BASIC.createTuple(terms));
+				}
+
+				lifted.add(Factory.BASIC.createLiteral(literal.isPositive(),
+						atom));
+			}
+
+			mPlainQuery = Factory.BASIC.createQuery(plain);
+			mQuery = Factory.BASIC.createQuery(lifted);
+			mParameters = new ArrayList<IVariable>(parameters.values());
+			mValues = Factory.BASIC.createTuple(new ArrayList<ITerm>(
+					parameters.keySet()));
+		}
+
+		/**
+		 * Get the variable of the original query for a renamed variable.
+		 */
+		IVariable original(IVariable variable) {
+			String name = variable.getValue();
+
+			return mVariables.get(Integer.parseInt(name
+					.substring(VARIABLE_PREFIX.length())));
+		}
+
+		/** The variables of the original query, in order of occurrence. */
+		final List<IVariable> mVariables = new ArrayList<IVariable>();
+
+		/** The query with renamed variables and lifted constants. */
+		final IQuery mQuery;
+
+		/** The query with renamed variables only. */
+		final IQuery mPlainQuery;
+
+		/** The parameter variables of the lifted constants. */
+		final List<IVariable> mParameters;
+
+		/** The lifted constants, in the order of the parameters. */
+		final ITuple mValues;
+	}
+
+	/** The prefix of renamed query variables. */
+	private static final String VARIABLE_PREFIX = "#q";
+
+	/** The prefix of the parameters for lifted constants. */
+	private static final String PARAMETER_PREFIX = "#p";
+
+	/** The compiled queries, in order of their last use. */
+	private final LinkedHashMap<IQuery, Entry> mEntries;
+
+	/** The maximum number of compiled queries. */
+	private final int mCapacity;
+
+	/** The compiler for the queries. */
+	private final RuleCompiler mCompiler;
+
+	private final Configuration mConfiguration;
+
+	private final AtomicLong mHits = new AtomicLong();
+
+	private final AtomicLong mMisses = new AtomicLong();
+}
@@ -28,6 +28,7 @@ import java.util.List;
 import org.deri.iris.Configuration;
 import org.deri.iris.EvaluationException;
 import org.deri.iris.api.basics.IPredicate;
+import org.deri.iris.api.basics.ITuple;
 import org.deri.iris.api.terms.IVariable;
 import org.deri.iris.factory.Factory;
 import org.deri.iris.facts.IFacts;
@@ -64,8 +65,37 @@ public class CompiledRule implements ICompiledRule
 	 */
 	public IRelation evaluate() throws EvaluationException
 	{
+		reset();
+		
 		// The first literal receives the starting relation (which has one zero length tuple in it). */
-		IRelation output = mStartingRelation;
+		return evaluate( mStartingRelation );
+	}
+	
+	public IRelation evaluate( ITuple input ) throws EvaluationException
+	{
+		reset();
+		
+		if( input.size() == 0 )
+			return evaluate( mStartingRelation );
+		
+		IRelation starting = mConfiguration.relationFactory.createRelation();
+		starting.add( input );
+		
+		return evaluate( starting );
+	}
+	
+	/**
+	 * Evaluate the rule elements in turn, starting with the given relation.
+	 * @param starting The relation passed to the first rule element.
+	 * @return The output relation.
+	 * @throws EvaluationException 
+	 */
+	private IRelation evaluate( IRelation starting ) throws EvaluationException
+	{
+		if( mConfiguration.pipelinedRuleEvaluation )
+			return evaluatePipelined( starting.get( 0 ) );
+		
+		IRelation output = starting;
 		
 		for( RuleElement element : mElements )
 		{
@@ -83,6 +113,44 @@ public class CompiledRule implements ICompiledRule
 		return output;
 	}
 	
+	/**
+	 * Evaluate the rule by pushing one tuple at a time through all rule elements.
+	 * Only the output of the last rule element is collected in a relation.
+	 * @param input The tuple pushed in to the first rule element.
+	 * @return The output relation.
+	 * @throws EvaluationException 
+	 */
+	private IRelation evaluatePipelined( ITuple input ) throws EvaluationException
+	{
+		final IRelation output = mConfiguration.relationFactory.createRelation();
+		
+		ITupleSink sink = new ITupleSink()
+		{
+			public void add( ITuple tuple )
+			{
+				output.add( tuple );
+			}
+		};
+		
+		for( int r = mElements.size() - 1; r >= 0; --r )
+		{
+			final RuleElement element = mElements.get( r );
+			final ITupleSink next = sink;
+			
+			sink = new ITupleSink()
+			{
+				public void add( ITuple tuple ) throws EvaluationException
+				{
+					element.push( tuple, next );
+				}
+			};
+		}
+		
+		sink.add( input );
+		
+		return output;
+	}
+	
 	public IRelation evaluateIteratively( IFacts deltas ) throws EvaluationException
 	{
 		IRelation union = mConfiguration.relationFactory.createRelation();
@@ -105,7 +173,7 @@ public class CompiledRule implements ICompiledRule
 				mElements.set( r, substitution );
 	
 				// Now just evaluate the modified rule
-				IRelation output = evaluate();
+				IRelation output = evaluate( mStartingRelation );
 				
 				for( int t = 0; t < output.size(); ++t )
 					union.add( output.get( t ) );
@@ -118,6 +186,15 @@ public class CompiledRule implements ICompiledRule
 		return union;
 	}
 	
+	/**
+	 * Reset all rule elements, because the rule is evaluated on all facts again.
+	 */
+	private void reset()
+	{
+		for( RuleElement element : mElements )
+			element.reset();
+	}
+	
 	public IPredicate headPredicate()
     {
 	    return mHeadPredicate;
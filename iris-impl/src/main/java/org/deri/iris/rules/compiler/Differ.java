@@ -26,9 +26,11 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.deri.iris.Configuration;
+import org.deri.iris.EvaluationException;
 import org.deri.iris.api.basics.ITuple;
 import org.deri.iris.api.terms.IVariable;
 import org.deri.iris.storage.IIndex;
+import org.deri.iris.storage.IProbeIndex;
 import org.deri.iris.storage.IRelation;
 import org.deri.iris.utils.equivalence.IEquivalentTerms;
 
@@ -117,6 +119,23 @@ public class Differ extends RuleElement
 //		}
 		
 		IRelation result = mConfiguration.relationFactory.createRelation();
+		
+		if( mIndex2 instanceof IProbeIndex )
+		{
+			// Probe the index directly with the terms of the left tuple.
+			IProbeIndex index = (IProbeIndex) mIndex2;
+			
+			for( int left = 0; left < leftRelation.size(); ++left )
+			{
+				ITuple leftTuple = leftRelation.get( left );
+				
+				if( index.probe( leftTuple, mJoinIndices1 ) < 0 )
+					result.add( leftTuple );
+			}
+			
+			return result;
+		}
+		
 		for( int left = 0; left < leftRelation.size(); ++left )
 		{
 			ITuple leftTuple = leftRelation.get( left );
@@ -132,6 +151,20 @@ public class Differ extends RuleElement
 		return result;
 	}
 	
+	@Override
+	public void push( ITuple leftTuple, ITupleSink sink ) throws EvaluationException
+	{
+		boolean matches;
+		
+		if( mIndex2 instanceof IProbeIndex )
+			matches = ( (IProbeIndex) mIndex2 ).probe( leftTuple, mJoinIndices1 ) >= 0;
+		else
+			matches = mIndex2.get( Utils.makeKey( leftTuple, mJoinIndices1 ) ).size() > 0;
+		
+		if( ! matches )
+			sink.add( leftTuple );
+	}
+	
 	/** The equivalent terms. */
 	private IEquivalentTerms mEquivalentTerms;
 	
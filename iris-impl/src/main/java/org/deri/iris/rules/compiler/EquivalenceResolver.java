@@ -35,7 +35,8 @@ import org.deri.iris.utils.equivalence.IEquivalentTerms;
 /**
  * This rule element creates all possible combinations of an input relation
  * using the equivalent terms, and adds these combinations to the output
- * relation.
+ * relation. Alternatively, it replaces all terms by their representatives, so
+ * that only one combination is added to the output relation.
  * 
  * @author Adrian Marte
  */
@@ -45,10 +46,32 @@ public class EquivalenceResolver extends RuleElement {
 
 	private final Configuration configuration;
 
+	/**
+	 * Indicates if all combinations are created, rather than the tuple of
+	 * representatives.
+	 */
+	private final boolean expand;
+
 	public EquivalenceResolver(List<IVariable> inputVariables,
 			IEquivalentTerms equivalentTerms, Configuration configuration) {
+		this(inputVariables, equivalentTerms, true, configuration);
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param inputVariables The variables of the input tuples.
+	 * @param equivalentTerms The equivalent terms.
+	 * @param expand true to create all combinations of equivalent terms,
+	 *            false to only replace the terms by their representatives.
+	 * @param configuration The configuration.
+	 */
+	public EquivalenceResolver(List<IVariable> inputVariables,
+			IEquivalentTerms equivalentTerms, boolean expand,
+			Configuration configuration) {
 		this.equivalentTerms = equivalentTerms;
 		this.configuration = configuration;
+		this.expand = expand;
 
 		// We do not make any changes to the input/output variables.
 		mOutputVariables = inputVariables;
@@ -62,12 +85,15 @@ public class EquivalenceResolver extends RuleElement {
 		for (int i = 0; i < input.size(); i++) {
 			ITuple tuple = input.get(i);
 
-			// Create all combinations using the equivalent terms.
-			List<ITuple> combinations = Utils.createAllCombinations(tuple,
-					equivalentTerms);
+			if (!expand) {
+				relation.add(Utils.canonicalise(tuple, equivalentTerms));
+				continue;
+			}
 
-			// Add combinations to output relation.
-			for (ITuple combination : combinations) {
+			// Add all combinations using the equivalent terms to output
+			// relation.
+			for (ITuple combination : Utils.combinations(tuple,
+					equivalentTerms)) {
 				relation.add(combination);
 			}
 		}
@@ -75,4 +101,17 @@ public class EquivalenceResolver extends RuleElement {
 		return relation;
 	}
 
+	@Override
+	public void push(ITuple input, ITupleSink sink) throws EvaluationException {
+		if (!expand) {
+			sink.add(Utils.canonicalise(input, equivalentTerms));
+			return;
+		}
+
+		// The combinations are streamed to the sink one at a time.
+		for (ITuple combination : Utils.combinations(input, equivalentTerms)) {
+			sink.add(combination);
+		}
+	}
+
 }
@@ -25,6 +25,7 @@ package org.deri.iris.rules.compiler;
 import java.util.List;
 
 import org.deri.iris.Configuration;
+import org.deri.iris.EvaluationException;
 import org.deri.iris.api.basics.IPredicate;
 import org.deri.iris.api.basics.ITuple;
 import org.deri.iris.api.terms.IVariable;
@@ -100,6 +101,15 @@ public class FirstSubgoal extends RuleElement
 		return mView;
 	}
 	
+	@Override
+	public void push( ITuple input, ITupleSink sink ) throws EvaluationException
+	{
+		assert input.size() == 0;
+		
+		for( int t = 0; t < mView.size(); ++t )
+			sink.add( mView.get( t ) );
+	}
+	
 	@Override
     public RuleElement getDeltaSubstitution( IFacts deltas )
     {
@@ -86,6 +86,12 @@ public class HeadSubstituter extends RuleElement
 		return result;
 	}
 
+	@Override
+	public void push( ITuple inputTuple, ITupleSink sink ) throws EvaluationException
+	{
+		sink.add( TermMatchingAndSubstitution.substituteVariablesInToTuple( mHeadTuple, inputTuple, mIndices ) );
+	}
+	
 	/** The rule head tuple. */
 	protected final ITuple mHeadTuple;
 	
@@ -26,6 +26,7 @@ import java.util.List;
 
 import org.deri.iris.EvaluationException;
 import org.deri.iris.api.basics.IPredicate;
+import org.deri.iris.api.basics.ITuple;
 import org.deri.iris.api.terms.IVariable;
 import org.deri.iris.facts.IFacts;
 import org.deri.iris.storage.IRelation;
@@ -42,6 +43,16 @@ public interface ICompiledRule
 	 */
 	IRelation evaluate() throws EvaluationException;
 
+	/**
+	 * Evaluate the rule starting from the given input tuple. The terms of the
+	 * input tuple are the values of the parameter variables the rule was
+	 * compiled with.
+	 * @param input The values of the parameter variables.
+	 * @return The result relation for this rule.
+	 * @throws EvaluationException 
+	 */
+	IRelation evaluate( ITuple input ) throws EvaluationException;
+
 	/**
 	 * Evaluate the rule using deltas (see semi-naive evaluation) to more intelligently seek out
 	 * tuples that have not already been computed.
@@ -0,0 +1,40 @@
+/*
+ * Integrated Rule Inference System (IRIS):
+ * An extensible rule inference system for datalog with extensions.
+ * 
+ * Copyright (C) 2008 Semantic Technology Institute (STI) Innsbruck, 
+ * University of Innsbruck, Technikerstrasse 21a, 6020 Innsbruck, Austria.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ */
+package org.deri.iris.rules.compiler;
+
+import org.deri.iris.EvaluationException;
+import org.deri.iris.api.basics.ITuple;
+
+/**
+ * Receives the tuples produced by a rule element when a compiled rule is
+ * evaluated in pipelined mode.
+ */
+public interface ITupleSink
+{
+	/**
+	 * Accept a tuple from the previous rule element.
+	 * @param tuple The tuple.
+	 * @throws EvaluationException If the evaluation of the following rule elements fails.
+	 */
+	void add( ITuple tuple ) throws EvaluationException;
+}
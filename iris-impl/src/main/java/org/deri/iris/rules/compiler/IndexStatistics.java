@@ -0,0 +1,76 @@
+/*
+ * Integrated Rule Inference System (IRIS):
+ * An extensible rule inference system for datalog with extensions.
+ * 
+ * Copyright (C) 2008 Semantic Technology Institute (STI) Innsbruck, 
+ * University of Innsbruck, Technikerstrasse 21a, 6020 Innsbruck, Austria.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ */
+package org.deri.iris.rules.compiler;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters for the indexes built by compiled rule elements during semi-naive
+ * evaluation.
+ * Rule elements keep the indexes on their deltas alive between iterations
+ * where possible, and these counters show how often that was successful.
+ */
+public class IndexStatistics
+{
+	/**
+	 * Get the number of indexes built on delta relations.
+	 * @return The number of indexes built.
+	 */
+	public static long getDeltaIndexesBuilt()
+	{
+		return mDeltaIndexesBuilt.get();
+	}
+	
+	/**
+	 * Get the number of times that an existing index was extended with a new delta,
+	 * instead of building a new index on the delta.
+	 * @return The number of avoided index builds.
+	 */
+	public static long getDeltaIndexBuildsAvoided()
+	{
+		return mDeltaIndexBuildsAvoided.get();
+	}
+	
+	/**
+	 * Set all counters back to zero.
+	 */
+	public static void reset()
+	{
+		mDeltaIndexesBuilt.set( 0 );
+		mDeltaIndexBuildsAvoided.set( 0 );
+	}
+	
+	static void deltaIndexBuilt()
+	{
+		mDeltaIndexesBuilt.incrementAndGet();
+	}
+	
+	static void deltaIndexBuildAvoided()
+	{
+		mDeltaIndexBuildsAvoided.incrementAndGet();
+	}
+	
+	private static final AtomicLong mDeltaIndexesBuilt = new AtomicLong();
+	
+	private static final AtomicLong mDeltaIndexBuildsAvoided = new AtomicLong();
+}
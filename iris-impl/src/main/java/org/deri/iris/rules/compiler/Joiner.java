@@ -25,6 +25,7 @@ package org.deri.iris.rules.compiler;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.deri.iris.EvaluationException;
 import org.deri.iris.api.basics.IPredicate;
 import org.deri.iris.api.basics.ITuple;
 import org.deri.iris.api.terms.ITerm;
@@ -33,8 +34,10 @@ import org.deri.iris.factory.Factory;
 import org.deri.iris.facts.IFacts;
 import org.deri.iris.storage.IIndex;
 import org.deri.iris.storage.IIndexFactory;
+import org.deri.iris.storage.IProbeIndex;
 import org.deri.iris.storage.IRelation;
 import org.deri.iris.storage.IRelationFactory;
+import org.deri.iris.storage.hash.HashIndexFactory;
 import org.deri.iris.utils.equivalence.IEquivalentTerms;
 
 /**
@@ -133,59 +136,37 @@ class Joiner extends RuleElement {
 				mJoinIndicesThisLiteral);
 	}
 
-	/**
-	 * Constructor used for iterative evaluation.
-	 * 
-	 * @param predicate The predicate of this literal.
-	 * @param thisLiteralsRelation The relation to use for this literal.
-	 * @param viewCriteria The view criteria (tuple in the sub-goal instance in
-	 *            the rule).
-	 * @param viewVariables The variables of the view.
-	 * @param simple Indicates if the view is a simple one.
-	 * @param joinIndicesInput Join indices from input tuples.
-	 * @param joinIndicesThisLiteral Join indices for this literal's relation.
-	 * @param remainderIndicesInput Indices of those terms not used in joining.
-	 * @param remainderIndicesThisLiteral Indices of those terms not used in
-	 *            joining.
-	 * @param outputVariables The output variable bindings for this literal.
-	 * @param equivalentTerms The equivalent terms.
-	 */
-	public Joiner(IPredicate predicate, IRelation thisLiteralsRelation,
-			ITuple viewCriteria, List<IVariable> viewVariables, boolean simple,
-			int[] joinIndicesInput, int[] joinIndicesThisLiteral,
-			int[] remainderIndicesInput, int[] remainderIndicesThisLiteral,
-			List<IVariable> outputVariables, IEquivalentTerms equivalentTerms,
-			IIndexFactory indexFactory, IRelationFactory relationFactory) {
-		mPredicate = predicate;
-
-		mViewCriteria = viewCriteria;
-		mViewVariables = viewVariables;
+	@Override
+	public IRelation process(IRelation leftRelation) {
+		assert leftRelation != null;
 
-		mIndexFactory = indexFactory;
-		mRelationFactory = relationFactory;
-		mEquivalentTerms = equivalentTerms;
+		IRelation result = mRelationFactory.createRelation();
 
-		mView = new View(thisLiteralsRelation, viewCriteria, viewVariables,
-				simple, mEquivalentTerms, mRelationFactory);
+		if (mIndexThisLiteral instanceof IProbeIndex) {
+			// Probe the index directly with the terms of the left tuple.
+			IProbeIndex index = (IProbeIndex) mIndexThisLiteral;
 
-		mJoinIndicesInput = joinIndicesInput;
-		mJoinIndicesThisLiteral = joinIndicesThisLiteral;
+			for (int f = 0; f < leftRelation.size(); ++f) {
+				ITuple leftTuple = leftRelation.get(f);
 
-		mRemainderIndicesInput = remainderIndicesInput;
-		mRemainderIndicesThisLiteral = remainderIndicesThisLiteral;
+				int bucket = index.probe(leftTuple, mJoinIndicesInput);
+				if (bucket < 0)
+					continue;
 
-		mIndexThisLiteral = mIndexFactory.createIndex(mView, mEquivalentTerms,
-				mJoinIndicesThisLiteral);
+				// Skip the tuples of previous deltas.
+				int first = mWindowStart == 0 ? 0 : index.lowerBound(bucket,
+						mWindowStart);
 
-		mOutputVariables = outputVariables;
-	}
+				for (int m = first; m < index.size(bucket); ++m) {
+					ITuple concatenated = concatenate(leftTuple, index.get(
+							bucket, m));
+					result.add(concatenated);
+				}
+			}
 
-	@Override
-	public IRelation process(IRelation leftRelation) {
-		assert leftRelation != null;
+			return result;
+		}
 
-		IRelation result = mRelationFactory.createRelation();
-		
 		for (int f = 0; f < leftRelation.size(); ++f) {
 			ITuple leftTuple = leftRelation.get(f);
 
@@ -202,6 +183,33 @@ class Joiner extends RuleElement {
 		return result;
 	}
 
+	@Override
+	public void push(ITuple leftTuple, ITupleSink sink)
+			throws EvaluationException {
+		if (mIndexThisLiteral instanceof IProbeIndex) {
+			IProbeIndex index = (IProbeIndex) mIndexThisLiteral;
+
+			int bucket = index.probe(leftTuple, mJoinIndicesInput);
+			if (bucket < 0)
+				return;
+
+			int first = mWindowStart == 0 ? 0 : index.lowerBound(bucket,
+					mWindowStart);
+
+			// The bucket is read again on every step, as it may grow while
+			// the following rule elements run.
+			for (int m = first; m < index.size(bucket); ++m)
+				sink.add(concatenate(leftTuple, index.get(bucket, m)));
+
+			return;
+		}
+
+		List<ITerm> key = Utils.makeKey(leftTuple, mJoinIndicesInput);
+
+		for (ITuple matchingRightTuple : mIndexThisLiteral.get(key))
+			sink.add(concatenate(leftTuple, matchingRightTuple));
+	}
+
 	/**
 	 * Join two tuples using join and remainder indices.
 	 * 
@@ -234,6 +242,44 @@ class Joiner extends RuleElement {
 		return Factory.BASIC.createTuple(terms);
 	}
 
+	/**
+	 * Constructor for the delta substitution of a joiner. The new joiner uses
+	 * the view and index on all deltas seen so far by the original joiner, but
+	 * only matches the tuples from the given position onwards.
+	 * 
+	 * @param original The joiner to substitute.
+	 * @param windowStart The position in the delta view of the first tuple of
+	 *            the current delta.
+	 */
+	private Joiner(Joiner original, int windowStart) {
+		mPredicate = original.mPredicate;
+		mViewCriteria = original.mViewCriteria;
+		mViewVariables = original.mViewVariables;
+		mIndexFactory = original.mIndexFactory;
+		mRelationFactory = original.mRelationFactory;
+		mEquivalentTerms = original.mEquivalentTerms;
+
+		mView = original.mDeltaView;
+		mIndexThisLiteral = original.mDeltaIndex;
+		mWindowStart = windowStart;
+
+		mJoinIndicesInput = original.mJoinIndicesInput;
+		mJoinIndicesThisLiteral = original.mJoinIndicesThisLiteral;
+		mRemainderIndicesInput = original.mRemainderIndicesInput;
+		mRemainderIndicesThisLiteral = original.mRemainderIndicesThisLiteral;
+
+		mOutputVariables = original.mOutputVariables;
+	}
+
+	/**
+	 * Creates the delta substitution for this joiner. Instead of building a
+	 * new view and index on every delta, the delta tuples are appended to a
+	 * log that is kept until the rule is evaluated on all facts again, or the
+	 * log reaches its maximum size. The index on the log is extended with the
+	 * new tuples only and the substitute joiner ignores matches from previous
+	 * deltas. Like the log itself, this index is private to the joiner, so it
+	 * is always a hash index, whatever index factory is configured.
+	 */
 	@Override
 	public RuleElement getDeltaSubstitution(IFacts deltas) {
 		IRelation delta = deltas.get(mPredicate);
@@ -241,11 +287,41 @@ class Joiner extends RuleElement {
 		if (delta == null || delta.size() == 0)
 			return null;
 
-		return new Joiner(mPredicate, delta, mViewCriteria, mView.variables(),
-				mView.isSimple(), mJoinIndicesInput, mJoinIndicesThisLiteral,
-				mRemainderIndicesInput, mRemainderIndicesThisLiteral,
-				mOutputVariables, mEquivalentTerms, mIndexFactory,
-				mRelationFactory);
+		// Start a new log instead of letting it grow beyond its bound.
+		if (mDeltaLog != null
+				&& mDeltaLog.size() + delta.size() > MAX_DELTA_LOG_SIZE)
+			reset();
+
+		if (mDeltaLog == null) {
+			mDeltaLog = new AppendOnlyRelation();
+			mDeltaView = new View(mDeltaLog, mViewCriteria, mView.variables(),
+					mView.isSimple(), mEquivalentTerms,
+					AppendOnlyRelation.FACTORY);
+			mDeltaIndex = DELTA_INDEX_FACTORY.createIndex(mDeltaView,
+					mEquivalentTerms, mJoinIndicesThisLiteral);
+
+			IndexStatistics.deltaIndexBuilt();
+		} else {
+			IndexStatistics.deltaIndexBuildAvoided();
+		}
+
+		int windowStart = mDeltaView.size();
+
+		for (int t = 0; t < delta.size(); ++t)
+			mDeltaLog.add(delta.get(t));
+
+		return new Joiner(this, windowStart);
+	}
+
+	/**
+	 * Drops the delta log, so that the deltas of a previous evaluation are not
+	 * kept alive.
+	 */
+	@Override
+	public void reset() {
+		mDeltaLog = null;
+		mDeltaView = null;
+		mDeltaIndex = null;
 	}
 
 	/** The predicate for this literal. */
@@ -281,4 +357,32 @@ class Joiner extends RuleElement {
 
 	/** The equivalent terms. */
 	private IEquivalentTerms mEquivalentTerms;
+
+	/**
+	 * The position in the view of the first tuple to match, used by delta
+	 * substitutions to skip the tuples of previous deltas.
+	 */
+	private int mWindowStart = 0;
+
+	/**
+	 * The maximum number of tuples in the delta log. A larger delta log is
+	 * replaced by a new one, which bounds the memory used for the copies of
+	 * the delta tuples.
+	 */
+	static final int MAX_DELTA_LOG_SIZE = 1 << 18;
+
+	/** All delta tuples of this literal seen so far. */
+	private IRelation mDeltaLog;
+
+	/** The view on the delta log. */
+	private View mDeltaView;
+
+	/** The index on the view of the delta log. */
+	private IIndex mDeltaIndex;
+
+	/**
+	 * Creates the indexes on the delta logs. Hash indexes can be probed for
+	 * the tuples of the current delta only.
+	 */
+	private static final HashIndexFactory DELTA_INDEX_FACTORY = new HashIndexFactory();
 }
@@ -0,0 +1,837 @@
+/*
+ * Integrated Rule Inference System (IRIS):
+ * An extensible rule inference system for datalog with extensions.
+ * 
+ * Copyright (C) 2008 Semantic Technology Institute (STI) Innsbruck, 
+ * University of Innsbruck, Technikerstrasse 21a, 6020 Innsbruck, Austria.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ */
+package org.deri.iris.rules.compiler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.deri.iris.Configuration;
+import org.deri.iris.api.basics.IPredicate;
+import org.deri.iris.api.basics.ITuple;
+import org.deri.iris.api.terms.ITerm;
+import org.deri.iris.api.terms.IVariable;
+import org.deri.iris.factory.Factory;
+import org.deri.iris.facts.IFacts;
+import org.deri.iris.storage.IRelation;
+import org.deri.iris.storage.IRemovalListener;
+import org.deri.iris.utils.equivalence.IEquivalentTerms;
+
+/**
+ * <p>
+ * A compiled rule element that joins several positive ordinary literals at
+ * once using the Leapfrog Triejoin algorithm (T. Veldhuizen, 2014).
+ * </p>
+ * <p>
+ * The variables of the literals are put in a global order and every literal
+ * is turned in to a trie, i.e. its tuples are sorted by its variables in that
+ * order. The join then binds one variable at a time by intersecting the
+ * values of all literals containing that variable. No intermediate relations
+ * are created, which makes the join worst-case optimal for cyclic rule bodies
+ * such as t(X,Y,Z) :- e(X,Y), e(Y,Z), e(Z,X).
+ * </p>
+ * <p>
+ * The tries are built from dictionary encoded terms, where equivalent terms
+ * get the same code. The tries of the literals' relations are kept between
+ * evaluations and only the tuples added since the last evaluation are encoded,
+ * sorted and merged in to them. The tries of deltas and of the input relation
+ * are built on each evaluation. The tries are built again from scratch only
+ * when the equivalent terms change or a relation shrinks.
+ * </p>
+ * <p>
+ * The tuples of the input relation are joined like the tuples of one more
+ * literal, whose variables are the input variables.
+ * </p>
+ */
+class LeapfrogTriejoin extends RuleElement
+{
+	/**
+	 * Constructor.
+	 * @param inputVariables The variables of the input relation, empty if this
+	 * is the first element of a rule body.
+	 * @param predicates The predicates of the literals.
+	 * @param relations The relations of the literals.
+	 * @param viewCriteria The tuples from the sub-goals in the rule.
+	 * @param equivalentTerms The equivalent terms.
+	 * @param configuration The knowledge-base configuration.
+	 */
+	public LeapfrogTriejoin( List<IVariable> inputVariables, List<IPredicate> predicates, List<IRelation> relations,
+					List<ITuple> viewCriteria, IEquivalentTerms equivalentTerms, Configuration configuration )
+	{
+		assert inputVariables != null;
+		assert predicates.size() == relations.size();
+		assert predicates.size() == viewCriteria.size();
+		assert configuration != null;
+		
+		int count = predicates.size();
+		
+		mConfiguration = configuration;
+		mEquivalentTerms = equivalentTerms;
+		mPredicates = predicates.toArray( new IPredicate[ count ] );
+		mViewCriteria = viewCriteria.toArray( new ITuple[ count ] );
+		mViews = new View[ count ];
+		
+		for( int i = 0; i < count; ++i )
+			mViews[ i ] = new View( relations.get( i ), mViewCriteria[ i ], equivalentTerms, configuration.relationFactory );
+		
+		mDeltaViews = null;
+		mTries = new Tries( mViews );
+		
+		// The input relation takes part in the join like one more literal.
+		List<List<IVariable>> trieVariables = new ArrayList<List<IVariable>>();
+		for( View view : mViews )
+			trieVariables.add( view.variables() );
+		
+		mHasInput = ! inputVariables.isEmpty();
+		if( mHasInput )
+			trieVariables.add( inputVariables );
+		
+		mOutputVariables = variableOrder( trieVariables );
+		
+		// For each trie, the columns of its tuples in the order of the variables.
+		mTrieColumns = new int[ trieVariables.size() ][];
+		
+		// For each variable, the tries that contain it.
+		List<List<Integer>> participants = new ArrayList<List<Integer>>();
+		for( int v = 0; v < mOutputVariables.size(); ++v )
+			participants.add( new ArrayList<Integer>() );
+		
+		for( int i = 0; i < trieVariables.size(); ++i )
+		{
+			List<IVariable> variables = trieVariables.get( i );
+			mTrieColumns[ i ] = new int[ variables.size() ];
+			
+			int level = 0;
+			for( int v = 0; v < mOutputVariables.size(); ++v )
+			{
+				int column = variables.indexOf( mOutputVariables.get( v ) );
+				if( column >= 0 )
+				{
+					mTrieColumns[ i ][ level++ ] = column;
+					participants.get( v ).add( i );
+				}
+			}
+		}
+		
+		mParticipants = new int[ participants.size() ][];
+		for( int v = 0; v < mParticipants.length; ++v )
+		{
+			List<Integer> tries = participants.get( v );
+			mParticipants[ v ] = new int[ tries.size() ];
+			for( int p = 0; p < tries.size(); ++p )
+				mParticipants[ v ][ p ] = tries.get( p );
+		}
+	}
+	
+	/**
+	 * Constructor used for iterative evaluation.
+	 * @param original The element to copy. Its tries are shared.
+	 * @param deltaViews The views on the deltas of the literals, null for
+	 * literals that have no delta.
+	 */
+	private LeapfrogTriejoin( LeapfrogTriejoin original, View[] deltaViews )
+	{
+		mConfiguration = original.mConfiguration;
+		mEquivalentTerms = original.mEquivalentTerms;
+		mPredicates = original.mPredicates;
+		mViewCriteria = original.mViewCriteria;
+		mViews = original.mViews;
+		mTries = original.mTries;
+		mHasInput = original.mHasInput;
+		mOutputVariables = original.mOutputVariables;
+		mTrieColumns = original.mTrieColumns;
+		mParticipants = original.mParticipants;
+		
+		mDeltaViews = deltaViews;
+	}
+	
+	/**
+	 * Determine whether the variables of the given literals form a cyclic
+	 * hyper-graph, using the GYO reduction.
+	 * @param literalVariables The variables of each literal.
+	 * @return true, if the hyper-graph is cyclic.
+	 */
+	public static boolean isCyclic( List<Set<IVariable>> literalVariables )
+	{
+		List<Set<IVariable>> edges = new ArrayList<Set<IVariable>>();
+		for( Set<IVariable> variables : literalVariables )
+			edges.add( new HashSet<IVariable>( variables ) );
+		
+		boolean changed = true;
+		
+		while( changed )
+		{
+			changed = false;
+			
+			// Remove variables that appear in only one literal.
+			Map<IVariable, Integer> occurrences = new HashMap<IVariable, Integer>();
+			for( Set<IVariable> edge : edges )
+			{
+				for( IVariable variable : edge )
+				{
+					Integer occurrence = occurrences.get( variable );
+					occurrences.put( variable, occurrence == null ? 1 : occurrence + 1 );
+				}
+			}
+			
+			for( Set<IVariable> edge : edges )
+			{
+				for( IVariable variable : new ArrayList<IVariable>( edge ) )
+				{
+					if( occurrences.get( variable ) == 1 )
+					{
+						edge.remove( variable );
+						changed = true;
+					}
+				}
+			}
+			
+			// Remove literals whose variables are contained in another literal.
+			for( int i = 0; i < edges.size() && edges.size() > 1; ++i )
+			{
+				for( int j = 0; j < edges.size(); ++j )
+				{
+					if( i != j && edges.get( j ).containsAll( edges.get( i ) ) )
+					{
+						edges.remove( i-- );
+						changed = true;
+						break;
+					}
+				}
+			}
+		}
+		
+		return edges.size() > 1;
+	}
+	
+	@Override
+	public IRelation process( IRelation leftRelation )
+	{
+		assert leftRelation != null;
+		
+		IRelation result = mConfiguration.relationFactory.createRelation();
+		
+		// The tries are shared with the delta substitutions.
+		synchronized( mTries )
+		{
+			mTries.update( mViews, mTrieColumns, mEquivalentTerms );
+			
+			Dictionary dictionary = mTries.mDictionary;
+			int[][][] tries = new int[ mTrieColumns.length ][][];
+			
+			for( int i = 0; i < mViews.length; ++i )
+				tries[ i ] = mTries.mRows[ i ];
+			
+			if( mHasInput )
+			{
+				int input = mViews.length;
+				tries[ input ] = encode( leftRelation, 0, leftRelation.size(), mTrieColumns[ input ], dictionary );
+			}
+			
+			if( mDeltaViews == null )
+			{
+				join( tries, dictionary, result );
+			}
+			else
+			{
+				// Semi-naive evaluation: each delta in turn, joined with the other full relations.
+				for( int i = 0; i < mViews.length; ++i )
+				{
+					if( mDeltaViews[ i ] != null )
+					{
+						int[][][] deltaTries = tries.clone();
+						deltaTries[ i ] = encode( mDeltaViews[ i ], 0, mDeltaViews[ i ].size(), mTrieColumns[ i ], dictionary );
+						join( deltaTries, dictionary, result );
+					}
+				}
+			}
+		}
+		
+		return result;
+	}
+	
+	@Override
+	public RuleElement getDeltaSubstitution( IFacts deltas )
+	{
+		View[] deltaViews = null;
+		
+		for( int i = 0; i < mPredicates.length; ++i )
+		{
+			IRelation delta = deltas.get( mPredicates[ i ] );
+			
+			if( delta != null && delta.size() > 0 )
+			{
+				if( deltaViews == null )
+					deltaViews = new View[ mPredicates.length ];
+				
+				deltaViews[ i ] = new View( delta, mViewCriteria[ i ], mViews[ i ].variables(), mViews[ i ].isSimple(),
+								mEquivalentTerms, mConfiguration.relationFactory );
+			}
+		}
+		
+		return deltaViews == null ? null : new LeapfrogTriejoin( this, deltaViews );
+	}
+	
+	/**
+	 * Join the given tries and add the results to the output relation.
+	 */
+	private void join( int[][][] rows, Dictionary dictionary, IRelation output )
+	{
+		for( int[][] trie : rows )
+		{
+			if( trie.length == 0 )
+				return;
+		}
+		
+		TrieIterator[] tries = new TrieIterator[ rows.length ];
+		for( int i = 0; i < rows.length; ++i )
+			tries[ i ] = new TrieIterator( rows[ i ] );
+		
+		TrieIterator[][] participants = new TrieIterator[ mParticipants.length ][];
+		for( int v = 0; v < participants.length; ++v )
+		{
+			participants[ v ] = new TrieIterator[ mParticipants[ v ].length ];
+			for( int p = 0; p < participants[ v ].length; ++p )
+				participants[ v ][ p ] = tries[ mParticipants[ v ][ p ] ];
+		}
+		
+		search( 0, participants, new int[ participants.length ], dictionary, output );
+	}
+	
+	/**
+	 * Bind the variable at the given depth to every value that all the
+	 * participating literals agree on, and continue with the next variable.
+	 */
+	private void search( int depth, TrieIterator[][] participants, int[] binding, Dictionary dictionary, IRelation output )
+	{
+		if( depth == binding.length )
+		{
+			List<ITerm> terms = new ArrayList<ITerm>( binding.length );
+			for( int code : binding )
+				terms.add( dictionary.decode( code ) );
+			
+			output.add( Factory.BASIC.createTuple( terms ) );
+			return;
+		}
+		
+		TrieIterator[] iterators = participants[ depth ];
+		
+		for( TrieIterator iterator : iterators )
+			iterator.open();
+		
+		leapfrog( depth, participants, binding, dictionary, output );
+		
+		for( TrieIterator iterator : iterators )
+			iterator.up();
+	}
+	
+	/**
+	 * The leapfrog join of all iterators for one variable.
+	 */
+	private void leapfrog( int depth, TrieIterator[][] participants, int[] binding, Dictionary dictionary, IRelation output )
+	{
+		TrieIterator[] iterators = participants[ depth ].clone();
+		int count = iterators.length;
+		
+		for( TrieIterator iterator : iterators )
+		{
+			if( iterator.atEnd() )
+				return;
+		}
+		
+		Arrays.sort( iterators, KEY_ORDER );
+		
+		int p = 0;
+		int max = iterators[ count - 1 ].key();
+		
+		for( ;; )
+		{
+			TrieIterator iterator = iterators[ p ];
+			
+			if( iterator.key() == max )
+			{
+				binding[ depth ] = max;
+				search( depth + 1, participants, binding, dictionary, output );
+				
+				iterator.next();
+			}
+			else
+			{
+				iterator.seek( max );
+			}
+			
+			if( iterator.atEnd() )
+				return;
+			
+			max = iterator.key();
+			p = ( p + 1 ) % count;
+		}
+	}
+	
+	/**
+	 * Encode a range of the tuples of a relation as rows of term codes, with the
+	 * columns in trie order, and sort them.
+	 */
+	private static int[][] encode( IRelation relation, int from, int to, int[] columns, Dictionary dictionary )
+	{
+		int[][] rows = new int[ to - from ][];
+		
+		for( int t = from; t < to; ++t )
+			rows[ t - from ] = encode( relation.get( t ), columns, dictionary );
+		
+		Arrays.sort( rows, ROW_ORDER );
+		
+		return rows;
+	}
+	
+	/**
+	 * Encode tuples as rows of term codes and sort them.
+	 */
+	private static int[][] encode( Collection<ITuple> tuples, int[] columns, Dictionary dictionary )
+	{
+		int[][] rows = new int[ tuples.size() ][];
+		int t = 0;
+		
+		for( ITuple tuple : tuples )
+			rows[ t++ ] = encode( tuple, columns, dictionary );
+		
+		Arrays.sort( rows, ROW_ORDER );
+		
+		return rows;
+	}
+	
+	/**
+	 * Encode a tuple as a row of term codes, with the columns in trie order.
+	 */
+	private static int[] encode( ITuple tuple, int[] columns, Dictionary dictionary )
+	{
+		int[] row = new int[ columns.length ];
+		
+		for( int c = 0; c < columns.length; ++c )
+			row[ c ] = dictionary.encode( tuple.get( columns[ c ] ) );
+		
+		return row;
+	}
+	
+	/**
+	 * Merge two sorted arrays of rows.
+	 */
+	private static int[][] merge( int[][] rows1, int[][] rows2 )
+	{
+		if( rows1.length == 0 )
+			return rows2;
+		
+		int[][] rows = new int[ rows1.length + rows2.length ][];
+		int i1 = 0;
+		int i2 = 0;
+		
+		for( int r = 0; r < rows.length; ++r )
+		{
+			if( i2 == rows2.length || ( i1 < rows1.length && ROW_ORDER.compare( rows1[ i1 ], rows2[ i2 ] ) <= 0 ) )
+				rows[ r ] = rows1[ i1++ ];
+			else
+				rows[ r ] = rows2[ i2++ ];
+		}
+		
+		return rows;
+	}
+	
+	/**
+	 * Remove the rows of a sorted array from another sorted array, once for
+	 * each occurrence.
+	 */
+	private static int[][] subtract( int[][] rows1, int[][] rows2 )
+	{
+		int[][] rows = new int[ rows1.length ][];
+		int count = 0;
+		int i2 = 0;
+		
+		for( int[] row : rows1 )
+		{
+			while( i2 < rows2.length && ROW_ORDER.compare( rows2[ i2 ], row ) < 0 )
+				++i2;
+			
+			if( i2 < rows2.length && ROW_ORDER.compare( rows2[ i2 ], row ) == 0 )
+				++i2;
+			else
+				rows[ count++ ] = row;
+		}
+		
+		return Arrays.copyOf( rows, count );
+	}
+	
+	/**
+	 * Order the variables of the tries such that the variables shared by
+	 * the most tries are bound first.
+	 */
+	private static List<IVariable> variableOrder( List<List<IVariable>> trieVariables )
+	{
+		final Map<IVariable, Integer> occurrences = new HashMap<IVariable, Integer>();
+		List<IVariable> variables = new ArrayList<IVariable>();
+		
+		for( List<IVariable> trie : trieVariables )
+		{
+			for( IVariable variable : trie )
+			{
+				Integer occurrence = occurrences.get( variable );
+				if( occurrence == null )
+				{
+					variables.add( variable );
+					occurrences.put( variable, 1 );
+				}
+				else
+					occurrences.put( variable, occurrence + 1 );
+			}
+		}
+		
+		// A stable sort, so variables are otherwise in order of appearance.
+		Collections.sort( variables, new Comparator<IVariable>()
+		{
+			public int compare( IVariable v1, IVariable v2 )
+			{
+				return occurrences.get( v2 ) - occurrences.get( v1 );
+			}
+		} );
+		
+		return variables;
+	}
+	
+	/**
+	 * The sorted, encoded tuples of the literals' relations, kept between evaluations.
+	 */
+	private static class Tries
+	{
+		Tries( View[] views )
+		{
+			int count = views.length;
+			
+			mRows = new int[ count ][][];
+			mEncoded = new int[ count ];
+			mRemoved = new ArrayList<List<ITuple>>( count );
+			mAdded = new ArrayList<Set<ITuple>>( count );
+			mListeners = new IRemovalListener[ count ];
+			mVersion = -1;
+			
+			for( int i = 0; i < count; ++i )
+			{
+				mRemoved.add( new ArrayList<ITuple>() );
+				mAdded.add( new HashSet<ITuple>() );
+				
+				final int literal = i;
+				mListeners[ i ] = new IRemovalListener()
+				{
+					public void removing( IRelation relation, int index )
+					{
+						Tries.this.removing( literal, relation, index );
+					}
+				};
+				views[ i ].addRemovalListener( mListeners[ i ] );
+			}
+		}
+		
+		/**
+		 * Remember a tuple that is about to be removed from the view of a
+		 * literal, so that its row is removed at the next update.
+		 */
+		synchronized void removing( int literal, IRelation relation, int index )
+		{
+			if( index >= mEncoded[ literal ] )
+				return;
+			
+			// A tuple moved in to the encoded part is not in the rows yet.
+			ITuple tuple = relation.get( index );
+			if( ! mAdded.get( literal ).remove( tuple ) )
+				mRemoved.get( literal ).add( tuple );
+			
+			// The last tuple takes the place of the removed one.
+			int last = relation.size() - 1;
+			if( last < mEncoded[ literal ] )
+				--mEncoded[ literal ];
+			else
+				mAdded.get( literal ).add( relation.get( last ) );
+		}
+		
+		/**
+		 * Merge the tuples added to the views since the last update in to the
+		 * tries, or build them again if the codes are no longer valid.
+		 */
+		void update( View[] views, int[][] columns, IEquivalentTerms equivalentTerms )
+		{
+			long version = equivalentTerms.getVersion();
+			boolean rebuild = version != mVersion;
+			
+			int[] sizes = new int[ views.length ];
+			for( int i = 0; i < views.length; ++i )
+			{
+				sizes[ i ] = views[ i ].size();
+				if( sizes[ i ] < mEncoded[ i ] )
+					rebuild = true;
+			}
+			
+			if( rebuild )
+			{
+				// Equivalent terms may have been merged, so all codes must be assigned again.
+				mDictionary = new Dictionary( equivalentTerms );
+				mVersion = version;
+				
+				for( int i = 0; i < views.length; ++i )
+				{
+					mRows[ i ] = EMPTY;
+					mEncoded[ i ] = 0;
+					mRemoved.get( i ).clear();
+					mAdded.get( i ).clear();
+				}
+			}
+			
+			for( int i = 0; i < views.length; ++i )
+			{
+				if( ! mRemoved.get( i ).isEmpty() )
+				{
+					mRows[ i ] = subtract( mRows[ i ], encode( mRemoved.get( i ), columns[ i ], mDictionary ) );
+					mRemoved.get( i ).clear();
+				}
+				
+				if( ! mAdded.get( i ).isEmpty() )
+				{
+					mRows[ i ] = merge( mRows[ i ], encode( mAdded.get( i ), columns[ i ], mDictionary ) );
+					mAdded.get( i ).clear();
+				}
+				
+				if( sizes[ i ] > mEncoded[ i ] )
+				{
+					int[][] added = encode( views[ i ], mEncoded[ i ], sizes[ i ], columns[ i ], mDictionary );
+					mRows[ i ] = merge( mRows[ i ], added );
+					mEncoded[ i ] = sizes[ i ];
+				}
+			}
+		}
+		
+		/** The codes of the terms. */
+		Dictionary mDictionary;
+		
+		/** For each literal, its sorted rows. */
+		final int[][][] mRows;
+		
+		/** For each literal, the number of tuples of its view in the rows. */
+		final int[] mEncoded;
+		
+		/** For each literal, the tuples removed from its view since the last update. */
+		final List<List<ITuple>> mRemoved;
+		
+		/** For each literal, the tuples moved from the unencoded part of its view in to the encoded part. */
+		final List<Set<ITuple>> mAdded;
+		
+		/** The listeners registered with the views, kept here because the views only refer to them weakly. */
+		final IRemovalListener[] mListeners;
+		
+		/** The version of the equivalent terms the codes are assigned for. */
+		long mVersion;
+		
+		private static final int[][] EMPTY = new int[ 0 ][];
+	}
+	
+	/**
+	 * Assigns consecutive codes to terms, where all equivalent terms share the same code.
+	 */
+	private static class Dictionary
+	{
+		Dictionary( IEquivalentTerms equivalentTerms )
+		{
+			mDictionaryEquivalentTerms = equivalentTerms;
+		}
+		
+		int encode( ITerm term )
+		{
+			ITerm representative = mDictionaryEquivalentTerms.findRepresentative( term );
+			
+			Integer code = mCodes.get( representative );
+			if( code == null )
+			{
+				code = mTerms.size();
+				mCodes.put( representative, code );
+				mTerms.add( term );
+			}
+			
+			return code;
+		}
+		
+		ITerm decode( int code )
+		{
+			return mTerms.get( code );
+		}
+		
+		private final IEquivalentTerms mDictionaryEquivalentTerms;
+		
+		private final Map<ITerm, Integer> mCodes = new HashMap<ITerm, Integer>();
+		
+		private final List<ITerm> mTerms = new ArrayList<ITerm>();
+	}
+	
+	/**
+	 * An iterator over a trie represented by lexicographically sorted rows.
+	 * At each depth it moves over the distinct values of one column, within
+	 * the rows that share the values of the columns above.
+	 */
+	private static class TrieIterator
+	{
+		TrieIterator( int[][] rows )
+		{
+			mRows = rows;
+			
+			int levels = rows.length > 0 ? rows[ 0 ].length : 0;
+			mPosition = new int[ levels ];
+			mEnd = new int[ levels ];
+		}
+		
+		void open()
+		{
+			if( mDepth < 0 )
+			{
+				mPosition[ 0 ] = 0;
+				mEnd[ 0 ] = mRows.length;
+			}
+			else
+			{
+				int start = mPosition[ mDepth ];
+				mPosition[ mDepth + 1 ] = start;
+				mEnd[ mDepth + 1 ] = upperBound( start, mEnd[ mDepth ], mDepth, mRows[ start ][ mDepth ] );
+			}
+			
+			++mDepth;
+		}
+		
+		void up()
+		{
+			--mDepth;
+		}
+		
+		int key()
+		{
+			return mRows[ mPosition[ mDepth ] ][ mDepth ];
+		}
+		
+		boolean atEnd()
+		{
+			return mPosition[ mDepth ] >= mEnd[ mDepth ];
+		}
+		
+		void next()
+		{
+			mPosition[ mDepth ] = upperBound( mPosition[ mDepth ], mEnd[ mDepth ], mDepth, key() );
+		}
+		
+		void seek( int key )
+		{
+			mPosition[ mDepth ] = lowerBound( mPosition[ mDepth ], mEnd[ mDepth ], mDepth, key );
+		}
+		
+		/** The first row in [from, to) whose value in the column is greater than or equal to key. */
+		private int lowerBound( int from, int to, int column, int key )
+		{
+			while( from < to )
+			{
+				int middle = ( from + to ) >>> 1;
+				if( mRows[ middle ][ column ] < key )
+					from = middle + 1;
+				else
+					to = middle;
+			}
+			return from;
+		}
+		
+		/** The first row in [from, to) whose value in the column is greater than key. */
+		private int upperBound( int from, int to, int column, int key )
+		{
+			return lowerBound( from, to, column, key + 1 );
+		}
+		
+		private final int[][] mRows;
+		
+		private final int[] mPosition;
+		
+		private final int[] mEnd;
+		
+		private int mDepth = -1;
+	}
+	
+	/** Lexicographical order of encoded rows. */
+	private static final Comparator<int[]> ROW_ORDER = new Comparator<int[]>()
+	{
+		public int compare( int[] row1, int[] row2 )
+		{
+			for( int c = 0; c < row1.length; ++c )
+			{
+				if( row1[ c ] != row2[ c ] )
+					return row1[ c ] < row2[ c ] ? -1 : 1;
+			}
+			return 0;
+		}
+	};
+	
+	/** Order of trie iterators by their current key. */
+	private static final Comparator<TrieIterator> KEY_ORDER = new Comparator<TrieIterator>()
+	{
+		public int compare( TrieIterator iterator1, TrieIterator iterator2 )
+		{
+			int key1 = iterator1.key();
+			int key2 = iterator2.key();
+			return key1 < key2 ? -1 : ( key1 == key2 ? 0 : 1 );
+		}
+	};
+	
+	/** The predicates of the literals. */
+	private final IPredicate[] mPredicates;
+	
+	/** The tuples from the sub-goals in the rule. */
+	private final ITuple[] mViewCriteria;
+	
+	/** The views on the literals. */
+	private final View[] mViews;
+	
+	/** The views on the deltas of the literals, or null if this is not a delta substitution. */
+	private final View[] mDeltaViews;
+	
+	/** The tries of the views on the literals. */
+	private final Tries mTries;
+	
+	/** true, if the input relation is joined as an additional trie after the literals. */
+	private final boolean mHasInput;
+	
+	/** For each trie, its columns in trie order. */
+	private final int[][] mTrieColumns;
+	
+	/** For each variable, the tries containing it. */
+	private final int[][] mParticipants;
+	
+	/** The equivalent terms. */
+	private final IEquivalentTerms mEquivalentTerms;
+	
+	private final Configuration mConfiguration;
+}
@@ -0,0 +1,190 @@
+/*
+ * Integrated Rule Inference System (IRIS):
+ * An extensible rule inference system for datalog with extensions.
+ * 
+ * Copyright (C) 2008 Semantic Technology Institute (STI) Innsbruck, 
+ * University of Innsbruck, Technikerstrasse 21a, 6020 Innsbruck, Austria.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ */
+package org.deri.iris.rules.compiler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.deri.iris.Configuration;
+import org.deri.iris.ConfigurationThreadLocalStorage;
+import org.deri.iris.EvaluationException;
+import org.deri.iris.RuleElementExecutorThreadLocalStorage;
+import org.deri.iris.api.basics.ITuple;
+import org.deri.iris.facts.IFacts;
+import org.deri.iris.storage.IRelation;
+
+/**
+ * <p>
+ * A rule element that splits a large input relation in to chunks and lets
+ * another rule element (a join, built-in or negated sub-goal) process the
+ * chunks on several threads. The outputs of the chunks are concatenated in
+ * order.
+ * </p>
+ * <p>
+ * The first chunk is processed on the calling thread before the others are
+ * started, so that the lazily updated views and indexes of the wrapped element
+ * are brought up to date and only read by the worker threads.
+ * </p>
+ * <p>
+ * The chunks run on the thread pool of the configuration or, if it has none, on
+ * the pool that the knowledge-base allocated to the calling thread. Inputs
+ * smaller than the configured threshold are processed on the calling thread
+ * only, as are all inputs if there is no pool. This is the case on the
+ * threads of the parallel evaluators, which already keep all threads busy.
+ * </p>
+ */
+class PartitionedRuleElement extends RuleElement
+{
+	/**
+	 * Constructor.
+	 * @param element The rule element to process the chunks with.
+	 * @param configuration The knowledge-base configuration, giving the size
+	 * threshold and the number of threads.
+	 */
+	public PartitionedRuleElement( RuleElement element, Configuration configuration )
+	{
+		assert element != null;
+		assert configuration != null;
+		
+		mElement = element;
+		mConfiguration = configuration;
+		mOutputVariables = element.getOutputVariables();
+	}
+	
+	@Override
+	public IRelation process( IRelation input ) throws EvaluationException
+	{
+		int size = input.size();
+		int threads = mConfiguration.parallelRuleElementThreads;
+		ExecutorService executor = mConfiguration.parallelRuleElementExecutor;
+		
+		if( executor == null )
+			executor = RuleElementExecutorThreadLocalStorage.getExecutor();
+		
+		if( threads < 2 || size < mConfiguration.parallelRuleElementThreshold || size < 2 ||
+						executor == null || executor.isShutdown() )
+			return mElement.process( input );
+		
+		int chunks = Math.min( threads, size );
+		int chunkSize = ( size + chunks - 1 ) / chunks;
+		
+		IRelation result = mElement.process( new AppendOnlyRelation( input, 0, chunkSize ) );
+		
+		List<Future<IRelation>> futures = new ArrayList<Future<IRelation>>();
+		
+		for( int from = chunkSize; from < size; from += chunkSize )
+		{
+			final IRelation chunk = new AppendOnlyRelation( input, from, Math.min( size, from + chunkSize ) );
+			
+			futures.add( executor.submit( new Callable<IRelation>()
+			{
+				public IRelation call() throws EvaluationException
+				{
+					ConfigurationThreadLocalStorage.setConfiguration( mConfiguration );
+					try
+					{
+						return mElement.process( chunk );
+					}
+					finally
+					{
+						ConfigurationThreadLocalStorage.removeConfiguration();
+					}
+				}
+			} ) );
+		}
+		
+		IRelation output = mConfiguration.relationFactory.createRelation();
+		output.addAll( result );
+		
+		for( Future<IRelation> future : futures )
+			output.addAll( waitFor( future, futures ) );
+		
+		return output;
+	}
+	
+	@Override
+	public void push( ITuple input, ITupleSink sink ) throws EvaluationException
+	{
+		mElement.push( input, sink );
+	}
+	
+	@Override
+	public RuleElement getDeltaSubstitution( IFacts deltas )
+	{
+		RuleElement substitution = mElement.getDeltaSubstitution( deltas );
+		
+		return substitution == null ? null : new PartitionedRuleElement( substitution, mConfiguration );
+	}
+	
+	@Override
+	public void reset()
+	{
+		mElement.reset();
+	}
+	
+	/**
+	 * Wait for the output of a chunk. If processing failed, the other chunks are cancelled.
+	 */
+	private static IRelation waitFor( Future<IRelation> future, List<Future<IRelation>> futures ) throws EvaluationException
+	{
+		try
+		{
+			return future.get();
+		}
+		catch( InterruptedException e )
+		{
+			cancel( futures );
+			Thread.currentThread().interrupt();
+			throw new EvaluationException( "Interrupted while waiting for parallel rule element evaluation." );
+		}
+		catch( ExecutionException e )
+		{
+			cancel( futures );
+			
+			Throwable cause = e.getCause();
+			if( cause instanceof EvaluationException )
+				throw (EvaluationException) cause;
+			if( cause instanceof RuntimeException )
+				throw (RuntimeException) cause;
+			if( cause instanceof Error )
+				throw (Error) cause;
+			
+			throw new EvaluationException( "Parallel rule element evaluation failed: " + cause );
+		}
+	}
+	
+	private static void cancel( List<Future<IRelation>> futures )
+	{
+		for( Future<IRelation> future : futures )
+			future.cancel( true );
+	}
+	
+	/** The rule element that processes the chunks. */
+	private final RuleElement mElement;
+	
+	private final Configuration mConfiguration;
+}
@@ -25,6 +25,7 @@ package org.deri.iris.rules.compiler;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 
 import org.deri.iris.Configuration;
 import org.deri.iris.EvaluationException;
@@ -82,7 +83,10 @@ public class RuleCompiler {
 	 *             reason.
 	 */
 	public ICompiledRule compile(IRule rule) throws EvaluationException {
-		List<RuleElement> elements = compileBody(rule.getBody());
+		// Relations only store representatives of equivalent terms, if
+		// configured so. Queries still return all equivalent forms.
+		List<RuleElement> elements = compileBody(rule.getBody(),
+				!mConfiguration.canonicalEquivalentTerms);
 
 		List<IVariable> variables;
 
@@ -124,7 +128,27 @@ public class RuleCompiler {
 	 *             reason.
 	 */
 	public ICompiledRule compile(IQuery query) throws EvaluationException {
-		List<RuleElement> elements = compileBody(query.getLiterals());
+		List<RuleElement> elements = compileBody(query.getLiterals(), true);
+
+		return new CompiledRule(elements, null, mConfiguration);
+	}
+
+	/**
+	 * Compile a query whose parameter variables are bound by the input tuple
+	 * given to {@link ICompiledRule#evaluate(ITuple)}. The parameters are
+	 * joined with the first literals through their indexes, so that the same
+	 * compiled query can be evaluated for many different values.
+	 * 
+	 * @param query The query to be compiled
+	 * @param parameters The variables bound by the input tuple, in order.
+	 * @return The compiled query, ready to be evaluated
+	 * @throws EvaluationException If the query can not be compiled for any
+	 *             reason.
+	 */
+	public ICompiledRule compile(IQuery query, List<IVariable> parameters)
+			throws EvaluationException {
+		List<RuleElement> elements = compileBody(query.getLiterals(), true,
+				parameters);
 
 		return new CompiledRule(elements, null, mConfiguration);
 	}
@@ -135,20 +159,52 @@ public class RuleCompiler {
 	 * of its variables are not bound from the proceeding literal, then it is
 	 * skipped an re-tried later.
 	 * 
+	 * If the positive ordinary literals form a join cycle, they are all joined
+	 * at once by a {@link LeapfrogTriejoin} as the first rule element, which
+	 * also joins the tuple of the parameters.
+	 * 
 	 * @param bodyLiterals The list of literals to compile
+	 * @param expandEquivalentTerms true to create all combinations of equivalent
+	 *            terms for the output, false to use their representatives.
 	 * @return The compiled rule elements.
 	 * @throws EvaluationException If a rule construct can not be compiled (e.g.
 	 *             a built-in has constructed terms)
 	 */
-	private List<RuleElement> compileBody(Collection<ILiteral> bodyLiterals)
+	private List<RuleElement> compileBody(Collection<ILiteral> bodyLiterals,
+			boolean expandEquivalentTerms)
+			throws EvaluationException {
+		return compileBody(bodyLiterals, expandEquivalentTerms,
+				new ArrayList<IVariable>());
+	}
+
+	/**
+	 * Compile a rule body (or query), whose evaluation starts with a tuple
+	 * for the given parameter variables.
+	 * 
+	 * @param bodyLiterals The list of literals to compile
+	 * @param expandEquivalentTerms true to create all combinations of equivalent
+	 *            terms for the output, false to use their representatives.
+	 * @param parameters The variables bound by the starting tuple.
+	 * @return The compiled rule elements.
+	 * @throws EvaluationException If a rule construct can not be compiled (e.g.
+	 *             a built-in has constructed terms)
+	 */
+	private List<RuleElement> compileBody(Collection<ILiteral> bodyLiterals,
+			boolean expandEquivalentTerms, List<IVariable> parameters)
 			throws EvaluationException {
 		List<ILiteral> literals = new ArrayList<ILiteral>(bodyLiterals);
 
 		List<RuleElement> elements = new ArrayList<RuleElement>();
 
-		List<IVariable> previousVariables = new ArrayList<IVariable>();
+		List<IVariable> previousVariables = new ArrayList<IVariable>(parameters);
+
+		RuleElement triejoin = compileCyclicJoin(literals, previousVariables);
+		if (triejoin != null) {
+			elements.add(triejoin);
+			previousVariables = triejoin.getOutputVariables();
+		}
 
-		while (elements.size() < bodyLiterals.size()) {
+		while (literals.size() > 0) {
 			EvaluationException lastException = null;
 
 			boolean added = false;
@@ -213,6 +269,9 @@ public class RuleCompiler {
 									mConfiguration);
 						}
 					}
+					if (!(element instanceof FirstSubgoal))
+						element = partition(element);
+
 					previousVariables = element.getOutputVariables();
 
 					elements.add(element);
@@ -234,13 +293,86 @@ public class RuleCompiler {
 		if (elements.size() > 0) {
 			RuleElement lastElement = elements.get(elements.size() - 1);
 			RuleElement element = new EquivalenceResolver(lastElement
-					.getOutputVariables(), mEquivalentTerms, mConfiguration);
+					.getOutputVariables(), mEquivalentTerms,
+					expandEquivalentTerms, mConfiguration);
 			elements.add(element);
 		}
 
 		return elements;
 	}
 
+	/**
+	 * Let the rule element process large inputs in chunks on several threads,
+	 * if this is enabled in the configuration.
+	 * 
+	 * @param element The rule element.
+	 * @return The rule element to use.
+	 */
+	private RuleElement partition(RuleElement element) {
+		if (mConfiguration.parallelRuleElementThreshold <= 0
+				|| mConfiguration.parallelRuleElementThreads < 2)
+			return element;
+
+		return new PartitionedRuleElement(element, mConfiguration);
+	}
+
+	/**
+	 * Create a rule element that joins all positive ordinary literals at once,
+	 * if their variables form a cycle. The literals that are joined are removed
+	 * from the given list.
+	 * 
+	 * @param literals The literals of the rule body.
+	 * @param inputVariables The variables of the input relation.
+	 * @return The rule element, or null if there is no join cycle.
+	 */
+	private RuleElement compileCyclicJoin(List<ILiteral> literals,
+			List<IVariable> inputVariables) {
+		List<ILiteral> joined = new ArrayList<ILiteral>();
+		List<Set<IVariable>> joinedVariables = new ArrayList<Set<IVariable>>();
+
+		for (ILiteral literal : literals) {
+			IAtom atom = literal.getAtom();
+
+			if (!literal.isPositive() || atom instanceof IBuiltinAtom)
+				continue;
+
+			// Terms inside constructed terms are not handled by the trie join.
+			boolean constructedTerms = false;
+			for (ITerm term : atom.getTuple()) {
+				if (term instanceof IConstructedTerm) {
+					constructedTerms = true;
+					break;
+				}
+			}
+
+			Set<IVariable> variables = atom.getTuple().getVariables();
+
+			if (!constructedTerms && variables.size() > 0) {
+				joined.add(literal);
+				joinedVariables.add(variables);
+			}
+		}
+
+		if (joined.size() < 3 || !LeapfrogTriejoin.isCyclic(joinedVariables))
+			return null;
+
+		List<IPredicate> predicates = new ArrayList<IPredicate>();
+		List<IRelation> relations = new ArrayList<IRelation>();
+		List<ITuple> viewCriteria = new ArrayList<ITuple>();
+
+		for (ILiteral literal : joined) {
+			IAtom atom = literal.getAtom();
+			predicates.add(atom.getPredicate());
+			relations.add(mFacts.get(atom.getPredicate()));
+			viewCriteria.add(atom.getTuple());
+		}
+
+		literals.removeAll(joined);
+
+		return new LeapfrogTriejoin(inputVariables, predicates, relations,
+				viewCriteria, mEquivalentTerms, mConfiguration);
+	}
+
 	/** The equivalent terms. */
 	private IEquivalentTerms mEquivalentTerms;
 
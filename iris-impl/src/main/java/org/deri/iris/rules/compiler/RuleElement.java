@@ -25,9 +25,11 @@ package org.deri.iris.rules.compiler;
 import java.util.List;
 
 import org.deri.iris.EvaluationException;
+import org.deri.iris.api.basics.ITuple;
 import org.deri.iris.api.terms.IVariable;
 import org.deri.iris.facts.IFacts;
 import org.deri.iris.storage.IRelation;
+import org.deri.iris.storage.simple.SimpleRelationFactory;
 
 /**
  * A base class for all compiled rule elements.
@@ -50,6 +52,37 @@ public abstract class RuleElement
 	 */
 	public abstract IRelation process( IRelation input ) throws EvaluationException;
 	
+	/**
+	 * Called to process a single tuple from the previous rule element when the rule
+	 * is evaluated in pipelined mode. Output tuples are passed straight on to the sink
+	 * instead of being collected in a relation.
+	 * The default implementation calls process() with a relation holding just the input tuple.
+	 * @param input The tuple from the previous rule element.
+	 * @param sink The receiver of the output tuples.
+	 * @throws EvaluationException
+	 */
+	public void push( ITuple input, ITupleSink sink ) throws EvaluationException
+	{
+		pushThroughProcess( input, sink );
+	}
+	
+	/**
+	 * Process a single tuple by calling process() and pass on its output tuples.
+	 * @param input The tuple from the previous rule element.
+	 * @param sink The receiver of the output tuples.
+	 * @throws EvaluationException
+	 */
+	protected final void pushThroughProcess( ITuple input, ITupleSink sink ) throws EvaluationException
+	{
+		IRelation relation = mSingleTupleRelationFactory.createRelation();
+		relation.add( input );
+		
+		IRelation output = process( relation );
+		
+		for( int t = 0; t < output.size(); ++t )
+			sink.add( output.get( t ) );
+	}
+	
 	/**
 	 * Create a substitute rule element that will use the corresponding delta if it exists.
 	 * @param deltas The Deltas from the last round of iterative evaluation.
@@ -60,6 +93,14 @@ public abstract class RuleElement
 		return null;
 	}
 	
+	/**
+	 * Discard any state that this rule element keeps between evaluations, e.g. the
+	 * deltas seen so far. Called before the rule is evaluated on all facts.
+	 */
+	public void reset()
+	{
+	}
+	
 	/**
 	 * Get the variable bindings for tuples output from this rule element.
 	 * @return The list of variables in term order.
@@ -69,6 +110,9 @@ public abstract class RuleElement
 		return mOutputVariables;
 	}
 	
+	/** The factory for the relations used by pushThroughProcess(). */
+	private static final SimpleRelationFactory mSingleTupleRelationFactory = new SimpleRelationFactory();
+	
 	/** The variable bindings for tuples output from this rule element. */
 	protected List<IVariable> mOutputVariables;
 }
@@ -38,7 +38,8 @@ import org.deri.iris.utils.equivalence.IEquivalentTerms;
  * to the rule head for rules with rule head equality. This substituter sets all
  * pairs that are substituted into the head as equivalent in the specified term
  * equivalence relation. It then adds all possible combinations of the two terms
- * and its equivalent terms to the relation.
+ * and its equivalent terms to the relation, or only the pair of their
+ * representatives if the configuration asks for canonical equivalent terms.
  * 
  * @author Adrian Marte
  */
@@ -93,7 +94,7 @@ public class RuleHeadEqualitySubstituter extends HeadSubstituter {
 				IList list2 = (IList) y;
 
 				if (list1.size() == list2.size()) {
-					for (int j = 0; i < list1.size(); i++) {
+					for (int j = 0; j < list1.size(); j++) {
 						equivalentTerms.setEquivalent(list1.get(j),
 								list2.get(j));
 					}
@@ -102,9 +103,21 @@ public class RuleHeadEqualitySubstituter extends HeadSubstituter {
 
 			// ?X and ?Y are equivalent.
 			equivalentTerms.setEquivalent(x, y);
-			result.add(tuple);
+
+			// Only the representatives are stored, if configured so.
+			if (mConfiguration.canonicalEquivalentTerms)
+				result.add(Utils.canonicalise(tuple, equivalentTerms));
+			else
+				result.add(tuple);
 		}
 
 		return result;
 	}
+
+	@Override
+	public void push(ITuple inputTuple, ITupleSink sink)
+			throws EvaluationException {
+		// The equivalences are established by process().
+		pushThroughProcess(inputTuple, sink);
+	}
 }
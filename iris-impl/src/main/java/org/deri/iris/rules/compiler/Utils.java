@@ -25,12 +25,16 @@ package org.deri.iris.rules.compiler;
 import static org.deri.iris.factory.Factory.BASIC;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 import org.deri.iris.api.basics.ITuple;
 import org.deri.iris.api.terms.ITerm;
+import org.deri.iris.storage.IRemovableRelation;
 import org.deri.iris.utils.equivalence.IEquivalentTerms;
 
 /**
@@ -93,6 +97,177 @@ public class Utils {
 		return tuples;
 	}
 
+	/**
+	 * Returns all possible combinations of the terms of a specified tuple with
+	 * their equivalent terms, in the same way as
+	 * {@link #createAllCombinations(ITuple, IEquivalentTerms)}. The
+	 * combinations are created one at a time while iterating, so they are
+	 * never all held in memory.
+	 * 
+	 * @param tuple The tuple for which all possible combinations should be
+	 *            created.
+	 * @param equivalentTerms The equivalent terms.
+	 * @return All possible combinations of the terms of the specified tuple
+	 *         with their equivalent terms.
+	 */
+	public static Iterable<ITuple> combinations(final ITuple tuple,
+			IEquivalentTerms equivalentTerms) {
+		// No terms have been made equivalent, so there is only the tuple.
+		if (equivalentTerms.getVersion() == 0)
+			return Collections.singletonList(tuple);
+
+		final ITerm[][] sets = new ITerm[tuple.size()][];
+		boolean single = true;
+
+		for (int i = 0; i < sets.length; ++i) {
+			sets[i] = equivalentTerms.getEquivalent(tuple.get(i)).toArray(
+					new ITerm[0]);
+			single &= sets[i].length == 1;
+		}
+
+		if (single)
+			return Collections.singletonList(tuple);
+
+		return new Iterable<ITuple>() {
+			public Iterator<ITuple> iterator() {
+				return new CombinationIterator(sets);
+			}
+		};
+	}
+
+	/**
+	 * Replaces all terms of a tuple by their representatives.
+	 * 
+	 * @param tuple The tuple.
+	 * @param equivalentTerms The equivalent terms.
+	 * @return The tuple made of the representatives of the terms.
+	 */
+	public static ITuple canonicalise(ITuple tuple,
+			IEquivalentTerms equivalentTerms) {
+		if (equivalentTerms.getVersion() == 0)
+			return tuple;
+
+		ITerm[] terms = null;
+
+		for (int i = 0; i < tuple.size(); ++i) {
+			ITerm term = tuple.get(i);
+			ITerm representative = equivalentTerms.findRepresentative(term);
+
+			if (terms == null && representative != term
+					&& !representative.equals(term)) {
+				terms = new ITerm[tuple.size()];
+				for (int j = 0; j < i; ++j)
+					terms[j] = tuple.get(j);
+			}
+
+			if (terms != null)
+				terms[i] = representative;
+		}
+
+		return terms == null ? tuple : BASIC.createTuple(terms);
+	}
+
+	/**
+	 * Replaces all stored tuples of a relation that contain a term which is not
+	 * the representative of its class by the tuple of the representatives.
+	 * 
+	 * @param relation The relation.
+	 * @param equivalentTerms The equivalent terms.
+	 */
+	public static void canonicalise(IRemovableRelation relation,
+			IEquivalentTerms equivalentTerms) {
+		List<ITuple> tuples = new ArrayList<ITuple>();
+
+		for (int i = 0; i < relation.size(); ++i) {
+			ITuple tuple = relation.get(i);
+
+			if (canonicalise(tuple, equivalentTerms) != tuple)
+				tuples.add(tuple);
+		}
+
+		canonicalise(relation, tuples, equivalentTerms);
+	}
+
+	/**
+	 * Replaces stored tuples by the tuples made of the representatives of
+	 * their terms, e.g. after classes of equivalent terms have been merged.
+	 * Tuples that become equal are only stored once.
+	 * 
+	 * @param relation The relation storing the tuples.
+	 * @param tuples The tuples of the relation to replace.
+	 * @param equivalentTerms The equivalent terms.
+	 * @return The tuples made of the representatives, in the same order.
+	 */
+	public static List<ITuple> canonicalise(IRemovableRelation relation,
+			Collection<ITuple> tuples, IEquivalentTerms equivalentTerms) {
+		List<ITuple> result = new ArrayList<ITuple>(tuples.size());
+
+		for (ITuple tuple : tuples) {
+			ITuple canonical = canonicalise(tuple, equivalentTerms);
+
+			if (canonical != tuple) {
+				relation.remove(tuple);
+				relation.add(canonical);
+			}
+
+			result.add(canonical);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Iterates over the combinations of one term from each set, like an
+	 * odometer.
+	 */
+	private static class CombinationIterator implements Iterator<ITuple> {
+		CombinationIterator(ITerm[][] sets) {
+			mSets = sets;
+			mPositions = new int[sets.length];
+
+			for (ITerm[] set : sets) {
+				if (set.length == 0)
+					mHasNext = false;
+			}
+		}
+
+		public boolean hasNext() {
+			return mHasNext;
+		}
+
+		public ITuple next() {
+			if (!mHasNext)
+				throw new NoSuchElementException();
+
+			ITerm[] terms = new ITerm[mSets.length];
+			for (int i = 0; i < terms.length; ++i)
+				terms[i] = mSets[i][mPositions[i]];
+
+			// Advance the last position first.
+			mHasNext = false;
+			for (int i = mPositions.length - 1; i >= 0; --i) {
+				if (++mPositions[i] < mSets[i].length) {
+					mHasNext = true;
+					break;
+				}
+
+				mPositions[i] = 0;
+			}
+
+			return BASIC.createTuple(terms);
+		}
+
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		private final ITerm[][] mSets;
+
+		private final int[] mPositions;
+
+		private boolean mHasNext = true;
+	}
+
 	private static List<ITuple> createAllCombinations(List<Set<ITerm>> sets) {
 		return createAllCombinations(sets, 0, new ArrayList<ITerm>());
 	}
@@ -22,15 +22,23 @@
  */
 package org.deri.iris.rules.compiler;
 
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.deri.iris.api.basics.ITuple;
+import org.deri.iris.api.terms.IConstructedTerm;
 import org.deri.iris.api.terms.ITerm;
 import org.deri.iris.api.terms.IVariable;
 import org.deri.iris.storage.IRelation;
 import org.deri.iris.storage.IRelationFactory;
+import org.deri.iris.storage.IRemovableRelation;
+import org.deri.iris.storage.IRemovalListener;
 import org.deri.iris.utils.TermMatchingAndSubstitution;
 import org.deri.iris.utils.equivalence.IEquivalentTerms;
 import org.deri.iris.utils.equivalence.IgnoreTermEquivalence;
@@ -81,8 +89,12 @@ import org.deri.iris.utils.equivalence.IgnoreTermEquivalence;
  * 3, g(1)
  * </p>
  * <p>
+ * When tuples are removed from the underlying relation, their matches are
+ * removed from the view as well, so the view can only remove tuples if the
+ * relation factory creates removable relations.
+ * </p>
  */
-public class View implements IRelation
+public class View implements IRemovableRelation
 {
 	/**
 	 * Constructor.
@@ -106,6 +118,8 @@ public class View implements IRelation
 		mInputRelation = relation;
 		mRelationFactory = relationFactory;
 		mEquivalentTerms = equivalentTerms;
+		mVersion = equivalentTerms.getVersion();
+		equivalentTerms.caughtUp( this, mVersion );
 
 		// Check if simple view, i.e. only unique variables
 		mSimple = isSimpleView( viewCriteria );
@@ -113,6 +127,8 @@ public class View implements IRelation
 			mViewTuples = relation;
 		else
 			mViewTuples = relationFactory.createRelation();
+		
+		listen();
 	}
 	
 	/**
@@ -144,11 +160,31 @@ public class View implements IRelation
 		mSimple = simple;
 		mRelationFactory = relationFactory;
 		mEquivalentTerms = equivalentTerms;
+		mVersion = equivalentTerms.getVersion();
+		equivalentTerms.caughtUp( this, mVersion );
 
 		if( mSimple )
 			mViewTuples = relation;
 		else
 			mViewTuples = mRelationFactory.createRelation();
+		
+		listen();
+	}
+	
+	/**
+	 * Register for the removals from the underlying relation. A simple view
+	 * has no state of its own, so it does not need to know about them.
+	 */
+	private void listen()
+	{
+		if( mSimple || ! ( mInputRelation instanceof IRemovableRelation ) )
+			return;
+		
+		( (IRemovableRelation) mInputRelation ).addRemovalListener( mListener );
+		
+		// Different tuples may match the same view tuple, if terms are equivalent.
+		if( mVersion != 0 )
+			track();
 	}
 	
 	/**
@@ -215,6 +251,42 @@ public class View implements IRelation
 		throw new RuntimeException( "addAll() has been called on a View object." );
     }
 
+	/**
+	 * Removing from a View does not make sense.
+	 * @throws RuntimeException if this method is called.
+	 */
+	public boolean remove( ITuple tuple )
+	{
+		throw new RuntimeException( "remove() has been called on a View object." );
+	}
+
+	public int indexOf( ITuple tuple )
+	{
+		if( ! mSimple )
+			update();
+		
+		if( mViewTuples instanceof IRemovableRelation )
+			return ( (IRemovableRelation) mViewTuples ).indexOf( tuple );
+		
+		for( int t = 0; t < mViewTuples.size(); ++t )
+		{
+			if( mViewTuples.get( t ).equals( tuple ) )
+				return t;
+		}
+		
+		return -1;
+	}
+
+	/**
+	 * The listener is told about the removals from the tuples of the view,
+	 * i.e. from the underlying relation of a simple view.
+	 */
+	public void addRemovalListener( IRemovalListener listener )
+	{
+		if( mViewTuples instanceof IRemovableRelation )
+			( (IRemovableRelation) mViewTuples ).addRemovalListener( listener );
+	}
+
 	public boolean contains( ITuple tuple )
     {
 		if( ! mSimple )
@@ -240,30 +312,240 @@ public class View implements IRelation
 	 * Update the view with previously unseen tuples from the underlying relation.
 	 */
 	private void update()
+	{
+		updateEquivalences();
+		
+		for( ; mLastIndex < mInputRelation.size(); ++mLastIndex )
+			match( mLastIndex, mInputRelation.get( mLastIndex ) );
+	}
+	
+	/**
+	 * Match the tuples seen so far again, that may match due to a change in the
+	 * equivalence relation.
+	 */
+	private void updateEquivalences()
 	{
 		// The matching tuples may increase due to a change in the equivalence relation,
-		// therefore we have to check all tuples again if any change to the term
-		// equivalence relation has been done.
-		int hashCode = mEquivalentTerms.hashCode();
+		// therefore we have to check the rejected tuples again, that contain a term
+		// whose representative changed.
+		long version = mEquivalentTerms.getVersion();
 		
-		if (hashCode != mPreviousHashCode) {
-			mLastIndex = 0;
+		if( version != mVersion )
+		{
+			Collection<ITerm> changed = mEquivalentTerms.getChangedSince( mVersion );
 			
-			mPreviousHashCode = hashCode;
+			if( mRejected == null || changed == null || changesCriteria( changed ) )
+			{
+				// Check all tuples again and from now on remember the rejected ones.
+				track();
+				
+				for( int row = 0; row < mLastIndex; ++row )
+					match( row, mInputRelation.get( row ) );
+			}
+			else
+				matchRejected( changed );
+			
+			mVersion = version;
+			mEquivalentTerms.caughtUp( this, mVersion );
 		}
+	}
+	
+	/**
+	 * From now on remember the rejected tuples and count the tuples matching
+	 * each view tuple.
+	 */
+	private void track()
+	{
+		mRejected = new HashMap<ITerm, List<Integer>>();
+		mRejectedRows = new BitSet();
+		mMatches = new HashMap<ITuple, Integer>();
+	}
+	
+	/**
+	 * Match a tuple of the underlying relation and add it to the view if it matches.
+	 * @param row The index of the tuple in the underlying relation.
+	 * @param tuple The tuple.
+	 */
+	private void match( int row, ITuple tuple )
+	{
+		// When matching terms we also use the equivalent terms.
+		ITuple viewTuple = TermMatchingAndSubstitution.matchTuple( mViewCriteria, 
+				tuple, mEquivalentTerms );
 		
-		for( ; mLastIndex < mInputRelation.size(); ++mLastIndex )
+		if( viewTuple != null ) {
+			mViewTuples.add( viewTuple );
+			
+			if( mMatches != null ) {
+				Integer count = mMatches.get( viewTuple );
+				mMatches.put( viewTuple, count == null ? 1 : count + 1 );
+			}
+			
+			if( mRejectedRows != null )
+				mRejectedRows.clear( row );
+		}
+		else if( mRejected != null && ! mRejectedRows.get( row ) ) {
+			mRejectedRows.set( row );
+			
+			for( ITerm term : tuple )
+				addRejected( term, row );
+		}
+	}
+	
+	/**
+	 * Match the rejected tuples again that contain any of the given terms.
+	 * @param changed The terms whose representative changed.
+	 */
+	private void matchRejected( Collection<ITerm> changed )
+	{
+		Set<Integer> rows = new HashSet<Integer>();
+		
+		for( ITerm term : changed )
 		{
-			ITuple tuple = mInputRelation.get( mLastIndex );
+			List<Integer> termRows = mRejected.remove( term );
 			
-			// When matching terms we also use the equivalent terms.
-			ITuple viewTuple = TermMatchingAndSubstitution.matchTuple( mViewCriteria, 
-					tuple, mEquivalentTerms );
+			if( termRows != null )
+				rows.addAll( termRows );
+		}
+		
+		for( int row : rows )
+		{
+			// Rows are listed for every term, so a row may be matched already.
+			if( mRejectedRows.get( row ) )
+			{
+				mRejectedRows.clear( row );
+				match( row, mInputRelation.get( row ) );
+			}
+		}
+	}
+	
+	/**
+	 * Update the view before a tuple is removed from the underlying relation.
+	 * @param row The index of the tuple in the underlying relation.
+	 */
+	private void removing( int row )
+	{
+		updateEquivalences();
+		
+		// Tuples not seen yet are matched later.
+		if( row >= mLastIndex )
+			return;
+		
+		unmatch( row, mInputRelation.get( row ) );
+		
+		// The last tuple takes the place of the removed one.
+		int last = mInputRelation.size() - 1;
+		
+		if( last < mLastIndex )
+		{
+			if( last != row && mRejectedRows != null && mRejectedRows.get( last ) )
+			{
+				mRejectedRows.clear( last );
+				mRejectedRows.set( row );
+				
+				for( ITerm term : mInputRelation.get( last ) )
+					addRejected( term, row );
+			}
 			
-			if( viewTuple != null ) {
-				mViewTuples.add( viewTuple );
+			--mLastIndex;
+		}
+		else
+			match( row, mInputRelation.get( last ) );
+	}
+	
+	/**
+	 * Remove the view tuple of a tuple of the underlying relation, unless other
+	 * tuples match it as well.
+	 * @param row The index of the tuple in the underlying relation.
+	 * @param tuple The tuple.
+	 */
+	private void unmatch( int row, ITuple tuple )
+	{
+		if( mRejectedRows != null && mRejectedRows.get( row ) )
+		{
+			// The row may still be listed for the terms of the tuple, but it is
+			// only matched again if it is rejected.
+			mRejectedRows.clear( row );
+			return;
+		}
+		
+		ITuple viewTuple = TermMatchingAndSubstitution.matchTuple( mViewCriteria, 
+				tuple, mEquivalentTerms );
+		
+		if( viewTuple == null )
+			return;
+		
+		if( mMatches != null )
+		{
+			int count = mMatches.get( viewTuple );
+			
+			if( count > 1 )
+			{
+				mMatches.put( viewTuple, count - 1 );
+				return;
+			}
+			
+			mMatches.remove( viewTuple );
+		}
+		
+		if( ! ( mViewTuples instanceof IRemovableRelation ) )
+			throw new UnsupportedOperationException( "Tuples can not be removed from a view on relations of type "
+							+ mViewTuples.getClass().getName() );
+		
+		( (IRemovableRelation) mViewTuples ).remove( viewTuple );
+	}
+	
+	private void addRejected( ITerm term, int row )
+	{
+		List<Integer> rows = mRejected.get( term );
+		
+		if( rows == null )
+		{
+			rows = new ArrayList<Integer>();
+			mRejected.put( term, rows );
+		}
+		
+		rows.add( row );
+		
+		if( term instanceof IConstructedTerm )
+		{
+			for( ITerm parameter : ( (IConstructedTerm) term ).getParameters() )
+				addRejected( parameter, row );
+		}
+	}
+	
+	/**
+	 * Checks if the representative of a term in the view criteria changed, in which
+	 * case any tuple may match now.
+	 * @param changed The terms whose representative changed.
+	 */
+	private boolean changesCriteria( Collection<ITerm> changed )
+	{
+		Set<ITerm> changedTerms = new HashSet<ITerm>( changed );
+		
+		for( ITerm term : mViewCriteria )
+		{
+			if( containsChanged( term, changedTerms ) )
+				return true;
+		}
+		
+		return false;
+	}
+	
+	private static boolean containsChanged( ITerm term, Set<ITerm> changedTerms )
+	{
+		if( changedTerms.contains( term ) )
+			return true;
+		
+		if( term instanceof IConstructedTerm )
+		{
+			for( ITerm parameter : ( (IConstructedTerm) term ).getParameters() )
+			{
+				if( containsChanged( parameter, changedTerms ) )
+					return true;
 			}
 		}
+		
+		return false;
 	}
 	
 	@Override
@@ -275,8 +557,32 @@ public class View implements IRelation
 	/** The equivalent terms. */
 	private IEquivalentTerms mEquivalentTerms;
 	
-	/** The hash code of the previous equivalent terms. */
-	private int mPreviousHashCode = 0;
+	/** The version of the equivalent terms the view has been matched with. */
+	private long mVersion;
+	
+	/**
+	 * The rows of the rejected tuples of the underlying relation by the terms they
+	 * contain, or null until the equivalent terms change for the first time.
+	 */
+	private Map<ITerm, List<Integer>> mRejected;
+	
+	/** The rows of the currently rejected tuples. */
+	private BitSet mRejectedRows;
+	
+	/**
+	 * The number of tuples of the underlying relation matching each view tuple,
+	 * or null as long as the view tuples are matched by one tuple each.
+	 */
+	private Map<ITuple, Integer> mMatches;
+	
+	/** Updates the view before tuples are removed from the underlying relation. */
+	private final IRemovalListener mListener = new IRemovalListener()
+	{
+		public void removing( IRelation relation, int index )
+		{
+			View.this.removing( index );
+		}
+	};
 	
 	/** The filtered view of the relation. */
 	private final IRelation mViewTuples;
@@ -0,0 +1,517 @@
+/*
+ * Integrated Rule Inference System (IRIS):
+ * An extensible rule inference system for datalog with extensions.
+ * 
+ * Copyright (C) 2008 Semantic Technology Institute (STI) Innsbruck, 
+ * University of Innsbruck, Technikerstrasse 21a, 6020 Innsbruck, Austria.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ */
+package org.deri.iris.rules.optimisation;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.deri.iris.api.basics.ILiteral;
+import org.deri.iris.api.basics.IPredicate;
+import org.deri.iris.api.basics.IRule;
+import org.deri.iris.api.basics.ITuple;
+import org.deri.iris.api.builtins.IBuiltinAtom;
+import org.deri.iris.api.terms.IConstructedTerm;
+import org.deri.iris.api.terms.ITerm;
+import org.deri.iris.api.terms.IVariable;
+import org.deri.iris.facts.IFacts;
+import org.deri.iris.factory.Factory;
+import org.deri.iris.rules.IJoinOrderOptimiser;
+import org.deri.iris.storage.IRelation;
+
+/**
+ * A join order optimiser that uses the current size of the relations and
+ * an estimate of the number of distinct values in each of their columns
+ * to choose the order of the positive ordinary literals of a rule body.
+ * 
+ * The estimated cost of a join order is the sum of the estimated sizes of
+ * all intermediate results. For rules with up to a configurable number of
+ * positive ordinary literals the cheapest left-deep order is found by
+ * dynamic programming over subsets of literals, otherwise the literal giving
+ * the smallest intermediate result is chosen greedily at each step.
+ * 
+ * Built-ins and negated literals are placed as soon as they can be evaluated,
+ * following the same rules as {@link ReOrderLiteralsOptimiser}.
+ * 
+ * As the statistics are taken from the facts, this optimiser should be
+ * applied every time a set of rules is about to be compiled, e.g. at the start
+ * of each stratum.
+ */
+public class CostBasedJoinOrderOptimiser implements IJoinOrderOptimiser
+{
+	/** The default maximum number of literals for which an exhaustive search is done. */
+	public static final int DEFAULT_EXHAUSTIVE_LIMIT = 10;
+	
+	/** The default number of tuples sampled to estimate distinct values of a column. */
+	public static final int DEFAULT_SAMPLE_SIZE = 1000;
+	
+	/**
+	 * Constructor using the default limits.
+	 */
+	public CostBasedJoinOrderOptimiser()
+	{
+		this( DEFAULT_EXHAUSTIVE_LIMIT, DEFAULT_SAMPLE_SIZE );
+	}
+	
+	/**
+	 * Constructor.
+	 * @param exhaustiveLimit The maximum number of positive ordinary literals for
+	 * which all join orders are considered.
+	 * @param sampleSize The maximum number of tuples of a relation that are
+	 * inspected to estimate the number of distinct values in its columns.
+	 */
+	public CostBasedJoinOrderOptimiser( int exhaustiveLimit, int sampleSize )
+	{
+		if( exhaustiveLimit < 1 || exhaustiveLimit > 20 )
+			throw new IllegalArgumentException( "The exhaustive limit must be between 1 and 20." );
+		
+		if( sampleSize < 1 )
+			throw new IllegalArgumentException( "The sample size must be positive." );
+		
+		mExhaustiveLimit = exhaustiveLimit;
+		mSampleSize = sampleSize;
+	}
+	
+	public IRule optimise( IRule rule, IFacts facts )
+	{
+		List<ILiteral> ground = new ArrayList<ILiteral>();
+		List<ILiteral> positive = new ArrayList<ILiteral>();
+		List<ILiteral> others = new ArrayList<ILiteral>();
+		
+		for( ILiteral literal : rule.getBody() )
+		{
+			if( literal.getAtom() instanceof IBuiltinAtom || ! literal.isPositive() )
+				others.add( literal );
+			else if( literal.getAtom().getTuple().getVariables().size() == 0 )
+				ground.add( literal );
+			else
+				positive.add( literal );
+		}
+		
+		if( positive.size() < 2 )
+			return rule;
+		
+		List<Literal> literals = new ArrayList<Literal>();
+		Map<IPredicate, Statistics> statistics = new HashMap<IPredicate, Statistics>();
+		Map<IVariable, Integer> variableNumbers = new HashMap<IVariable, Integer>();
+		
+		for( ILiteral literal : positive )
+		{
+			IPredicate predicate = literal.getAtom().getPredicate();
+			Statistics stats = statistics.get( predicate );
+			if( stats == null )
+			{
+				stats = new Statistics( facts.get( predicate ), mSampleSize );
+				statistics.put( predicate, stats );
+			}
+			literals.add( new Literal( literal.getAtom().getTuple(), stats, variableNumbers ) );
+		}
+		
+		int[] order = literals.size() <= mExhaustiveLimit ?
+						planExhaustively( literals, variableNumbers.size() ) :
+						planGreedily( literals, variableNumbers.size() );
+		
+		List<ILiteral> orderedPositive = new ArrayList<ILiteral>();
+		for( int i : order )
+			orderedPositive.add( positive.get( i ) );
+		
+		if( orderedPositive.equals( positive ) )
+			return rule;
+		
+		return Factory.BASIC.createRule( rule.getHead(), placeLiterals( rule, ground, orderedPositive, others ) );
+	}
+	
+	/**
+	 * Find the cheapest join order by dynamic programming over all subsets of literals.
+	 * @param literals The literals to order.
+	 * @param variableCount The number of distinct variables in the literals.
+	 * @return The positions of the literals in join order.
+	 */
+	private int[] planExhaustively( List<Literal> literals, int variableCount )
+	{
+		int count = literals.size();
+		int states = 1 << count;
+		
+		State[] best = new State[ states ];
+		best[ 0 ] = new State( variableCount );
+		
+		for( int mask = 0; mask < states; ++mask )
+		{
+			State state = best[ mask ];
+			if( state == null )
+				continue;
+			
+			for( int i = 0; i < count; ++i )
+			{
+				if( ( mask & ( 1 << i ) ) != 0 )
+					continue;
+				
+				State next = state.join( literals.get( i ), i );
+				int nextMask = mask | ( 1 << i );
+				
+				if( best[ nextMask ] == null || next.mCost < best[ nextMask ].mCost )
+					best[ nextMask ] = next;
+			}
+		}
+		
+		return best[ states - 1 ].order();
+	}
+	
+	/**
+	 * Build a join order by always choosing the literal that gives the
+	 * smallest intermediate result.
+	 * @param literals The literals to order.
+	 * @param variableCount The number of distinct variables in the literals.
+	 * @return The positions of the literals in join order.
+	 */
+	private int[] planGreedily( List<Literal> literals, int variableCount )
+	{
+		int count = literals.size();
+		boolean[] used = new boolean[ count ];
+		
+		State state = new State( variableCount );
+		
+		for( int step = 0; step < count; ++step )
+		{
+			State best = null;
+			
+			for( int i = 0; i < count; ++i )
+			{
+				if( used[ i ] )
+					continue;
+				
+				State next = state.join( literals.get( i ), i );
+				if( best == null || next.mCardinality < best.mCardinality )
+					best = next;
+			}
+			
+			used[ best.mLast ] = true;
+			state = best;
+		}
+		
+		return state.order();
+	}
+	
+	/**
+	 * Put together the new rule body. Ground literals come first, followed by the
+	 * positive ordinary literals in join order, with built-ins and negated literals
+	 * placed as soon as their variables are bound.
+	 */
+	private List<ILiteral> placeLiterals( IRule rule, List<ILiteral> ground, List<ILiteral> orderedPositive, List<ILiteral> others )
+	{
+		Set<IVariable> variablesNotInNegatedOrdinaries = new HashSet<IVariable>();
+		
+		for( ILiteral literal : rule.getBody() )
+		{
+			if( literal.getAtom() instanceof IBuiltinAtom || literal.isPositive() )
+				variablesNotInNegatedOrdinaries.addAll( literal.getAtom().getTuple().getVariables() );
+		}
+		variablesNotInNegatedOrdinaries.addAll( rule.getHead().get( 0 ).getAtom().getTuple().getVariables() );
+		
+		List<ILiteral> newBody = new ArrayList<ILiteral>( ground );
+		List<ILiteral> remaining = new ArrayList<ILiteral>( others );
+		Set<IVariable> boundVariables = new HashSet<IVariable>();
+		
+		addEvaluableLiterals( newBody, remaining, boundVariables, variablesNotInNegatedOrdinaries, false );
+		
+		for( ILiteral literal : orderedPositive )
+		{
+			newBody.add( literal );
+			boundVariables.addAll( literal.getAtom().getTuple().getVariables() );
+			
+			addEvaluableLiterals( newBody, remaining, boundVariables, variablesNotInNegatedOrdinaries, false );
+		}
+		
+		addEvaluableLiterals( newBody, remaining, boundVariables, variablesNotInNegatedOrdinaries, true );
+		
+		// Anything left over will be picked up by the rule compiler.
+		newBody.addAll( remaining );
+		
+		return newBody;
+	}
+	
+	/**
+	 * Move all built-ins and negated literals that can be evaluated with the
+	 * currently bound variables to the new body.
+	 * @param allowBinding true, if built-ins that bind variables may be added.
+	 */
+	private void addEvaluableLiterals( List<ILiteral> newBody, List<ILiteral> remaining, Set<IVariable> boundVariables,
+					Set<IVariable> variablesNotInNegatedOrdinaries, boolean allowBinding )
+	{
+		boolean somethingAdded = true;
+		
+		while( somethingAdded )
+		{
+			somethingAdded = false;
+			
+			for( ILiteral literal : remaining )
+			{
+				Set<IVariable> variables = literal.getAtom().getTuple().getVariables();
+				
+				boolean add;
+				if( literal.getAtom() instanceof IBuiltinAtom )
+				{
+					add = boundVariables.containsAll( variables );
+				}
+				else
+				{
+					add = true;
+					for( IVariable variable : variables )
+					{
+						if( ! boundVariables.contains( variable ) && variablesNotInNegatedOrdinaries.contains( variable ) )
+						{
+							add = false;
+							break;
+						}
+					}
+				}
+				
+				if( add )
+				{
+					remaining.remove( literal );
+					newBody.add( literal );
+					somethingAdded = true;
+					break;
+				}
+			}
+			
+			if( somethingAdded || ! allowBinding )
+				continue;
+			
+			// Try and add a built-in with enough variables bound
+			for( ILiteral literal : remaining )
+			{
+				if( literal.getAtom() instanceof IBuiltinAtom && literal.isPositive() )
+				{
+					IBuiltinAtom builtinAtom = (IBuiltinAtom) literal.getAtom();
+					
+					List<IVariable> unboundVariables = literal.getAtom().getTuple().getAllVariables();
+					unboundVariables.removeAll( boundVariables );
+					
+					if( unboundVariables.size() <= builtinAtom.maxUnknownVariables() )
+					{
+						remaining.remove( literal );
+						newBody.add( literal );
+						boundVariables.addAll( unboundVariables );
+						somethingAdded = true;
+						break;
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * The statistics of one relation.
+	 */
+	private static class Statistics
+	{
+		Statistics( IRelation relation, int sampleSize )
+		{
+			int size = relation.size();
+			
+			mCardinality = Math.max( 1, size );
+			
+			int arity = size > 0 ? relation.get( 0 ).size() : 0;
+			mDistinct = new double[ arity ];
+			
+			if( size == 0 )
+				return;
+			
+			int step = Math.max( 1, size / sampleSize );
+			
+			for( int column = 0; column < arity; ++column )
+			{
+				Map<ITerm, Integer> frequencies = new HashMap<ITerm, Integer>();
+				int sampled = 0;
+				
+				for( int t = 0; t < size; t += step )
+				{
+					ITerm term = relation.get( t ).get( column );
+					Integer frequency = frequencies.get( term );
+					frequencies.put( term, frequency == null ? 1 : frequency + 1 );
+					++sampled;
+				}
+				
+				int seenOnce = 0;
+				for( Integer frequency : frequencies.values() )
+				{
+					if( frequency == 1 )
+						++seenOnce;
+				}
+				
+				// The guaranteed-error estimator: values seen once in the sample
+				// are scaled up, values seen more often are assumed to be complete.
+				double estimate = Math.sqrt( (double) size / sampled ) * seenOnce + ( frequencies.size() - seenOnce );
+				mDistinct[ column ] = Math.min( size, Math.max( 1.0, estimate ) );
+			}
+		}
+		
+		double distinct( int column )
+		{
+			return column < mDistinct.length ? mDistinct[ column ] : 1.0;
+		}
+		
+		final double mCardinality;
+		
+		final double[] mDistinct;
+	}
+	
+	/**
+	 * A positive ordinary literal prepared for cost estimation.
+	 */
+	private static class Literal
+	{
+		Literal( ITuple tuple, Statistics statistics, Map<IVariable, Integer> variableNumbers )
+		{
+			mStatistics = statistics;
+			mVariables = new int[ tuple.size() ][];
+			
+			for( int column = 0; column < tuple.size(); ++column )
+			{
+				ITerm term = tuple.get( column );
+				
+				List<IVariable> variables = new ArrayList<IVariable>();
+				if( term instanceof IVariable )
+					variables.add( (IVariable) term );
+				else if( term instanceof IConstructedTerm )
+					variables.addAll( ( (IConstructedTerm) term ).getVariables() );
+				
+				mVariables[ column ] = new int[ variables.size() ];
+				for( int v = 0; v < variables.size(); ++v )
+				{
+					Integer number = variableNumbers.get( variables.get( v ) );
+					if( number == null )
+					{
+						number = variableNumbers.size();
+						variableNumbers.put( variables.get( v ), number );
+					}
+					mVariables[ column ][ v ] = number;
+				}
+			}
+		}
+		
+		final Statistics mStatistics;
+		
+		/** The numbers of the variables appearing in each column. */
+		final int[][] mVariables;
+	}
+	
+	/**
+	 * A partial (left-deep) join order.
+	 */
+	private static class State
+	{
+		State( int variableCount )
+		{
+			mPrevious = null;
+			mLast = -1;
+			mCardinality = 1.0;
+			mCost = 0.0;
+			mDistinct = new double[ variableCount ];
+		}
+		
+		private State( State previous, int last, double cardinality, double[] distinct )
+		{
+			mPrevious = previous;
+			mLast = last;
+			mCardinality = cardinality;
+			mCost = previous.mCost + cardinality;
+			mDistinct = distinct;
+		}
+		
+		/**
+		 * Estimate the result of joining this partial result with another literal.
+		 * A distinct value count of zero marks an unbound variable.
+		 */
+		State join( Literal literal, int position )
+		{
+			double cardinality = mCardinality * literal.mStatistics.mCardinality;
+			double[] distinct = mDistinct.clone();
+			
+			for( int column = 0; column < literal.mVariables.length; ++column )
+			{
+				double columnDistinct = literal.mStatistics.distinct( column );
+				int[] variables = literal.mVariables[ column ];
+				
+				if( variables.length == 1 && distinct[ variables[ 0 ] ] > 0 )
+				{
+					// Equi-join on a variable that is already bound.
+					int v = variables[ 0 ];
+					cardinality /= Math.max( distinct[ v ], columnDistinct );
+					distinct[ v ] = Math.min( distinct[ v ], columnDistinct );
+					continue;
+				}
+				
+				boolean allBound = true;
+				for( int v : variables )
+				{
+					if( distinct[ v ] == 0 )
+					{
+						allBound = false;
+						distinct[ v ] = columnDistinct;
+					}
+				}
+				
+				// Constants and fully bound constructed terms act as selections.
+				if( allBound )
+					cardinality /= columnDistinct;
+			}
+			
+			return new State( this, position, cardinality, distinct );
+		}
+		
+		int[] order()
+		{
+			List<Integer> positions = new ArrayList<Integer>();
+			for( State state = this; state.mPrevious != null; state = state.mPrevious )
+				positions.add( 0, state.mLast );
+			
+			int[] result = new int[ positions.size() ];
+			for( int i = 0; i < result.length; ++i )
+				result[ i ] = positions.get( i );
+			
+			return result;
+		}
+		
+		final State mPrevious;
+		
+		final int mLast;
+		
+		final double mCardinality;
+		
+		final double mCost;
+		
+		/** The estimated number of distinct values of each bound variable, zero if unbound. */
+		final double[] mDistinct;
+	}
+	
+	/** The maximum number of literals for which all join orders are considered. */
+	private final int mExhaustiveLimit;
+	
+	/** The maximum number of tuples sampled per relation. */
+	private final int mSampleSize;
+}
@@ -0,0 +1,425 @@
+/*
+ * Integrated Rule Inference System (IRIS):
+ * An extensible rule inference system for datalog with extensions.
+ * 
+ * Copyright (C) 2008 Semantic Technology Institute (STI) Innsbruck, 
+ * University of Innsbruck, Technikerstrasse 21a, 6020 Innsbruck, Austria.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ */
+package org.deri.iris.storage.columnar;
+
+import java.util.Arrays;
+
+import org.deri.iris.api.basics.ITuple;
+import org.deri.iris.api.terms.ITerm;
+import org.deri.iris.factory.Factory;
+import org.deri.iris.storage.IRelation;
+import org.deri.iris.storage.IRemovableRelation;
+import org.deri.iris.storage.IRemovalListener;
+import org.deri.iris.utils.RemovalListeners;
+
+/**
+ * <p>
+ * An in-memory relation that stores its tuples column-wise as primitive
+ * integer arrays. Every term is replaced by its identifier in a
+ * {@link TermDictionary}, which is shared by all relations of the same
+ * factory.
+ * </p>
+ * <p>
+ * Uniqueness is enforced with an open addressing hash table holding row
+ * numbers, so the relation needs no tuple objects at all. {@link ITuple}
+ * objects are only created when {@link #get(int)} is called.
+ * {@link #contains(ITuple)} only allocates a single row of identifiers.
+ * </p>
+ * <p>
+ * A removed row is replaced by the last row, so the relation stays dense.
+ * </p>
+ * <p>
+ * <b>This implementation is not thread-safe.</b> Only {@link #contains(ITuple)}
+ * may be called concurrently, as long as the relation is not modified.
+ * </p>
+ */
+public class ColumnarRelation implements IRemovableRelation {
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param dictionary The dictionary used to encode the terms.
+	 */
+	ColumnarRelation(TermDictionary dictionary) {
+		assert dictionary != null;
+
+		mDictionary = dictionary;
+	}
+
+	public boolean add(ITuple tuple) {
+		assert tuple != null;
+
+		if (mArity < 0) {
+			initialise(tuple.size());
+		}
+
+		if (tuple.size() != mArity) {
+			throw new IllegalArgumentException("Tuple of arity "
+					+ tuple.size() + " added to a relation of arity " + mArity);
+		}
+
+		for (int c = 0; c < mArity; ++c) {
+			mRow[c] = mDictionary.encode(tuple.get(c));
+		}
+
+		return addRow(mRow);
+	}
+
+	public boolean addAll(IRelation relation) {
+		boolean added = false;
+
+		if (relation instanceof ColumnarRelation) {
+			ColumnarRelation other = (ColumnarRelation) relation;
+
+			if (other.mDictionary == mDictionary) {
+				// No need to decode and encode the terms.
+				if (other.mSize > 0 && mArity < 0) {
+					initialise(other.mArity);
+				}
+
+				for (int r = 0; r < other.mSize; ++r) {
+					for (int c = 0; c < mArity; ++c) {
+						mRow[c] = other.mColumns[c][r];
+					}
+
+					if (addRow(mRow)) {
+						added = true;
+					}
+				}
+
+				return added;
+			}
+		}
+
+		for (int t = 0; t < relation.size(); ++t) {
+			if (add(relation.get(t))) {
+				added = true;
+			}
+		}
+
+		return added;
+	}
+
+	public int size() {
+		return mSize;
+	}
+
+	public ITuple get(int index) {
+		if (index < 0 || index >= mSize) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: "
+					+ mSize);
+		}
+
+		ITerm[] terms = new ITerm[mArity];
+
+		for (int c = 0; c < mArity; ++c) {
+			terms[c] = mDictionary.decode(mColumns[c][index]);
+		}
+
+		return Factory.BASIC.createTuple(terms);
+	}
+
+	public boolean contains(ITuple tuple) {
+		return indexOf(tuple) >= 0;
+	}
+
+	public int indexOf(ITuple tuple) {
+		if (mSize == 0 || tuple == null || tuple.size() != mArity) {
+			return -1;
+		}
+
+		// A local row, so that the relation can be probed concurrently.
+		int[] row = new int[mArity];
+
+		for (int c = 0; c < mArity; ++c) {
+			int id = mDictionary.lookup(tuple.get(c));
+
+			// An unknown term can not be part of any tuple.
+			if (id < 0) {
+				return -1;
+			}
+
+			row[c] = id;
+		}
+
+		return mTable[findSlot(row, hash(row))] - 1;
+	}
+
+	public boolean remove(ITuple tuple) {
+		int row = indexOf(tuple);
+
+		if (row < 0) {
+			return false;
+		}
+
+		if (mListeners != null) {
+			mListeners.removing(this, row);
+		}
+
+		removeFromTable(row);
+
+		// The last row takes the place of the removed row.
+		int last = mSize - 1;
+
+		if (row != last) {
+			mTable[slotOfStoredRow(last)] = row + 1;
+
+			for (int c = 0; c < mArity; ++c) {
+				mColumns[c][row] = mColumns[c][last];
+			}
+		}
+
+		--mSize;
+
+		return true;
+	}
+
+	public synchronized void addRemovalListener(IRemovalListener listener) {
+		if (mListeners == null) {
+			mListeners = new RemovalListeners();
+		}
+
+		mListeners.add(listener);
+	}
+
+	/**
+	 * Returns the term identifier at the given row and column.
+	 * 
+	 * @param row The row (tuple index), 0 <= row < size().
+	 * @param column The column (term index), 0 <= column < arity.
+	 * @return The identifier of the term in the dictionary.
+	 */
+	public int getTermId(int row, int column) {
+		return mColumns[column][row];
+	}
+
+	/**
+	 * Returns the dictionary used to encode the terms of this relation.
+	 * 
+	 * @return The term dictionary.
+	 */
+	public TermDictionary getDictionary() {
+		return mDictionary;
+	}
+
+	/**
+	 * Sets up the columns once the arity of the relation is known.
+	 */
+	private void initialise(int arity) {
+		mArity = arity;
+		mRow = new int[arity];
+		mCapacity = INITIAL_CAPACITY;
+		mColumns = new int[arity][mCapacity];
+		mTable = new int[INITIAL_CAPACITY * 2];
+	}
+
+	/**
+	 * Adds the encoded row, unless it is already in this relation.
+	 * 
+	 * @param row The term identifiers of the row.
+	 * @return true, if the row was added.
+	 */
+	private boolean addRow(int[] row) {
+		int hash = hash(row);
+		int slot = findSlot(row, hash);
+
+		if (mTable[slot] != 0) {
+			return false;
+		}
+
+		if (mSize == mCapacity) {
+			mCapacity *= 2;
+			for (int c = 0; c < mArity; ++c) {
+				mColumns[c] = Arrays.copyOf(mColumns[c], mCapacity);
+			}
+		}
+
+		for (int c = 0; c < mArity; ++c) {
+			mColumns[c][mSize] = row[c];
+		}
+
+		mTable[slot] = ++mSize;
+
+		if (mSize * 2 > mTable.length) {
+			rehash();
+		}
+
+		return true;
+	}
+
+	/**
+	 * Finds the slot of the table, which either holds the given row or is
+	 * the empty slot where the row would be inserted.
+	 */
+	private int findSlot(int[] row, int hash) {
+		int mask = mTable.length - 1;
+		int slot = hash & mask;
+
+		for (;;) {
+			int entry = mTable[slot];
+
+			if (entry == 0 || rowEquals(entry - 1, row)) {
+				return slot;
+			}
+
+			slot = (slot + 1) & mask;
+		}
+	}
+
+	/**
+	 * Finds the slot of the table holding a stored row.
+	 */
+	private int slotOfStoredRow(int storedRow) {
+		int mask = mTable.length - 1;
+		int slot = hashOfStoredRow(storedRow) & mask;
+
+		while (mTable[slot] != storedRow + 1) {
+			slot = (slot + 1) & mask;
+		}
+
+		return slot;
+	}
+
+	/**
+	 * Removes a stored row from the table. The following entries of the same
+	 * run are moved back, so that they can still be found.
+	 */
+	private void removeFromTable(int storedRow) {
+		int mask = mTable.length - 1;
+		int slot = slotOfStoredRow(storedRow);
+
+		for (int next = (slot + 1) & mask; mTable[next] != 0; next = (next + 1)
+				& mask) {
+			int home = hashOfStoredRow(mTable[next] - 1) & mask;
+
+			// Move the entry if the free slot lies between its home slot and
+			// its current slot.
+			if (((next - home) & mask) >= ((next - slot) & mask)) {
+				mTable[slot] = mTable[next];
+				slot = next;
+			}
+		}
+
+		mTable[slot] = 0;
+	}
+
+	/**
+	 * Doubles the size of the table and re-inserts all rows.
+	 */
+	private void rehash() {
+		int[] table = new int[mTable.length * 2];
+		int mask = table.length - 1;
+
+		for (int r = 0; r < mSize; ++r) {
+			int slot = hashOfStoredRow(r) & mask;
+
+			while (table[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+
+			table[slot] = r + 1;
+		}
+
+		mTable = table;
+	}
+
+	private boolean rowEquals(int storedRow, int[] row) {
+		for (int c = 0; c < mArity; ++c) {
+			if (mColumns[c][storedRow] != row[c]) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private int hashOfStoredRow(int storedRow) {
+		int h = 1;
+
+		for (int c = 0; c < mArity; ++c) {
+			h = 31 * h + mColumns[c][storedRow];
+		}
+
+		return spread(h);
+	}
+
+	private int hash(int[] row) {
+		int h = 1;
+
+		for (int c = 0; c < mArity; ++c) {
+			h = 31 * h + row[c];
+		}
+
+		return spread(h);
+	}
+
+	private static int spread(int h) {
+		h ^= (h >>> 16);
+		h *= 0x85ebca6b;
+		h ^= (h >>> 13);
+		return h;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder result = new StringBuilder();
+
+		result.append('[');
+		for (int t = 0; t < mSize; ++t) {
+			if (t > 0) {
+				result.append(", ");
+			}
+			result.append(get(t));
+		}
+		result.append(']');
+
+		return result.toString();
+	}
+
+	/** The number of rows reserved for a new relation. */
+	private static final int INITIAL_CAPACITY = 16;
+
+	/** The dictionary used to encode the terms. */
+	private final TermDictionary mDictionary;
+
+	/** The arity of the relation, or -1 if not yet known. */
+	private int mArity = -1;
+
+	/** The term identifiers, one array per column. */
+	private int[][] mColumns;
+
+	/** The number of rows the columns can hold. */
+	private int mCapacity;
+
+	/** The open addressing table of row numbers plus one (zero is empty). */
+	private int[] mTable;
+
+	/** Scratch space for encoding a tuple. */
+	private int[] mRow;
+
+	/** The number of rows in this relation. */
+	private int mSize = 0;
+
+	/** The removal listeners, or null until a listener is registered. */
+	private RemovalListeners mListeners;
+}
@@ -0,0 +1,70 @@
+/*
+ * Integrated Rule Inference System (IRIS):
+ * An extensible rule inference system for datalog with extensions.
+ * 
+ * Copyright (C) 2008 Semantic Technology Institute (STI) Innsbruck, 
+ * University of Innsbruck, Technikerstrasse 21a, 6020 Innsbruck, Austria.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ */
+package org.deri.iris.storage.columnar;
+
+import org.deri.iris.storage.IRelation;
+import org.deri.iris.storage.IRelationFactory;
+
+/**
+ * Factory for columnar relations. All relations created by one factory share
+ * the same term dictionary.
+ */
+public class ColumnarRelationFactory implements IRelationFactory
+{
+	/**
+	 * Constructor. Creates a factory with its own, new term dictionary.
+	 */
+	public ColumnarRelationFactory()
+	{
+		this( new TermDictionary() );
+	}
+
+	/**
+	 * Constructor.
+	 * @param dictionary The term dictionary to be shared by all created relations.
+	 */
+	public ColumnarRelationFactory( TermDictionary dictionary )
+	{
+		if( dictionary == null )
+			throw new IllegalArgumentException( "The dictionary must not be null" );
+		
+		mDictionary = dictionary;
+	}
+
+	public IRelation createRelation()
+	{
+		return new ColumnarRelation( mDictionary );
+	}
+
+	/**
+	 * Get the term dictionary shared by all relations created by this factory.
+	 * @return The term dictionary.
+	 */
+	public TermDictionary getDictionary()
+	{
+		return mDictionary;
+	}
+
+	/** The dictionary shared by all created relations. */
+	private final TermDictionary mDictionary;
+}
@@ -0,0 +1,210 @@
+/*
+ * Integrated Rule Inference System (IRIS):
+ * An extensible rule inference system for datalog with extensions.
+ * 
+ * Copyright (C) 2008 Semantic Technology Institute (STI) Innsbruck, 
+ * University of Innsbruck, Technikerstrasse 21a, 6020 Innsbruck, Austria.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ */
+package org.deri.iris.storage.columnar;
+
+import java.util.Arrays;
+
+import org.deri.iris.api.terms.ITerm;
+
+/**
+ * <p>
+ * A dictionary that assigns a unique, dense integer identifier to every term
+ * it is given. Identifiers start at zero and are never re-used, so a term can
+ * always be recovered from its identifier.
+ * </p>
+ * <p>
+ * Two terms are given the same identifier only if they are of the same class
+ * and equal. This preserves the exact term representation (e.g. an integer
+ * and a decimal with the same value are kept apart).
+ * </p>
+ * <p>
+ * The table uses open addressing with linear probing, so neither encoding an
+ * already known term nor looking up a term allocates any objects. All methods
+ * are synchronized, because one dictionary is shared by all the relations
+ * created by a factory.
+ * </p>
+ */
+public class TermDictionary {
+
+	/**
+	 * Creates a new, empty dictionary.
+	 */
+	public TermDictionary() {
+		mTable = new int[INITIAL_TABLE_SIZE];
+		mTerms = new ITerm[INITIAL_TABLE_SIZE / 2];
+		mHashes = new int[INITIAL_TABLE_SIZE / 2];
+	}
+
+	/**
+	 * Returns the identifier for the given term, assigning a new one if the
+	 * term has not been seen before.
+	 * 
+	 * @param term The term to encode.
+	 * @return The identifier of the term.
+	 * @throws IllegalArgumentException If the term is <code>null</code>.
+	 */
+	public synchronized int encode(ITerm term) {
+		if (term == null) {
+			throw new IllegalArgumentException("The term must not be null");
+		}
+
+		int hash = hash(term);
+		int slot = findSlot(term, hash);
+
+		if (mTable[slot] != 0) {
+			return mTable[slot] - 1;
+		}
+
+		int id = mSize++;
+
+		if (id == mTerms.length) {
+			mTerms = Arrays.copyOf(mTerms, id * 2);
+			mHashes = Arrays.copyOf(mHashes, id * 2);
+		}
+
+		mTerms[id] = term;
+		mHashes[id] = hash;
+		mTable[slot] = id + 1;
+
+		if (mSize * 2 > mTable.length) {
+			rehash();
+		}
+
+		return id;
+	}
+
+	/**
+	 * Returns the identifier for the given term without assigning a new one.
+	 * 
+	 * @param term The term to look up.
+	 * @return The identifier of the term, or -1 if the term is unknown to
+	 *         this dictionary.
+	 */
+	public synchronized int lookup(ITerm term) {
+		if (term == null) {
+			return -1;
+		}
+
+		return mTable[findSlot(term, hash(term))] - 1;
+	}
+
+	/**
+	 * Returns the term for the given identifier.
+	 * 
+	 * @param id The identifier of the term.
+	 * @return The term.
+	 * @throws IndexOutOfBoundsException If the identifier has not been
+	 *             assigned by this dictionary.
+	 */
+	public synchronized ITerm decode(int id) {
+		if (id < 0 || id >= mSize) {
+			throw new IndexOutOfBoundsException("Unknown term identifier: "
+					+ id);
+		}
+
+		return mTerms[id];
+	}
+
+	/**
+	 * Returns the number of terms in this dictionary.
+	 * 
+	 * @return The number of terms.
+	 */
+	public synchronized int size() {
+		return mSize;
+	}
+
+	/**
+	 * Finds the slot of the table, which either holds the given term or is
+	 * the empty slot where the term would be inserted.
+	 */
+	private int findSlot(ITerm term, int hash) {
+		int mask = mTable.length - 1;
+		int slot = hash & mask;
+
+		for (;;) {
+			int entry = mTable[slot];
+
+			if (entry == 0) {
+				return slot;
+			}
+
+			ITerm candidate = mTerms[entry - 1];
+			if (mHashes[entry - 1] == hash
+					&& candidate.getClass() == term.getClass()
+					&& candidate.equals(term)) {
+				return slot;
+			}
+
+			slot = (slot + 1) & mask;
+		}
+	}
+
+	/**
+	 * Doubles the size of the table and re-inserts all identifiers, using the
+	 * stored hash codes.
+	 */
+	private void rehash() {
+		int[] table = new int[mTable.length * 2];
+		int mask = table.length - 1;
+
+		for (int id = 0; id < mSize; ++id) {
+			int slot = mHashes[id] & mask;
+
+			while (table[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+
+			table[slot] = id + 1;
+		}
+
+		mTable = table;
+	}
+
+	/**
+	 * Spreads the bits of the term's hash code, so that the low bits used to
+	 * select a slot are well distributed.
+	 */
+	private static int hash(ITerm term) {
+		int h = term.hashCode();
+		h ^= (h >>> 16);
+		h *= 0x85ebca6b;
+		h ^= (h >>> 13);
+		return h;
+	}
+
+	/** The initial size of the table (must be a power of 2). */
+	private static final int INITIAL_TABLE_SIZE = 64;
+
+	/** The open addressing table of identifiers plus one (zero is empty). */
+	private int[] mTable;
+
+	/** The terms indexed by their identifiers. */
+	private ITerm[] mTerms;
+
+	/** The (spread) hash codes of the terms indexed by their identifiers. */
+	private int[] mHashes;
+
+	/** The number of terms in this dictionary. */
+	private int mSize = 0;
+}
@@ -0,0 +1,729 @@
+/*
+ * Integrated Rule Inference System (IRIS):
+ * An extensible rule inference system for datalog with extensions.
+ * 
+ * Copyright (C) 2008 Semantic Technology Institute (STI) Innsbruck, 
+ * University of Innsbruck, Technikerstrasse 21a, 6020 Innsbruck, Austria.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ */
+package org.deri.iris.storage.hash;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.deri.iris.api.basics.ITuple;
+import org.deri.iris.api.terms.ITerm;
+import org.deri.iris.storage.IProbeIndex;
+import org.deri.iris.storage.IRelation;
+import org.deri.iris.storage.IRemovableRelation;
+import org.deri.iris.storage.IRemovalListener;
+import org.deri.iris.utils.equivalence.IEquivalentTerms;
+import org.deri.iris.utils.equivalence.IgnoreTermEquivalence;
+
+/**
+ * <p>
+ * An in-memory, hash-based index, that does not need key objects.
+ * </p>
+ * <p>
+ * Each distinct key is a bucket. The key terms of all buckets are stored in
+ * one flat array and the buckets are found with an open addressing table of
+ * bucket numbers. The tuples of a bucket are stored as an array of row
+ * numbers of the indexed relation (a posting list). Probing the index with
+ * {@link #probe(ITuple, int[])} hashes the key terms in place, so no objects
+ * are allocated.
+ * </p>
+ * <p>
+ * Tuples removed from the relation are removed from their buckets, and the
+ * numbers of empty buckets are used again for new keys.
+ * </p>
+ */
+public class HashIndex implements IProbeIndex {
+
+	/**
+	 * Creates an index on the given relation, on the specified term indices.
+	 * 
+	 * @param relation The relation to index.
+	 * @param indices The term indices using zero-based indexing. Each index
+	 *            value must be greater than or equal to zero and less than the
+	 *            arity if the relation.
+	 */
+	HashIndex(IRelation relation, int... indices) {
+		this(relation, new IgnoreTermEquivalence(), indices);
+	}
+
+	/**
+	 * Creates an index on the given relation, on the specified term indices.
+	 * 
+	 * @param relation The relation to index.
+	 * @param equivalentTerms The equivalent terms.
+	 * @param indices The term indices using zero-based indexing. Each index
+	 *            value must be greater than or equal to zero and less than the
+	 *            arity if the relation.
+	 */
+	HashIndex(IRelation relation, IEquivalentTerms equivalentTerms,
+			int... indices) {
+		assert relation != null;
+		assert equivalentTerms != null;
+
+		mRelation = relation;
+		mEquivalentTerms = equivalentTerms;
+		mIndices = indices;
+		mVersion = equivalentTerms.getVersion();
+		equivalentTerms.caughtUp(this, mVersion);
+
+		clear();
+
+		if (relation instanceof IRemovableRelation) {
+			((IRemovableRelation) relation).addRemovalListener(mListener);
+		}
+	}
+
+	public List<ITuple> get(List<ITerm> key) {
+		assert key.size() == mIndices.length;
+
+		update();
+
+		int hash = 1;
+		for (ITerm term : key) {
+			hash = 31 * hash + mEquivalentTerms.findRepresentative(term).hashCode();
+		}
+		hash = spread(hash);
+
+		int mask = mTable.length - 1;
+		for (int slot = hash & mask;; slot = (slot + 1) & mask) {
+			int entry = mTable[slot];
+
+			if (entry == 0) {
+				return EMPTY;
+			}
+
+			final int bucket = entry - 1;
+			if (mBucketHashes[bucket] == hash && keyEquals(bucket, key)) {
+				return new AbstractList<ITuple>() {
+					@Override
+					public ITuple get(int index) {
+						return HashIndex.this.get(bucket, index);
+					}
+
+					@Override
+					public int size() {
+						return HashIndex.this.size(bucket);
+					}
+				};
+			}
+		}
+	}
+
+	public int probe(ITuple tuple, int[] positions) {
+		assert positions.length == mIndices.length;
+
+		update();
+
+		return find(tuple, positions);
+	}
+
+	/**
+	 * Find the bucket of the key formed by the terms at the given positions
+	 * of a tuple, without reading new tuples from the relation.
+	 */
+	private int find(ITuple tuple, int[] positions) {
+		int hash = 1;
+		for (int i = 0; i < positions.length; ++i) {
+			hash = 31 * hash + mEquivalentTerms.findRepresentative(
+					tuple.get(positions[i])).hashCode();
+		}
+		hash = spread(hash);
+
+		int mask = mTable.length - 1;
+		for (int slot = hash & mask;; slot = (slot + 1) & mask) {
+			int entry = mTable[slot];
+
+			if (entry == 0) {
+				return -1;
+			}
+
+			int bucket = entry - 1;
+			if (mBucketHashes[bucket] == hash
+					&& keyEquals(bucket, tuple, positions)) {
+				return bucket;
+			}
+		}
+	}
+
+	public int size(int bucket) {
+		return mPostingSizes[bucket];
+	}
+
+	public ITuple get(int bucket, int index) {
+		assert index < mPostingSizes[bucket];
+
+		return mRelation.get(mPostings[bucket][index]);
+	}
+
+	public int lowerBound(int bucket, int relationIndex) {
+		int[] posting = mPostings[bucket];
+
+		// Row numbers are kept in ascending order.
+		int low = 0;
+		int high = mPostingSizes[bucket];
+
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+
+			if (posting[middle] < relationIndex) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+
+		return low;
+	}
+
+	/**
+	 * Update this index by reading any tuples not yet seen from the relation.
+	 */
+	private void update() {
+		updateEquivalences();
+
+		int size = mRelation.size();
+
+		for (; mLastIndexOfRelation < size; ++mLastIndexOfRelation) {
+			insert(mRelation.get(mLastIndexOfRelation), mLastIndexOfRelation);
+		}
+	}
+
+	/**
+	 * Update the keys of the buckets after a change in the equivalence
+	 * relation.
+	 */
+	private void updateEquivalences() {
+		// The representatives of the key terms may change due to a change in
+		// the equivalence relation, in which case the affected buckets get
+		// new keys.
+		long version = mEquivalentTerms.getVersion();
+
+		if (version != mVersion) {
+			Collection<ITerm> changed = mEquivalentTerms
+					.getChangedSince(mVersion);
+
+			if (changed == null) {
+				clear();
+			} else {
+				updateKeys(changed);
+			}
+
+			mVersion = version;
+			mEquivalentTerms.caughtUp(this, mVersion);
+		}
+	}
+
+	/**
+	 * Update the index before a tuple is removed from the relation.
+	 * 
+	 * @param relation The relation, which still contains the tuple.
+	 * @param row The row of the tuple.
+	 */
+	private void removing(IRelation relation, int row) {
+		updateEquivalences();
+
+		// Tuples not seen yet are added later.
+		if (row >= mLastIndexOfRelation) {
+			return;
+		}
+
+		remove(relation.get(row), row);
+
+		// The last tuple takes the place of the removed one.
+		int last = relation.size() - 1;
+
+		if (last < mLastIndexOfRelation) {
+			if (last != row) {
+				ITuple moved = relation.get(last);
+				remove(moved, last);
+				insert(moved, row);
+			}
+
+			--mLastIndexOfRelation;
+		} else {
+			insert(relation.get(last), row);
+		}
+	}
+
+	/**
+	 * Removes a row from the bucket of its key. An empty bucket is removed
+	 * from the table and its number is used again.
+	 */
+	private void remove(ITuple tuple, int row) {
+		int bucket = find(tuple, mIndices);
+		int index = lowerBound(bucket, row);
+		int size = mPostingSizes[bucket] - 1;
+
+		assert mPostings[bucket][index] == row;
+
+		System.arraycopy(mPostings[bucket], index + 1, mPostings[bucket],
+				index, size - index);
+		mPostingSizes[bucket] = size;
+
+		if (size == 0) {
+			removeFromTable(bucket);
+			free(bucket);
+		}
+	}
+
+	/**
+	 * Marks a bucket as no longer used, so that its number can be used for
+	 * another key.
+	 */
+	private void free(int bucket) {
+		mPostings[bucket] = null;
+		mPostingSizes[bucket] = 0;
+
+		if (mFreeCount == mFreeBuckets.length) {
+			mFreeBuckets = Arrays.copyOf(mFreeBuckets, Math.max(
+					INITIAL_POSTING_SIZE, mFreeCount * 2));
+		}
+
+		mFreeBuckets[mFreeCount++] = bucket;
+	}
+
+	/**
+	 * Adds a row of the relation to the bucket of its key.
+	 */
+	private void insert(ITuple tuple, int row) {
+		int keyLength = mIndices.length;
+
+		int hash = 1;
+		for (int i = 0; i < keyLength; ++i) {
+			mKeyScratch[i] = mEquivalentTerms.findRepresentative(tuple
+					.get(mIndices[i]));
+			hash = 31 * hash + mKeyScratch[i].hashCode();
+		}
+		hash = spread(hash);
+
+		int mask = mTable.length - 1;
+		int slot = hash & mask;
+		int bucket;
+
+		for (;; slot = (slot + 1) & mask) {
+			int entry = mTable[slot];
+
+			if (entry == 0) {
+				bucket = newBucket(hash);
+				mTable[slot] = bucket + 1;
+				break;
+			}
+
+			bucket = entry - 1;
+			if (mBucketHashes[bucket] == hash && keyEquals(bucket, mKeyScratch)) {
+				break;
+			}
+		}
+
+		int[] posting = mPostings[bucket];
+		int size = mPostingSizes[bucket];
+
+		if (size == posting.length) {
+			posting = Arrays.copyOf(posting, size * 2);
+			mPostings[bucket] = posting;
+		}
+
+		// Rows are added in ascending order, unless a row takes the place of
+		// a removed one.
+		int index = size;
+		if (size > 0 && posting[size - 1] > row) {
+			index = lowerBound(bucket, row);
+			System.arraycopy(posting, index, posting, index + 1, size - index);
+		}
+
+		posting[index] = row;
+		mPostingSizes[bucket] = size + 1;
+
+		if (mBucketCount * 2 > mTable.length) {
+			rehash();
+		}
+	}
+
+	/**
+	 * Creates a new bucket for the key currently held in the scratch array.
+	 */
+	private int newBucket(int hash) {
+		int bucket = mFreeCount > 0 ? mFreeBuckets[--mFreeCount]
+				: mBucketCount++;
+		int keyLength = mIndices.length;
+
+		if (bucket == mBucketHashes.length) {
+			int capacity = bucket * 2;
+			mBucketHashes = Arrays.copyOf(mBucketHashes, capacity);
+			mPostings = Arrays.copyOf(mPostings, capacity);
+			mPostingSizes = Arrays.copyOf(mPostingSizes, capacity);
+			mKeyTerms = Arrays.copyOf(mKeyTerms, capacity * keyLength);
+		}
+
+		mBucketHashes[bucket] = hash;
+		mPostings[bucket] = new int[INITIAL_POSTING_SIZE];
+		System.arraycopy(mKeyScratch, 0, mKeyTerms, bucket * keyLength,
+				keyLength);
+		addToBucketsByTerm(bucket);
+
+		return bucket;
+	}
+
+	/**
+	 * Replaces the key terms of the buckets that contain any of the given
+	 * terms by their current representatives. Buckets that end up with the
+	 * same key are joined.
+	 * 
+	 * @param changed The terms whose representative changed.
+	 */
+	private void updateKeys(Collection<ITerm> changed) {
+		int keyLength = mIndices.length;
+
+		for (int bucket : affectedBuckets(changed)) {
+			// Buckets joined with another bucket may still be listed.
+			if (mPostings[bucket] == null) {
+				continue;
+			}
+
+			removeFromTable(bucket);
+
+			int offset = bucket * keyLength;
+			int hash = 1;
+			for (int i = 0; i < keyLength; ++i) {
+				mKeyTerms[offset + i] = mEquivalentTerms
+						.findRepresentative(mKeyTerms[offset + i]);
+				hash = 31 * hash + mKeyTerms[offset + i].hashCode();
+			}
+			hash = spread(hash);
+			mBucketHashes[bucket] = hash;
+
+			int mask = mTable.length - 1;
+			for (int slot = hash & mask;; slot = (slot + 1) & mask) {
+				int entry = mTable[slot];
+
+				if (entry == 0) {
+					mTable[slot] = bucket + 1;
+					addToBucketsByTerm(bucket);
+					break;
+				}
+
+				int other = entry - 1;
+				if (mBucketHashes[other] == hash && keyEquals(other, bucket)) {
+					join(other, bucket);
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Find the buckets whose key contains any of the given terms. The map
+	 * from terms to buckets is only created when the equivalence relation
+	 * changes for the first time, so that indexes without equivalent terms do
+	 * not pay for it.
+	 * 
+	 * @param changed The terms whose representative changed.
+	 * @return The bucket numbers.
+	 */
+	private Set<Integer> affectedBuckets(Collection<ITerm> changed) {
+		if (mBucketsByTerm == null) {
+			mBucketsByTerm = new HashMap<ITerm, List<Integer>>();
+
+			for (int bucket = 0; bucket < mBucketCount; ++bucket) {
+				if (mPostings[bucket] != null) {
+					addToBucketsByTerm(bucket);
+				}
+			}
+		}
+
+		Set<Integer> affected = new HashSet<Integer>();
+
+		for (ITerm term : changed) {
+			List<Integer> buckets = mBucketsByTerm.remove(term);
+
+			if (buckets != null) {
+				affected.addAll(buckets);
+			}
+		}
+
+		return affected;
+	}
+
+	private void addToBucketsByTerm(int bucket) {
+		if (mBucketsByTerm == null) {
+			return;
+		}
+
+		int offset = bucket * mIndices.length;
+
+		for (int i = 0; i < mIndices.length; ++i) {
+			List<Integer> buckets = mBucketsByTerm.get(mKeyTerms[offset + i]);
+
+			if (buckets == null) {
+				buckets = new ArrayList<Integer>();
+				mBucketsByTerm.put(mKeyTerms[offset + i], buckets);
+			}
+
+			buckets.add(bucket);
+		}
+	}
+
+	/**
+	 * Removes a bucket from the open addressing table. The following entries
+	 * of the same run are moved back, so that they can still be found.
+	 */
+	private void removeFromTable(int bucket) {
+		int mask = mTable.length - 1;
+		int slot = mBucketHashes[bucket] & mask;
+
+		while (mTable[slot] != bucket + 1) {
+			slot = (slot + 1) & mask;
+		}
+
+		for (int next = (slot + 1) & mask; mTable[next] != 0; next = (next + 1)
+				& mask) {
+			int home = mBucketHashes[mTable[next] - 1] & mask;
+
+			// Move the entry if the free slot lies between its home slot and
+			// its current slot.
+			if (((next - home) & mask) >= ((next - slot) & mask)) {
+				mTable[slot] = mTable[next];
+				slot = next;
+			}
+		}
+
+		mTable[slot] = 0;
+	}
+
+	/**
+	 * Moves the rows of one bucket to another bucket, keeping the rows in
+	 * ascending order. The emptied bucket is no longer used.
+	 */
+	private void join(int bucket, int from) {
+		int[] posting1 = mPostings[bucket];
+		int size1 = mPostingSizes[bucket];
+		int[] posting2 = mPostings[from];
+		int size2 = mPostingSizes[from];
+
+		int[] posting = new int[size1 + size2];
+		int i1 = 0, i2 = 0, i = 0;
+
+		while (i1 < size1 && i2 < size2) {
+			posting[i++] = posting1[i1] < posting2[i2] ? posting1[i1++]
+					: posting2[i2++];
+		}
+		while (i1 < size1) {
+			posting[i++] = posting1[i1++];
+		}
+		while (i2 < size2) {
+			posting[i++] = posting2[i2++];
+		}
+
+		mPostings[bucket] = posting;
+		mPostingSizes[bucket] = posting.length;
+
+		free(from);
+	}
+
+	/**
+	 * Doubles the size of the table and re-inserts all buckets.
+	 */
+	private void rehash() {
+		int[] table = new int[mTable.length * 2];
+		int mask = table.length - 1;
+
+		for (int bucket = 0; bucket < mBucketCount; ++bucket) {
+			if (mPostings[bucket] == null) {
+				continue;
+			}
+
+			int slot = mBucketHashes[bucket] & mask;
+
+			while (table[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+
+			table[slot] = bucket + 1;
+		}
+
+		mTable = table;
+	}
+
+	/**
+	 * Removes all buckets, so that the whole relation is read again.
+	 */
+	private void clear() {
+		mTable = new int[INITIAL_TABLE_SIZE];
+		mBucketHashes = new int[INITIAL_TABLE_SIZE / 2];
+		mPostings = new int[INITIAL_TABLE_SIZE / 2][];
+		mPostingSizes = new int[INITIAL_TABLE_SIZE / 2];
+		mKeyTerms = new ITerm[INITIAL_TABLE_SIZE / 2 * mIndices.length];
+		mKeyScratch = new ITerm[mIndices.length];
+		mBucketCount = 0;
+		mFreeBuckets = new int[0];
+		mFreeCount = 0;
+		mLastIndexOfRelation = 0;
+		mBucketsByTerm = null;
+	}
+
+	private boolean keyEquals(int bucket, int other) {
+		int offset = bucket * mIndices.length;
+		int otherOffset = other * mIndices.length;
+
+		for (int i = 0; i < mIndices.length; ++i) {
+			if (!mKeyTerms[offset + i].equals(mKeyTerms[otherOffset + i])) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private boolean keyEquals(int bucket, ITerm[] key) {
+		int offset = bucket * mIndices.length;
+
+		for (int i = 0; i < mIndices.length; ++i) {
+			if (!mKeyTerms[offset + i].equals(key[i])) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private boolean keyEquals(int bucket, ITuple tuple, int[] positions) {
+		int offset = bucket * mIndices.length;
+
+		for (int i = 0; i < positions.length; ++i) {
+			ITerm term = mEquivalentTerms.findRepresentative(tuple
+					.get(positions[i]));
+
+			if (!mKeyTerms[offset + i].equals(term)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private boolean keyEquals(int bucket, List<ITerm> key) {
+		int offset = bucket * mIndices.length;
+
+		for (int i = 0; i < mIndices.length; ++i) {
+			ITerm term = mEquivalentTerms.findRepresentative(key.get(i));
+
+			if (!mKeyTerms[offset + i].equals(term)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private static int spread(int h) {
+		h ^= (h >>> 16);
+		h *= 0x85ebca6b;
+		h ^= (h >>> 13);
+		return h;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder result = new StringBuilder();
+
+		result.append("Indices: ");
+		result.append(Arrays.toString(mIndices));
+		result.append(", Buckets: ");
+		result.append(mBucketCount);
+
+		return result.toString();
+	}
+
+	/** The initial size of the table (must be a power of 2). */
+	private static final int INITIAL_TABLE_SIZE = 16;
+
+	/** The initial length of a posting list. */
+	private static final int INITIAL_POSTING_SIZE = 2;
+
+	private static final List<ITuple> EMPTY = Collections.emptyList();
+
+	/** The relation being indexed. */
+	private final IRelation mRelation;
+
+	/** The term indices to index the relation on. */
+	private final int[] mIndices;
+
+	/** The equivalent terms. */
+	private final IEquivalentTerms mEquivalentTerms;
+
+	/** The version of the equivalent terms the keys are made for. */
+	private long mVersion;
+
+	/** The index of the next tuple of the relation to read. */
+	private int mLastIndexOfRelation;
+
+	/** The open addressing table of bucket numbers plus one (zero is empty). */
+	private int[] mTable;
+
+	/** The number of buckets (distinct keys). */
+	private int mBucketCount;
+
+	/** The (spread) hash codes of the keys indexed by bucket number. */
+	private int[] mBucketHashes;
+
+	/** The key terms of all buckets, one after another. */
+	private ITerm[] mKeyTerms;
+
+	/**
+	 * The row numbers of the tuples of each bucket, null for buckets that have
+	 * been joined with another bucket.
+	 */
+	private int[][] mPostings;
+
+	/** The number of row numbers used in each posting list. */
+	private int[] mPostingSizes;
+
+	/** The numbers of the buckets that are no longer used. */
+	private int[] mFreeBuckets;
+
+	/** The number of entries used in mFreeBuckets. */
+	private int mFreeCount;
+
+	/** Scratch space for the key of a tuple being inserted. */
+	private ITerm[] mKeyScratch;
+
+	/**
+	 * The buckets whose key contains a term, created when the equivalence
+	 * relation changes for the first time.
+	 */
+	private Map<ITerm, List<Integer>> mBucketsByTerm;
+
+	/** Updates the index before tuples are removed from the relation. */
+	private final IRemovalListener mListener = new IRemovalListener() {
+		public void removing(IRelation relation, int index) {
+			HashIndex.this.removing(relation, index);
+		}
+	};
+}
@@ -24,16 +24,20 @@ package org.deri.iris.storage.simple;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.deri.iris.api.basics.ITuple;
 import org.deri.iris.api.terms.ITerm;
 import org.deri.iris.storage.IIndex;
 import org.deri.iris.storage.IRelation;
+import org.deri.iris.storage.IRemovableRelation;
+import org.deri.iris.storage.IRemovalListener;
 import org.deri.iris.utils.equivalence.IEquivalentTerms;
 import org.deri.iris.utils.equivalence.IgnoreTermEquivalence;
 
@@ -68,6 +72,11 @@ public class SimpleIndex implements IIndex {
 		mIndices = indices;
 		mRelation = relation;
 		mEquivalentTerms = equivalentTerms;
+		mVersion = equivalentTerms.getVersion();
+		equivalentTerms.caughtUp(this, mVersion);
+
+		if (relation instanceof IRemovableRelation)
+			((IRemovableRelation) relation).addRemovalListener(mListener);
 	}
 
 	// TODO change to return Iterator<ITuple> - for really big relations??
@@ -92,56 +101,159 @@ public class SimpleIndex implements IIndex {
 	 * Update this index by reading any tuples not yet seen from the relation.
 	 */
 	private void update() {
+		updateEquivalences();
+
+		for (; mLastIndexOfView < mRelation.size(); ++mLastIndexOfView)
+			add(mRelation.get(mLastIndexOfView));
+	}
+
+	/**
+	 * Update the keys of the index after a change in the equivalence
+	 * relation.
+	 */
+	private void updateEquivalences() {
 		// The representatives of the terms of a key in the map (mBag) may
 		// change due to a change in the equivalence relation, therefore we have
-		// to check all keys and update them if any change to the term
-		// equivalence relation has been applied.
-		int hashCode = mEquivalentTerms.hashCode();
-		
-		if (hashCode != mPreviousHashCode) {
-			// Update the keys in the map.
-			updateKeys();
-			
-			// Reset the index of the last checked tuple.
-			mLastIndexOfView = 0;
-
-			// Store the current hash code of the equivalent terms.
-			mPreviousHashCode = hashCode;
+		// to update the keys that contain a term whose representative changed.
+		long version = mEquivalentTerms.getVersion();
+
+		if (version != mVersion) {
+			Collection<ITerm> changed = mEquivalentTerms
+					.getChangedSince(mVersion);
+
+			if (changed == null)
+				updateKeys(mBag.keySet());
+			else
+				updateKeys(affectedKeys(changed));
+
+			mVersion = version;
+			mEquivalentTerms.caughtUp(this, mVersion);
+		}
+	}
+
+	private void add(ITuple viewTuple) {
+		List<ITerm> key = makeKey(viewTuple);
+
+		List<ITuple> values = mBag.get(key);
+		if (values == null) {
+			values = new ArrayList<ITuple>();
+			mBag.put(key, values);
+			addToKeysByTerm(key);
 		}
+		values.add(viewTuple);
+	}
+
+	/**
+	 * Update the index before a tuple is removed from the relation.
+	 * 
+	 * @param relation The relation, which still contains the tuple.
+	 * @param row The index of the tuple.
+	 */
+	private void removing(IRelation relation, int row) {
+		updateEquivalences();
+
+		// Tuples not seen yet are added later.
+		if (row >= mLastIndexOfView)
+			return;
+
+		List<ITerm> key = makeKey(relation.get(row));
+		List<ITuple> values = mBag.get(key);
 
-		for (; mLastIndexOfView < mRelation.size(); ++mLastIndexOfView) {
-			ITuple viewTuple = mRelation.get(mLastIndexOfView);
-			List<ITerm> key = makeKey(viewTuple);
+		values.remove(relation.get(row));
+		if (values.isEmpty())
+			mBag.remove(key);
 
-			List<ITuple> values = mBag.get(key);
-			if (values == null) {
-				values = new ArrayList<ITuple>();
-				mBag.put(key, values);
+		// The last tuple takes the place of the removed one.
+		int last = relation.size() - 1;
+
+		if (last < mLastIndexOfView)
+			--mLastIndexOfView;
+		else
+			add(relation.get(last));
+	}
+
+	/**
+	 * Find the keys that contain any of the given terms. The map from terms to
+	 * keys is only created when the equivalence relation changes for the
+	 * first time, so that indexes without equivalent terms do not pay for it.
+	 * 
+	 * @param changed The terms whose representative changed.
+	 * @return The keys containing these terms.
+	 */
+	private Set<List<ITerm>> affectedKeys(Collection<ITerm> changed) {
+		if (mKeysByTerm == null) {
+			mKeysByTerm = new HashMap<ITerm, List<List<ITerm>>>();
+
+			for (List<ITerm> key : mBag.keySet())
+				addToKeysByTerm(key);
+		}
+
+		Set<List<ITerm>> affected = new HashSet<List<ITerm>>();
+
+		for (ITerm term : changed) {
+			List<List<ITerm>> keys = mKeysByTerm.remove(term);
+
+			if (keys != null)
+				affected.addAll(keys);
+		}
+
+		return affected;
+	}
+
+	private void addToKeysByTerm(List<ITerm> key) {
+		if (mKeysByTerm == null)
+			return;
+
+		for (ITerm term : key) {
+			List<List<ITerm>> keys = mKeysByTerm.get(term);
+
+			if (keys == null) {
+				keys = new ArrayList<List<ITerm>>();
+				mKeysByTerm.put(term, keys);
 			}
-			values.add(viewTuple);
+
+			keys.add(key);
 		}
 	}
 
-	private void updateKeys() {
+	/**
+	 * Replace the given keys by the keys made of the current representatives
+	 * of their terms. The tuples of keys that now are equal are joined.
+	 * 
+	 * @param oldKeys The keys to replace.
+	 */
+	private void updateKeys(Collection<List<ITerm>> oldKeys) {
 		Map<List<ITerm>, List<ITuple>> toAdd = new HashMap<List<ITerm>, List<ITuple>>();
-		Iterator<List<ITerm>> keyIterator = mBag.keySet().iterator();
 
-		while (keyIterator.hasNext()) {
-			List<ITerm> oldKey = keyIterator.next();
+		for (List<ITerm> oldKey : new ArrayList<List<ITerm>>(oldKeys)) {
 			List<ITerm> newKey = changeKey(oldKey);
 
-			if (!oldKey.equals(newKey)) {
-				// Add mapped values of the old key to a temporary map.
-				toAdd.put(newKey, mBag.get(oldKey));
+			if (oldKey.equals(newKey))
+				continue;
 
-				// Remove the key and the corresponding mapped list of
-				// tuples from the map.
-				keyIterator.remove();
-			}
+			// Keys that have been replaced before may still be listed for
+			// other terms.
+			List<ITuple> tuples = mBag.remove(oldKey);
+			if (tuples == null)
+				continue;
+
+			List<ITuple> existing = toAdd.get(newKey);
+			if (existing == null)
+				toAdd.put(newKey, tuples);
+			else
+				existing.addAll(tuples);
 		}
 
-		// Add the temporary map.
-		mBag.putAll(toAdd);
+		for (Map.Entry<List<ITerm>, List<ITuple>> entry : toAdd.entrySet()) {
+			List<ITuple> existing = mBag.get(entry.getKey());
+
+			if (existing == null) {
+				mBag.put(entry.getKey(), entry.getValue());
+				addToKeysByTerm(entry.getKey());
+			} else {
+				existing.addAll(entry.getValue());
+			}
+		}
 	}
 
 	/**
@@ -213,8 +325,21 @@ public class SimpleIndex implements IIndex {
 	/** The equivalent terms. */
 	private IEquivalentTerms mEquivalentTerms;
 
-	/** The previous hash code of the equivalent terms. */
-	private int mPreviousHashCode;
+	/** The version of the equivalent terms the keys are made for. */
+	private long mVersion;
+
+	/**
+	 * The keys containing each term, or null until the equivalent terms
+	 * change for the first time.
+	 */
+	private Map<ITerm, List<List<ITerm>>> mKeysByTerm;
+
+	/** Updates the index before tuples are removed from the relation. */
+	private final IRemovalListener mListener = new IRemovalListener() {
+		public void removing(IRelation relation, int index) {
+			SimpleIndex.this.removing(relation, index);
+		}
+	};
 
 	private static final List<ITuple> mEmptyTupleList = Collections
 			.unmodifiableList(new ArrayList<ITuple>());
@@ -22,16 +22,25 @@
  */
 package org.deri.iris.storage.simple;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.deri.iris.api.basics.ITuple;
 import org.deri.iris.storage.IRelation;
-import org.deri.iris.utils.UniqueList;
+import org.deri.iris.storage.IRemovableRelation;
+import org.deri.iris.storage.IRemovalListener;
+import org.deri.iris.utils.RemovalListeners;
 
 /**
  * A simple, in-memory, array-based relation.
+ * The positions of the tuples are only kept in a map once a tuple is removed
+ * or looked up, so that relations that only grow do not pay for it.
  */
-public class SimpleRelation implements IRelation
+public class SimpleRelation implements IRemovableRelation
 {
 	/**
 	 * Constructor.
@@ -41,13 +50,22 @@ public class SimpleRelation implements IRelation
 	 */
 	SimpleRelation()
 	{
-		mTuples = new UniqueList<ITuple>();
 	}
 
 	public boolean add( ITuple tuple )
 	{
 		assert mTuples.isEmpty() || ( mTuples.get( 0 ).size() == tuple.size() );
 		
+		if( mPositions != null )
+		{
+			if( mPositions.containsKey( tuple ) )
+				return false;
+			
+			mPositions.put( tuple, mTuples.size() );
+		}
+		else if( ! mSet.add( tuple ) )
+			return false;
+		
 		return mTuples.add( tuple );
 	}
 
@@ -74,7 +92,56 @@ public class SimpleRelation implements IRelation
 	
 	public boolean contains( ITuple tuple )
 	{
-		return mTuples.contains( tuple );
+		return mPositions != null ? mPositions.containsKey( tuple ) : mSet.contains( tuple );
+	}
+
+	public boolean remove( ITuple tuple )
+	{
+		int index = indexOf( tuple );
+		
+		if( index < 0 )
+			return false;
+		
+		if( mListeners != null )
+			mListeners.removing( this, index );
+		
+		// The last tuple takes the place of the removed one.
+		int last = mTuples.size() - 1;
+		ITuple lastTuple = mTuples.remove( last );
+		mPositions.remove( tuple );
+		
+		if( index != last )
+		{
+			mTuples.set( index, lastTuple );
+			mPositions.put( lastTuple, index );
+		}
+		
+		return true;
+	}
+
+	public int indexOf( ITuple tuple )
+	{
+		if( mPositions == null )
+		{
+			mPositions = new HashMap<ITuple, Integer>();
+			
+			for( int i = 0; i < mTuples.size(); ++i )
+				mPositions.put( mTuples.get( i ), i );
+			
+			mSet = null;
+		}
+		
+		Integer index = mPositions.get( tuple );
+		
+		return index != null ? index : -1;
+	}
+
+	public synchronized void addRemovalListener( IRemovalListener listener )
+	{
+		if( mListeners == null )
+			mListeners = new RemovalListeners();
+		
+		mListeners.add( listener );
 	}
 
 	@Override
@@ -83,6 +150,15 @@ public class SimpleRelation implements IRelation
 		return mTuples.toString();
     }
 
-	/** The array list (or unique list) of tuples. */
-	private final List<ITuple> mTuples;
+	/** The tuples in order. */
+	private final List<ITuple> mTuples = new ArrayList<ITuple>();
+	
+	/** The tuples, for checking uniqueness until the positions are kept. */
+	private Set<ITuple> mSet = new HashSet<ITuple>();
+	
+	/** The position of each tuple, or null until a tuple is removed or looked up. */
+	private Map<ITuple, Integer> mPositions;
+	
+	/** The removal listeners, or null until a listener is registered. */
+	private RemovalListeners mListeners;
 }
@@ -68,6 +68,9 @@ public class StringTerm implements IStringTerm {
 	}
 
 	public boolean equals(final Object o) {
+		if (this == o) {
+			return true;
+		}
 		if (!(o instanceof IStringTerm)) {
 			return false;
 		}
@@ -44,7 +44,7 @@ public class TermFactory implements ITermFactory {
 	}
 	
 	public IConstructedTerm createConstruct(String name, Collection<ITerm> terms) {
-		return new ConstructedTerm(name, terms);
+		return TermInterner.intern(new ConstructedTerm(name, terms));
 	}
 
 	public IConstructedTerm createConstruct(String name, ITerm... terms) {
@@ -52,7 +52,7 @@ public class TermFactory implements ITermFactory {
 	}
 
 	public IStringTerm createString(String arg) {
-		return new StringTerm(arg);
+		return TermInterner.intern(new StringTerm(arg));
 	}
 
 	public IVariable createVariable(String name) {
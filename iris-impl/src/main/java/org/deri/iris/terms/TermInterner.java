@@ -0,0 +1,186 @@
+/*
+ * Integrated Rule Inference System (IRIS):
+ * An extensible rule inference system for datalog with extensions.
+ * 
+ * Copyright (C) 2008 Semantic Technology Institute (STI) Innsbruck, 
+ * University of Innsbruck, Technikerstrasse 21a, 6020 Innsbruck, Austria.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ */
+package org.deri.iris.terms;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.deri.iris.Configuration;
+import org.deri.iris.ConfigurationThreadLocalStorage;
+import org.deri.iris.api.terms.ITerm;
+import org.deri.iris.terms.concrete.AnyURI;
+import org.deri.iris.terms.concrete.BooleanTerm;
+import org.deri.iris.terms.concrete.IntegerTerm;
+import org.deri.iris.terms.concrete.Iri;
+import org.deri.iris.terms.concrete.NormalizedString;
+
+/**
+ * <p>
+ * A table of canonical instances of ground terms (hash-consing). When
+ * interning is enabled in the configuration of the current thread, the term
+ * factories return the same instance for equal ground terms, so that most
+ * equality tests become identity tests and every distinct term is held in
+ * memory only once.
+ * </p>
+ * <p>
+ * Only terms whose type and value determine their representation are interned,
+ * i.e. strings, IRIs, booleans, integers and constructed terms of these. Equal
+ * terms of other types may still differ, e.g. the decimals 1.0 and 1.00, or
+ * date-times in different time zones.
+ * </p>
+ * <p>
+ * The table only holds weak references, so that terms that are no longer used
+ * can still be garbage collected. Terms are kept in a separate table per
+ * class, because terms of different types may be equal, e.g. an integer and a
+ * decimal with the same value. The tables are split in to segments to reduce
+ * lock contention.
+ * </p>
+ * <p>
+ * Interning is disabled by default, see {@link Configuration#termInterning}.
+ * </p>
+ */
+public final class TermInterner {
+
+	private TermInterner() {
+		// static methods only
+	}
+
+	/**
+	 * Indicates if interning is enabled for the current thread.
+	 * 
+	 * @return true if terms are interned
+	 */
+	public static boolean isEnabled() {
+		Configuration configuration = ConfigurationThreadLocalStorage
+				.getConfiguration();
+
+		return configuration != null && configuration.termInterning;
+	}
+
+	/**
+	 * Get the canonical instance of a term. If interning is disabled or the
+	 * term can not be interned (see above), the term itself is returned.
+	 * 
+	 * @param term The term to intern
+	 * @return The canonical instance equal to the given term
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T extends ITerm> T intern(T term) {
+		if (term == null || !isEnabled() || !hasExactValue(term))
+			return term;
+
+		Segment[] segments = mTables.get(term.getClass());
+		if (segments == null) {
+			segments = new Segment[SEGMENTS];
+			for (int s = 0; s < SEGMENTS; ++s)
+				segments[s] = new Segment();
+
+			Segment[] existing = mTables.putIfAbsent(term.getClass(), segments);
+			if (existing != null)
+				segments = existing;
+		}
+
+		int hash = term.hashCode();
+		Segment segment = segments[(hash ^ (hash >>> 16)) & (SEGMENTS - 1)];
+
+		return (T) segment.intern(term);
+	}
+
+	/**
+	 * Indicates if all terms of the same type that are equal to the given term
+	 * also have the same representation.
+	 */
+	private static boolean hasExactValue(ITerm term) {
+		if (term instanceof StringTerm || term instanceof Iri
+				|| term instanceof BooleanTerm || term instanceof AnyURI
+				|| term instanceof IntegerTerm
+				|| term instanceof NormalizedString)
+			return true;
+
+		if (term instanceof ConstructedTerm) {
+			for (ITerm argument : ((ConstructedTerm) term).getValue()) {
+				if (!hasExactValue(argument))
+					return false;
+			}
+			return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Get the number of canonical terms currently held.
+	 * 
+	 * @return The number of interned terms
+	 */
+	public static int size() {
+		int size = 0;
+
+		for (Segment[] segments : mTables.values()) {
+			for (Segment segment : segments)
+				size += segment.size();
+		}
+
+		return size;
+	}
+
+	/**
+	 * Remove all canonical terms.
+	 */
+	public static void clear() {
+		mTables.clear();
+	}
+
+	/**
+	 * One lock-protected part of a table.
+	 */
+	private static class Segment {
+		synchronized ITerm intern(ITerm term) {
+			WeakReference<ITerm> reference = mTerms.get(term);
+
+			if (reference != null) {
+				ITerm canonical = reference.get();
+				if (canonical != null)
+					return canonical;
+			}
+
+			mTerms.put(term, new WeakReference<ITerm>(term));
+			return term;
+		}
+
+		synchronized int size() {
+			return mTerms.size();
+		}
+
+		private final Map<ITerm, WeakReference<ITerm>> mTerms = new WeakHashMap<ITerm, WeakReference<ITerm>>();
+	}
+
+	/** The number of segments per table, must be a power of 2. */
+	private static final int SEGMENTS = 16;
+
+	/** The tables of canonical terms, by term class. */
+	private static final ConcurrentMap<Class<?>, Segment[]> mTables = new ConcurrentHashMap<Class<?>, Segment[]>();
+}
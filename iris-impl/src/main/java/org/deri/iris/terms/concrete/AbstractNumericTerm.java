@@ -36,6 +36,10 @@ public abstract class AbstractNumericTerm implements INumericTerm {
 
 	@Override
 	public boolean equals(Object thatObject) {
+		if (this == thatObject) {
+			return true;
+		}
+
 		if (thatObject == null || !(thatObject instanceof INumericTerm)) {
 			return false;
 		}
@@ -104,7 +108,11 @@ public abstract class AbstractNumericTerm implements INumericTerm {
 
 	@Override
 	public int hashCode() {
-		return getValue().hashCode();
+		if (hashCode == 0) {
+			hashCode = getValue().hashCode();
+		}
+
+		return hashCode;
 	}
 
 	@Override
@@ -116,4 +124,7 @@ public abstract class AbstractNumericTerm implements INumericTerm {
 		return getValue().toPlainString();
 	}
 
+	/** The cached hash code, 0 if not computed yet. */
+	private int hashCode;
+
 }
@@ -28,6 +28,7 @@ import java.net.URI;
 
 import org.deri.iris.api.factory.IConcreteFactory;
 import org.deri.iris.api.terms.IConcreteTerm;
+import org.deri.iris.terms.TermInterner;
 import org.deri.iris.api.terms.concrete.IAnyURI;
 import org.deri.iris.api.terms.concrete.IBase64Binary;
 import org.deri.iris.api.terms.concrete.IBooleanTerm;
@@ -95,178 +96,178 @@ public class ConcreteFactory implements IConcreteFactory {
 	}
 
 	public IBase64Binary createBase64Binary(final String s) {
-		return new Base64Binary(s);
+		return TermInterner.intern(new Base64Binary(s));
 	}
 
 	public IBooleanTerm createBoolean(final boolean b) {
-		return new BooleanTerm(b);
+		return TermInterner.intern(new BooleanTerm(b));
 	}
 
 	public IBooleanTerm createBoolean(final String value) {
-		return new BooleanTerm(value);
+		return TermInterner.intern(new BooleanTerm(value));
 	}
 
 	public IDateTerm createDate(final int year, final int month, final int day) {
-		return new DateTerm(year, month, day);
+		return TermInterner.intern(new DateTerm(year, month, day));
 	}
 
 	public IDateTerm createDate(final int year, final int month, final int day,
 			final int tzHour, final int tzMinute) {
-		return new DateTerm(year, month, day, tzHour, tzMinute);
+		return TermInterner.intern(new DateTerm(year, month, day, tzHour, tzMinute));
 	}
 
 	public IDateTime createDateTime(int year, int month, int day, int hour,
 			int minute, int second, int millisecond, int tzHour, int tzMinute) {
-		return new DateTime(year, month, day, hour, minute, second,
-				millisecond, tzHour, tzMinute);
+		return TermInterner.intern(new DateTime(year, month, day, hour, minute, second,
+				millisecond, tzHour, tzMinute));
 	}
 
 	public IDateTime createDateTime(int year, int month, int day, int hour,
 			int minute, double second, int tzHour, int tzMinute) {
-		return new DateTime(year, month, day, hour, minute, second, tzHour,
-				tzMinute);
+		return TermInterner.intern(new DateTime(year, month, day, hour, minute, second, tzHour,
+				tzMinute));
 	}
 
 	public ITime createTime(final int hour, final int minute, final int second,
 			final int millisecond, final int tzHour, final int tzMinute) {
-		return new Time(hour, minute, second, millisecond, tzHour, tzMinute);
+		return TermInterner.intern(new Time(hour, minute, second, millisecond, tzHour, tzMinute));
 	}
 
 	public ITime createTime(int hour, int minute, double second, int tzHour,
 			int tzMinute) {
-		return new Time(hour, minute, second, tzHour, tzMinute);
+		return TermInterner.intern(new Time(hour, minute, second, tzHour, tzMinute));
 	}
 
 	public IDecimalTerm createDecimal(double d) {
-		return new DecimalTerm(d);
+		return TermInterner.intern(new DecimalTerm(d));
 	}
 	
 	public IDecimalTerm createDecimal(BigDecimal value) {
-		return new DecimalTerm(value);
+		return TermInterner.intern(new DecimalTerm(value));
 	}
 
 	public IDoubleTerm createDouble(final double d) {
-		return new DoubleTerm(d);
+		return TermInterner.intern(new DoubleTerm(d));
 	}
 
 	public IDuration createDuration(boolean positive, int year, int month,
 			int day, int hour, int minute, int second, int millisecond) {
-		return new Duration(positive, year, month, day, hour, minute, second,
-				millisecond);
+		return TermInterner.intern(new Duration(positive, year, month, day, hour, minute, second,
+				millisecond));
 	}
 
 	public IDuration createDuration(boolean positive, int year, int month,
 			int day, int hour, int minute, double second) {
-		return new Duration(positive, year, month, day, hour, minute, second);
+		return TermInterner.intern(new Duration(positive, year, month, day, hour, minute, second));
 	}
 
 	public IDuration createDuration(final long millis) {
-		return new Duration(millis);
+		return TermInterner.intern(new Duration(millis));
 	}
 
 	public IFloatTerm createFloat(final float f) {
-		return new FloatTerm(f);
+		return TermInterner.intern(new FloatTerm(f));
 	}
 
 	public IGDay createGDay(final int day) {
-		return new GDay(day);
+		return TermInterner.intern(new GDay(day));
 	}
 
 	public IGMonthDay createGMonthDay(final int month, final int day) {
-		return new GMonthDay(month, day);
+		return TermInterner.intern(new GMonthDay(month, day));
 	}
 
 	public IGMonth createGMonth(final int month) {
-		return new GMonth(month);
+		return TermInterner.intern(new GMonth(month));
 	}
 
 	public IGYearMonth createGYearMonth(final int year, final int month) {
-		return new GYearMonth(year, month);
+		return TermInterner.intern(new GYearMonth(year, month));
 	}
 
 	public IGYear createGYear(final int year) {
-		return new GYear(year);
+		return TermInterner.intern(new GYear(year));
 	}
 
 	public IHexBinary createHexBinary(final String s) {
-		return new HexBinary(s);
+		return TermInterner.intern(new HexBinary(s));
 	}
 
 	public IIntegerTerm createInteger(int i) {
-		return new IntegerTerm(i);
+		return TermInterner.intern(new IntegerTerm(i));
 	}
 	
 	public IIntegerTerm createInteger(BigInteger i) {
-		return new IntegerTerm(i);
+		return TermInterner.intern(new IntegerTerm(i));
 	}
 
 	public IIri createIri(final String s) {
-		return new Iri(s);
+		return TermInterner.intern(new Iri(s));
 	}
 
 	public ISqName createSqName(final String s) {
-		return new SqName(s);
+		return TermInterner.intern(new SqName(s));
 	}
 
 	public ISqName createSqName(final IIri iri, final String name) {
-		return new SqName(iri, name);
+		return TermInterner.intern(new SqName(iri, name));
 	}
 
 	public IPlainLiteral createPlainLiteral(final String string,
 			final String language) {
-		return new PlainLiteral(string, language);
+		return TermInterner.intern(new PlainLiteral(string, language));
 	}
 
 	public IPlainLiteral createPlainLiteral(final String string) {
-		return new PlainLiteral(string);
+		return TermInterner.intern(new PlainLiteral(string));
 	}
 
 	public IXMLLiteral createXMLLiteral(String string) {
-		return new XMLLiteral(string);
+		return TermInterner.intern(new XMLLiteral(string));
 	}
 
 	public IXMLLiteral createXMLLiteral(String string, String lang) {
-		return new XMLLiteral(string, lang);
+		return TermInterner.intern(new XMLLiteral(string, lang));
 	}
 
 	public IYearMonthDuration createYearMonthDuration(boolean positive,
 			int year, int month) {
-		return new YearMonthDuration(positive, year, month);
+		return TermInterner.intern(new YearMonthDuration(positive, year, month));
 	}
 
 	public IDayTimeDuration createDayTimeDuration(boolean positive, int day,
 			int hour, int minute, double second) {
-		return new DayTimeDuration(positive, day, hour, minute, second);
+		return TermInterner.intern(new DayTimeDuration(positive, day, hour, minute, second));
 	}
 
 	public IDayTimeDuration createDayTimeDuration(boolean positive, int day,
 			int hour, int minute, int second, int millisecond) {
-		return new DayTimeDuration(positive, day, hour, minute, second,
-				millisecond);
+		return TermInterner.intern(new DayTimeDuration(positive, day, hour, minute, second,
+				millisecond));
 	}
 
 	public IAnyURI createAnyURI(URI uri) {
-		return new AnyURI(uri);
+		return TermInterner.intern(new AnyURI(uri));
 	}
 
 	public IByteTerm createByte(byte value) {
-		return new ByteTerm(value);
+		return TermInterner.intern(new ByteTerm(value));
 	}
 
 	public IENTITY createEntity(String entity) {
-		return new ENTITY(entity);
+		return TermInterner.intern(new ENTITY(entity));
 	}
 
 	public IID createID(String id) {
-		return new ID(id);
+		return TermInterner.intern(new ID(id));
 	}
 
 	public IIDREF createIDREF(String idRef) {
-		return new IDREF(idRef);
+		return TermInterner.intern(new IDREF(idRef));
 	}
 
 	public ILanguage createLanguage(String language) {
-		return new Language(language);
+		return TermInterner.intern(new Language(language));
 	}
 	
 	public IList createList(IConcreteTerm... terms) {
@@ -282,84 +283,84 @@ public class ConcreteFactory implements IConcreteFactory {
 	}
 	
 	public ILongTerm createLong(long value) {
-		return new LongTerm(value);
+		return TermInterner.intern(new LongTerm(value));
 	}
 
 	public INCName createNCName(String name) {
-		return new NCName(name);
+		return TermInterner.intern(new NCName(name));
 	}
 
 	public INMTOKEN createNMTOKEN(String token) {
-		return new NMTOKEN(token);
+		return TermInterner.intern(new NMTOKEN(token));
 	}
 
 	public IName createName(String name) {
-		return new Name(name);
+		return TermInterner.intern(new Name(name));
 	}
 
 	public INegativeInteger createNegativeInteger(BigInteger value) {
-		return new NegativeInteger(value);
+		return TermInterner.intern(new NegativeInteger(value));
 	}
 
 	public INonNegativeInteger createNonNegativeInteger(BigInteger value) {
-		return new NonNegativeInteger(value);
+		return TermInterner.intern(new NonNegativeInteger(value));
 	}
 
 	public INonPositiveInteger createNonPositiveInteger(BigInteger value) {
-		return new NonPositiveInteger(value);
+		return TermInterner.intern(new NonPositiveInteger(value));
 	}
 
 	public INormalizedString createNormalizedString(String string) {
-		return new NormalizedString(string);
+		return TermInterner.intern(new NormalizedString(string));
 	}
 
 	public IPositiveInteger createPositiveInteger(BigInteger value) {
-		return new PositiveInteger(value);
+		return TermInterner.intern(new PositiveInteger(value));
 	}
 
 	public IShortTerm createShort(short value) {
-		return new ShortTerm(value);
+		return TermInterner.intern(new ShortTerm(value));
 	}
 
 	public IToken createToken(String token) {
-		return new Token(token);
+		return TermInterner.intern(new Token(token));
 	}
 
 	public IUnsignedByte createUnsignedByte(short value) {
-		return new UnsignedByte(value);
+		return TermInterner.intern(new UnsignedByte(value));
 	}
 
 	public IUnsignedInt createUnsignedInt(long value) {
-		return new UnsignedInt(value);
+		return TermInterner.intern(new UnsignedInt(value));
 	}
 
 	public IUnsignedLong createUnsignedLong(long value) {
-		return new UnsignedLong(BigInteger.valueOf(value));
+		return TermInterner.intern(new UnsignedLong(BigInteger.valueOf(value)));
 	}
 	
 	public IUnsignedLong createUnsignedLong(BigInteger value) {
-		return new UnsignedLong(value);
+		return TermInterner.intern(new UnsignedLong(value));
 	}
 
 	public IUnsignedShort createUnsignedShort(int value) {
-		return new UnsignedShort(value);
+		return TermInterner.intern(new UnsignedShort(value));
 	}
 
 	public IIntTerm createInt(int value) {
-		return new IntTerm(value);
+		return TermInterner.intern(new IntTerm(value));
 	}
 
 	public IDateTime createDateTimeStamp(int year, int month, int day,
 			int hour, int minute, double second, int tzHour, int tzMinute) {
-		return new DateTimeStamp(year, month, day, hour, minute, second,
-				tzHour, tzMinute);
+		return TermInterner.intern(new DateTimeStamp(year, month, day, hour, minute, second,
+				tzHour, tzMinute));
 	}
 
 	public INOTATION createNOTATION(String namespaceName, String localPart) {
-		return new NOTATION(namespaceName, localPart);
+		return TermInterner.intern(new NOTATION(namespaceName, localPart));
 	}
 
 	public IQName createQName(String namespaceName, String localPart) {
-		return new QName(namespaceName, localPart);
+		return TermInterner.intern(new QName(namespaceName, localPart));
 	}
 }
@@ -80,6 +80,9 @@ public class Iri implements IIri {
 	}
 
 	public boolean equals(final Object obj) {
+		if (this == obj) {
+			return true;
+		}
 		if (!(obj instanceof Iri)) {
 			return false;
 		}
@@ -22,8 +22,11 @@
  */
 package org.deri.iris.utils;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
@@ -31,8 +34,10 @@ import java.util.Set;
 /**
  * <p>
  * A data structure for representing and managing partitions, i.e. families of
- * disjoint sets. Implemented as a disjoint-set data structure, which uses path
- * compression and union by rank.
+ * disjoint sets. Implemented as a disjoint-set data structure, which uses
+ * union by rank. When two sets are merged, all members of the attached set are
+ * pointed to the new root, so that finding a representative never modifies
+ * the data structure and can be done by several threads at once.
  * </p>
  * <p>
  * Note that the corresponding <code>equals</code> and <code>hashCode</code>
@@ -129,6 +134,23 @@ public class DisjointSets<T> {
 	 *         the element's sets.
 	 */
 	public T putInSameSet(T x, T y) {
+		merge(x, y);
+
+		return find(y);
+	}
+
+	/**
+	 * Merges the two sets of the two specified elements into a single set, in
+	 * the same way as {@link #putInSameSet(Object, Object)}, and returns the
+	 * elements whose representative changed. These are the elements of the
+	 * set that was attached to the root of the other set.
+	 * 
+	 * @param x The first element.
+	 * @param y The second element.
+	 * @return The elements whose representative changed, or an empty list if
+	 *         the elements already were in the same set.
+	 */
+	public List<T> merge(T x, T y) {
 		// Only adds x and y if they have not been added before.
 		add(x);
 		add(y);
@@ -136,6 +158,10 @@ public class DisjointSets<T> {
 		Node<T> rootX = findRoot(x);
 		Node<T> rootY = findRoot(y);
 
+		if (rootX == rootY) {
+			return Collections.emptyList();
+		}
+
 		if (rootX.rank > rootY.rank) {
 			Node<T> temp = rootX;
 			rootX = rootY;
@@ -144,9 +170,20 @@ public class DisjointSets<T> {
 			++rootY.rank;
 		}
 
-		rootX.parent = rootY;
+		List<T> changed = members(rootX);
+
+		Node<T> member = rootX;
+		do {
+			member.parent = rootY;
+			member = member.next;
+		} while (member != rootX);
 
-		return rootY.object;
+		// Join the two circular member lists.
+		Node<T> next = rootX.next;
+		rootX.next = rootY.next;
+		rootY.next = next;
+
+		return changed;
 	}
 
 	/**
@@ -210,15 +247,33 @@ public class DisjointSets<T> {
 	 *         empty set if has not been added to this disjoint-set yet.
 	 */
 	public Set<T> getSetOf(T element) {
-		Set<T> equivalanceSet = new HashSet<T>();
+		Node<T> node = elements.get(element);
 
-		for (T y : elements.keySet()) {
-			if (areInSameSet(element, y)) {
-				equivalanceSet.add(y);
-			}
+		if (node == null) {
+			return new HashSet<T>();
 		}
 
-		return equivalanceSet;
+		return new HashSet<T>(members(node));
+	}
+
+	/**
+	 * Returns the elements of the set of the given node, by following the
+	 * circular list of members of the set.
+	 */
+	private List<T> members(Node<T> node) {
+		List<T> members = new ArrayList<T>();
+
+		Node<T> member = node;
+		do {
+			// Skip elements that have been removed.
+			if (elements.get(member.object) == member) {
+				members.add(member.object);
+			}
+
+			member = member.next;
+		} while (member != node);
+
+		return members;
 	}
 
 	/**
@@ -262,19 +317,24 @@ public class DisjointSets<T> {
 
 		private int rank;
 
+		/** The next member of the same set, in a circular list. */
+		private Node<S> next;
+
 		private Node(S o) {
 			object = o;
 			parent = this;
 			rank = 0;
+			next = this;
 		}
 
 		private Node<S> getRoot() {
-			if (parent.equals(this)) {
-				return this;
+			Node<S> node = this;
+
+			while (node.parent != node) {
+				node = node.parent;
 			}
 
-			parent = parent.getRoot();
-			return parent;
+			return node;
 		}
 
 		@Override
@@ -0,0 +1,100 @@
+/*
+ * Integrated Rule Inference System (IRIS):
+ * An extensible rule inference system for datalog with extensions.
+ * 
+ * Copyright (C) 2008 Semantic Technology Institute (STI) Innsbruck, 
+ * University of Innsbruck, Technikerstrasse 21a, 6020 Innsbruck, Austria.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ */
+package org.deri.iris.utils;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.deri.iris.storage.IRelation;
+import org.deri.iris.storage.IRemovalListener;
+
+/**
+ * The removal listeners of a relation, held by weak references, so that views
+ * and indexes that are no longer used can be garbage collected.
+ */
+public class RemovalListeners
+{
+	/**
+	 * Register a listener.
+	 * @param listener The listener.
+	 */
+	public synchronized void add( IRemovalListener listener )
+	{
+		if( mListeners.size() >= mPruneSize )
+		{
+			prune();
+			mPruneSize = Math.max( INITIAL_PRUNE_SIZE, 2 * mListeners.size() );
+		}
+		
+		mListeners.add( new WeakReference<IRemovalListener>( listener ) );
+	}
+	
+	/**
+	 * Tell all listeners that a tuple is about to be removed.
+	 * @param relation The relation, which still contains the tuple.
+	 * @param index The position of the tuple.
+	 */
+	public synchronized void removing( IRelation relation, int index )
+	{
+		boolean collected = false;
+		
+		for( int l = 0; l < mListeners.size(); ++l )
+		{
+			IRemovalListener listener = mListeners.get( l ).get();
+			
+			if( listener == null )
+				collected = true;
+			else
+				listener.removing( relation, index );
+		}
+		
+		if( collected )
+			prune();
+	}
+	
+	/**
+	 * Drop the references to listeners that have been garbage collected.
+	 */
+	private void prune()
+	{
+		int live = 0;
+		
+		for( int l = 0; l < mListeners.size(); ++l )
+		{
+			if( mListeners.get( l ).get() != null )
+				mListeners.set( live++, mListeners.get( l ) );
+		}
+		
+		while( mListeners.size() > live )
+			mListeners.remove( mListeners.size() - 1 );
+	}
+	
+	/** The number of listeners, from which on collected listeners are dropped when adding. */
+	private static final int INITIAL_PRUNE_SIZE = 16;
+	
+	private final List<WeakReference<IRemovalListener>> mListeners = new ArrayList<WeakReference<IRemovalListener>>();
+	
+	/** The number of listeners at which the collected listeners are dropped next. */
+	private int mPruneSize = INITIAL_PRUNE_SIZE;
+}
@@ -0,0 +1,71 @@
+/*
+ * Integrated Rule Inference System (IRIS):
+ * An extensible rule inference system for datalog with extensions.
+ * 
+ * Copyright (C) 2008 Semantic Technology Institute (STI) Innsbruck, 
+ * University of Innsbruck, Technikerstrasse 21a, 6020 Innsbruck, Austria.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ */
+package org.deri.iris.utils;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Helper for creating the thread pools used by the parallel evaluation techniques.
+ */
+public class ThreadPools
+{
+	/**
+	 * Create a fixed size thread pool of daemon threads. Idle threads are
+	 * released after a few seconds, so a pool that is no longer used does not
+	 * need to be shut down.
+	 * @param name The prefix of the thread names.
+	 * @param threads The maximum number of threads.
+	 * @return The new thread pool.
+	 */
+	public static ExecutorService newDaemonPool( final String name, int threads )
+	{
+		if( threads < 1 )
+			throw new IllegalArgumentException( "The number of threads must be positive." );
+		
+		ThreadFactory factory = new ThreadFactory()
+		{
+			public Thread newThread( Runnable runnable )
+			{
+				Thread thread = new Thread( runnable, name + "-" + mThreadNumber.incrementAndGet() );
+				thread.setDaemon( true );
+				return thread;
+			}
+			
+			private final AtomicInteger mThreadNumber = new AtomicInteger();
+		};
+		
+		ThreadPoolExecutor pool = new ThreadPoolExecutor( threads, threads, IDLE_SECONDS, TimeUnit.SECONDS,
+						new LinkedBlockingQueue<Runnable>(), factory );
+		pool.allowCoreThreadTimeOut( true );
+		
+		return pool;
+	}
+	
+	/** The number of seconds after which an idle thread is released. */
+	private static final long IDLE_SECONDS = 5;
+}
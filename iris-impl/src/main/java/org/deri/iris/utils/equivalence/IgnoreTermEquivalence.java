@@ -22,6 +22,7 @@
  */
 package org.deri.iris.utils.equivalence;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Set;
 
@@ -39,6 +40,7 @@ import org.deri.iris.api.terms.ITerm;
  * <li><code>getEquivalent</code> returns a singleton set containing the term
  * itself.</li>
  * <li><code>setEquivalent</code> does nothing.</li>
+ * <li><code>getVersion</code> always returns 0.</li>
  * </ul>
  * 
  * @author Adrian Marte
@@ -61,4 +63,16 @@ public class IgnoreTermEquivalence implements IEquivalentTerms {
 		// Do nothing.
 	}
 
+	public long getVersion() {
+		return 0;
+	}
+
+	public Collection<ITerm> getChangedSince(long version) {
+		return Collections.emptyList();
+	}
+
+	public void caughtUp(Object user, long version) {
+		// Do nothing.
+	}
+
 }
@@ -22,8 +22,13 @@
  */
 package org.deri.iris.utils.equivalence;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.WeakHashMap;
 
 import org.deri.iris.api.terms.ITerm;
 import org.deri.iris.utils.DisjointSets;
@@ -42,6 +47,29 @@ public class TermEquivalence implements IEquivalentTerms {
 	 */
 	private final DisjointSets<ITerm> disjointSets = new DisjointSets<ITerm>();
 
+	/**
+	 * The terms whose representative changed, in the order of the merges.
+	 */
+	private final List<ITerm> changeLog = new ArrayList<ITerm>();
+
+	/**
+	 * The start of each merge in the change log, beginning with the merge of
+	 * the first version that is still kept.
+	 */
+	private final List<Integer> changeLogOffsets = new ArrayList<Integer>();
+
+	/** The number of merges discarded from the change log. */
+	private long firstVersion;
+
+	/** The size of the change log at which it is truncated next. */
+	private int truncateAt = MIN_TRUNCATE_SIZE;
+
+	/** The version each user of the change log has caught up with. */
+	private final Map<Object, Long> caughtUp = new WeakHashMap<Object, Long>();
+
+	/** The minimum size of the change log before it is truncated. */
+	private static final int MIN_TRUNCATE_SIZE = 1024;
+
 	/**
 	 * Creates a new term equivalence relation.
 	 */
@@ -57,7 +85,75 @@ public class TermEquivalence implements IEquivalentTerms {
 	}
 
 	public void setEquivalent(ITerm x, ITerm y) {
-		disjointSets.putInSameSet(x, y);
+		List<ITerm> changed = disjointSets.merge(x, y);
+
+		if (!changed.isEmpty()) {
+			synchronized (caughtUp) {
+				changeLogOffsets.add(changeLog.size());
+				changeLog.addAll(changed);
+
+				if (changeLog.size() >= truncateAt) {
+					truncate();
+				}
+			}
+		}
+	}
+
+	public long getVersion() {
+		return firstVersion + changeLogOffsets.size();
+	}
+
+	public Collection<ITerm> getChangedSince(long version) {
+		synchronized (caughtUp) {
+			if (version < firstVersion) {
+				return null;
+			}
+
+			if (version >= getVersion()) {
+				return Collections.emptyList();
+			}
+
+			int offset = changeLogOffsets.get((int) (version - firstVersion));
+
+			return new ArrayList<ITerm>(changeLog.subList(offset, changeLog
+					.size()));
+		}
+	}
+
+	public void caughtUp(Object user, long version) {
+		synchronized (caughtUp) {
+			caughtUp.put(user, version);
+		}
+	}
+
+	/**
+	 * Discards the merges that all users of the change log have caught up
+	 * with.
+	 */
+	private void truncate() {
+		long version = getVersion();
+
+		for (Long userVersion : caughtUp.values()) {
+			version = Math.min(version, userVersion);
+		}
+
+		int merges = (int) (version - firstVersion);
+
+		if (merges > 0) {
+			int offset = merges < changeLogOffsets.size() ? changeLogOffsets
+					.get(merges) : changeLog.size();
+
+			changeLog.subList(0, offset).clear();
+			changeLogOffsets.subList(0, merges).clear();
+
+			for (int i = 0; i < changeLogOffsets.size(); ++i) {
+				changeLogOffsets.set(i, changeLogOffsets.get(i) - offset);
+			}
+
+			firstVersion = version;
+		}
+
+		truncateAt = Math.max(MIN_TRUNCATE_SIZE, 2 * changeLog.size());
 	}
 
 	public ITerm findRepresentative(ITerm term) {
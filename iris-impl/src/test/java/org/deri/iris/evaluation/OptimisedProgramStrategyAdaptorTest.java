@@ -24,7 +24,9 @@ package org.deri.iris.evaluation;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import junit.framework.TestCase;
 
@@ -32,15 +34,21 @@ import org.deri.iris.Configuration;
 import org.deri.iris.EvaluationException;
 import org.deri.iris.ProgramNotStratifiedException;
 import org.deri.iris.RuleUnsafeException;
+import org.deri.iris.api.IPreparedQuery;
 import org.deri.iris.api.IProgramOptimisation;
 import org.deri.iris.api.basics.ILiteral;
 import org.deri.iris.api.basics.IQuery;
 import org.deri.iris.api.basics.IRule;
+import org.deri.iris.api.basics.ITuple;
 import org.deri.iris.api.terms.IVariable;
+import org.deri.iris.compiler.Parser;
+import org.deri.iris.evaluation.stratifiedbottomup.StratifiedBottomUpEvaluationStrategyFactory;
+import org.deri.iris.evaluation.stratifiedbottomup.seminaive.SemiNaiveEvaluatorFactory;
 import org.deri.iris.factory.Factory;
 import org.deri.iris.facts.Facts;
 import org.deri.iris.facts.IFacts;
 import org.deri.iris.facts.OriginalFactsPreservingFacts;
+import org.deri.iris.optimisations.magicsets.MagicSets;
 import org.deri.iris.storage.IRelation;
 import org.deri.iris.storage.simple.SimpleRelationFactory;
 
@@ -85,6 +93,11 @@ public class OptimisedProgramStrategyAdaptorTest extends TestCase
 	        return createRelation();
         }
 		
+		public IPreparedQuery prepareQuery( IQuery query, List<IVariable> parameters )
+		{
+			return new PreparedQuery( this, query, parameters );
+		}
+		
 		IFacts mGivenFacts;
 		List<IRule> mGivenRules;
 		IQuery mGivenQuery;
@@ -242,4 +255,64 @@ public class OptimisedProgramStrategyAdaptorTest extends TestCase
 		assertTrue( oN.rulesOutput == factory.mStrategy.mGivenRules );	// Same object
 		assertTrue( oN.queryOutput == factory.mStrategy.mGivenQuery );	// Same object
 	}
+	
+	class CountingOptimiser implements IProgramOptimisation {
+
+		CountingOptimiser( IProgramOptimisation optimisation ) {
+			mOptimisation = optimisation;
+		}
+		
+		public Result optimise( Collection<IRule> rules, IQuery query ) {
+			mCount++;
+	        return mOptimisation.optimise( rules, query );
+        }
+
+		final IProgramOptimisation mOptimisation;
+		int mCount;
+	}
+	
+	public void testMagicSetsOncePerBindingPattern() throws Exception {
+		
+		Configuration configuration = new Configuration();
+		
+		configuration.programOptmimisers.clear();
+		CountingOptimiser optimiser = new CountingOptimiser( new MagicSets() );
+		configuration.programOptmimisers.add( optimiser );
+
+		Parser parser = new Parser();
+		parser.parse(
+			"e('a', 'b'). e('b', 'c'). e('c', 'd'). e('x', 'y')." +
+			"tc(?X, ?Y) :- e(?X, ?Y)." +
+			"tc(?X, ?Z) :- tc(?X, ?Y), e(?Y, ?Z)." +
+			"?- tc('c', ?Y)." +
+			"?- tc('a', ?Y)." +
+			"?- tc('c', ?Y)." +
+			"?- tc('x', ?Y)." +
+			"?- tc('y', ?Y)." );
+		
+		IFacts facts = new Facts( parser.getFacts(), new SimpleRelationFactory() );
+		
+		OptimisedProgramStrategyAdaptor adaptor = new OptimisedProgramStrategyAdaptor( facts, parser.getRules(), configuration );
+		
+		for( IQuery query : parser.getQueries() ) {
+			IRelation expected = new StratifiedBottomUpEvaluationStrategyFactory( new SemiNaiveEvaluatorFactory() )
+				.createEvaluator( new Facts( parser.getFacts(), new SimpleRelationFactory() ), parser.getRules(), configuration )
+				.evaluateQuery( query, new ArrayList<IVariable>() );
+			
+			IRelation actual = adaptor.evaluateQuery( query, new ArrayList<IVariable>() );
+			
+			assertEquals( query.toString(), tuples( expected ), tuples( actual ) );
+		}
+		
+		assertEquals( 1, optimiser.mCount );
+	}
+	
+	private static Set<ITuple> tuples( IRelation relation ) {
+		Set<ITuple> tuples = new HashSet<ITuple>();
+		
+		for( int t = 0; t < relation.size(); ++t )
+			tuples.add( relation.get( t ) );
+		
+		return tuples;
+	}
 }
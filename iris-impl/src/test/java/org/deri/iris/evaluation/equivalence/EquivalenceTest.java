@@ -24,7 +24,11 @@ package org.deri.iris.evaluation.equivalence;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
 
+import org.deri.iris.api.basics.IPredicate;
+import org.deri.iris.api.terms.ITerm;
 import org.deri.iris.evaluation.ProgramEvaluationTest;
 import org.deri.iris.rules.compiler.Helper;
 import org.deri.iris.storage.IRelation;
@@ -105,4 +109,47 @@ public class EquivalenceTest extends ProgramEvaluationTest {
 		assertEquals("Relation does not have correct size", 6, relation.size());
 	}
 
+	public void testRWithCanonicalEquivalentTerms() throws Exception {
+		defaultConfiguration.canonicalEquivalentTerms = true;
+
+		testR();
+	}
+
+	public void testSWithCanonicalEquivalentTerms() throws Exception {
+		defaultConfiguration.canonicalEquivalentTerms = true;
+
+		testS();
+	}
+
+	public void testOnlyRepresentativesAreStored() throws Exception {
+		defaultConfiguration.canonicalEquivalentTerms = true;
+
+		evaluate("?- s(?X, ?Y).");
+
+		// C2 = D2 and C3 = D3, so only one term of each class is left.
+		Set<ITerm> terms = new HashSet<ITerm>();
+
+		for (IPredicate predicate : facts.getPredicates()) {
+			IRelation relation = facts.get(predicate);
+
+			for (int i = 0; i < relation.size(); i++) {
+				for (ITerm term : relation.get(i)) {
+					terms.add(term);
+				}
+			}
+
+			if (predicate.getPredicateSymbol().equals("s")) {
+				assertEquals("Relation does not have correct size", 3,
+						relation.size());
+			}
+		}
+
+		assertFalse("C2 and D2 are both stored.", terms.contains(Helper
+				.createConstantTuple("C2").get(0))
+				&& terms.contains(Helper.createConstantTuple("D2").get(0)));
+		assertFalse("C3 and D3 are both stored.", terms.contains(Helper
+				.createConstantTuple("C3").get(0))
+				&& terms.contains(Helper.createConstantTuple("D3").get(0)));
+	}
+
 }
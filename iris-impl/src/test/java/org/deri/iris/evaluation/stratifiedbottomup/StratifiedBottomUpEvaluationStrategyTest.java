@@ -0,0 +1,179 @@
+/*
+ * Integrated Rule Inference System (IRIS):
+ * An extensible rule inference system for datalog with extensions.
+ * 
+ * Copyright (C) 2008 Semantic Technology Institute (STI) Innsbruck, 
+ * University of Innsbruck, Technikerstrasse 21a, 6020 Innsbruck, Austria.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ */
+package org.deri.iris.evaluation.stratifiedbottomup;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.deri.iris.Configuration;
+import org.deri.iris.api.basics.IPredicate;
+import org.deri.iris.api.basics.ITuple;
+import org.deri.iris.compiler.Parser;
+import org.deri.iris.evaluation.stratifiedbottomup.naive.NaiveEvaluatorFactory;
+import org.deri.iris.evaluation.stratifiedbottomup.seminaive.SemiNaiveEvaluatorFactory;
+import org.deri.iris.facts.Facts;
+import org.deri.iris.facts.IFacts;
+import org.deri.iris.storage.IRelation;
+import org.deri.iris.utils.equivalence.IEquivalentTerms;
+
+/**
+ * Test the evaluation of independent components of the strata in parallel.
+ */
+public class StratifiedBottomUpEvaluationStrategyTest extends TestCase
+{
+	/** p, q and s do not depend on each other, r and t wait for their negated sub-goals. */
+	private static final String PROGRAM =
+		"e(1). e(2). e(3). f(2). g(3)." +
+		"p(?X) :- e(?X)." +
+		"q(?X) :- f(?X)." +
+		"s(?X) :- g(?X)." +
+		"r(?X) :- p(?X), not q(?X)." +
+		"t(?X) :- r(?X), not s(?X).";
+
+	@Override
+	protected void setUp() throws Exception
+	{
+		mExecutor = new CountingExecutor();
+	}
+
+	@Override
+	protected void tearDown() throws Exception
+	{
+		mExecutor.shutdown();
+	}
+
+	public void testComponentsAreEvaluatedOnThePool() throws Exception
+	{
+		IFacts parallel = evaluate( PROGRAM, mExecutor );
+		IFacts sequential = evaluate( PROGRAM, null );
+
+		// One task each for p, q and s, and one for r and t, which share a stratum.
+		assertEquals( 4, mExecutor.mTasks.get() );
+
+		for( IPredicate predicate : sequential.getPredicates() )
+			assertEquals( predicate.toString(), tuples( sequential.get( predicate ) ), tuples( parallel.get( predicate ) ) );
+
+		for( IPredicate predicate : parallel.getPredicates() )
+		{
+			if( predicate.getPredicateSymbol().equals( "t" ) )
+				assertEquals( 1, parallel.get( predicate ).size() );
+		}
+	}
+
+	public void testRuleHeadEqualityIsEvaluatedSequentially() throws Exception
+	{
+		evaluate( "e(1, 2). p(1)." +
+			"?X = ?Y :- e(?X, ?Y)." +
+			"q(?X) :- p(?X).", mExecutor );
+
+		assertEquals( 0, mExecutor.mTasks.get() );
+	}
+
+	public void testRuleHeadEqualityUsesTheConfiguredFactory() throws Exception
+	{
+		CountingNaiveEvaluatorFactory factory = new CountingNaiveEvaluatorFactory();
+
+		String program = "e(1, 2). p(1)." +
+			"?X = ?Y :- e(?X, ?Y)." +
+			"q(?X) :- p(?X).";
+
+		IFacts naive = evaluate( program, factory, null );
+		IFacts semiNaive = evaluate( program, null );
+
+		assertTrue( factory.mEquivalenceEvaluators > 0 );
+
+		for( IPredicate predicate : semiNaive.getPredicates() )
+			assertEquals( predicate.toString(), tuples( semiNaive.get( predicate ) ), tuples( naive.get( predicate ) ) );
+	}
+
+	private static IFacts evaluate( String program, ThreadPoolExecutor executor ) throws Exception
+	{
+		return evaluate( program, new SemiNaiveEvaluatorFactory(), executor );
+	}
+
+	private static IFacts evaluate( String program, IRuleEvaluatorFactory factory, ThreadPoolExecutor executor ) throws Exception
+	{
+		Parser parser = new Parser();
+		parser.parse( program );
+
+		Configuration configuration = new Configuration();
+		IFacts facts = new Facts( parser.getFacts(), configuration.relationFactory );
+
+		new StratifiedBottomUpEvaluationStrategy( facts, parser.getRules(), factory, executor, configuration );
+
+		return facts;
+	}
+
+	private static Set<ITuple> tuples( IRelation relation )
+	{
+		Set<ITuple> tuples = new HashSet<ITuple>();
+
+		for( int t = 0; t < relation.size(); ++t )
+			tuples.add( relation.get( t ) );
+
+		return tuples;
+	}
+
+	/**
+	 * A thread pool that counts the tasks it is given.
+	 */
+	private static class CountingExecutor extends ThreadPoolExecutor
+	{
+		CountingExecutor()
+		{
+			super( 4, 4, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>() );
+		}
+
+		@Override
+		public void execute( Runnable command )
+		{
+			mTasks.incrementAndGet();
+			super.execute( command );
+		}
+
+		final AtomicInteger mTasks = new AtomicInteger();
+	}
+
+	/**
+	 * A naive evaluator factory that counts the evaluators created for equivalences.
+	 */
+	private static class CountingNaiveEvaluatorFactory extends NaiveEvaluatorFactory
+	{
+		@Override
+		public IRuleEvaluator createEvaluator( IEquivalentTerms equivalentTerms )
+		{
+			++mEquivalenceEvaluators;
+			return super.createEvaluator( equivalentTerms );
+		}
+
+		int mEquivalenceEvaluators;
+	}
+
+	private CountingExecutor mExecutor;
+}
@@ -30,6 +30,8 @@ import java.util.Set;
 import junit.framework.Assert;
 
 import org.deri.iris.Configuration;
+import org.deri.iris.ConfigurationThreadLocalStorage;
+import org.deri.iris.EvaluationException;
 import org.deri.iris.KnowledgeBaseFactory;
 import org.deri.iris.api.IKnowledgeBase;
 import org.deri.iris.api.basics.IPredicate;
@@ -39,13 +41,20 @@ import org.deri.iris.api.basics.ITuple;
 import org.deri.iris.compiler.Parser;
 import org.deri.iris.evaluation.stratifiedbottomup.StratifiedBottomUpEvaluationStrategyFactory;
 import org.deri.iris.evaluation.stratifiedbottomup.naive.NaiveEvaluatorFactory;
+import org.deri.iris.evaluation.stratifiedbottomup.seminaive.ParallelSemiNaiveEvaluatorFactory;
+import org.deri.iris.evaluation.stratifiedbottomup.seminaive.SemiNaiveEvaluatorFactory;
 import org.deri.iris.evaluation.topdown.oldt.OLDTEvaluationStrategyFactory;
 import org.deri.iris.evaluation.topdown.sldnf.SLDNFEvaluationStrategyFactory;
+import org.deri.iris.evaluation.topdown.slg.SLGEvaluationStrategyFactory;
 import org.deri.iris.evaluation.wellfounded.WellFoundedEvaluationStrategyFactory;
 import org.deri.iris.optimisations.magicsets.MagicSets;
 import org.deri.iris.optimisations.rulefilter.RuleFilter;
+import org.deri.iris.rules.RuleHeadEquality;
+import org.deri.iris.rules.optimisation.CostBasedJoinOrderOptimiser;
 import org.deri.iris.rules.safety.AugmentingRuleSafetyProcessor;
 import org.deri.iris.storage.IRelation;
+import org.deri.iris.storage.columnar.ColumnarRelationFactory;
+import org.deri.iris.terms.TermInterner;
 
 public class Helper
 {
@@ -87,6 +96,10 @@ public class Helper
 		evaluateWellFounded( program, expectedResults );
 		evaluateSemiNaiveAndOptimisations( program, expectedResults );
 		
+		for( Variant variant : SEMI_NAIVE_VARIANTS )
+			evaluateSemiNaive( program, expectedResults, variant );
+		
+//		evaluateSLG( program, expectedResults );
 //		evaluateOLDT( program, expectedResults );
 //		evaluateSLDNF( program, expectedResults );
 	}
@@ -149,6 +162,124 @@ public class Helper
 		executeAndCheckResults( program, expectedResults, configuration, "Semi-Naive and Magic Sets" );
 	}
 	
+	/**
+	 * Evaluate a logic program with the default semi-naive configuration, changed by
+	 * the given variant.
+	 */
+	public static void evaluateSemiNaive( String program, String expectedResults, Variant variant ) throws Exception
+	{
+		Configuration configuration = KnowledgeBaseFactory.getDefaultConfiguration();
+		
+		variant.configure( configuration );
+		try
+		{
+			executeAndCheckResults( program, expectedResults, configuration, variant.mName );
+		}
+		finally
+		{
+			variant.restore();
+		}
+	}
+	
+	/**
+	 * A change to the default semi-naive configuration, e.g. to enable an optional
+	 * evaluation technique, that all programs are evaluated with.
+	 */
+	static abstract class Variant
+	{
+		Variant( String name )
+		{
+			mName = name;
+		}
+		
+		/** Change the default configuration. */
+		abstract void configure( Configuration configuration );
+		
+		/** Undo any global state set by configure(), after the evaluation. */
+		void restore()
+		{
+		}
+		
+		final String mName;
+	}
+	
+	/** Shared, so that the tests do not create a thread pool for every program. */
+	private static final ParallelSemiNaiveEvaluatorFactory PARALLEL_EVALUATOR_FACTORY = new ParallelSemiNaiveEvaluatorFactory( 4 );
+	
+	/** Shared, so that the tests do not create a thread pool for every program. */
+	private static final StratifiedBottomUpEvaluationStrategyFactory PARALLEL_STRATA_STRATEGY_FACTORY =
+		new StratifiedBottomUpEvaluationStrategyFactory( new SemiNaiveEvaluatorFactory(), 4 );
+	
+	/** The variants of the semi-naive configuration that all programs are evaluated with. */
+	static final Variant[] SEMI_NAIVE_VARIANTS =
+	{
+		new Variant( "Semi-Naive with columnar relations" )
+		{
+			void configure( Configuration configuration )
+			{
+				configuration.relationFactory = new ColumnarRelationFactory();
+			}
+		},
+		new Variant( "Semi-Naive with cost-based join ordering" )
+		{
+			void configure( Configuration configuration )
+			{
+				configuration.joinOrderOptimiser = new CostBasedJoinOrderOptimiser();
+			}
+		},
+		new Variant( "Semi-Naive pipelined" )
+		{
+			void configure( Configuration configuration )
+			{
+				configuration.pipelinedRuleEvaluation = true;
+			}
+		},
+		new Variant( "Parallel Semi-Naive" )
+		{
+			void configure( Configuration configuration )
+			{
+				configuration.evaluationStrategyFactory = new StratifiedBottomUpEvaluationStrategyFactory( PARALLEL_EVALUATOR_FACTORY );
+			}
+		},
+		new Variant( "Semi-Naive with partitioned rule elements" )
+		{
+			void configure( Configuration configuration )
+			{
+				configuration.parallelRuleElementThreshold = 2;
+				configuration.parallelRuleElementThreads = 4;
+			}
+		},
+		new Variant( "Semi-Naive with parallel strata" )
+		{
+			void configure( Configuration configuration )
+			{
+				configuration.evaluationStrategyFactory = PARALLEL_STRATA_STRATEGY_FACTORY;
+			}
+		},
+		new Variant( "Semi-Naive with interned terms" )
+		{
+			void configure( Configuration configuration )
+			{
+				// Also intern the terms of the parsed program.
+				configuration.termInterning = true;
+				ConfigurationThreadLocalStorage.setConfiguration( configuration );
+			}
+			
+			void restore()
+			{
+				ConfigurationThreadLocalStorage.removeConfiguration();
+				TermInterner.clear();
+			}
+		},
+		new Variant( "Semi-Naive with canonical equivalent terms" )
+		{
+			void configure( Configuration configuration )
+			{
+				configuration.canonicalEquivalentTerms = true;
+			}
+		}
+	};
+	
 	public static void evaluateSLDNF( String program, String expectedResults ) throws Exception
 	{
 		Configuration configuration = KnowledgeBaseFactory.getDefaultConfiguration();
@@ -157,6 +288,26 @@ public class Helper
 		executeAndCheckResults( program, expectedResults, configuration, "SLDNF" );
 	}
 	
+	public static void evaluateSLG( String program, String expectedResults ) throws Exception
+	{
+		Configuration configuration = KnowledgeBaseFactory.getDefaultConfiguration();
+		configuration.evaluationStrategyFactory = new SLGEvaluationStrategyFactory();
+
+		// SLG resolution rejects rule head equality.
+		Parser parser = new Parser();
+		parser.parse( program );
+		for( IRule rule : parser.getRules() )
+		{
+			if( RuleHeadEquality.hasRuleHeadEquality( rule ) )
+			{
+				checkFailure( program, EvaluationException.class, configuration, "SLG" );
+				return;
+			}
+		}
+
+		executeAndCheckResults( program, expectedResults, configuration, "SLG" );
+	}
+	
 	public static void evaluateOLDT( String program, String expectedResults ) throws Exception
 	{
 		Configuration configuration = KnowledgeBaseFactory.getDefaultConfiguration();
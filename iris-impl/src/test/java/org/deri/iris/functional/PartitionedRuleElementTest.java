@@ -0,0 +1,70 @@
+/*
+ * Integrated Rule Inference System (IRIS):
+ * An extensible rule inference system for datalog with extensions.
+ * 
+ * Copyright (C) 2008 Semantic Technology Institute (STI) Innsbruck, 
+ * University of Innsbruck, Technikerstrasse 21a, 6020 Innsbruck, Austria.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ */
+package org.deri.iris.functional;
+
+import junit.framework.TestCase;
+
+import org.deri.iris.Configuration;
+import org.deri.iris.KnowledgeBaseFactory;
+import org.deri.iris.api.IKnowledgeBase;
+import org.deri.iris.api.basics.IQuery;
+import org.deri.iris.compiler.Parser;
+import org.deri.iris.storage.IRelation;
+
+/**
+ * Tests for knowledge-bases that process rule elements on several threads.
+ */
+public class PartitionedRuleElementTest extends TestCase
+{
+	private static final String PROGRAM =
+		"e(1, 2). e(2, 3). e(3, 4). e(4, 5). e(5, 6). e(6, 1)." +
+		"tc(?X, ?Y) :- e(?X, ?Y)." +
+		"tc(?X, ?Z) :- tc(?X, ?Y), e(?Y, ?Z)." +
+		"?- tc(?X, ?Y).";
+	
+	public void testKnowledgeBasesShareConfiguration() throws Exception
+	{
+		Configuration configuration = KnowledgeBaseFactory.getDefaultConfiguration();
+		configuration.parallelRuleElementThreshold = 2;
+		configuration.parallelRuleElementThreads = 4;
+		
+		Parser parser = new Parser();
+		parser.parse( PROGRAM );
+		IQuery query = parser.getQueries().get( 0 );
+		
+		IKnowledgeBase kb1 = KnowledgeBaseFactory.createKnowledgeBase( parser.getFacts(), parser.getRules(), configuration );
+		
+		parser = new Parser();
+		parser.parse( PROGRAM );
+		IKnowledgeBase kb2 = KnowledgeBaseFactory.createKnowledgeBase( parser.getFacts(), parser.getRules(), configuration );
+		
+		// The knowledge-bases keep their thread pools to themselves.
+		assertNull( configuration.parallelRuleElementExecutor );
+		
+		IRelation result1 = kb1.execute( query );
+		IRelation result2 = kb2.execute( query );
+		
+		assertEquals( 36, result1.size() );
+		assertEquals( 36, result2.size() );
+	}
+}
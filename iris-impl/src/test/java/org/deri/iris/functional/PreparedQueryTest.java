@@ -0,0 +1,200 @@
+/*
+ * Integrated Rule Inference System (IRIS):
+ * An extensible rule inference system for datalog with extensions.
+ * 
+ * Copyright (C) 2008 Semantic Technology Institute (STI) Innsbruck, 
+ * University of Innsbruck, Technikerstrasse 21a, 6020 Innsbruck, Austria.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ */
+package org.deri.iris.functional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import org.deri.iris.Configuration;
+import org.deri.iris.KnowledgeBaseFactory;
+import org.deri.iris.api.IKnowledgeBase;
+import org.deri.iris.api.IPreparedQuery;
+import org.deri.iris.api.basics.IQuery;
+import org.deri.iris.api.basics.ITuple;
+import org.deri.iris.api.terms.ITerm;
+import org.deri.iris.api.terms.IVariable;
+import org.deri.iris.compiler.Parser;
+import org.deri.iris.evaluation.PreparedQuery;
+import org.deri.iris.evaluation.topdown.slg.SLGEvaluationStrategyFactory;
+import org.deri.iris.evaluation.wellfounded.WellFoundedEvaluationStrategyFactory;
+import org.deri.iris.factory.Factory;
+import org.deri.iris.optimisations.magicsets.MagicSets;
+import org.deri.iris.optimisations.rulefilter.RuleFilter;
+import org.deri.iris.rules.safety.AugmentingRuleSafetyProcessor;
+import org.deri.iris.storage.IRelation;
+
+/**
+ * Tests for queries that are prepared once and executed with different values.
+ */
+public class PreparedQueryTest extends TestCase
+{
+	private static final String PROGRAM =
+		"e('a', 'b'). e('b', 'c'). e('c', 'd'). e('x', 'y')." +
+		"tc(?X, ?Y) :- e(?X, ?Y)." +
+		"tc(?X, ?Z) :- tc(?X, ?Y), e(?Y, ?Z).";
+	
+	private static final String[] VALUES = { "a", "c", "d", "x" };
+
+	public void testSemiNaive() throws Exception
+	{
+		checkPreparedQueries( KnowledgeBaseFactory.getDefaultConfiguration() );
+	}
+	
+	public void testMagicSets() throws Exception
+	{
+		Configuration configuration = KnowledgeBaseFactory.getDefaultConfiguration();
+		configuration.programOptmimisers.add( new RuleFilter() );
+		configuration.programOptmimisers.add( new MagicSets() );
+		
+		checkPreparedQueries( configuration );
+	}
+	
+	public void testWellFounded() throws Exception
+	{
+		Configuration configuration = KnowledgeBaseFactory.getDefaultConfiguration();
+		configuration.ruleSafetyProcessor = new AugmentingRuleSafetyProcessor();
+		configuration.evaluationStrategyFactory = new WellFoundedEvaluationStrategyFactory();
+		configuration.stratifiers.clear();
+		
+		checkPreparedQueries( configuration );
+	}
+	
+	public void testSLG() throws Exception
+	{
+		Configuration configuration = KnowledgeBaseFactory.getDefaultConfiguration();
+		configuration.evaluationStrategyFactory = new SLGEvaluationStrategyFactory();
+		
+		checkPreparedQueries( configuration );
+	}
+	
+	public void testWrongNumberOfBindings() throws Exception
+	{
+		IKnowledgeBase kb = createKnowledgeBase( KnowledgeBaseFactory.getDefaultConfiguration() );
+		
+		IPreparedQuery prepared = kb.prepare( query( "?- tc(?A, ?Y)." ), variables( "A" ) );
+		
+		try
+		{
+			prepared.execute( Factory.BASIC.createTuple() );
+			fail( "Should have thrown an IllegalArgumentException" );
+		}
+		catch( IllegalArgumentException e )
+		{
+		}
+	}
+	
+	private void checkPreparedQueries( Configuration configuration ) throws Exception
+	{
+		checkPreparedQuery( configuration, "?- tc(?A, ?Y).", "A" );
+		checkPreparedQuery( configuration, "?- tc(?A, ?Y), not tc(?B, ?Y).", "A", "B" );
+		checkPreparedQuery( configuration, "?- e(?X, ?Y), tc(?Y, ?A).", "A" );
+	}
+	
+	private void checkPreparedQuery( Configuration configuration, String queryString, String... parameterNames ) throws Exception
+	{
+		IQuery query = query( queryString );
+		List<IVariable> parameters = variables( parameterNames );
+		
+		IKnowledgeBase kb = createKnowledgeBase( configuration );
+		IPreparedQuery prepared = kb.prepare( query, parameters );
+		
+		assertEquals( parameters, prepared.getParameters() );
+		
+		for( String value1 : VALUES )
+		{
+			for( String value2 : VALUES )
+			{
+				List<ITerm> terms = new ArrayList<ITerm>();
+				terms.add( Factory.TERM.createString( value1 ) );
+				if( parameters.size() > 1 )
+					terms.add( Factory.TERM.createString( value2 ) );
+				ITuple bindings = Factory.BASIC.createTuple( terms );
+				
+				List<IVariable> variableBindings = new ArrayList<IVariable>();
+				IRelation actual = prepared.execute( bindings, variableBindings );
+				
+				// The same query with the values in place, on a fresh knowledge-base.
+				List<IVariable> expectedVariableBindings = new ArrayList<IVariable>();
+				IRelation expected = createKnowledgeBase( configuration ).execute(
+						PreparedQuery.substitute( query, parameters, bindings ), expectedVariableBindings );
+				
+				assertEquals( queryString + " " + bindings,
+						answers( expected, expectedVariableBindings ),
+						answers( actual, variableBindings ) );
+			}
+		}
+	}
+	
+	private static IKnowledgeBase createKnowledgeBase( Configuration configuration ) throws Exception
+	{
+		Parser parser = new Parser();
+		parser.parse( PROGRAM );
+		
+		return KnowledgeBaseFactory.createKnowledgeBase( parser.getFacts(), parser.getRules(), configuration );
+	}
+	
+	private static IQuery query( String query ) throws Exception
+	{
+		Parser parser = new Parser();
+		parser.parse( query );
+		
+		return parser.getQueries().get( 0 );
+	}
+	
+	private static List<IVariable> variables( String... names )
+	{
+		List<IVariable> variables = new ArrayList<IVariable>();
+		
+		for( String name : names )
+			variables.add( Factory.TERM.createVariable( name ) );
+		
+		return variables;
+	}
+	
+	/**
+	 * The answers of a relation as variable bindings, independent of the order of the columns.
+	 */
+	private static Set<Map<IVariable, ITerm>> answers( IRelation relation, List<IVariable> variables )
+	{
+		Set<Map<IVariable, ITerm>> answers = new HashSet<Map<IVariable, ITerm>>();
+		
+		for( int t = 0; t < relation.size(); ++t )
+		{
+			ITuple tuple = relation.get( t );
+			Map<IVariable, ITerm> answer = new HashMap<IVariable, ITerm>();
+			
+			for( int v = 0; v < variables.size(); ++v )
+				answer.put( variables.get( v ), tuple.get( v ) );
+			
+			answers.add( answer );
+		}
+		
+		return answers;
+	}
+}
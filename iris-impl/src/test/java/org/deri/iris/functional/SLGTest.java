@@ -0,0 +1,118 @@
+/*
+ * Integrated Rule Inference System (IRIS):
+ * An extensible rule inference system for datalog with extensions.
+ * 
+ * Copyright (C) 2008 Semantic Technology Institute (STI) Innsbruck, 
+ * University of Innsbruck, Technikerstrasse 21a, 6020 Innsbruck, Austria.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ */
+package org.deri.iris.functional;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the SLG evaluation strategy. SLG resolution selects literals from
+ * left to right, so it is not run by Helper.evaluateWithAllStrategies(), where
+ * some programs join large relations before filtering them.
+ */
+public class SLGTest extends TestCase
+{
+	public void testTransitiveClosure() throws Exception
+	{
+		String program =
+			"edge(1, 2). edge(2, 3). edge(3, 1). edge(4, 5)." +
+			"path(?X, ?Y) :- path(?X, ?Z), edge(?Z, ?Y)." +
+			"path(?X, ?Y) :- edge(?X, ?Y)." +
+			"?- path(1, ?Y).";
+		
+		Helper.evaluateSLG( program, "dummy(1). dummy(2). dummy(3)." );
+	}
+
+	public void testEquality() throws Exception
+	{
+		String program =
+			"s(1). s(2). s('a'). s('b'). s(1.2). s(2.0). s(_float(2.0))." +
+			"p(?X) :- s(?X), ?X = 2." +
+			"p(?X) :- s(?X), ?X = 'b'." +
+			"?- p(?X).";
+		
+		Helper.evaluateSLG( program, "p(2). p(2.0). p(_float(2.0)). p('b')." );
+	}
+
+	public void testArithmetic() throws Exception
+	{
+		String program =
+			"p(1). p(2). p(3)." +
+			"q(?X, ?Y) :- p(?X), ?X + 1 = ?Y." +
+			"?- q(?X, ?Y).";
+		
+		Helper.evaluateSLG( program, "q(1, 2). q(2, 3). q(3, 4)." );
+	}
+
+	public void testJoinWithEquality() throws Exception
+	{
+		final int MAX = 20;
+		
+		StringBuilder program = new StringBuilder();
+		
+		for( int i = 0; i < MAX; ++i )
+			program.append( "p(" + i + "). q(" + i + "). r(" + i + ")." );
+		
+		program.append( "t(?X, ?Y, ?Z) :- p(?X), q(?Y), r(?Z), ?X = ?Y, ?Y = ?Z." );
+		program.append( "?- t(?X, ?Y, ?Z)." );
+		
+		StringBuilder expectedResults = new StringBuilder();
+		
+		for( int i = 0; i < MAX; ++i )
+			expectedResults.append( "t(" + i + ", " + i + ", " + i + ")." );
+		
+		Helper.evaluateSLG( program.toString(), expectedResults.toString() );
+	}
+
+	public void testFunctionSymbols() throws Exception
+	{
+		String program =
+			"p(g(?X,?Y)) :- q(f(?X,?Y))." +
+			"q(i(1,h(2)))." +
+			"q(f(3,h(4)))." +
+			"?- p(?X).";
+		
+		Helper.evaluateSLG( program, "p(g(3,h(4)))." );
+	}
+
+	public void testNegation() throws Exception
+	{
+		String program =
+			"node(1). node(2). node(3). edge(1, 2)." +
+			"reach(?X) :- edge(1, ?X)." +
+			"reach(?Y) :- reach(?X), edge(?X, ?Y)." +
+			"unreachable(?X) :- node(?X), not reach(?X)." +
+			"?- unreachable(?X).";
+		
+		Helper.evaluateSLG( program, "unreachable(1). unreachable(3)." );
+	}
+
+	public void testRuleHeadEqualityRejected() throws Exception
+	{
+		String program =
+			"a(?X) = b(?X) :- c(?X)." +
+			"c('A')." +
+			"?- a('A') = b('A').";
+		
+		Helper.evaluateSLG( program, "dummy()." );
+	}
+}
@@ -0,0 +1,279 @@
+/*
+ * Integrated Rule Inference System (IRIS):
+ * An extensible rule inference system for datalog with extensions.
+ * 
+ * Copyright (C) 2008 Semantic Technology Institute (STI) Innsbruck, 
+ * University of Innsbruck, Technikerstrasse 21a, 6020 Innsbruck, Austria.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ */
+package org.deri.iris.functional;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import org.deri.iris.Configuration;
+import org.deri.iris.KnowledgeBaseFactory;
+import org.deri.iris.api.IKnowledgeBase;
+import org.deri.iris.api.IPreparedQuery;
+import org.deri.iris.api.basics.IPredicate;
+import org.deri.iris.api.basics.IQuery;
+import org.deri.iris.api.basics.IRule;
+import org.deri.iris.api.basics.ITuple;
+import org.deri.iris.api.terms.ITerm;
+import org.deri.iris.compiler.Parser;
+import org.deri.iris.evaluation.topdown.slg.SLGEvaluationStrategyFactory;
+import org.deri.iris.factory.Factory;
+import org.deri.iris.optimisations.magicsets.MagicSets;
+import org.deri.iris.storage.IRelation;
+import org.deri.iris.storage.columnar.ColumnarRelationFactory;
+import org.deri.iris.storage.hash.HashIndexFactory;
+import org.deri.iris.storage.simple.SimpleRelationFactory;
+
+/**
+ * Tests for adding facts to and removing facts from a knowledge-base.
+ */
+public class UpdateFactsTest extends TestCase
+{
+	private static final String PROGRAM =
+		"e('a', 'b'). e('b', 'c'). e('c', 'a'). e('c', 'd'). linked('a')." +
+		"tc('e', 'e')." +
+		"tc(?X, ?Y) :- e(?X, ?Y)." +
+		"tc(?X, ?Z) :- tc(?X, ?Y), e(?Y, ?Z)." +
+		"node(?X) :- e(?X, ?Y)." +
+		"node(?Y) :- e(?X, ?Y)." +
+		"unreachable(?X, ?Y) :- node(?X), node(?Y), not tc(?X, ?Y)." +
+		"isolated(?X) :- node(?X), not linked(?X)." +
+		"far(?X) :- unreachable(?X, ?Y), not isolated(?Y)." +
+		"triangle(?X, ?Y, ?Z) :- e(?X, ?Y), e(?Y, ?Z), e(?Z, ?X)." +
+		"?- tc(?X, ?Y)." +
+		"?- node(?X)." +
+		"?- unreachable(?X, ?Y)." +
+		"?- isolated(?X)." +
+		"?- far(?X)." +
+		"?- triangle(?X, ?Y, ?Z).";
+	
+	private static final String[] NODES = { "a", "b", "c", "d", "e", "f" };
+	
+	public void testSemiNaive() throws Exception
+	{
+		checkUpdates( KnowledgeBaseFactory.getDefaultConfiguration() );
+	}
+	
+	public void testColumnarRelations() throws Exception
+	{
+		Configuration configuration = KnowledgeBaseFactory.getDefaultConfiguration();
+		configuration.relationFactory = new ColumnarRelationFactory();
+		configuration.indexFactory = new HashIndexFactory();
+		
+		checkUpdates( configuration );
+	}
+	
+	public void testMagicSets() throws Exception
+	{
+		Configuration configuration = KnowledgeBaseFactory.getDefaultConfiguration();
+		configuration.programOptmimisers.add( new MagicSets() );
+		
+		checkUpdates( configuration );
+	}
+	
+	public void testSLG() throws Exception
+	{
+		Configuration configuration = KnowledgeBaseFactory.getDefaultConfiguration();
+		configuration.evaluationStrategyFactory = new SLGEvaluationStrategyFactory();
+		
+		checkUpdates( configuration );
+	}
+	
+	public void testPreparedQueryAfterUpdate() throws Exception
+	{
+		Parser parser = new Parser();
+		parser.parse( PROGRAM );
+		
+		IKnowledgeBase kb = KnowledgeBaseFactory.createKnowledgeBase( parser.getFacts(), parser.getRules() );
+		IQuery query = parser.getQueries().get( 0 );
+		
+		IPreparedQuery prepared = kb.prepare( query, null );
+		assertEquals( 13, prepared.execute( Factory.BASIC.createTuple() ).size() );
+		
+		kb.removeFacts( facts( "e", "c", "a" ) );
+		assertEquals( 7, prepared.execute( Factory.BASIC.createTuple() ).size() );
+		
+		kb.addFacts( facts( "e", "d", "a" ) );
+		assertEquals( 17, prepared.execute( Factory.BASIC.createTuple() ).size() );
+	}
+	
+	public void testCachedQueryAfterRemoval() throws Exception
+	{
+		Parser parser = new Parser();
+		parser.parse( PROGRAM + "?- e('c', ?Y)." );
+		
+		IKnowledgeBase kb = KnowledgeBaseFactory.createKnowledgeBase( parser.getFacts(), parser.getRules() );
+		IQuery query = parser.getQueries().get( 6 );
+		
+		assertEquals( 2, kb.execute( query ).size() );
+		
+		kb.removeFacts( facts( "e", "c", "a" ) );
+		assertEquals( Collections.singleton( tuple( "d" ) ), tuples( kb.execute( query ) ) );
+	}
+	
+	public void testRemoveDeducedFact() throws Exception
+	{
+		Parser parser = new Parser();
+		parser.parse( PROGRAM );
+		
+		IKnowledgeBase kb = KnowledgeBaseFactory.createKnowledgeBase( parser.getFacts(), parser.getRules() );
+		
+		// Only explicit facts can be removed.
+		kb.removeFacts( facts( "tc", "a", "b" ) );
+		assertTrue( tuples( kb.execute( parser.getQueries().get( 0 ) ) ).contains( tuple( "a", "b" ) ) );
+		
+		// An explicit fact stays, as long as it can be deduced.
+		kb.addFacts( facts( "tc", "a", "b" ) );
+		kb.removeFacts( facts( "tc", "a", "b" ) );
+		assertTrue( tuples( kb.execute( parser.getQueries().get( 0 ) ) ).contains( tuple( "a", "b" ) ) );
+		
+		kb.removeFacts( facts( "tc", "e", "e" ) );
+		assertFalse( tuples( kb.execute( parser.getQueries().get( 0 ) ) ).contains( tuple( "e", "e" ) ) );
+	}
+	
+	/**
+	 * Add and remove random facts, and compare the answers with the answers of a new
+	 * knowledge-base with the same facts.
+	 */
+	private void checkUpdates( Configuration configuration ) throws Exception
+	{
+		Parser parser = new Parser();
+		parser.parse( PROGRAM );
+		
+		List<IRule> rules = parser.getRules();
+		List<IQuery> queries = parser.getQueries();
+		
+		Map<IPredicate, Set<ITuple>> explicit = new HashMap<IPredicate, Set<ITuple>>();
+		
+		for( Map.Entry<IPredicate, IRelation> entry : parser.getFacts().entrySet() )
+			explicit.put( entry.getKey(), tuples( entry.getValue() ) );
+		
+		IKnowledgeBase kb = KnowledgeBaseFactory.createKnowledgeBase( parser.getFacts(), rules, configuration );
+		
+		Random random = new Random( 42 );
+		
+		for( int update = 0; update < 60; ++update )
+		{
+			String predicate;
+			ITuple tuple;
+			
+			switch( random.nextInt( 4 ) )
+			{
+			case 0:
+				predicate = "linked";
+				tuple = tuple( node( random ) );
+				break;
+			case 1:
+				predicate = "tc";
+				tuple = tuple( node( random ), node( random ) );
+				break;
+			default:
+				predicate = "e";
+				tuple = tuple( node( random ), node( random ) );
+			}
+			
+			Map<IPredicate, IRelation> facts = facts( predicate, tuple );
+			IPredicate key = facts.keySet().iterator().next();
+			
+			if( ! explicit.containsKey( key ) )
+				explicit.put( key, new HashSet<ITuple>() );
+			
+			if( random.nextBoolean() )
+			{
+				kb.addFacts( facts );
+				explicit.get( key ).add( tuple );
+			}
+			else
+			{
+				kb.removeFacts( facts );
+				explicit.get( key ).remove( tuple );
+			}
+			
+			Map<IPredicate, IRelation> expectedFacts = new HashMap<IPredicate, IRelation>();
+			
+			for( Map.Entry<IPredicate, Set<ITuple>> entry : explicit.entrySet() )
+			{
+				IRelation relation = new SimpleRelationFactory().createRelation();
+				for( ITuple t : entry.getValue() )
+					relation.add( t );
+				expectedFacts.put( entry.getKey(), relation );
+			}
+			
+			IKnowledgeBase expected = KnowledgeBaseFactory.createKnowledgeBase( expectedFacts, rules, configuration );
+			
+			for( IQuery query : queries )
+			{
+				assertEquals( update + ": " + predicate + tuple + " " + query,
+						tuples( expected.execute( query ) ), tuples( kb.execute( query ) ) );
+			}
+		}
+	}
+	
+	private static String node( Random random )
+	{
+		return NODES[ random.nextInt( NODES.length ) ];
+	}
+	
+	private static ITuple tuple( String... values )
+	{
+		List<ITerm> terms = new ArrayList<ITerm>();
+		
+		for( String value : values )
+			terms.add( Factory.TERM.createString( value ) );
+		
+		return Factory.BASIC.createTuple( terms );
+	}
+	
+	private static Map<IPredicate, IRelation> facts( String predicate, String... values )
+	{
+		return facts( predicate, tuple( values ) );
+	}
+	
+	private static Map<IPredicate, IRelation> facts( String predicate, ITuple tuple )
+	{
+		IRelation relation = new SimpleRelationFactory().createRelation();
+		relation.add( tuple );
+		
+		Map<IPredicate, IRelation> facts = new HashMap<IPredicate, IRelation>();
+		facts.put( Factory.BASIC.createPredicate( predicate, tuple.size() ), relation );
+		
+		return facts;
+	}
+	
+	private static Set<ITuple> tuples( IRelation relation )
+	{
+		Set<ITuple> tuples = new HashSet<ITuple>();
+		
+		for( int t = 0; t < relation.size(); ++t )
+			tuples.add( relation.get( t ) );
+		
+		return tuples;
+	}
+}
@@ -36,6 +36,7 @@ public class WellFoundedSemanticsTest extends TestCase
 			"?- p(?x).";
 		
 		Helper.evaluateWellFounded( program, "dummy('b')." );
+		Helper.evaluateSLG( program, "dummy('b')." );
 	}
 
 	public void testKempSrivastavaStuckeyExample2() throws Exception
@@ -46,8 +47,11 @@ public class WellFoundedSemanticsTest extends TestCase
 			"r('a').";
 		
 		Helper.evaluateWellFounded( program + "?- r(?x).", "dummy('a')." );
+		Helper.evaluateSLG( program + "?- r(?x).", "dummy('a')." );
 		Helper.evaluateWellFounded( program + "?- p(?x).", "" );
+		Helper.evaluateSLG( program + "?- p(?x).", "" );
 		Helper.evaluateWellFounded( program + "?- q(?x).", "dummy('a')." );
+		Helper.evaluateSLG( program + "?- q(?x).", "dummy('a')." );
 	}
 
 	public void testKempSrivastavaStuckeyExample2WithVariables() throws Exception
@@ -58,8 +62,11 @@ public class WellFoundedSemanticsTest extends TestCase
 			"r('a').";
 		
 		Helper.evaluateWellFounded( program + "?- r(?x).", "dummy('a')." );
+		Helper.evaluateSLG( program + "?- r(?x).", "dummy('a')." );
 		Helper.evaluateWellFounded( program + "?- p(?x).", "" );
+		Helper.evaluateSLG( program + "?- p(?x).", "" );
 		Helper.evaluateWellFounded( program + "?- q(?x).", "dummy('a')." );
+		Helper.evaluateSLG( program + "?- q(?x).", "dummy('a')." );
 	}
 
 	public void testKempSrivastavaStuckeyExample3() throws Exception
@@ -70,8 +77,11 @@ public class WellFoundedSemanticsTest extends TestCase
 			"r('a').";
 		
 		Helper.evaluateWellFounded( program + "?- r(?x).", "dummy('a')." );
+		Helper.evaluateSLG( program + "?- r(?x).", "dummy('a')." );
 		Helper.evaluateWellFounded( program + "?- p(?x).", "" );
+		Helper.evaluateSLG( program + "?- p(?x).", "" );
 		Helper.evaluateWellFounded( program + "?- q(?x).", "" );
+		Helper.evaluateSLG( program + "?- q(?x).", "" );
 	}
 	
 	public void testKempSrivastavaStuckeyExample3WithVariables() throws Exception
@@ -82,8 +92,11 @@ public class WellFoundedSemanticsTest extends TestCase
 			"r('a').";
 		
 		Helper.evaluateWellFounded( program + "?- r(?x).", "dummy('a')." );
+		Helper.evaluateSLG( program + "?- r(?x).", "dummy('a')." );
 		Helper.evaluateWellFounded( program + "?- p(?x).", "" );
+		Helper.evaluateSLG( program + "?- p(?x).", "" );
 		Helper.evaluateWellFounded( program + "?- q(?x).", "" );
+		Helper.evaluateSLG( program + "?- q(?x).", "" );
 	}
 	
 	// NB This is actually a stratified program.
@@ -98,8 +111,11 @@ public class WellFoundedSemanticsTest extends TestCase
 			"succ(0,1).";
 		
 		Helper.evaluateWellFounded( program + "?- loaded(?x).", "dummy(0).dummy(1)." );
+		Helper.evaluateSLG( program + "?- loaded(?x).", "dummy(0).dummy(1)." );
 		Helper.evaluateWellFounded( program + "?- shoots(?x).", "dummy(1)." );
+		Helper.evaluateSLG( program + "?- shoots(?x).", "dummy(1)." );
 		Helper.evaluateWellFounded( program + "?- noise(?x).", "dummy(1)." );
+		Helper.evaluateSLG( program + "?- noise(?x).", "dummy(1)." );
 	}
 
 	// NB This is also a stratified program.
@@ -118,5 +134,6 @@ public class WellFoundedSemanticsTest extends TestCase
 			"?- a(?x,?y).";
 		
 		Helper.evaluateWellFounded( program, "dummy(2,3).dummy(3,2).dummy(3,3)." );
+		Helper.evaluateSLG( program, "dummy(2,3).dummy(3,2).dummy(3,3)." );
 	}
 }
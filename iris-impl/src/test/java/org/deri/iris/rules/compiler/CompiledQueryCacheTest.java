@@ -0,0 +1,199 @@
+/*
+ * Integrated Rule Inference System (IRIS):
+ * An extensible rule inference system for datalog with extensions.
+ * 
+ * Copyright (C) 2008 Semantic Technology Institute (STI) Innsbruck, 
+ * University of Innsbruck, Technikerstrasse 21a, 6020 Innsbruck, Austria.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ */
+package org.deri.iris.rules.compiler;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import org.deri.iris.Configuration;
+import org.deri.iris.api.basics.IQuery;
+import org.deri.iris.api.basics.ITuple;
+import org.deri.iris.api.terms.IVariable;
+import org.deri.iris.compiler.Parser;
+import org.deri.iris.factory.Factory;
+import org.deri.iris.facts.Facts;
+import org.deri.iris.facts.IFacts;
+import org.deri.iris.storage.IRelation;
+import org.deri.iris.storage.simple.SimpleRelationFactory;
+import org.deri.iris.utils.equivalence.IgnoreTermEquivalence;
+
+public class CompiledQueryCacheTest extends TestCase
+{
+	private static final String FACTS =
+		"e('a', 'b'). e('b', 'c'). e('c', 'd'). e('b', 'd')." +
+		"n('d', 1). n('c', 2).";
+
+	@Override
+	protected void setUp() throws Exception
+	{
+		Parser parser = new Parser();
+		parser.parse( FACTS );
+		
+		mFacts = new Facts( parser.getFacts(), new SimpleRelationFactory() );
+		mConfiguration = new Configuration();
+	}
+	
+	public void testQueriesOfTheSameShapeShareTheCompiledQuery() throws Exception
+	{
+		CompiledQueryCache cache = createCache();
+		
+		List<IVariable> variables = new ArrayList<IVariable>();
+		IRelation result = cache.evaluate( query( "?- e('a', ?Y)." ), variables );
+		
+		assertEquals( 1, result.size() );
+		assertEquals( Helper.createConstantTuple( "b" ), result.get( 0 ) );
+		assertEquals( Helper.createTerms( "Y" ), variables );
+
+		result = cache.evaluate( query( "?- e('b', ?Z)." ), variables );
+		
+		assertEquals( 2, result.size() );
+		assertTrue( result.contains( Helper.createConstantTuple( "c" ) ) );
+		assertTrue( result.contains( Helper.createConstantTuple( "d" ) ) );
+		assertEquals( Helper.createTerms( "Z" ), variables );
+		
+		assertEquals( 1, cache.getMisses() );
+		assertEquals( 1, cache.getHits() );
+		assertEquals( 1, cache.size() );
+	}
+	
+	public void testResultsMatchTheUncachedQuery() throws Exception
+	{
+		String[] queries = {
+			"?- e(?X, 'c'), e(?X, ?Y), n(?Y, ?N).",
+			"?- e('a', ?X), e(?X, ?Y), not n(?Y, 2).",
+			"?- n(?Y, ?N), e(?X, ?Y), ?N > 1.",
+			"?- e('a', 'b').",
+			"?- not e('a', 'c')."
+		};
+		
+		CompiledQueryCache cache = createCache();
+		
+		for( String query : queries )
+		{
+			// Evaluate each query twice, once for a miss and once for a hit.
+			for( int i = 0; i < 2; ++i )
+			{
+				List<IVariable> expectedVariables = new ArrayList<IVariable>();
+				IRelation expected = evaluate( query( query ), expectedVariables );
+				
+				List<IVariable> variables = new ArrayList<IVariable>();
+				IRelation result = cache.evaluate( query( query ), variables );
+				
+				assertEquals( query, expectedVariables, variables );
+				assertEquals( query, tuples( expected ), tuples( result ) );
+			}
+		}
+		
+		assertEquals( queries.length, cache.getMisses() );
+		assertEquals( queries.length, cache.getHits() );
+	}
+	
+	public void testLeastRecentlyUsedQueryIsDropped() throws Exception
+	{
+		mConfiguration.compiledQueryCacheSize = 2;
+		CompiledQueryCache cache = createCache();
+		
+		List<IVariable> variables = new ArrayList<IVariable>();
+		cache.evaluate( query( "?- e('a', ?Y)." ), variables );
+		cache.evaluate( query( "?- n(?X, ?Y)." ), variables );
+		cache.evaluate( query( "?- e('b', ?Y)." ), variables );
+		cache.evaluate( query( "?- e(?X, 'd')." ), variables );
+		
+		assertEquals( 2, cache.size() );
+		assertEquals( 1, cache.getHits() );
+		
+		// The query for n was dropped.
+		cache.evaluate( query( "?- n(?X, ?Y)." ), variables );
+		
+		assertEquals( 1, cache.getHits() );
+		assertEquals( 4, cache.getMisses() );
+	}
+	
+	public void testDisabledCache() throws Exception
+	{
+		mConfiguration.compiledQueryCacheSize = 0;
+		CompiledQueryCache cache = createCache();
+		
+		List<IVariable> variables = new ArrayList<IVariable>();
+		IRelation result = cache.evaluate( query( "?- e('b', ?Y)." ), variables );
+		
+		assertEquals( 2, result.size() );
+		assertEquals( 0, cache.size() );
+		assertEquals( 0, cache.getMisses() );
+	}
+	
+	public void testAddedFactsAreFound() throws Exception
+	{
+		CompiledQueryCache cache = createCache();
+		
+		List<IVariable> variables = new ArrayList<IVariable>();
+		assertEquals( 0, cache.evaluate( query( "?- e('d', ?Y)." ), variables ).size() );
+		
+		mFacts.get( Factory.BASIC.createPredicate( "e", 2 ) ).add( Helper.createConstantTuple( "d", "a" ) );
+		
+		IRelation result = cache.evaluate( query( "?- e('d', ?Y)." ), variables );
+		assertEquals( 1, result.size() );
+		assertEquals( Helper.createConstantTuple( "a" ), result.get( 0 ) );
+		assertEquals( 1, cache.getHits() );
+	}
+	
+	private CompiledQueryCache createCache()
+	{
+		return new CompiledQueryCache( mFacts, new IgnoreTermEquivalence(), mConfiguration );
+	}
+	
+	private IRelation evaluate( IQuery query, List<IVariable> variables ) throws Exception
+	{
+		ICompiledRule compiledQuery = new RuleCompiler( mFacts, mConfiguration ).compile( query );
+		
+		variables.addAll( compiledQuery.getVariablesBindings() );
+		
+		return compiledQuery.evaluate();
+	}
+	
+	private static IQuery query( String query ) throws Exception
+	{
+		Parser parser = new Parser();
+		parser.parse( query );
+		
+		return parser.getQueries().get( 0 );
+	}
+	
+	private static Set<ITuple> tuples( IRelation relation )
+	{
+		Set<ITuple> tuples = new HashSet<ITuple>();
+		
+		for( int t = 0; t < relation.size(); ++t )
+			tuples.add( relation.get( t ) );
+		
+		return tuples;
+	}
+	
+	private IFacts mFacts;
+	
+	private Configuration mConfiguration;
+}
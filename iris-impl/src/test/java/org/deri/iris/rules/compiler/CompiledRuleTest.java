@@ -26,15 +26,18 @@ import static org.deri.iris.factory.Factory.BASIC;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 import junit.framework.TestCase;
 
 import org.deri.iris.Configuration;
 import org.deri.iris.api.basics.ILiteral;
 import org.deri.iris.api.basics.IRule;
+import org.deri.iris.api.terms.IVariable;
 import org.deri.iris.facts.Facts;
 import org.deri.iris.facts.IFacts;
 import org.deri.iris.storage.IRelation;
+import org.deri.iris.storage.hash.HashIndexFactory;
 import org.deri.iris.storage.simple.SimpleRelationFactory;
 
 
@@ -92,6 +95,295 @@ public class CompiledRuleTest extends TestCase
 		assertEquals( 2, P.size() );		
 	}
 	
+	public void testEvaluateIterativelyReusesDeltaIndex() throws Exception
+	{
+		IFacts facts = new Facts( new SimpleRelationFactory() );
+
+		IRelation E = facts.get( BASIC.createPredicate( "e", 2 ) );
+		for( int i = 1; i < 5; ++i )
+			E.add( Helper.createTuple( i, i + 1 ) );
+		
+		// tc( X, Z ) :- e( X, Y ) & tc( Y, Z )
+		List<ILiteral> bodyLiterals = new ArrayList<ILiteral>();
+		bodyLiterals.add( Helper.createLiteral( true, "e", "X", "Y" ) );
+		bodyLiterals.add( Helper.createLiteral( true, "tc", "Y", "Z" ) );
+		
+		List<ILiteral> headLiterals = new ArrayList<ILiteral>();
+		headLiterals.add( Helper.createLiteral( true, "tc", "X", "Z" ) );
+		
+		IRule rule = BASIC.createRule( headLiterals, bodyLiterals );
+		
+		Configuration configuration = new Configuration();
+		configuration.indexFactory = new HashIndexFactory();
+		
+		RuleCompiler compiler = new RuleCompiler( facts, configuration );
+		ICompiledRule cRule = compiler.compile( rule );
+		
+		IndexStatistics.reset();
+		
+		IFacts deltas = new Facts( new SimpleRelationFactory() );
+		deltas.get( BASIC.createPredicate( "tc", 2 ) ).addAll( E );
+		
+		IRelation result = cRule.evaluateIteratively( deltas );
+		assertEquals( 3, result.size() );
+		assertTrue( result.contains( Helper.createTuple( 1, 3 ) ) );
+		assertTrue( result.contains( Helper.createTuple( 3, 5 ) ) );
+		
+		deltas = new Facts( new SimpleRelationFactory() );
+		deltas.get( BASIC.createPredicate( "tc", 2 ) ).addAll( result );
+		
+		// Only the tuples of the latest delta must be joined.
+		result = cRule.evaluateIteratively( deltas );
+		assertEquals( 2, result.size() );
+		assertTrue( result.contains( Helper.createTuple( 1, 4 ) ) );
+		assertTrue( result.contains( Helper.createTuple( 2, 5 ) ) );
+		
+		assertEquals( 1, IndexStatistics.getDeltaIndexesBuilt() );
+		assertEquals( 1, IndexStatistics.getDeltaIndexBuildsAvoided() );
+	}
+	
+	public void testDeltaLogWithDefaultIndexFactory() throws Exception
+	{
+		IFacts facts = new Facts( new SimpleRelationFactory() );
+
+		IRelation E = facts.get( BASIC.createPredicate( "e", 2 ) );
+		for( int i = 1; i < 5; ++i )
+			E.add( Helper.createTuple( i, i + 1 ) );
+		
+		// tc( X, Z ) :- e( X, Y ) & tc( Y, Z )
+		List<ILiteral> bodyLiterals = new ArrayList<ILiteral>();
+		bodyLiterals.add( Helper.createLiteral( true, "e", "X", "Y" ) );
+		bodyLiterals.add( Helper.createLiteral( true, "tc", "Y", "Z" ) );
+		
+		List<ILiteral> headLiterals = new ArrayList<ILiteral>();
+		headLiterals.add( Helper.createLiteral( true, "tc", "X", "Z" ) );
+		
+		IRule rule = BASIC.createRule( headLiterals, bodyLiterals );
+		
+		// The delta log does not depend on the configured index factory.
+		RuleCompiler compiler = new RuleCompiler( facts, new Configuration() );
+		ICompiledRule cRule = compiler.compile( rule );
+		
+		IndexStatistics.reset();
+		
+		IFacts deltas = new Facts( new SimpleRelationFactory() );
+		deltas.get( BASIC.createPredicate( "tc", 2 ) ).addAll( E );
+		
+		IRelation result = cRule.evaluateIteratively( deltas );
+		assertEquals( 3, result.size() );
+		
+		deltas = new Facts( new SimpleRelationFactory() );
+		deltas.get( BASIC.createPredicate( "tc", 2 ) ).addAll( result );
+		
+		result = cRule.evaluateIteratively( deltas );
+		assertEquals( 2, result.size() );
+		assertTrue( result.contains( Helper.createTuple( 1, 4 ) ) );
+		assertTrue( result.contains( Helper.createTuple( 2, 5 ) ) );
+		
+		assertEquals( 1, IndexStatistics.getDeltaIndexesBuilt() );
+		assertEquals( 1, IndexStatistics.getDeltaIndexBuildsAvoided() );
+	}
+	
+	public void testEvaluateDropsDeltaLog() throws Exception
+	{
+		IFacts facts = new Facts( new SimpleRelationFactory() );
+
+		IRelation E = facts.get( BASIC.createPredicate( "e", 2 ) );
+		for( int i = 1; i < 5; ++i )
+			E.add( Helper.createTuple( i, i + 1 ) );
+		
+		// tc( X, Z ) :- e( X, Y ) & tc( Y, Z )
+		List<ILiteral> bodyLiterals = new ArrayList<ILiteral>();
+		bodyLiterals.add( Helper.createLiteral( true, "e", "X", "Y" ) );
+		bodyLiterals.add( Helper.createLiteral( true, "tc", "Y", "Z" ) );
+		
+		List<ILiteral> headLiterals = new ArrayList<ILiteral>();
+		headLiterals.add( Helper.createLiteral( true, "tc", "X", "Z" ) );
+		
+		IRule rule = BASIC.createRule( headLiterals, bodyLiterals );
+		
+		Configuration configuration = new Configuration();
+		configuration.indexFactory = new HashIndexFactory();
+		
+		RuleCompiler compiler = new RuleCompiler( facts, configuration );
+		ICompiledRule cRule = compiler.compile( rule );
+		
+		IndexStatistics.reset();
+		
+		IFacts deltas = new Facts( new SimpleRelationFactory() );
+		deltas.get( BASIC.createPredicate( "tc", 2 ) ).addAll( E );
+		
+		assertEquals( 3, cRule.evaluateIteratively( deltas ).size() );
+		
+		// A new evaluation on all facts must not see the deltas of the previous one.
+		cRule.evaluate();
+		
+		assertEquals( 3, cRule.evaluateIteratively( deltas ).size() );
+		
+		assertEquals( 2, IndexStatistics.getDeltaIndexesBuilt() );
+		assertEquals( 0, IndexStatistics.getDeltaIndexBuildsAvoided() );
+	}
+	
+	public void testCyclicJoin() throws Exception
+	{
+		int[][] edges = { { 1, 2 }, { 2, 3 }, { 3, 1 }, { 1, 3 }, { 3, 4 }, { 4, 1 }, { 2, 2 }, { 4, 5 } };
+		
+		IFacts facts = new Facts( new SimpleRelationFactory() );
+
+		IRelation E = facts.get( BASIC.createPredicate( "e", 2 ) );
+		for( int[] edge : edges )
+			E.add( Helper.createTuple( edge[ 0 ], edge[ 1 ] ) );
+		
+		// t( X, Y, Z ) :- e( X, Y ) & e( Y, Z ) & e( Z, X )
+		List<ILiteral> bodyLiterals = new ArrayList<ILiteral>();
+		bodyLiterals.add( Helper.createLiteral( true, "e", "X", "Y" ) );
+		bodyLiterals.add( Helper.createLiteral( true, "e", "Y", "Z" ) );
+		bodyLiterals.add( Helper.createLiteral( true, "e", "Z", "X" ) );
+		
+		List<ILiteral> headLiterals = new ArrayList<ILiteral>();
+		headLiterals.add( Helper.createLiteral( true, "t", "X", "Y", "Z" ) );
+		
+		IRule rule = BASIC.createRule( headLiterals, bodyLiterals );
+		
+		RuleCompiler compiler = new RuleCompiler( facts, new Configuration() );
+		ICompiledRule cRule = compiler.compile( rule );
+		
+		IRelation result = cRule.evaluate();
+		
+		int triangles = 0;
+		for( int[] xy : edges )
+		{
+			for( int[] yz : edges )
+			{
+				for( int[] zx : edges )
+				{
+					if( xy[ 1 ] == yz[ 0 ] && yz[ 1 ] == zx[ 0 ] && zx[ 1 ] == xy[ 0 ] )
+					{
+						assertTrue( result.contains( Helper.createTuple( xy[ 0 ], yz[ 0 ], zx[ 0 ] ) ) );
+						++triangles;
+					}
+				}
+			}
+		}
+		assertEquals( triangles, result.size() );
+		
+		// Only triangles with the edge e( 4, 1 ) are new.
+		IFacts deltas = new Facts( new SimpleRelationFactory() );
+		deltas.get( BASIC.createPredicate( "e", 2 ) ).add( Helper.createTuple( 4, 1 ) );
+		
+		result = cRule.evaluateIteratively( deltas );
+		assertEquals( 3, result.size() );
+		assertTrue( result.contains( Helper.createTuple( 4, 1, 3 ) ) );
+		assertTrue( result.contains( Helper.createTuple( 1, 3, 4 ) ) );
+		assertTrue( result.contains( Helper.createTuple( 3, 4, 1 ) ) );
+	}
+	
+	public void testCyclicJoinMergesNewTuples() throws Exception
+	{
+		IFacts facts = new Facts( new SimpleRelationFactory() );
+
+		IRelation E = facts.get( BASIC.createPredicate( "e", 2 ) );
+		E.add( Helper.createTuple( 1, 2 ) );
+		E.add( Helper.createTuple( 2, 3 ) );
+		E.add( Helper.createTuple( 3, 1 ) );
+		E.add( Helper.createTuple( 3, 4 ) );
+		
+		// t( X, Y, Z ) :- e( X, Y ) & e( Y, Z ) & e( Z, X )
+		List<ILiteral> bodyLiterals = new ArrayList<ILiteral>();
+		bodyLiterals.add( Helper.createLiteral( true, "e", "X", "Y" ) );
+		bodyLiterals.add( Helper.createLiteral( true, "e", "Y", "Z" ) );
+		bodyLiterals.add( Helper.createLiteral( true, "e", "Z", "X" ) );
+		
+		List<ILiteral> headLiterals = new ArrayList<ILiteral>();
+		headLiterals.add( Helper.createLiteral( true, "t", "X", "Y", "Z" ) );
+		
+		IRule rule = BASIC.createRule( headLiterals, bodyLiterals );
+		
+		RuleCompiler compiler = new RuleCompiler( facts, new Configuration() );
+		ICompiledRule cRule = compiler.compile( rule );
+		
+		assertEquals( 3, cRule.evaluate().size() );
+		
+		// The new tuples are merged in to the tries of the previous evaluation.
+		E.add( Helper.createTuple( 4, 2 ) );
+		E.add( Helper.createTuple( 2, 4 ) );
+		
+		IRelation result = cRule.evaluate();
+		assertEquals( 6, result.size() );
+		assertTrue( result.contains( Helper.createTuple( 2, 3, 4 ) ) );
+		assertTrue( result.contains( Helper.createTuple( 3, 4, 2 ) ) );
+		assertTrue( result.contains( Helper.createTuple( 4, 2, 3 ) ) );
+		
+		// The delta is joined with the full relations.
+		E.add( Helper.createTuple( 4, 1 ) );
+		
+		IFacts deltas = new Facts( new SimpleRelationFactory() );
+		deltas.get( BASIC.createPredicate( "e", 2 ) ).add( Helper.createTuple( 4, 1 ) );
+		
+		result = cRule.evaluateIteratively( deltas );
+		assertEquals( 3, result.size() );
+		assertTrue( result.contains( Helper.createTuple( 4, 1, 2 ) ) );
+		assertTrue( result.contains( Helper.createTuple( 1, 2, 4 ) ) );
+		assertTrue( result.contains( Helper.createTuple( 2, 4, 1 ) ) );
+	}
+	
+	public void testCyclicJoinWithParameters() throws Exception
+	{
+		int[][] edges = { { 1, 2 }, { 2, 3 }, { 3, 1 }, { 1, 3 }, { 3, 4 }, { 4, 1 } };
+		
+		IFacts facts = new Facts( new SimpleRelationFactory() );
+
+		IRelation E = facts.get( BASIC.createPredicate( "e", 2 ) );
+		for( int[] edge : edges )
+			E.add( Helper.createTuple( edge[ 0 ], edge[ 1 ] ) );
+		
+		// ?- e( X, Y ) & e( Y, Z ) & e( Z, X ) with the parameter X
+		List<ILiteral> literals = new ArrayList<ILiteral>();
+		literals.add( Helper.createLiteral( true, "e", "X", "Y" ) );
+		literals.add( Helper.createLiteral( true, "e", "Y", "Z" ) );
+		literals.add( Helper.createLiteral( true, "e", "Z", "X" ) );
+		
+		List<IVariable> parameters = new ArrayList<IVariable>();
+		parameters.add( (IVariable) Helper.createTerm( "X" ) );
+		
+		RuleCompiler compiler = new RuleCompiler( facts, new Configuration() );
+		ICompiledRule cQuery = compiler.compile( BASIC.createQuery( literals ), parameters );
+		
+		List<IVariable> variables = cQuery.getVariablesBindings();
+		int x = variables.indexOf( Helper.createTerm( "X" ) );
+		int y = variables.indexOf( Helper.createTerm( "Y" ) );
+		
+		IRelation result = cQuery.evaluate( Helper.createTuple( 4 ) );
+		assertEquals( 1, result.size() );
+		assertEquals( Helper.createTerm( 4 ), result.get( 0 ).get( x ) );
+		assertEquals( Helper.createTerm( 1 ), result.get( 0 ).get( y ) );
+		
+		result = cQuery.evaluate( Helper.createTuple( 1 ) );
+		assertEquals( 2, result.size() );
+		
+		result = cQuery.evaluate( Helper.createTuple( 5 ) );
+		assertEquals( 0, result.size() );
+	}
+	
+	public void testIsCyclic()
+	{
+		List<Set<IVariable>> variables = new ArrayList<Set<IVariable>>();
+		variables.add( Helper.createLiteral( true, "e", "X", "Y" ).getAtom().getTuple().getVariables() );
+		variables.add( Helper.createLiteral( true, "e", "Y", "Z" ).getAtom().getTuple().getVariables() );
+		variables.add( Helper.createLiteral( true, "e", "Z", "W" ).getAtom().getTuple().getVariables() );
+		
+		assertFalse( LeapfrogTriejoin.isCyclic( variables ) );
+		
+		variables.add( Helper.createLiteral( true, "e", "W", "X" ).getAtom().getTuple().getVariables() );
+		
+		assertTrue( LeapfrogTriejoin.isCyclic( variables ) );
+		
+		// A literal covering the whole cycle makes it acyclic again.
+		variables.add( Helper.createLiteral( true, "f", "X", "Y", "Z", "W" ).getAtom().getTuple().getVariables() );
+		
+		assertFalse( LeapfrogTriejoin.isCyclic( variables ) );
+	}
+	
 	public void testLargeDataSetWithFunctionSymbols() throws Exception
 	{
 		IFacts facts = new Facts( new SimpleRelationFactory() );
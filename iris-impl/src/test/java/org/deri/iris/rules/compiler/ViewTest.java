@@ -30,7 +30,9 @@ import org.deri.iris.api.basics.ITuple;
 import org.deri.iris.api.terms.IVariable;
 import org.deri.iris.api.terms.concrete.IIntegerTerm;
 import org.deri.iris.storage.IRelation;
+import org.deri.iris.storage.IRemovableRelation;
 import org.deri.iris.storage.simple.SimpleRelationFactory;
+import org.deri.iris.utils.equivalence.TermEquivalence;
 
 public class ViewTest extends TestCase
 {
@@ -87,4 +89,74 @@ public class ViewTest extends TestCase
 //		
 //		assertFalse( it.hasNext() );
 	}
+	
+	public void testEquivalentTerms()
+	{
+		TermEquivalence equivalence = new TermEquivalence();
+		
+		// f(X,X,'a')
+		ITuple viewCriteria = Helper.createTuple( "X", "X", Helper.createConstant( "a" ) );
+		
+		IRelation relation = new SimpleRelationFactory().createRelation();
+		relation.add( Helper.createConstantTuple( 1, 2, "a" ) );
+		relation.add( Helper.createConstantTuple( 3, 3, "b" ) );
+		relation.add( Helper.createConstantTuple( 4, 5, "a" ) );
+		
+		View view = new View( relation, viewCriteria, equivalence, new SimpleRelationFactory() );
+		
+		assertEquals( 0, view.size() );
+		
+		equivalence.setEquivalent( Helper.createTerm( 1 ), Helper.createTerm( 2 ) );
+		assertEquals( 1, view.size() );
+		
+		// Only the rejected tuple containing 5 must match now.
+		equivalence.setEquivalent( Helper.createTerm( 5 ), Helper.createTerm( 4 ) );
+		assertEquals( 2, view.size() );
+		
+		// A change of a constant of the view criteria.
+		equivalence.setEquivalent( Helper.createConstant( "b" ), Helper.createConstant( "a" ) );
+		assertEquals( 3, view.size() );
+	}
+	
+	public void testRemove()
+	{
+		IRemovableRelation relation = (IRemovableRelation) mRelation;
+		
+		assertEquals( 1, mView.size() );
+		
+		relation.remove( Helper.createTuple( 1, 2, Helper.createConstructedTerm( "g", 2, 3 ) ) );
+		assertEquals( 1, mView.size() );
+		
+		relation.remove( Helper.createTuple( 1, 2, Helper.createConstructedTerm( "g", 2, 1 ) ) );
+		assertEquals( 0, mView.size() );
+		
+		relation.add( Helper.createTuple( 3, 4, Helper.createConstructedTerm( "g", 4, 3 ) ) );
+		assertEquals( 1, mView.size() );
+	}
+	
+	public void testRemoveEquivalentTuples()
+	{
+		TermEquivalence equivalence = new TermEquivalence();
+		
+		// f(X,'a')
+		ITuple viewCriteria = Helper.createTuple( "X", Helper.createConstant( "a" ) );
+		
+		IRelation relation = new SimpleRelationFactory().createRelation();
+		relation.add( Helper.createConstantTuple( 1, "a" ) );
+		relation.add( Helper.createConstantTuple( 1, "b" ) );
+		relation.add( Helper.createConstantTuple( 2, "a" ) );
+		
+		View view = new View( relation, viewCriteria, equivalence, new SimpleRelationFactory() );
+		
+		equivalence.setEquivalent( Helper.createConstant( "b" ), Helper.createConstant( "a" ) );
+		assertEquals( 2, view.size() );
+		
+		// Both f(1,'a') and f(1,'b') match the view tuple (1).
+		( (IRemovableRelation) relation ).remove( Helper.createConstantTuple( 1, "a" ) );
+		assertEquals( 2, view.size() );
+		
+		( (IRemovableRelation) relation ).remove( Helper.createConstantTuple( 1, "b" ) );
+		assertEquals( 1, view.size() );
+		assertEquals( Helper.createConstantTuple( 2 ), view.get( 0 ) );
+	}
 }
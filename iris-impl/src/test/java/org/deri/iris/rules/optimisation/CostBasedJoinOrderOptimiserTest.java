@@ -0,0 +1,108 @@
+/*
+ * Integrated Rule Inference System (IRIS):
+ * An extensible rule inference system for datalog with extensions.
+ * 
+ * Copyright (C) 2008 Semantic Technology Institute (STI) Innsbruck, 
+ * University of Innsbruck, Technikerstrasse 21a, 6020 Innsbruck, Austria.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ */
+package org.deri.iris.rules.optimisation;
+
+import junit.framework.TestCase;
+
+import org.deri.iris.api.basics.IRule;
+import org.deri.iris.compiler.Parser;
+import org.deri.iris.facts.Facts;
+import org.deri.iris.facts.IFacts;
+import org.deri.iris.storage.simple.SimpleRelationFactory;
+
+public class CostBasedJoinOrderOptimiserTest extends TestCase
+{
+	@Override
+	protected void setUp() throws Exception
+	{
+		StringBuilder program = new StringBuilder();
+		
+		for( int i = 0; i < 100; ++i )
+			program.append( "big(" ).append( i ).append( "," ).append( i % 20 ).append( ")." );
+		
+		program.append( "small(1). small(2)." );
+		
+		Parser parser = new Parser();
+		parser.parse( program.toString() );
+		
+		mFacts = new Facts( parser.getFacts(), new SimpleRelationFactory() );
+		mOptimiser = new CostBasedJoinOrderOptimiser();
+	}
+	
+	public void testSmallRelationFirst() throws Exception
+	{
+		check( "p(?x) :- big(?x, ?y), small(?y).",
+			"p(?x) :- small(?y), big(?x, ?y)." );
+	}
+	
+	public void testAlreadyInBestOrder() throws Exception
+	{
+		IRule rule = makeRule( "p(?x) :- small(?y), big(?x, ?y)." );
+		
+		assertSame( rule, mOptimiser.optimise( rule, mFacts ) );
+	}
+	
+	public void testSingleLiteralUnchanged() throws Exception
+	{
+		IRule rule = makeRule( "p(?x) :- ?x < 5, big(?x, ?y)." );
+		
+		assertSame( rule, mOptimiser.optimise( rule, mFacts ) );
+	}
+	
+	public void testBuiltinsAndNegationPlacedWhenBound() throws Exception
+	{
+		check( "p(?x, ?z) :- big(?x, ?y), ?y + 1 = ?z, not q(?x), ?x < 5, small(?y).",
+			"p(?x, ?z) :- small(?y), big(?x, ?y), not q(?x), ?x < 5, ?y + 1 = ?z." );
+	}
+	
+	public void testJoinOnSharedVariable() throws Exception
+	{
+		check( "p(?x, ?z) :- big(?x, ?y), big(?z, ?y), small(?y).",
+			"p(?x, ?z) :- small(?y), big(?x, ?y), big(?z, ?y)." );
+	}
+	
+	public void testGreedy() throws Exception
+	{
+		mOptimiser = new CostBasedJoinOrderOptimiser( 1, CostBasedJoinOrderOptimiser.DEFAULT_SAMPLE_SIZE );
+		
+		check( "p(?x) :- big(?x, ?y), small(?y).",
+			"p(?x) :- small(?y), big(?x, ?y)." );
+	}
+	
+	private void check( String rule, String expected ) throws Exception
+	{
+		assertEquals( makeRule( expected ), mOptimiser.optimise( makeRule( rule ), mFacts ) );
+	}
+	
+	private IRule makeRule( String strRule ) throws Exception
+	{
+		Parser parser = new Parser();
+		parser.parse( strRule );
+		
+		return parser.getRules().get( 0 );
+	}
+	
+	private IFacts mFacts;
+	
+	private CostBasedJoinOrderOptimiser mOptimiser;
+}
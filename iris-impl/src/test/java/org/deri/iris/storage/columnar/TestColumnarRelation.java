@@ -0,0 +1,205 @@
+/*
+ * Integrated Rule Inference System (IRIS):
+ * An extensible rule inference system for datalog with extensions.
+ * 
+ * Copyright (C) 2008 Semantic Technology Institute (STI) Innsbruck, 
+ * University of Innsbruck, Technikerstrasse 21a, 6020 Innsbruck, Austria.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ */
+package org.deri.iris.storage.columnar;
+
+import junit.framework.TestCase;
+
+import org.deri.iris.api.basics.ITuple;
+import org.deri.iris.rules.compiler.Helper;
+import org.deri.iris.storage.IRelation;
+
+public class TestColumnarRelation extends TestCase
+{
+	ColumnarRelationFactory mFactory;
+	
+	IRelation mRelation;
+	
+	protected void setUp() throws Exception
+	{
+		mFactory = new ColumnarRelationFactory();
+		mRelation = mFactory.createRelation();
+	}
+	
+	public void testAll()
+	{
+		// Ensure the relation is empty
+		assertEquals( 0, mRelation.size() );
+		
+		// Insert a new tuple
+		ITuple t1 = Helper.createTuple( 2, 1 );
+		assertTrue( mRelation.add( t1 ) );
+		assertEquals( 1, mRelation.size() );
+		assertEquals( t1, mRelation.get( 0 ) );
+
+		// Try adding same tuple again and it should not accept it
+		assertFalse( mRelation.add( Helper.createTuple( 2, 1 ) ) );
+		assertEquals( 1, mRelation.size() );
+
+		// Add a new tuple
+		ITuple t2 = Helper.createTuple( 2, 2 );
+		mRelation.add( t2 );
+		assertEquals( 2, mRelation.size() );
+		assertEquals( t1, mRelation.get( 0 ) );
+		assertEquals( t2, mRelation.get( 1 ) );
+
+		// Create a new relation and check that addAll() works.
+		IRelation r2 = mFactory.createRelation();
+		assertTrue( r2.addAll( mRelation ) );
+		assertEquals( 2, r2.size() );
+		assertEquals( t1, r2.get( 0 ) );
+		assertEquals( t2, r2.get( 1 ) );
+		
+		// Now check that it is not possible to add t1 and t2 to the new relation.
+		assertFalse( r2.addAll( mRelation ) );
+		r2.add( t1 );
+		r2.add( t2 );
+		assertEquals( 2, r2.size() );
+	}
+	
+	public void testContains()
+	{
+		mRelation.add( Helper.createTuple( 1, "a" ) );
+		mRelation.add( Helper.createTuple( 2, "b" ) );
+		
+		assertTrue( mRelation.contains( Helper.createTuple( 1, "a" ) ) );
+		assertTrue( mRelation.contains( Helper.createTuple( 2, "b" ) ) );
+		assertFalse( mRelation.contains( Helper.createTuple( 1, "b" ) ) );
+		
+		// Terms never seen before.
+		assertFalse( mRelation.contains( Helper.createTuple( 3, "c" ) ) );
+		
+		// Wrong arity.
+		assertFalse( mRelation.contains( Helper.createTuple( 1 ) ) );
+	}
+	
+	public void testGrowth()
+	{
+		final int count = 10000;
+		
+		for( int i = 0; i < count; ++i )
+			assertTrue( mRelation.add( Helper.createTuple( i, i % 7, "s" + ( i % 3 ) ) ) );
+		
+		assertEquals( count, mRelation.size() );
+		
+		for( int i = 0; i < count; ++i )
+		{
+			ITuple tuple = Helper.createTuple( i, i % 7, "s" + ( i % 3 ) );
+			assertTrue( mRelation.contains( tuple ) );
+			assertEquals( tuple, mRelation.get( i ) );
+			assertFalse( mRelation.add( tuple ) );
+		}
+		
+		// All relations of the factory share one dictionary.
+		assertEquals( count + 3, mFactory.getDictionary().size() );
+	}
+	
+	public void testZeroArity()
+	{
+		assertFalse( mRelation.contains( Helper.createTuple() ) );
+		assertTrue( mRelation.add( Helper.createTuple() ) );
+		assertFalse( mRelation.add( Helper.createTuple() ) );
+		assertEquals( 1, mRelation.size() );
+		assertTrue( mRelation.contains( Helper.createTuple() ) );
+		assertEquals( 0, mRelation.get( 0 ).size() );
+	}
+	
+	public void testWrongArity()
+	{
+		mRelation.add( Helper.createTuple( 1, "a" ) );
+		
+		try
+		{
+			mRelation.add( Helper.createTuple( 1 ) );
+			fail( "A tuple of the wrong arity was added" );
+		}
+		catch( IllegalArgumentException e )
+		{
+		}
+		
+		assertEquals( 1, mRelation.size() );
+	}
+	
+	public void testConcurrentContains() throws Exception
+	{
+		final int count = 1000;
+		
+		for( int i = 0; i < count; ++i )
+			mRelation.add( Helper.createTuple( i, "s" + i ) );
+		
+		final boolean[] failed = new boolean[ 1 ];
+		Thread[] threads = new Thread[ 4 ];
+		
+		for( int t = 0; t < threads.length; ++t )
+		{
+			threads[ t ] = new Thread()
+			{
+				public void run()
+				{
+					for( int i = 0; i < count; ++i )
+					{
+						if( ! mRelation.contains( Helper.createTuple( i, "s" + i ) ) )
+							failed[ 0 ] = true;
+					}
+				}
+			};
+			threads[ t ].start();
+		}
+		
+		for( Thread thread : threads )
+			thread.join();
+		
+		assertFalse( failed[ 0 ] );
+	}
+	
+	public void testRemove()
+	{
+		ColumnarRelation relation = (ColumnarRelation) mRelation;
+		
+		final int count = 1000;
+		
+		for( int i = 0; i < count; ++i )
+			relation.add( Helper.createTuple( i, "s" + ( i % 10 ) ) );
+		
+		// Remove every other tuple, the last tuples move to the freed rows.
+		for( int i = 0; i < count; i += 2 )
+			assertTrue( relation.remove( Helper.createTuple( i, "s" + ( i % 10 ) ) ) );
+		
+		assertFalse( relation.remove( Helper.createTuple( 0, "s0" ) ) );
+		assertEquals( count / 2, relation.size() );
+		
+		for( int i = 0; i < count; ++i )
+		{
+			ITuple tuple = Helper.createTuple( i, "s" + ( i % 10 ) );
+			int row = relation.indexOf( tuple );
+			
+			assertEquals( i % 2 == 1, relation.contains( tuple ) );
+			assertEquals( i % 2 == 1, row >= 0 );
+			if( row >= 0 )
+				assertEquals( tuple, relation.get( row ) );
+		}
+		
+		// Removed tuples can be added again.
+		assertTrue( relation.add( Helper.createTuple( 0, "s0" ) ) );
+		assertEquals( count / 2, relation.indexOf( Helper.createTuple( 0, "s0" ) ) );
+	}
+}
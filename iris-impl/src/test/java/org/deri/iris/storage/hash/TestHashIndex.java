@@ -0,0 +1,276 @@
+/*
+ * Integrated Rule Inference System (IRIS):
+ * An extensible rule inference system for datalog with extensions.
+ * 
+ * Copyright (C) 2008 Semantic Technology Institute (STI) Innsbruck, 
+ * University of Innsbruck, Technikerstrasse 21a, 6020 Innsbruck, Austria.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ */
+package org.deri.iris.storage.hash;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.deri.iris.api.basics.ITuple;
+import org.deri.iris.api.terms.ITerm;
+import org.deri.iris.rules.compiler.Helper;
+import org.deri.iris.rules.compiler.Utils;
+import org.deri.iris.rules.compiler.View;
+import org.deri.iris.storage.IRelation;
+import org.deri.iris.storage.IRemovableRelation;
+import org.deri.iris.utils.equivalence.TermEquivalence;
+import org.deri.iris.storage.simple.SimpleRelationFactory;
+
+public class TestHashIndex extends TestCase
+{
+	IRelation mRelation;
+	View mView;
+	HashIndex mIndex;
+
+	protected void setUp() throws Exception
+	{
+		mRelation = new SimpleRelationFactory().createRelation();
+		
+		mRelation.add( Helper.createTuple( 1, 1, 1 ) );
+		mRelation.add( Helper.createTuple( 1, 1, 2 ) );
+		mRelation.add( Helper.createTuple( 1, 1, 3 ) );
+
+		mRelation.add( Helper.createTuple( 1, 2, 1 ) );
+		mRelation.add( Helper.createTuple( 2, 2, 2 ) );
+		
+		ITuple viewCriteria = Helper.createTuple( "X", "Y", "Z" );
+		
+		mView = new View( mRelation, viewCriteria, new SimpleRelationFactory() );
+		
+		mIndex = new HashIndex( mView, 0, 1 );
+	}
+	
+	private static List<ITerm> makeKey( Object ... objects )
+	{
+		List<ITerm> key = new ArrayList<ITerm>( objects.length );
+		
+		for( Object o : objects )
+		{
+			ITerm term = Helper.createTerm( o );
+			key.add( term );
+		}
+		
+		return key;
+	}
+
+	public void testGet()
+	{
+		ITuple foreignTuple = Helper.createTuple( 3, 2, 1, 1 );
+		
+		List<ITuple> matchingTuples = mIndex.get( Utils.makeKey( foreignTuple, new int[] { 2, 3 } ) );
+		
+		assertNotNull( matchingTuples );
+		assertEquals( 3, matchingTuples.size() );
+
+		
+		matchingTuples = mIndex.get( makeKey( 1, 2 ) );
+		
+		assertNotNull( matchingTuples );
+		assertEquals( 1, matchingTuples.size() );
+		assertEquals( Helper.createTuple( 1, 2, 1 ), matchingTuples.get( 0 ) );
+
+	
+		matchingTuples = mIndex.get( makeKey( 2, 1 ) );
+		
+		assertEquals( 0, matchingTuples.size() );
+	}
+	
+	public void testProbe()
+	{
+		int[] positions = new int[] { 2, 3 };
+		
+		int bucket = mIndex.probe( Helper.createTuple( 3, 2, 1, 1 ), positions );
+		assertTrue( bucket >= 0 );
+		assertEquals( 3, mIndex.size( bucket ) );
+		assertEquals( Helper.createTuple( 1, 1, 1 ), mIndex.get( bucket, 0 ) );
+		assertEquals( Helper.createTuple( 1, 1, 3 ), mIndex.get( bucket, 2 ) );
+		
+		assertEquals( -1, mIndex.probe( Helper.createTuple( 3, 2, 2, 1 ), positions ) );
+	}
+	
+	public void testUpdate()
+	{
+		int[] positions = new int[] { 0, 1 };
+		
+		assertEquals( -1, mIndex.probe( Helper.createTuple( 3, 3 ), positions ) );
+		
+		// Tuples added to the relation later must be picked up by the index.
+		for( int i = 0; i < 1000; ++i )
+			mRelation.add( Helper.createTuple( 3, 3, i ) );
+		
+		int bucket = mIndex.probe( Helper.createTuple( 3, 3 ), positions );
+		assertTrue( bucket >= 0 );
+		assertEquals( 1000, mIndex.size( bucket ) );
+		
+		bucket = mIndex.probe( Helper.createTuple( 1, 1 ), positions );
+		assertEquals( 3, mIndex.size( bucket ) );
+	}
+	
+	public void testLowerBound()
+	{
+		int[] positions = new int[] { 0, 1 };
+		
+		int bucket = mIndex.probe( Helper.createTuple( 1, 1 ), positions );
+		
+		// The bucket holds the tuples at positions 0, 1 and 2 of the view.
+		assertEquals( 0, mIndex.lowerBound( bucket, 0 ) );
+		assertEquals( 2, mIndex.lowerBound( bucket, 2 ) );
+		assertEquals( 3, mIndex.lowerBound( bucket, 3 ) );
+		
+		bucket = mIndex.probe( Helper.createTuple( 2, 2 ), positions );
+		assertEquals( 0, mIndex.lowerBound( bucket, 4 ) );
+		assertEquals( 1, mIndex.lowerBound( bucket, 5 ) );
+	}
+	
+	public void testRemove()
+	{
+		int[] positions = new int[] { 0, 1 };
+		IRemovableRelation relation = (IRemovableRelation) mRelation;
+		
+		assertEquals( 3, mIndex.size( mIndex.probe( Helper.createTuple( 1, 1 ), positions ) ) );
+		
+		// The last tuple (2,2,2) moves to the row of the removed one.
+		relation.remove( Helper.createTuple( 1, 1, 2 ) );
+		
+		int bucket = mIndex.probe( Helper.createTuple( 1, 1 ), positions );
+		assertEquals( 2, mIndex.size( bucket ) );
+		assertEquals( Helper.createTuple( 1, 1, 1 ), mIndex.get( bucket, 0 ) );
+		assertEquals( Helper.createTuple( 1, 1, 3 ), mIndex.get( bucket, 1 ) );
+		
+		bucket = mIndex.probe( Helper.createTuple( 2, 2 ), positions );
+		assertEquals( 1, mIndex.size( bucket ) );
+		assertEquals( 0, mIndex.lowerBound( bucket, 1 ) );
+		assertEquals( Helper.createTuple( 2, 2, 2 ), mIndex.get( bucket, 0 ) );
+		
+		// An empty bucket is no longer found.
+		relation.remove( Helper.createTuple( 1, 2, 1 ) );
+		assertEquals( -1, mIndex.probe( Helper.createTuple( 1, 2 ), positions ) );
+		
+		// Tuples not seen by the index yet are picked up later.
+		for( int i = 0; i < 100; ++i )
+			mRelation.add( Helper.createTuple( 3, 3, i ) );
+		relation.remove( Helper.createTuple( 1, 1, 1 ) );
+		relation.remove( Helper.createTuple( 3, 3, 0 ) );
+		
+		assertEquals( 99, mIndex.size( mIndex.probe( Helper.createTuple( 3, 3 ), positions ) ) );
+		assertEquals( 1, mIndex.size( mIndex.probe( Helper.createTuple( 1, 1 ), positions ) ) );
+		assertEquals( 1, mIndex.size( mIndex.probe( Helper.createTuple( 2, 2 ), positions ) ) );
+		
+		// The numbers of empty buckets are used again.
+		relation.add( Helper.createTuple( 1, 2, 1 ) );
+		assertEquals( 1, mIndex.size( mIndex.probe( Helper.createTuple( 1, 2 ), positions ) ) );
+	}
+	
+	public void testEmptyKey()
+	{
+		HashIndex index = new HashIndex( mView );
+		
+		int bucket = index.probe( Helper.createTuple( 7 ), new int[ 0 ] );
+		assertTrue( bucket >= 0 );
+		assertEquals( mRelation.size(), index.size( bucket ) );
+		assertEquals( mRelation.size(), index.get( new ArrayList<ITerm>() ).size() );
+	}
+	
+	public void testEquivalentTerms()
+	{
+		TermEquivalence equivalence = new TermEquivalence();
+		HashIndex index = new HashIndex( mView, equivalence, 0, 1 );
+		
+		assertEquals( 3, index.get( makeKey( 1, 1 ) ).size() );
+		assertEquals( 1, index.get( makeKey( 1, 2 ) ).size() );
+		
+		// Joins the keys (1,2) and (1,1), and the keys (2,2) and (2,1).
+		equivalence.setEquivalent( Helper.createTerm( 2 ), Helper.createTerm( 1 ) );
+		
+		assertEquals( 5, index.get( makeKey( 1, 1 ) ).size() );
+		assertEquals( 5, index.get( makeKey( 2, 2 ) ).size() );
+		
+		equivalence.setEquivalent( Helper.createTerm( 3 ), Helper.createTerm( 4 ) );
+		mRelation.add( Helper.createTuple( 4, 3, 1 ) );
+		
+		assertEquals( 1, index.get( makeKey( 3, 4 ) ).size() );
+		assertEquals( 5, index.get( makeKey( 1, 2 ) ).size() );
+	}
+	
+	public void testEquivalentTermsOfManyKeys()
+	{
+		IRelation relation = new SimpleRelationFactory().createRelation();
+		
+		for( int i = 0; i < 500; ++i )
+			relation.add( Helper.createTuple( i, i % 7 ) );
+		
+		TermEquivalence equivalence = new TermEquivalence();
+		HashIndex index = new HashIndex( relation, equivalence, 0 );
+		
+		assertEquals( 1, index.get( makeKey( 10 ) ).size() );
+		
+		// Joins the buckets of 0, 10, 20, ... and of 1, 11, 21, ...
+		for( int i = 10; i < 500; i += 10 )
+		{
+			equivalence.setEquivalent( Helper.createTerm( i ), Helper.createTerm( 0 ) );
+			equivalence.setEquivalent( Helper.createTerm( i + 1 ), Helper.createTerm( 1 ) );
+		}
+		
+		assertEquals( 50, index.get( makeKey( 0 ) ).size() );
+		assertEquals( 50, index.get( makeKey( 491 ) ).size() );
+		
+		for( int i = 2; i < 10; ++i )
+			assertEquals( 1, index.get( makeKey( i ) ).size() );
+		assertEquals( 1, index.get( makeKey( 499 ) ).size() );
+		
+		// The rows of a joined bucket stay in ascending order.
+		int bucket = index.probe( Helper.createTuple( 490 ), new int[] { 0 } );
+		assertEquals( 49, index.lowerBound( bucket, 490 ) );
+	}
+	
+	public void testChangeLogIsTruncated()
+	{
+		TermEquivalence equivalence = new TermEquivalence();
+		HashIndex index = new HashIndex( mView, equivalence, 0, 1 );
+		
+		for( int i = 10; i < 3000; i += 2 )
+		{
+			equivalence.setEquivalent( Helper.createTerm( i ), Helper.createTerm( i + 1 ) );
+			index.get( makeKey( 1, 1 ) );
+		}
+		
+		// The index has caught up with all changes, so the old ones are discarded.
+		assertNull( equivalence.getChangedSince( 0 ) );
+		
+		equivalence.setEquivalent( Helper.createTerm( 2 ), Helper.createTerm( 1 ) );
+		assertEquals( 5, index.get( makeKey( 1, 1 ) ).size() );
+	}
+	
+	public void testChangeLogIsKeptForIndexesBehind()
+	{
+		TermEquivalence equivalence = new TermEquivalence();
+		HashIndex index = new HashIndex( mView, equivalence, 0, 1 );
+		
+		for( int i = 10; i < 3000; i += 2 )
+			equivalence.setEquivalent( Helper.createTerm( i ), Helper.createTerm( i + 1 ) );
+		
+		assertEquals( 1495, equivalence.getChangedSince( 0 ).size() );
+		assertEquals( 3, index.get( makeKey( 1, 1 ) ).size() );
+	}
+}
@@ -33,6 +33,7 @@ import org.deri.iris.rules.compiler.Helper;
 import org.deri.iris.rules.compiler.Utils;
 import org.deri.iris.rules.compiler.View;
 import org.deri.iris.storage.IRelation;
+import org.deri.iris.utils.equivalence.TermEquivalence;
 
 public class TestSimpleIndex extends TestCase
 {
@@ -91,4 +92,48 @@ public class TestSimpleIndex extends TestCase
 		
 		assertEquals( 0, matchingTuples.size() );
 	}
+	
+	public void testEquivalentTerms()
+	{
+		TermEquivalence equivalence = new TermEquivalence();
+		SimpleIndex index = new SimpleIndex( mView, equivalence, 0, 1 );
+		
+		assertEquals( 3, index.get( makeKey( 1, 1 ) ).size() );
+		assertEquals( 1, index.get( makeKey( 1, 2 ) ).size() );
+		
+		// Joins the keys (1,2) and (1,1), and the keys (2,2) and (2,1).
+		equivalence.setEquivalent( Helper.createTerm( 2 ), Helper.createTerm( 1 ) );
+		
+		assertEquals( 5, index.get( makeKey( 1, 1 ) ).size() );
+		assertEquals( 5, index.get( makeKey( 2, 2 ) ).size() );
+		
+		equivalence.setEquivalent( Helper.createTerm( 3 ), Helper.createTerm( 4 ) );
+		mRelation.add( Helper.createTuple( 4, 3, 1 ) );
+		
+		assertEquals( 1, index.get( makeKey( 3, 4 ) ).size() );
+		assertEquals( 5, index.get( makeKey( 1, 2 ) ).size() );
+	}
+	
+	public void testRemove()
+	{
+		SimpleRelation relation = (SimpleRelation) mRelation;
+		
+		assertEquals( 3, mIndex.get( makeKey( 1, 1 ) ).size() );
+		
+		relation.remove( Helper.createTuple( 1, 1, 2 ) );
+		assertEquals( 2, mIndex.get( makeKey( 1, 1 ) ).size() );
+		assertFalse( mIndex.get( makeKey( 1, 1 ) ).contains( Helper.createTuple( 1, 1, 2 ) ) );
+		
+		relation.remove( Helper.createTuple( 1, 2, 1 ) );
+		assertEquals( 0, mIndex.get( makeKey( 1, 2 ) ).size() );
+		assertEquals( 1, mIndex.get( makeKey( 2, 2 ) ).size() );
+		
+		// Tuples not seen by the index yet are picked up later.
+		relation.add( Helper.createTuple( 3, 3, 1 ) );
+		relation.add( Helper.createTuple( 3, 3, 2 ) );
+		relation.remove( Helper.createTuple( 1, 1, 1 ) );
+		
+		assertEquals( 1, mIndex.get( makeKey( 1, 1 ) ).size() );
+		assertEquals( 2, mIndex.get( makeKey( 3, 3 ) ).size() );
+	}
 }
@@ -27,6 +27,8 @@ import junit.framework.TestCase;
 import org.deri.iris.api.basics.ITuple;
 import org.deri.iris.rules.compiler.Helper;
 import org.deri.iris.storage.IRelation;
+import org.deri.iris.storage.IRemovableRelation;
+import org.deri.iris.storage.IRemovalListener;
 
 public class TestSimpleRelation extends TestCase
 {
@@ -72,4 +74,46 @@ public class TestSimpleRelation extends TestCase
 		r2.add( t2 );
 		assertEquals( r2.size(), 2 );
 	}
+	
+	public void testRemove()
+	{
+		SimpleRelation relation = new SimpleRelation();
+		
+		final int[] removed = { -1 };
+		IRemovalListener listener = new IRemovalListener()
+		{
+			public void removing( IRelation r, int index )
+			{
+				// The tuple is still in the relation.
+				assertEquals( 3, r.size() );
+				removed[ 0 ] = index;
+			}
+		};
+		relation.addRemovalListener( listener );
+		
+		ITuple t1 = Helper.createTuple( 1 );
+		ITuple t2 = Helper.createTuple( 2 );
+		ITuple t3 = Helper.createTuple( 3 );
+		relation.add( t1 );
+		relation.add( t2 );
+		relation.add( t3 );
+		
+		assertFalse( relation.remove( Helper.createTuple( 4 ) ) );
+		assertEquals( -1, removed[ 0 ] );
+		
+		// The last tuple takes the place of the removed one.
+		assertTrue( relation.remove( Helper.createTuple( 1 ) ) );
+		assertEquals( 0, removed[ 0 ] );
+		assertEquals( 2, relation.size() );
+		assertEquals( t3, relation.get( 0 ) );
+		assertEquals( t2, relation.get( 1 ) );
+		assertEquals( 0, relation.indexOf( t3 ) );
+		assertEquals( -1, relation.indexOf( t1 ) );
+		assertFalse( relation.contains( t1 ) );
+		
+		// A removed tuple can be added again.
+		assertTrue( relation.add( t1 ) );
+		assertEquals( 2, relation.indexOf( t1 ) );
+		assertTrue( relation instanceof IRemovableRelation );
+	}
 }
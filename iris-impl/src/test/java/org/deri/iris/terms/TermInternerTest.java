@@ -0,0 +1,122 @@
+/*
+ * Integrated Rule Inference System (IRIS):
+ * An extensible rule inference system for datalog with extensions.
+ * 
+ * Copyright (C) 2008 Semantic Technology Institute (STI) Innsbruck, 
+ * University of Innsbruck, Technikerstrasse 21a, 6020 Innsbruck, Austria.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ */
+package org.deri.iris.terms;
+
+import static org.deri.iris.factory.Factory.CONCRETE;
+import static org.deri.iris.factory.Factory.TERM;
+
+import java.math.BigDecimal;
+
+import junit.framework.TestCase;
+
+import org.deri.iris.Configuration;
+import org.deri.iris.ConfigurationThreadLocalStorage;
+import org.deri.iris.api.terms.ITerm;
+import org.deri.iris.api.terms.concrete.IPlainLiteral;
+
+/**
+ * Tests for the term interner.
+ */
+public class TermInternerTest extends TestCase {
+
+	@Override
+	protected void setUp() throws Exception {
+		mConfiguration = new Configuration();
+		mConfiguration.termInterning = true;
+
+		ConfigurationThreadLocalStorage.setConfiguration(mConfiguration);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		ConfigurationThreadLocalStorage.removeConfiguration();
+		TermInterner.clear();
+	}
+
+	public void testEqualGroundTermsAreIdentical() {
+		assertSame(TERM.createString("a"), TERM.createString("a"));
+		assertSame(CONCRETE.createInteger(42), CONCRETE.createInteger(42));
+		assertSame(CONCRETE.createIri("http://example.org/a"), CONCRETE
+				.createIri("http://example.org/a"));
+		assertSame(TERM.createConstruct("f", TERM.createString("a")), TERM
+				.createConstruct("f", TERM.createString("a")));
+	}
+
+	public void testDifferentTermsAreNotShared() {
+		assertNotSame(TERM.createString("a"), TERM.createString("b"));
+		assertEquals(TERM.createString("b"), TERM.createString("b"));
+	}
+
+	public void testEqualTermsOfDifferentTypesAreNotShared() {
+		ITerm integer = CONCRETE.createInteger(1);
+		ITerm decimal = CONCRETE.createDecimal(new BigDecimal("1"));
+
+		assertEquals(integer, decimal);
+		assertNotSame(integer, decimal);
+		assertSame(integer.getClass(), CONCRETE.createInteger(1).getClass());
+	}
+
+	public void testDifferentRepresentationsAreNotShared() {
+		ITerm one = CONCRETE.createDecimal(new BigDecimal("1.0"));
+		ITerm other = CONCRETE.createDecimal(new BigDecimal("1.00"));
+
+		assertEquals(one, other);
+		assertEquals("1.00", other.toString());
+
+		IPlainLiteral english = CONCRETE.createPlainLiteral("a", "en");
+		IPlainLiteral german = CONCRETE.createPlainLiteral("a", "de");
+
+		assertNotSame(english, german);
+		assertEquals("de", german.getLang());
+
+		ITerm construct = TERM.createConstruct("f", one);
+		assertEquals("f(1.00)", TERM.createConstruct("f", other).toString());
+		assertNotSame(construct, TERM.createConstruct("f", one));
+	}
+
+	public void testConstructedTermsOfExactValuesAreInterned() {
+		assertSame(TERM.createConstruct("f", CONCRETE.createInteger(1),
+				CONCRETE.createIri("http://example.org/a")), TERM
+				.createConstruct("f", CONCRETE.createInteger(1), CONCRETE
+						.createIri("http://example.org/a")));
+	}
+
+	public void testNonGroundTermsAreNotInterned() {
+		assertNotSame(TERM.createConstruct("f", TERM.createVariable("X")),
+				TERM.createConstruct("f", TERM.createVariable("X")));
+	}
+
+	public void testDisabled() {
+		mConfiguration.termInterning = false;
+
+		assertNotSame(TERM.createString("a"), TERM.createString("a"));
+	}
+
+	public void testNoConfiguration() {
+		ConfigurationThreadLocalStorage.removeConfiguration();
+
+		assertNotSame(TERM.createString("a"), TERM.createString("a"));
+	}
+
+	private Configuration mConfiguration;
+}
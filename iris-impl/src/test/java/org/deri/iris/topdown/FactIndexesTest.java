@@ -0,0 +1,96 @@
+/*
+ * Integrated Rule Inference System (IRIS):
+ * An extensible rule inference system for datalog with extensions.
+ * 
+ * Copyright (C) 2008 Semantic Technology Institute (STI) Innsbruck, 
+ * University of Innsbruck, Technikerstrasse 21a, 6020 Innsbruck, Austria.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ */
+package org.deri.iris.topdown;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.deri.iris.api.basics.IAtom;
+import org.deri.iris.api.terms.ITerm;
+import org.deri.iris.api.terms.IVariable;
+import org.deri.iris.compiler.Parser;
+import org.deri.iris.compiler.ParserException;
+import org.deri.iris.evaluation.topdown.FactIndexes;
+import org.deri.iris.facts.Facts;
+import org.deri.iris.storage.hash.HashIndexFactory;
+import org.deri.iris.storage.simple.SimpleRelationFactory;
+
+/**
+ * Test class for FactIndexes
+ * 
+ * @see FactIndexes
+ */
+public class FactIndexesTest extends TestCase {
+
+	private static final String FACTS = 
+		"p(1, 'a'). p(2, 'b'). p(3, 'a'). p(3, 'c'). q(1).";
+
+	private FactIndexes mIndexes;
+
+	@Override
+	protected void setUp() throws Exception {
+		Parser parser = new Parser();
+		parser.parse(FACTS);
+
+		mIndexes = new FactIndexes(new Facts(parser.getFacts(),
+				new SimpleRelationFactory()), new HashIndexFactory());
+	}
+
+	public void testBoundPosition() throws ParserException {
+		assertEquals("[(1, 'a'), (3, 'a')]", mIndexes.getCandidates(
+				atom("?- p(?X, 'a').")).toString());
+		assertEquals("[(3, 'a'), (3, 'c')]", mIndexes.getCandidates(
+				atom("?- p(3, ?Y).")).toString());
+		assertEquals("[(3, 'c')]", mIndexes.getCandidates(
+				atom("?- p(3, 'c').")).toString());
+		assertTrue(mIndexes.getCandidates(atom("?- p(4, ?Y).")).isEmpty());
+	}
+
+	public void testNoBoundPositions() throws ParserException {
+		assertEquals(4, mIndexes.getCandidates(atom("?- p(?X, ?Y).")).size());
+		assertTrue(mIndexes.getCandidates(atom("?- r(?X, ?Y).")).isEmpty());
+	}
+
+	public void testMatchingFacts() throws ParserException {
+		List<Map<IVariable, ITerm>> variableMapList = new ArrayList<Map<IVariable, ITerm>>();
+
+		assertTrue(mIndexes.getMatchingFacts(atom("?- p(?X, 'a')."),
+				variableMapList));
+		assertEquals("[{?X=1}, {?X=3}]", variableMapList.toString());
+
+		variableMapList.clear();
+		assertFalse(mIndexes.getMatchingFacts(atom("?- p(?X, 'd')."),
+				variableMapList));
+		assertTrue(variableMapList.isEmpty());
+	}
+
+	private static IAtom atom(String query) throws ParserException {
+		Parser parser = new Parser();
+		parser.parse(query);
+
+		return parser.getQueries().get(0).getLiterals().get(0).getAtom();
+	}
+}
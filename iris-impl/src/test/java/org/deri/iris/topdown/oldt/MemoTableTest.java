@@ -156,5 +156,64 @@ public class MemoTableTest extends TestCase {
 		
 		assertEquals(expectedHashMap.toString(), table.toString());
 	}
+	
+	public void testMemoTableLookupAmongManyAtoms() {
+		
+		MemoTable table = new MemoTable();
+		IAtom[] atoms = new IAtom[100];
+		for (int i = 0; i < atoms.length; i++) {
+			// q(?X, 'i')
+			atoms[i] = Factory.BASIC.createAtom(
+					Factory.BASIC.createPredicate("q", 2),
+					Factory.BASIC.createTuple(
+							Factory.TERM.createVariable("X"),
+							Factory.TERM.createString(Integer.toString(i))));
+			table.add(atoms[i], null);
+		}
+		// q(?X, ?Y)
+		IAtom qxy = Factory.BASIC.createAtom(
+				Factory.BASIC.createPredicate("q", 2),
+				Factory.BASIC.createTuple(
+						Factory.TERM.createVariable("X"),
+						Factory.TERM.createVariable("Y")));
+		table.add(qxy, a);
+		
+		// q(?A, '42')
+		IAtom qa42 = Factory.BASIC.createAtom(
+				Factory.BASIC.createPredicate("q", 2),
+				Factory.BASIC.createTuple(
+						Factory.TERM.createVariable("A"),
+						Factory.TERM.createString("42")));
+		table.add(qa42, b);
+		
+		// q(?B, ?C), a variant of q(?X, ?Y)
+		IAtom qbc = Factory.BASIC.createAtom(
+				Factory.BASIC.createPredicate("q", 2),
+				Factory.BASIC.createTuple(
+						Factory.TERM.createVariable("B"),
+						Factory.TERM.createVariable("C")));
+		
+		// q(?A, '100')
+		IAtom qa100 = Factory.BASIC.createAtom(
+				Factory.BASIC.createPredicate("q", 2),
+				Factory.BASIC.createTuple(
+						Factory.TERM.createVariable("A"),
+						Factory.TERM.createString("100")));
+		
+		assertEquals(101, table.size());
+		assertTrue(table.containsKey(qbc));
+		assertTrue(table.containsKey(qa42));
+		assertFalse(table.containsKey(qa100));
+		assertEquals(a, table.get(qbc, 0));
+		assertEquals(b, table.get(qa42, 0));
+		assertEquals(1, table.get(atoms[42]).size());
+		
+		table.remove(atoms[42]);
+		assertFalse(table.containsKey(qa42));
+		assertTrue(table.containsKey(atoms[41]));
+		
+		table.clear();
+		assertFalse(table.containsKey(qbc));
+	}
 
 }
@@ -0,0 +1,131 @@
+/*
+ * Integrated Rule Inference System (IRIS):
+ * An extensible rule inference system for datalog with extensions.
+ * 
+ * Copyright (C) 2008 Semantic Technology Institute (STI) Innsbruck, 
+ * University of Innsbruck, Technikerstrasse 21a, 6020 Innsbruck, Austria.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ */
+package org.deri.iris.topdown.slg;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.deri.iris.Configuration;
+import org.deri.iris.compiler.Parser;
+import org.deri.iris.evaluation.topdown.slg.SLGEvaluator;
+import org.deri.iris.facts.Facts;
+import org.deri.iris.storage.IRelation;
+import org.deri.iris.storage.simple.SimpleRelationFactory;
+
+/**
+ * Test class for SLGEvaluator
+ * 
+ * @see SLGEvaluator
+ */
+public class SLGEvaluatorTest extends TestCase {
+
+	public void testLeftRecursion() throws Exception {
+		String program = 
+			"edge(1, 2). edge(2, 3). edge(3, 1). edge(4, 5)." +
+			"path(?X, ?Y) :- path(?X, ?Z), edge(?Z, ?Y)." +
+			"path(?X, ?Y) :- edge(?X, ?Y)." +
+			"?- path(1, ?Y).";
+		
+		assertEquals("[(1), (2), (3)]", sorted(evaluate(program)));
+	}
+
+	public void testGroundQuery() throws Exception {
+		String program = 
+			"edge(1, 2). edge(2, 3). edge(4, 5)." +
+			"path(?X, ?Y) :- edge(?X, ?Y)." +
+			"path(?X, ?Y) :- path(?X, ?Z), path(?Z, ?Y)." +
+			"?- path(1, 3).";
+		
+		assertEquals(1, evaluate(program).size());
+	}
+
+	public void testStratifiedNegation() throws Exception {
+		String program = 
+			"edge(1, 2). edge(2, 3). node(1). node(2). node(3). node(4)." +
+			"reach(?X) :- edge(1, ?X)." +
+			"reach(?Y) :- reach(?X), edge(?X, ?Y)." +
+			"unreachable(?X) :- node(?X), not reach(?X)." +
+			"?- unreachable(?X).";
+		
+		assertEquals("[(1), (4)]", sorted(evaluate(program)));
+	}
+
+	/**
+	 * The game is won from a position, if there is a move to a position,
+	 * which is not won. Positions on a cycle of moves are undefined.
+	 */
+	public void testWinNot() throws Exception {
+		String program = 
+			"move('a', 'b'). move('b', 'a'). move('b', 'c'). move('c', 'd')." +
+			"move('e', 'f'). move('f', 'e')." +
+			"win(?X) :- move(?X, ?Y), not win(?Y)." +
+			"?- win(?X).";
+		
+		// c is won, since d has no moves. The cycles a, b and e, f are
+		// undefined.
+		assertEquals("[('c')]", sorted(evaluate(program)));
+	}
+
+	public void testUndefinedThroughNegativeLoop() throws Exception {
+		String program = 
+			"p :- not q. q :- not p. r :- not r." +
+			"s :- p. t :- not s, not u. u :- not t." +
+			"v :- not w. w :- r, not r." +
+			"?- v.";
+		
+		// w is undefined since r is undefined, so v is undefined as well
+		assertEquals(0, evaluate(program).size());
+	}
+
+	public void testNegativeLoopWithTrueAlternative() throws Exception {
+		String program = 
+			"p :- not q. q :- not p. q :- r. r." +
+			"?- q.";
+		
+		assertEquals(1, evaluate(program).size());
+		assertEquals(0, evaluate("p :- not q. q :- not p. q :- r. r. ?- p.").size());
+	}
+
+	private static IRelation evaluate(String program) throws Exception {
+		Parser parser = new Parser();
+		parser.parse(program);
+
+		SLGEvaluator evaluator = new SLGEvaluator(new Facts(parser.getFacts(),
+				new SimpleRelationFactory()), parser.getRules(),
+				new Configuration());
+
+		return evaluator.evaluate(parser.getQueries().get(0));
+	}
+
+	private static String sorted(IRelation relation) {
+		List<String> tuples = new ArrayList<String>();
+		for (int i = 0; i < relation.size(); i++)
+			tuples.add(relation.get(i).toString());
+		Collections.sort(tuples);
+
+		return tuples.toString();
+	}
+}
@@ -23,6 +23,7 @@
 package org.deri.iris.utils;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 
 import junit.framework.TestCase;
@@ -164,6 +165,68 @@ public class DisjointSetsTest extends TestCase {
 		assertTrue(relation.areInSameSet("test1", "test2"));
 	}
 
+	/**
+	 * Test method for
+	 * {@link org.deri.iris.utils.DisjointSets#merge(java.lang.Object, java.lang.Object)}
+	 * .
+	 */
+	public void testMerge() {
+		relation.putInSameSet(element3, element3Equiv1);
+
+		List<String> changed = relation.merge(element3, element1);
+
+		// The smaller set is attached to the root of the larger set.
+		assertEquals(2, changed.size());
+		assertTrue(changed.contains(element3));
+		assertTrue(changed.contains(element3Equiv1));
+		assertEquals(element1Equiv1, relation.find(element3));
+
+		assertTrue(relation.merge(element3, element1Equiv2).isEmpty());
+		assertEquals(7, relation.getSetOf(element3Equiv1).size());
+	}
+
+	/**
+	 * Test that finding representatives does not modify the data structure,
+	 * so that several threads can do it at once.
+	 */
+	public void testFindIsReadOnly() throws Exception {
+		final DisjointSets<Integer> sets = new DisjointSets<Integer>();
+
+		for (int i = 0; i < 1000; i += 2) {
+			sets.merge(i, i + 1);
+		}
+		for (int size = 2; size < 1000; size *= 2) {
+			for (int i = 0; i + size < 1000; i += 2 * size) {
+				sets.merge(i, i + size);
+			}
+		}
+
+		final Integer representative = sets.find(0);
+		int hashCode = sets.hashCode();
+
+		final boolean[] failed = new boolean[1];
+		Thread[] threads = new Thread[4];
+
+		for (int t = 0; t < threads.length; ++t) {
+			threads[t] = new Thread() {
+				public void run() {
+					for (int i = 999; i >= 0; --i) {
+						if (!representative.equals(sets.find(i))) {
+							failed[0] = true;
+						}
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		assertFalse(failed[0]);
+		assertEquals(hashCode, sets.hashCode());
+	}
+
 	/**
 	 * Test method for
 	 * {@link org.deri.iris.utils.DisjointSets#getSets()}.
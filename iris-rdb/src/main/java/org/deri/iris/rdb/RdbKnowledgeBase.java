@@ -28,6 +28,7 @@ import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.io.FileUtils;
 import org.deri.iris.Configuration;
@@ -35,6 +36,8 @@ import org.deri.iris.EvaluationException;
 import org.deri.iris.ProgramNotStratifiedException;
 import org.deri.iris.RuleUnsafeException;
 import org.deri.iris.api.IKnowledgeBase;
+import org.deri.iris.api.IPreparedQuery;
+import org.deri.iris.api.basics.IPredicate;
 import org.deri.iris.api.basics.IQuery;
 import org.deri.iris.api.basics.IRule;
 import org.deri.iris.api.terms.IVariable;
@@ -243,6 +246,10 @@ public class RdbKnowledgeBase implements IKnowledgeBase {
 			this.facts = new RdbFacts(connection);
 			this.facts.addAll(simpleFacts);
 
+			// Update the statistics of the freshly loaded tables, so that the
+			// query planner does not rely on the empty tables.
+			RdbUtils.analyze(connection);
+
 			long stopTime = System.currentTimeMillis();
 			double duration = (double) (stopTime - startTime) / 1000.0;
 
@@ -345,6 +352,73 @@ public class RdbKnowledgeBase implements IKnowledgeBase {
 		return result;
 	}
 
+	@Override
+	public IPreparedQuery prepare(IQuery query, List<IVariable> parameters)
+			throws ProgramNotStratifiedException, RuleUnsafeException,
+			EvaluationException {
+		if (isDisposed) {
+			throw new EvaluationException(
+					"Knowledge base has already been disposed");
+		}
+
+		if (query == null) {
+			throw new IllegalArgumentException("Query must not be null");
+		}
+
+		if (parameters == null) {
+			parameters = new ArrayList<IVariable>();
+		}
+
+		// Evaluate the rules against the facts.
+		evaluate();
+
+		return evaluationStrategy.prepareQuery(
+				RuleManipulator.removeDuplicateLiterals(query), parameters);
+	}
+
+	/**
+	 * Adds facts to the knowledge base. The relations in the database are
+	 * only maintained by a complete evaluation, so facts can only be added
+	 * before the knowledge base is evaluated.
+	 * 
+	 * @throws EvaluationException
+	 *             If the knowledge base has already been evaluated or
+	 *             disposed.
+	 */
+	@Override
+	public void addFacts(Map<IPredicate, IRelation> facts)
+			throws EvaluationException {
+		if (isDisposed) {
+			throw new EvaluationException(
+					"Knowledge base has already been disposed");
+		}
+
+		if (isEvaluated) {
+			throw new EvaluationException(
+					"Facts can only be added before the knowledge base is evaluated");
+		}
+
+		// Loads in-memory facts into the database.
+		load();
+
+		for (Map.Entry<IPredicate, IRelation> entry : facts.entrySet()) {
+			this.facts.get(entry.getKey()).addAll(entry.getValue());
+		}
+	}
+
+	/**
+	 * Facts can not be removed from the relations in the database.
+	 * 
+	 * @throws EvaluationException
+	 *             Always.
+	 */
+	@Override
+	public void removeFacts(Map<IPredicate, IRelation> facts)
+			throws EvaluationException {
+		throw new EvaluationException(
+				"Facts can not be removed from a relational database knowledge base");
+	}
+
 	@Override
 	public List<IRule> getRules() {
 		return rules;
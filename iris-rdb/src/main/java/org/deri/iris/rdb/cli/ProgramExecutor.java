@@ -37,6 +37,8 @@ import org.deri.iris.compiler.Parser;
 import org.deri.iris.facts.Facts;
 import org.deri.iris.facts.IFacts;
 import org.deri.iris.rdb.RdbKnowledgeBase;
+import org.deri.iris.rdb.storage.CloseableIterator;
+import org.deri.iris.rdb.storage.IRdbRelation;
 import org.deri.iris.storage.IRelation;
 
 /**
@@ -94,6 +96,18 @@ public class ProgramExecutor implements Callable<String> {
 	 *            {@link StringBuilder}.
 	 */
 	private void formatResults(StringBuilder builder, IRelation relation) {
+		if (relation instanceof IRdbRelation) {
+			CloseableIterator<ITuple> iterator = ((IRdbRelation) relation)
+					.iterator();
+
+			while (iterator.hasNext()) {
+				builder.append(iterator.next().toString()).append(NEW_LINE);
+			}
+
+			iterator.close();
+			return;
+		}
+
 		int size = relation.size();
 
 		for (int t = 0; t < size; ++t) {
@@ -27,11 +27,13 @@ import java.util.List;
 
 import org.deri.iris.Configuration;
 import org.deri.iris.EvaluationException;
+import org.deri.iris.api.IPreparedQuery;
 import org.deri.iris.api.IProgramOptimisation;
 import org.deri.iris.api.basics.IQuery;
 import org.deri.iris.api.basics.IRule;
 import org.deri.iris.api.terms.IVariable;
 import org.deri.iris.evaluation.IEvaluationStrategy;
+import org.deri.iris.evaluation.PreparedQuery;
 import org.deri.iris.facts.IFacts;
 import org.deri.iris.rdb.facts.IRdbFacts;
 import org.deri.iris.rdb.facts.RdbFacts;
@@ -161,4 +163,9 @@ public class RdbOptimizedProgramStrategyAdaptor implements IEvaluationStrategy {
 		}
 	}
 
+	@Override
+	public IPreparedQuery prepareQuery(IQuery query, List<IVariable> parameters) {
+		return new PreparedQuery(this, query, parameters);
+	}
+
 }
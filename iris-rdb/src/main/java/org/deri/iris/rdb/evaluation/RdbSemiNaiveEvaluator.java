@@ -25,7 +25,9 @@ package org.deri.iris.rdb.evaluation;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.deri.iris.Configuration;
 import org.deri.iris.EvaluationException;
@@ -35,6 +37,7 @@ import org.deri.iris.facts.IFacts;
 import org.deri.iris.rdb.facts.IRdbFacts;
 import org.deri.iris.rdb.facts.RdbFacts;
 import org.deri.iris.rdb.rules.compiler.IRdbCompiledRule;
+import org.deri.iris.rdb.rules.compiler.RdbSqlRule;
 import org.deri.iris.rdb.storage.IRdbRelation;
 import org.deri.iris.rdb.storage.RdbDisjoinedRelation;
 import org.deri.iris.rules.compiler.ICompiledRule;
@@ -50,7 +53,11 @@ import org.slf4j.LoggerFactory;
  * are present in, both, in the delta relation and in the relation of for the
  * predicate. To reduce storage consumption, a delta relation is dropped as soon
  * as it isnot needed anymore, that is after run i + 1 where i is the run, in
- * which the delta relation was created.
+ * which the delta relation was created. The relations of the deltas are not
+ * dropped but cleared, and the relations of two consecutive runs are reused
+ * alternately, such that no tables have to be created during the iterations.
+ * Rules that have been compiled into single SQL statements (see
+ * {@link RdbSqlRule}) insert the new tuples directly into the delta relations.
  */
 public class RdbSemiNaiveEvaluator implements IRuleEvaluator {
 
@@ -86,17 +93,29 @@ public class RdbSemiNaiveEvaluator implements IRuleEvaluator {
 			rdbRules.add((IRdbCompiledRule) rule);
 		}
 
-		int run = 1;
+		Set<IPredicate> headPredicates = new HashSet<IPredicate>();
 
-		IRdbFacts deltas = new RdbFacts(connection, run + "-");
+		for (IRdbCompiledRule rule : rdbRules) {
+			headPredicates.add(rule.headPredicate());
+		}
+
+		IRdbFacts deltas = new RdbFacts(connection, "1-");
+		IRdbFacts previousDeltas = new RdbFacts(connection, "2-");
 
 		// One pass with simple evaluation to generate deltas
 		// for each rule in the collection (stratum).
 		for (IRdbCompiledRule rule : rdbRules) {
+			IPredicate predicate = rule.headPredicate();
+			RdbSqlRule sqlRule = rule.getSqlRule();
+
+			if (sqlRule != null) {
+				insert(sqlRule, deltas.get(predicate), rdbFacts.get(predicate));
+				continue;
+			}
+
 			IRdbRelation delta = rule.evaluate();
 
 			if (delta != null) {
-				IPredicate predicate = rule.headPredicate();
 				deltas.get(predicate).addAll(delta);
 			}
 		}
@@ -107,16 +126,31 @@ public class RdbSemiNaiveEvaluator implements IRuleEvaluator {
 		// Now do iterative evaluation (semi-naive).
 		boolean newTuples;
 		do {
-			run++;
 			newTuples = false;
 
-			IRdbFacts previousDeltas = deltas;
-
-			deltas = new RdbFacts(connection, run + "-");
+			// Swap the deltas, such that the relations of the delta before the
+			// previous one are reused for the new delta.
+			IRdbFacts reusedDeltas = previousDeltas;
+			previousDeltas = deltas;
+			deltas = reusedDeltas;
 
 			for (final IRdbCompiledRule rule : rdbRules) {
 				IPredicate predicate = rule.headPredicate();
 				IRdbRelation programFacts = rdbFacts.get(predicate);
+				RdbSqlRule sqlRule = rule.getSqlRule();
+
+				if (sqlRule != null) {
+					IRdbRelation newDelta = deltas.get(predicate);
+					int rowCount = insertIteratively(sqlRule, previousDeltas,
+							headPredicates, newDelta, programFacts);
+
+					if (rowCount > 0) {
+						newTuples = true;
+						programFacts.addAll(newDelta);
+					}
+
+					continue;
+				}
 
 				IRdbRelation delta = rule.evaluateIteratively(previousDeltas);
 
@@ -140,13 +174,44 @@ public class RdbSemiNaiveEvaluator implements IRuleEvaluator {
 				}
 			}
 
-			// Drop all relations of the previous delta, as the will not be used
-			// anymore.
-			previousDeltas.dropAll();
+			// Clear all relations of the previous delta, as the tuples will
+			// not be used anymore.
+			previousDeltas.clearAll();
 		} while (newTuples);
 
 		// Drop all delta relations, as only the facts are relevant as output.
+		previousDeltas.dropAll();
 		deltas.dropAll();
+
+		for (IRdbCompiledRule rule : rdbRules) {
+			if (rule.getSqlRule() != null) {
+				rule.getSqlRule().close();
+			}
+		}
+	}
+
+	private int insert(RdbSqlRule sqlRule, IRdbRelation target,
+			IRdbRelation programFacts) throws EvaluationException {
+		try {
+			return sqlRule.insert(target, programFacts);
+		} catch (SQLException e) {
+			logger.error("Could not evaluate rule for "
+					+ sqlRule.headPredicate(), e);
+			throw new EvaluationException(e.getLocalizedMessage());
+		}
+	}
+
+	private int insertIteratively(RdbSqlRule sqlRule, IRdbFacts deltas,
+			Set<IPredicate> deltaPredicates, IRdbRelation target,
+			IRdbRelation programFacts) throws EvaluationException {
+		try {
+			return sqlRule.insertIteratively(deltas, deltaPredicates, target,
+					programFacts);
+		} catch (SQLException e) {
+			logger.error("Could not evaluate rule for "
+					+ sqlRule.headPredicate(), e);
+			throw new EvaluationException(e.getLocalizedMessage());
+		}
 	}
 
 	private IRdbRelation removeDeducedTuples(IRdbRelation programFacts,
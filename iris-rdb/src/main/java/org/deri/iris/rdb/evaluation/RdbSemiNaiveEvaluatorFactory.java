@@ -26,6 +26,8 @@ import java.sql.Connection;
 
 import org.deri.iris.evaluation.stratifiedbottomup.IRuleEvaluator;
 import org.deri.iris.evaluation.stratifiedbottomup.IRuleEvaluatorFactory;
+import org.deri.iris.evaluation.stratifiedbottomup.seminaive.SemiNaiveEvaluator;
+import org.deri.iris.utils.equivalence.IEquivalentTerms;
 
 /**
  * Factory for a semi-naive rule evaluator based on a relational database
@@ -50,4 +52,13 @@ public class RdbSemiNaiveEvaluatorFactory implements IRuleEvaluatorFactory {
 	public IRuleEvaluator createEvaluator() {
 		return new RdbSemiNaiveEvaluator(connection);
 	}
+
+	/**
+	 * The database evaluator can not make terms equivalent, so rules with
+	 * rule head equality are evaluated in memory.
+	 */
+	@Override
+	public IRuleEvaluator createEvaluator(IEquivalentTerms equivalentTerms) {
+		return new SemiNaiveEvaluator(equivalentTerms);
+	}
 }
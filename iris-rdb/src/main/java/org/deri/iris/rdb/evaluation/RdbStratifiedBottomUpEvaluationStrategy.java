@@ -29,12 +29,14 @@ import java.util.List;
 
 import org.deri.iris.Configuration;
 import org.deri.iris.EvaluationException;
+import org.deri.iris.api.IPreparedQuery;
 import org.deri.iris.api.basics.IQuery;
 import org.deri.iris.api.basics.IRule;
 import org.deri.iris.api.basics.ITuple;
 import org.deri.iris.api.terms.ITerm;
 import org.deri.iris.api.terms.IVariable;
 import org.deri.iris.evaluation.IEvaluationStrategy;
+import org.deri.iris.evaluation.PreparedQuery;
 import org.deri.iris.evaluation.stratifiedbottomup.EvaluationUtilities;
 import org.deri.iris.evaluation.stratifiedbottomup.IRuleEvaluator;
 import org.deri.iris.evaluation.stratifiedbottomup.IRuleEvaluatorFactory;
@@ -147,6 +149,9 @@ public class RdbStratifiedBottomUpEvaluationStrategy implements
 					"OutputVariables must not be null.");
 		}
 
+		// Unlike the in-memory strategies, queries are not cached by their
+		// shape, since the compiled rules can not bind parameters. Each query
+		// is compiled into SQL statements again.
 		RdbRuleCompiler compiler = new RdbRuleCompiler(connection, facts);
 
 		IRdbCompiledRule compiledQuery;
@@ -193,4 +198,9 @@ public class RdbStratifiedBottomUpEvaluationStrategy implements
 		}
 	}
 
+	@Override
+	public IPreparedQuery prepareQuery(IQuery query, List<IVariable> parameters) {
+		return new PreparedQuery(this, query, parameters);
+	}
+
 }
@@ -22,6 +22,7 @@
  */
 package org.deri.iris.rdb.facts;
 
+import org.deri.iris.EvaluationException;
 import org.deri.iris.api.basics.IPredicate;
 import org.deri.iris.facts.IFacts;
 import org.deri.iris.rdb.storage.IRdbRelation;
@@ -47,12 +48,21 @@ public interface IRdbFacts extends IFacts {
 	 * 
 	 * @param source
 	 *            The facts to add to this facts.
+	 * @throws EvaluationException
+	 *             If the facts could not be added. None of them are added
+	 *             then.
 	 */
-	public void addAll(IFacts source);
+	public void addAll(IFacts source) throws EvaluationException;
 
 	/**
 	 * Drops all relations this instance keeps hold of.
 	 */
 	public void dropAll();
 
+	/**
+	 * Deletes the tuples of all relations this instance keeps hold of, but
+	 * keeps the relations, such that they can be reused.
+	 */
+	public void clearAll();
+
 }
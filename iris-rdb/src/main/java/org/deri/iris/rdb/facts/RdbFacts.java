@@ -28,6 +28,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 
+import org.deri.iris.EvaluationException;
 import org.deri.iris.api.basics.IPredicate;
 import org.deri.iris.factory.Factory;
 import org.deri.iris.facts.FiniteUniverseFacts;
@@ -36,7 +37,9 @@ import org.deri.iris.rdb.storage.IRdbRelation;
 import org.deri.iris.rdb.storage.RdbEqualityRelation;
 import org.deri.iris.rdb.storage.RdbRelation;
 import org.deri.iris.rdb.storage.RdbTrueRelation;
+import org.deri.iris.rdb.storage.RdbUniverseRelation;
 import org.deri.iris.rdb.storage.RdbUniverseView;
+import org.deri.iris.rdb.storage.SimpleRdbRelation;
 import org.deri.iris.rules.RuleHeadEqualityRewriter;
 import org.deri.iris.storage.IRelation;
 import org.slf4j.Logger;
@@ -109,16 +112,89 @@ public class RdbFacts implements IRdbFacts {
 		return relation;
 	}
 
+	/**
+	 * Adds all facts of the specified source to the database. The tuples are
+	 * added without committing each of them, and the transaction is committed
+	 * once all relations have been loaded. If any relation fails to load, the
+	 * transaction is rolled back.
+	 */
 	@Override
-	public void addAll(IFacts source) {
+	public void addAll(IFacts source) throws EvaluationException {
+		long startTime = System.currentTimeMillis();
+		int tupleCount = 0;
+
+		// Create the tables first, as H2 commits the transaction on DDL.
 		for (IPredicate predicate : source.getPredicates()) {
-			IRdbRelation targetRelation = get(predicate);
-			IRelation sourceRelation = source.get(predicate);
+			get(predicate);
+		}
 
-			if (targetRelation != null && sourceRelation != null) {
-				targetRelation.addAll(sourceRelation);
+		boolean autoCommit;
+
+		try {
+			autoCommit = connection.getAutoCommit();
+			connection.setAutoCommit(false);
+		} catch (SQLException e) {
+			throw new EvaluationException("Failed to disable auto-commit: "
+					+ e.getLocalizedMessage());
+		}
+
+		try {
+			for (IPredicate predicate : source.getPredicates()) {
+				IRdbRelation targetRelation = get(predicate);
+				IRelation sourceRelation = source.get(predicate);
+
+				if (targetRelation instanceof RdbRelation
+						&& sourceRelation != null) {
+					((RdbRelation) targetRelation).load(sourceRelation);
+					tupleCount += sourceRelation.size();
+				} else if (targetRelation != null && sourceRelation != null) {
+					targetRelation.addAll(sourceRelation);
+					tupleCount += sourceRelation.size();
+				}
+			}
+
+			connection.commit();
+		} catch (SQLException e) {
+			rollback();
+
+			throw new EvaluationException("Failed to add the facts: "
+					+ e.getLocalizedMessage());
+		} finally {
+			try {
+				connection.setAutoCommit(autoCommit);
+			} catch (SQLException e) {
+				logger.error("Failed to restore auto-commit", e);
 			}
 		}
+
+		if (logger.isDebugEnabled()) {
+			long stopTime = System.currentTimeMillis();
+			double duration = (double) (stopTime - startTime) / 1000.0;
+
+			logger.debug("Added {} tuples in {} seconds ({} tuples/second)",
+					new Object[] { tupleCount, duration,
+							duration > 0 ? (long) (tupleCount / duration) : tupleCount });
+		}
+	}
+
+	/**
+	 * Rolls back the current transaction, and forgets everything cached about
+	 * the rolled back changes.
+	 */
+	private void rollback() {
+		try {
+			connection.rollback();
+		} catch (SQLException e) {
+			logger.error("Failed to roll back the added facts", e);
+		}
+
+		SimpleRdbRelation.modified(connection);
+
+		try {
+			RdbUniverseRelation.getInstance(connection).clearCache();
+		} catch (SQLException e) {
+			logger.error("Failed to clear the cache of the universe", e);
+		}
 	}
 
 	@Override
@@ -134,4 +210,13 @@ public class RdbFacts implements IRdbFacts {
 		relations.clear();
 	}
 
+	@Override
+	public void clearAll() {
+		for (IRdbRelation relation : relations.values()) {
+			if (relation instanceof RdbRelation) {
+				((RdbRelation) relation).clear();
+			}
+		}
+	}
+
 }
@@ -61,4 +61,13 @@ public interface IRdbCompiledRule extends ICompiledRule {
 	 */
 	public ITuple getOutputTuple();
 
+	/**
+	 * Returns the rule compiled into single SQL statements, which insert the
+	 * tuples of the head directly into a relation.
+	 * 
+	 * @return The rule compiled into SQL statements, or <code>null</code> if
+	 *         the rule can only be evaluated using its rule elements.
+	 */
+	public RdbSqlRule getSqlRule();
+
 }
@@ -25,28 +25,56 @@ package org.deri.iris.rdb.rules.compiler;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.deri.iris.EvaluationException;
 import org.deri.iris.api.basics.ITuple;
 import org.deri.iris.api.builtins.IBuiltinAtom;
 import org.deri.iris.api.terms.ITerm;
+import org.deri.iris.api.terms.IConcreteTerm;
 import org.deri.iris.api.terms.IVariable;
+import org.deri.iris.builtins.GreaterBuiltin;
+import org.deri.iris.builtins.GreaterEqualBuiltin;
+import org.deri.iris.builtins.LessBuiltin;
+import org.deri.iris.builtins.LessEqualBuiltin;
+import org.deri.iris.builtins.NotEqualBuiltin;
 import org.deri.iris.factory.Factory;
 import org.deri.iris.facts.IFacts;
 import org.deri.iris.rdb.storage.CloseableIterator;
 import org.deri.iris.rdb.storage.IRdbRelation;
+import org.deri.iris.rdb.storage.RdbComparisonRelation;
 import org.deri.iris.rdb.storage.RdbEmptyTupleRelation;
 import org.deri.iris.rdb.storage.RdbTempRelation;
+import org.deri.iris.rdb.storage.RdbUnionRelation;
 import org.deri.iris.utils.equivalence.IEquivalentTerms;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
- * A compiled rule element representing a built-in predicate.
+ * A compiled rule element representing a built-in predicate. Comparisons of
+ * bound terms are evaluated in the database as far as possible, all other
+ * built-ins are evaluated for each tuple of the input relation.
  */
 public class RdbBuiltin extends RdbRuleElement {
 
+	private static Logger logger = LoggerFactory.getLogger(RdbBuiltin.class);
+
+	/** The SQL operators of the built-ins that can be evaluated in SQL. */
+	private static final Map<Class<?>, String> SQL_OPERATORS;
+
+	static {
+		SQL_OPERATORS = new HashMap<Class<?>, String>();
+		SQL_OPERATORS.put(LessBuiltin.class, "<");
+		SQL_OPERATORS.put(LessEqualBuiltin.class, "<=");
+		SQL_OPERATORS.put(GreaterBuiltin.class, ">");
+		SQL_OPERATORS.put(GreaterEqualBuiltin.class, ">=");
+		SQL_OPERATORS.put(NotEqualBuiltin.class, "<>");
+	}
+
 	/** The connection to the database. */
 	private Connection connection;
 
@@ -74,6 +102,12 @@ public class RdbBuiltin extends RdbRuleElement {
 
 	private Integer[] indicesFromInputRelationToMakeOutputTuple;
 
+	/**
+	 * The SQL operator to evaluate the built-in in the database, or
+	 * <code>null</code> if the built-in can not be translated to SQL.
+	 */
+	private String sqlOperator;
+
 	/**
 	 * Constructor.
 	 * 
@@ -157,6 +191,19 @@ public class RdbBuiltin extends RdbRuleElement {
 		this.indicesFromBuiltInOutputTupleToCopyToOutputRelation = new Integer[0];
 		this.indicesFromBuiltInOutputTupleToCopyToOutputRelation = indicesFromBuiltinOutputTupleToCopyToOutputRelation
 				.toArray(indicesFromBuiltInOutputTupleToCopyToOutputRelation);
+
+		if (isPositive && inputTuple != null && inputTuple.size() > 0
+				&& unboundBuiltInVariables.isEmpty()
+				&& builtinTuple.size() == 2) {
+			sqlOperator = SQL_OPERATORS.get(builtinAtom.getClass());
+
+			for (ITerm term : builtinTuple) {
+				if (!(term instanceof IVariable)
+						&& !(term instanceof IConcreteTerm)) {
+					sqlOperator = null;
+				}
+			}
+		}
 	}
 
 	@Override
@@ -166,16 +213,17 @@ public class RdbBuiltin extends RdbRuleElement {
 		int builtinArity = builtinTuple.size();
 		int arity = inputArity + builtinArity;
 
-		IRdbRelation result;
-
-		try {
-			result = new RdbTempRelation(connection, arity);
-		} catch (SQLException e) {
-			throw new EvaluationException(
-					"Could not create temporary RDB relation ("
-							+ e.getLocalizedMessage() + ")");
+		if (sqlOperator != null && leftRelation != null) {
+			try {
+				return processInDatabase(leftRelation, arity);
+			} catch (SQLException e) {
+				logger.warn("Failed to evaluate built-in " + builtinAtom
+						+ " in the database, evaluating it for each tuple", e);
+			}
 		}
 
+		IRdbRelation result = createTempRelation(arity);
+
 		// This can only happen if the built-in is the first literal in the rule
 		// body. In that case, the ground tuple of the built-in should be added
 		// to the relation.
@@ -188,6 +236,68 @@ public class RdbBuiltin extends RdbRuleElement {
 			}
 		}
 
+		for (ITuple tuple : evaluate(leftRelation)) {
+			result.add(tuple);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Compares the terms of the tuples in the database. Only the tuples with
+	 * terms that can not be compared in SQL are evaluated by the built-in
+	 * atom.
+	 */
+	private IRdbRelation processInDatabase(IRdbRelation leftRelation,
+			int arity) throws SQLException, EvaluationException {
+		String suffix = String.valueOf(hashCode());
+
+		IRdbRelation comparison = new RdbComparisonRelation(connection,
+				leftRelation, inputTuple, builtinTuple, sqlOperator, true,
+				suffix);
+		IRdbRelation rest = new RdbComparisonRelation(connection,
+				leftRelation, inputTuple, builtinTuple, sqlOperator, false,
+				suffix);
+
+		List<ITuple> evaluated = evaluate(rest);
+		rest.close();
+
+		if (evaluated.isEmpty()) {
+			return comparison;
+		}
+
+		IRdbRelation result = createTempRelation(arity);
+
+		for (ITuple tuple : evaluated) {
+			result.add(tuple);
+		}
+
+		List<IRdbRelation> relations = new ArrayList<IRdbRelation>();
+		relations.add(comparison);
+		relations.add(result);
+
+		return new RdbUnionRelation(connection, relations, suffix);
+	}
+
+	private IRdbRelation createTempRelation(int arity)
+			throws EvaluationException {
+		try {
+			return new RdbTempRelation(connection, arity);
+		} catch (SQLException e) {
+			throw new EvaluationException(
+					"Could not create temporary RDB relation ("
+							+ e.getLocalizedMessage() + ")");
+		}
+	}
+
+	/**
+	 * Evaluates the built-in atom for each tuple of the specified relation and
+	 * returns the resulting tuples.
+	 */
+	private List<ITuple> evaluate(IRdbRelation leftRelation)
+			throws EvaluationException {
+		List<ITuple> result = new ArrayList<ITuple>();
+
 		CloseableIterator<ITuple> iterator = leftRelation.iterator();
 		
 		while (iterator.hasNext()) {
@@ -57,11 +57,21 @@ public class RdbCompiledRule implements IRdbCompiledRule {
 	/** The head predicate. */
 	private final IPredicate headPredicate;
 
+	/** The rule compiled into SQL statements, or <code>null</code>. */
+	private final RdbSqlRule sqlRule;
+
 	public RdbCompiledRule(Connection connection,
 			List<RdbRuleElement> elements, IPredicate headPredicate) {
+		this(connection, elements, headPredicate, null);
+	}
+
+	public RdbCompiledRule(Connection connection,
+			List<RdbRuleElement> elements, IPredicate headPredicate,
+			RdbSqlRule sqlRule) {
 		this.connection = connection;
 		this.headPredicate = headPredicate;
 		this.elements = elements;
+		this.sqlRule = sqlRule;
 	}
 
 	@Override
@@ -90,6 +100,27 @@ public class RdbCompiledRule implements IRdbCompiledRule {
 		return output;
 	}
 
+	/**
+	 * Evaluate the rule without parameters. The SQL statements of the rule
+	 * elements can not bind parameter values, so rules compiled for the
+	 * database are not cached by the shape of their query, see
+	 * {@link org.deri.iris.rdb.evaluation.RdbStratifiedBottomUpEvaluationStrategy#evaluateQuery}.
+	 * 
+	 * @param input The values of the parameters, which must be empty.
+	 * @return The result relation for this rule.
+	 * @throws EvaluationException If an error occurs during evaluation.
+	 * @throws UnsupportedOperationException If there are parameter values.
+	 */
+	@Override
+	public IRdbRelation evaluate(ITuple input) throws EvaluationException {
+		if (input.size() > 0) {
+			throw new UnsupportedOperationException(
+					"Does not support parameters");
+		}
+
+		return evaluate();
+	}
+
 	@Override
 	public IRdbRelation evaluateIteratively(IFacts deltas)
 			throws EvaluationException {
@@ -136,6 +167,11 @@ public class RdbCompiledRule implements IRdbCompiledRule {
 		return headPredicate;
 	}
 
+	@Override
+	public RdbSqlRule getSqlRule() {
+		return sqlRule;
+	}
+
 	public ITuple getOutputTuple() {
 		if (elements.size() > 0) {
 			return elements.get(elements.size() - 1).getOutputTuple();
@@ -77,8 +77,10 @@ public class RdbRuleCompiler {
 
 		elements.add(substituter);
 
+		RdbSqlRule sqlRule = RdbSqlRule.compile(connection, rule, facts);
+
 		return new RdbCompiledRule(connection, elements,
-				headAtom.getPredicate());
+				headAtom.getPredicate(), sqlRule);
 	}
 
 	/**
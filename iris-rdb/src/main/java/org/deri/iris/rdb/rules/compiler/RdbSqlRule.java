@@ -0,0 +1,453 @@
+/*
+ * Integrated Rule Inference System (IRIS):
+ * An extensible rule inference system for datalog with extensions.
+ * 
+ * Copyright (C) 2011 Semantic Technology Institute (STI) Innsbruck, 
+ * University of Innsbruck, Technikerstrasse 21a, 6020 Innsbruck, Austria.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ */
+package org.deri.iris.rdb.rules.compiler;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.deri.iris.api.basics.IAtom;
+import org.deri.iris.api.basics.ILiteral;
+import org.deri.iris.api.basics.IPredicate;
+import org.deri.iris.api.basics.IRule;
+import org.deri.iris.api.basics.ITuple;
+import org.deri.iris.api.builtins.IBuiltinAtom;
+import org.deri.iris.api.terms.IConcreteTerm;
+import org.deri.iris.api.terms.ITerm;
+import org.deri.iris.api.terms.IVariable;
+import org.deri.iris.facts.IFacts;
+import org.deri.iris.rdb.facts.IRdbFacts;
+import org.deri.iris.rdb.storage.IRdbRelation;
+import org.deri.iris.rdb.storage.RdbRelation;
+import org.deri.iris.rdb.storage.RdbUniverseRelation;
+import org.deri.iris.rdb.storage.SimpleRdbRelation;
+import org.deri.iris.rdb.utils.RdbUtils;
+import org.deri.iris.storage.IRelation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * A rule compiled into a single <code>INSERT ... SELECT</code> statement,
+ * which evaluates the whole rule body in the database and inserts the new
+ * tuples of the head into a target relation. The tuples that are already part
+ * of the relation of the head predicate or the target relation are excluded
+ * by <code>NOT EXISTS</code> anti-joins.
+ * </p>
+ * <p>
+ * Only rules consisting of ordinary literals over relations stored in tables
+ * with at least one attribute can be compiled. For semi-naive evaluation, one
+ * statement is created for each positive literal, where the relation of the
+ * literal is replaced by the delta relation of its predicate. The statements
+ * are prepared once for each combination of tables.
+ * </p>
+ */
+public class RdbSqlRule {
+
+	private static final Logger logger = LoggerFactory
+			.getLogger(RdbSqlRule.class);
+
+	private static final String BODY_ALIAS_PREFIX = "body";
+
+	private static final String NEGATED_ALIAS_PREFIX = "negated";
+
+	private static final String KNOWN_ALIAS = "known";
+
+	private final Connection connection;
+
+	private final IPredicate headPredicate;
+
+	private final ITuple headTuple;
+
+	private final List<ILiteral> positiveLiterals;
+
+	private final List<ILiteral> negativeLiterals;
+
+	/** The tables of the literals, positive literals first. */
+	private final List<String> tableNames;
+
+	private final Map<ITerm, Integer> termIds;
+
+	private final Map<String, PreparedStatement> statements;
+
+	private RdbSqlRule(Connection connection, IPredicate headPredicate,
+			ITuple headTuple, List<ILiteral> positiveLiterals,
+			List<ILiteral> negativeLiterals, List<String> tableNames,
+			Map<ITerm, Integer> termIds) {
+		this.connection = connection;
+		this.headPredicate = headPredicate;
+		this.headTuple = headTuple;
+		this.positiveLiterals = positiveLiterals;
+		this.negativeLiterals = negativeLiterals;
+		this.tableNames = tableNames;
+		this.termIds = termIds;
+		this.statements = new HashMap<String, PreparedStatement>();
+	}
+
+	/**
+	 * Compiles the specified rule into SQL statements.
+	 * 
+	 * @param connection
+	 *            The connection to the database.
+	 * @param rule
+	 *            The rule to compile.
+	 * @param facts
+	 *            The facts the rule is evaluated against.
+	 * @return The compiled rule, or <code>null</code> if the rule can not be
+	 *         compiled into a single statement.
+	 */
+	public static RdbSqlRule compile(Connection connection, IRule rule,
+			IFacts facts) throws SQLException {
+		if (rule.getHead().size() != 1 || rule.getBody().isEmpty()) {
+			return null;
+		}
+
+		IAtom headAtom = rule.getHead().get(0).getAtom();
+
+		if (!(facts.get(headAtom.getPredicate()) instanceof RdbRelation)
+				|| headAtom.getTuple().isEmpty()) {
+			return null;
+		}
+
+		List<ILiteral> positiveLiterals = new ArrayList<ILiteral>();
+		List<ILiteral> negativeLiterals = new ArrayList<ILiteral>();
+
+		for (ILiteral literal : rule.getBody()) {
+			IAtom atom = literal.getAtom();
+
+			if (atom instanceof IBuiltinAtom || atom.getTuple().isEmpty()) {
+				return null;
+			}
+
+			if (literal.isPositive()) {
+				positiveLiterals.add(literal);
+			} else {
+				negativeLiterals.add(literal);
+			}
+		}
+
+		if (positiveLiterals.isEmpty()) {
+			return null;
+		}
+
+		List<ILiteral> literals = new ArrayList<ILiteral>(positiveLiterals);
+		literals.addAll(negativeLiterals);
+
+		List<String> tableNames = new ArrayList<String>();
+
+		for (ILiteral literal : literals) {
+			IRelation relation = facts.get(literal.getAtom().getPredicate());
+
+			if (!(relation instanceof RdbRelation)) {
+				return null;
+			}
+
+			tableNames.add(((RdbRelation) relation).getTableName());
+		}
+
+		// Resolve the IDs of all constants.
+		List<ITerm> terms = new ArrayList<ITerm>(headAtom.getTuple());
+
+		for (ILiteral literal : literals) {
+			terms.addAll(literal.getAtom().getTuple());
+		}
+
+		RdbUniverseRelation universe = RdbUniverseRelation
+				.getInstance(connection);
+		Map<ITerm, Integer> termIds = new HashMap<ITerm, Integer>();
+
+		for (ITerm term : terms) {
+			if (term instanceof IVariable) {
+				continue;
+			}
+
+			if (!(term instanceof IConcreteTerm)) {
+				return null;
+			}
+
+			int termId = universe.getOrAddId(term);
+
+			if (termId == -1) {
+				return null;
+			}
+
+			termIds.put(term, termId);
+		}
+
+		RdbSqlRule sqlRule = new RdbSqlRule(connection,
+				headAtom.getPredicate(), headAtom.getTuple(),
+				positiveLiterals, negativeLiterals, tableNames, termIds);
+
+		// The head variables must be bound by the positive literals.
+		if (sqlRule.bindVariables(new HashMap<IVariable, String>()) == null) {
+			return null;
+		}
+
+		return sqlRule;
+	}
+
+	/**
+	 * Returns the predicate of the head of the rule.
+	 * 
+	 * @return The predicate of the head of the rule.
+	 */
+	public IPredicate headPredicate() {
+		return headPredicate;
+	}
+
+	/**
+	 * Evaluates the rule against all facts and inserts the tuples that are
+	 * neither in the relation of the head predicate nor in the target relation
+	 * into the target relation.
+	 * 
+	 * @param target
+	 *            The relation to insert the new tuples into.
+	 * @param headRelation
+	 *            The relation of the head predicate.
+	 * @return The number of inserted tuples.
+	 * @throws SQLException
+	 *             If the statement fails.
+	 */
+	public int insert(IRdbRelation target, IRdbRelation headRelation)
+			throws SQLException {
+		return execute(new ArrayList<String>(tableNames), target,
+				headRelation);
+	}
+
+	/**
+	 * Evaluates the rule once for each positive literal, whose predicate is
+	 * one of the specified delta predicates, with the relation of the literal
+	 * replaced by its delta relation. The new tuples are inserted into the
+	 * target relation.
+	 * 
+	 * @param deltas
+	 *            The delta relations.
+	 * @param deltaPredicates
+	 *            The predicates that have delta relations.
+	 * @param target
+	 *            The relation to insert the new tuples into.
+	 * @param headRelation
+	 *            The relation of the head predicate.
+	 * @return The number of inserted tuples.
+	 * @throws SQLException
+	 *             If a statement fails.
+	 */
+	public int insertIteratively(IRdbFacts deltas,
+			Set<IPredicate> deltaPredicates, IRdbRelation target,
+			IRdbRelation headRelation) throws SQLException {
+		int rowCount = 0;
+
+		for (int i = 0; i < positiveLiterals.size(); i++) {
+			IPredicate predicate = positiveLiterals.get(i).getAtom()
+					.getPredicate();
+
+			if (deltaPredicates.contains(predicate)) {
+				List<String> substitutedTableNames = new ArrayList<String>(
+						tableNames);
+				substitutedTableNames.set(i, deltas.get(predicate)
+						.getTableName());
+
+				rowCount += execute(substitutedTableNames, target,
+						headRelation);
+			}
+		}
+
+		return rowCount;
+	}
+
+	private int execute(List<String> tableNames, IRdbRelation target,
+			IRdbRelation headRelation) throws SQLException {
+		String sql = createInsert(tableNames, target, headRelation);
+		PreparedStatement statement = statements.get(sql);
+
+		if (statement == null) {
+			statement = connection.prepareStatement(sql);
+			statements.put(sql, statement);
+		}
+
+		logger.debug("Executing " + statement);
+
+		try {
+			return statement.executeUpdate();
+		} finally {
+			SimpleRdbRelation.modified(connection);
+		}
+	}
+
+	/**
+	 * Maps the variables of the positive literals to the first attribute they
+	 * occur at, and returns the conditions that join the literals. Returns
+	 * <code>null</code> if a variable of the head is not bound.
+	 */
+	private List<String> bindVariables(Map<IVariable, String> variables) {
+		List<String> conditions = new ArrayList<String>();
+
+		for (int i = 0; i < positiveLiterals.size(); i++) {
+			ITuple tuple = positiveLiterals.get(i).getAtom().getTuple();
+			conditions.addAll(createConditions(BODY_ALIAS_PREFIX + i, tuple,
+					variables, true));
+		}
+
+		for (ITerm term : headTuple) {
+			if (term instanceof IVariable && !variables.containsKey(term)) {
+				return null;
+			}
+		}
+
+		return conditions;
+	}
+
+	/**
+	 * Creates the conditions for the attributes of the specified tuple. If
+	 * variables should be bound, the unbound variables are mapped to their
+	 * first attribute, otherwise they are only required to be equal within the
+	 * tuple.
+	 */
+	private List<String> createConditions(String alias, ITuple tuple,
+			Map<IVariable, String> variables, boolean bind) {
+		List<String> conditions = new ArrayList<String>();
+		Map<IVariable, String> localVariables = new HashMap<IVariable, String>();
+
+		for (int j = 0; j < tuple.size(); j++) {
+			ITerm term = tuple.get(j);
+			String attribute = alias + "." + IRdbRelation.ATTRIBUTE_PREFIX
+					+ (j + 1);
+
+			if (term instanceof IVariable) {
+				IVariable variable = (IVariable) term;
+				String bound = variables.get(variable);
+
+				if (bound == null) {
+					bound = localVariables.get(variable);
+				}
+
+				if (bound != null) {
+					conditions.add(attribute + " = " + bound);
+				} else if (bind) {
+					variables.put(variable, attribute);
+				} else {
+					localVariables.put(variable, attribute);
+				}
+			} else {
+				conditions.add(attribute + " = " + termIds.get(term));
+			}
+		}
+
+		return conditions;
+	}
+
+	private String createInsert(List<String> tableNames, IRdbRelation target,
+			IRdbRelation headRelation) {
+		Map<IVariable, String> variables = new HashMap<IVariable, String>();
+		List<String> conditions = bindVariables(variables);
+
+		List<String> from = new ArrayList<String>();
+
+		for (int i = 0; i < positiveLiterals.size(); i++) {
+			from.add(tableNames.get(i) + " AS " + BODY_ALIAS_PREFIX + i);
+		}
+
+		for (int i = 0; i < negativeLiterals.size(); i++) {
+			String alias = NEGATED_ALIAS_PREFIX + i;
+			ITuple tuple = negativeLiterals.get(i).getAtom().getTuple();
+
+			List<String> negatedConditions = createConditions(alias, tuple,
+					variables, false);
+
+			conditions.add(createNotExists(
+					tableNames.get(positiveLiterals.size() + i), alias,
+					negatedConditions));
+		}
+
+		List<String> selected = new ArrayList<String>();
+
+		for (ITerm term : headTuple) {
+			if (term instanceof IVariable) {
+				selected.add(variables.get(term));
+			} else {
+				selected.add(termIds.get(term).toString());
+			}
+		}
+
+		// Exclude the tuples that are already known.
+		List<IRdbRelation> knownRelations = new ArrayList<IRdbRelation>();
+		knownRelations.add(headRelation);
+
+		if (!target.getTableName().equals(headRelation.getTableName())) {
+			knownRelations.add(target);
+		}
+
+		for (IRdbRelation knownRelation : knownRelations) {
+			List<String> knownConditions = new ArrayList<String>();
+
+			for (int j = 0; j < selected.size(); j++) {
+				knownConditions.add(KNOWN_ALIAS + "."
+						+ IRdbRelation.ATTRIBUTE_PREFIX + (j + 1) + " = "
+						+ selected.get(j));
+			}
+
+			conditions.add(createNotExists(knownRelation.getTableName(),
+					KNOWN_ALIAS, knownConditions));
+		}
+
+		String sqlFormat = "INSERT INTO %s(%s) SELECT DISTINCT %s FROM %s WHERE %s";
+
+		return String.format(sqlFormat, target.getTableName(),
+				RdbUtils.join(RdbUtils.createAttributeList(target), ", "),
+				RdbUtils.join(selected, ", "), RdbUtils.join(from, ", "),
+				RdbUtils.join(conditions, " AND "));
+	}
+
+	private String createNotExists(String tableName, String alias,
+			List<String> conditions) {
+		StringBuilder builder = new StringBuilder();
+		builder.append("NOT EXISTS (SELECT 1 FROM ");
+		builder.append(tableName + " AS " + alias);
+
+		if (!conditions.isEmpty()) {
+			builder.append(" WHERE ");
+			builder.append(RdbUtils.join(conditions, " AND "));
+		}
+
+		builder.append(")");
+
+		return builder.toString();
+	}
+
+	/**
+	 * Closes all prepared statements.
+	 */
+	public void close() {
+		for (PreparedStatement statement : statements.values()) {
+			RdbUtils.closeStatement(statement);
+		}
+
+		statements.clear();
+	}
+
+}
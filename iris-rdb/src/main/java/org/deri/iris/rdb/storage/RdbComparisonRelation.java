@@ -0,0 +1,361 @@
+/*
+ * Integrated Rule Inference System (IRIS):
+ * An extensible rule inference system for datalog with extensions.
+ * 
+ * Copyright (C) 2011 Semantic Technology Institute (STI) Innsbruck, 
+ * University of Innsbruck, Technikerstrasse 21a, 6020 Innsbruck, Austria.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ */
+package org.deri.iris.rdb.storage;
+
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.deri.iris.api.basics.ITuple;
+import org.deri.iris.api.terms.ITerm;
+import org.deri.iris.api.terms.concrete.XmlSchemaDatatype;
+import org.deri.iris.rdb.utils.RdbUtils;
+import org.deri.iris.storage.IRelation;
+
+/**
+ * <p>
+ * A view that compares two terms of each tuple of a relation in the database.
+ * Each term is either an attribute of the relation or a constant, and is
+ * resolved by joining the universe relation.
+ * </p>
+ * <p>
+ * Only terms that are both exact numbers (i.e. not floating point numbers) or
+ * both strings are compared in the database. Numbers are compared by their
+ * decimal values and strings by their canonical representations. A
+ * comparable view contains the tuples of the relation, for which the
+ * comparison holds, followed by the compared terms. A view that is not
+ * comparable contains the tuples of the relation whose terms can not be
+ * compared in the database, so that they can be evaluated otherwise.
+ * </p>
+ * <p>
+ * This relation may return duplicate tuples.
+ * </p>
+ */
+public class RdbComparisonRelation extends AbstractRdbRelation {
+
+	private static final String VIEW_SUFFIX = "_comparison";
+
+	private static final String RELATION_ALIAS = "base";
+
+	private static final String[] OPERAND_ALIASES = { "operand1", "operand2" };
+
+	private static final XmlSchemaDatatype[] EXACT_NUMERIC_TYPES = {
+			XmlSchemaDatatype.DECIMAL, XmlSchemaDatatype.INTEGER,
+			XmlSchemaDatatype.NON_POSITIVE_INTEGER,
+			XmlSchemaDatatype.NEGATIVE_INTEGER, XmlSchemaDatatype.LONG,
+			XmlSchemaDatatype.INT, XmlSchemaDatatype.SHORT,
+			XmlSchemaDatatype.BYTE, XmlSchemaDatatype.NON_NEGATIVE_INTEGER,
+			XmlSchemaDatatype.UNSIGNED_LONG, XmlSchemaDatatype.UNSIGNED_INT,
+			XmlSchemaDatatype.UNSIGNED_SHORT, XmlSchemaDatatype.UNSIGNED_BYTE,
+			XmlSchemaDatatype.POSITIVE_INTEGER };
+
+	private IRdbRelation relation;
+
+	private ITuple inputTuple;
+
+	private ITuple operands;
+
+	private String operator;
+
+	private boolean isComparable;
+
+	private String suffix;
+
+	private RdbUniverseRelation universe;
+
+	private IRdbRelation viewRelation;
+
+	/**
+	 * Creates a view comparing two terms of the tuples of the specified
+	 * relation.
+	 * 
+	 * @param connection
+	 *            The connection to the database.
+	 * @param relation
+	 *            The relation whose tuples are compared, which must have at
+	 *            least one attribute.
+	 * @param inputTuple
+	 *            The terms of the tuples of the relation.
+	 * @param operands
+	 *            The two terms to compare, variables must occur in the input
+	 *            tuple.
+	 * @param operator
+	 *            The SQL comparison operator, e.g. <code>&lt;</code>.
+	 * @param isComparable
+	 *            <code>true</code> for the view of the tuples for which the
+	 *            comparison holds, <code>false</code> for the view of the
+	 *            tuples whose terms can not be compared in the database.
+	 * @param suffix
+	 *            The suffix of the name of the view, or <code>null</code>.
+	 * @throws SQLException
+	 *             If the view can not be created.
+	 */
+	public RdbComparisonRelation(Connection connection, IRdbRelation relation,
+			ITuple inputTuple, ITuple operands, String operator,
+			boolean isComparable, String suffix) throws SQLException {
+		super(connection);
+
+		if (operands.size() != OPERAND_ALIASES.length) {
+			throw new IllegalArgumentException(
+					"Only two terms can be compared");
+		}
+
+		if (relation.getArity() == 0) {
+			throw new IllegalArgumentException(
+					"The relation must have at least one attribute");
+		}
+
+		this.relation = relation;
+		this.inputTuple = inputTuple;
+		this.operands = operands;
+		this.operator = operator;
+		this.isComparable = isComparable;
+		this.suffix = suffix;
+
+		this.universe = RdbUniverseRelation.getInstance(connection);
+
+		createView();
+
+		viewRelation = new SimpleRdbRelation(connection, getTableName(),
+				getArity());
+	}
+
+	private void createView() throws SQLException {
+		List<String> attributes = RdbUtils.createAttributeList(this);
+
+		String createViewFormat = "CREATE OR REPLACE VIEW %s(%s) AS "
+				+ "SELECT %s FROM %s AS %s %s WHERE %s";
+
+		String createViewSql = String.format(createViewFormat, getTableName(),
+				RdbUtils.join(attributes, ", "), createSelectAttributes(),
+				relation.getTableName(), RELATION_ALIAS, createJoins(),
+				createCondition());
+
+		Connection connection = getConnection();
+		CallableStatement call = null;
+
+		try {
+			call = connection.prepareCall(createViewSql);
+
+			logger.debug("Executing " + call);
+			call.execute();
+		} finally {
+			RdbUtils.closeStatement(call);
+		}
+	}
+
+	/**
+	 * Returns the SQL expression for the ID of the specified term, i.e. either
+	 * an attribute of the relation or the ID of a constant.
+	 */
+	private String createIdExpression(ITerm term) throws SQLException {
+		int index = inputTuple.indexOf(term);
+
+		if (index > -1) {
+			return RELATION_ALIAS + "." + IRdbRelation.ATTRIBUTE_PREFIX
+					+ (index + 1);
+		}
+
+		int termId = universe.getOrAddId(term);
+
+		if (termId == -1) {
+			throw new SQLException("Could not add term " + term
+					+ " to universe");
+		}
+
+		return Integer.toString(termId);
+	}
+
+	private String createSelectAttributes() throws SQLException {
+		List<String> attributes = new ArrayList<String>();
+
+		for (int i = 1; i <= relation.getArity(); i++) {
+			attributes.add(RELATION_ALIAS + "."
+					+ IRdbRelation.ATTRIBUTE_PREFIX + i);
+		}
+
+		if (isComparable) {
+			for (ITerm operand : operands) {
+				attributes.add(createIdExpression(operand));
+			}
+		}
+
+		return RdbUtils.join(attributes, ", ");
+	}
+
+	private String createJoins() throws SQLException {
+		StringBuilder joins = new StringBuilder();
+
+		for (int i = 0; i < OPERAND_ALIASES.length; i++) {
+			String joinFormat = "JOIN %s AS %s ON %s.%s = %s ";
+			joins.append(String.format(joinFormat,
+					RdbUniverseRelation.UNIVERSE_NAME, OPERAND_ALIASES[i],
+					OPERAND_ALIASES[i], RdbUniverseRelation.ID_NAME,
+					createIdExpression(operands.get(i))));
+		}
+
+		return joins.toString();
+	}
+
+	private String createCondition() {
+		List<String> numericTypes = new ArrayList<String>();
+
+		for (XmlSchemaDatatype type : EXACT_NUMERIC_TYPES) {
+			numericTypes.add("'" + type.getUri() + "'");
+		}
+
+		String numericTypeList = RdbUtils.join(numericTypes, ", ");
+		String stringType = "'" + XmlSchemaDatatype.STRING.getUri() + "'";
+
+		List<String> areNumeric = new ArrayList<String>();
+		List<String> areStrings = new ArrayList<String>();
+		List<String> numericValues = new ArrayList<String>();
+		List<String> stringValues = new ArrayList<String>();
+
+		for (String alias : OPERAND_ALIASES) {
+			String type = alias + "." + RdbUniverseRelation.TYPE_NAME;
+
+			String isNumeric = type + " IN (" + numericTypeList + ")";
+
+			areNumeric.add(isNumeric);
+			areStrings.add(type + " = " + stringType);
+
+			// Only cast numbers, as SQL does not guarantee the order in which
+			// the conditions are evaluated.
+			numericValues.add("CASE WHEN " + isNumeric + " THEN CAST("
+					+ alias + "." + RdbUniverseRelation.COMMON_NAME
+					+ " AS DECIMAL) END");
+			stringValues.add(alias + "." + RdbUniverseRelation.CANONICAL_NAME);
+		}
+
+		if (!isComparable) {
+			return String.format("NOT ((%s) OR (%s))",
+					RdbUtils.join(areNumeric, " AND "),
+					RdbUtils.join(areStrings, " AND "));
+		}
+
+		String numericComparison = RdbUtils.join(numericValues, " "
+				+ operator + " ");
+		String stringComparison = RdbUtils.join(stringValues, " " + operator
+				+ " ");
+
+		return String.format("(%s AND %s) OR (%s AND %s)",
+				RdbUtils.join(areNumeric, " AND "), numericComparison,
+				RdbUtils.join(areStrings, " AND "), stringComparison);
+	}
+
+	@Override
+	public String getTableName() {
+		String parentTableName = RdbUtils.unquoteIdentifier(relation
+				.getTableName());
+		String viewName = "(" + parentTableName + ")";
+
+		if (suffix != null) {
+			viewName += "_" + suffix;
+		}
+
+		viewName += isComparable ? VIEW_SUFFIX : VIEW_SUFFIX + "_rest";
+
+		return RdbUtils.quoteIdentifier(viewName);
+	}
+
+	@Override
+	public int getArity() {
+		if (isComparable) {
+			return relation.getArity() + operands.size();
+		}
+
+		return relation.getArity();
+	}
+
+	@Override
+	public boolean add(ITuple tuple) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public boolean addAll(IRelation relation) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public int size() {
+		return viewRelation.size();
+	}
+
+	@Override
+	public ITuple get(int index) {
+		return viewRelation.get(index);
+	}
+
+	@Override
+	public boolean contains(ITuple tuple) {
+		return viewRelation.contains(tuple);
+	}
+
+	@Override
+	public void drop() {
+		// Close the relation.
+		close();
+
+		// Drop the view relation.
+		viewRelation.drop();
+
+		String sqlFormat = "DROP VIEW IF EXISTS %s CASCADE";
+		String sql = String.format(sqlFormat, getTableName());
+
+		Connection connection = getConnection();
+		CallableStatement call = null;
+
+		try {
+			call = connection.prepareCall(sql);
+
+			logger.debug("Executing " + call);
+			call.execute();
+		} catch (SQLException e) {
+			logger.error("Failed to drop view " + getTableName(), e);
+		} finally {
+			RdbUtils.closeStatement(call);
+		}
+	}
+
+	@Override
+	public void close() {
+		viewRelation.close();
+
+		// Do not close the universe, as it may be used somewhere else.
+	}
+
+	@Override
+	public String toString() {
+		return viewRelation.toString();
+	}
+
+	@Override
+	public CloseableIterator<ITuple> iterator() {
+		return viewRelation.iterator();
+	}
+
+}
@@ -151,8 +151,7 @@ public class RdbProjectedRelation extends AbstractRdbRelation {
 			String attributeName = IRdbRelation.ATTRIBUTE_PREFIX + i;
 
 			if (term instanceof IConcreteTerm) {
-				universe.add(term);
-				int termId = universe.getId(term);
+				int termId = universe.getOrAddId(term);
 
 				if (termId == -1) {
 					throw new SQLException("Could not add term " + term
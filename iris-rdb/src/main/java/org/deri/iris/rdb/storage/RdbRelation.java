@@ -40,7 +40,7 @@ public class RdbRelation extends AbstractRdbRelation {
 
 	public static final String ID_NAME = "id";
 
-	private IRdbRelation viewRelation;
+	private SimpleRdbRelation viewRelation;
 
 	private String tableName;
 
@@ -80,6 +80,20 @@ public class RdbRelation extends AbstractRdbRelation {
 		return this.viewRelation.addAll(relation);
 	}
 
+	/**
+	 * Adds all tuples of the specified relation, see
+	 * {@link SimpleRdbRelation#load(IRelation)}.
+	 * 
+	 * @param relation
+	 *            The relation to add the tuples of.
+	 * @return <code>true</code> if any tuple was added.
+	 * @throws SQLException
+	 *             If the tuples could not be added.
+	 */
+	public boolean load(IRelation relation) throws SQLException {
+		return viewRelation.load(relation);
+	}
+
 	@Override
 	public boolean contains(ITuple tuple) {
 		return viewRelation.contains(tuple);
@@ -187,6 +201,31 @@ public class RdbRelation extends AbstractRdbRelation {
 		}
 	}
 
+	/**
+	 * Deletes all tuples of this relation, but keeps the table, such that it
+	 * can be reused.
+	 */
+	public void clear() {
+		close();
+
+		String sql = String.format("DELETE FROM %s", getTableName());
+
+		Connection connection = getConnection();
+		CallableStatement statement = null;
+
+		try {
+			statement = connection.prepareCall(sql);
+
+			logger.debug("Executing " + statement);
+			statement.executeUpdate();
+		} catch (SQLException e) {
+			logger.error("Failed to clear table " + getTableName(), e);
+		} finally {
+			RdbUtils.closeStatement(statement);
+			SimpleRdbRelation.modified(connection);
+		}
+	}
+
 	@Override
 	public void drop() {
 		close();
@@ -27,6 +27,11 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.WeakHashMap;
 
@@ -42,15 +47,16 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * This relation does not return duplicate tuples.
+ * This relation does not return duplicate tuples. The mapping between terms
+ * and their IDs is cached in memory in both directions, so that repeated
+ * lookups of the same term or ID do not hit the database. The cache is bounded
+ * and evicts the least recently used entries.
  */
 public class RdbUniverseRelation implements IRelation {
 
 	private static Logger logger = LoggerFactory
 			.getLogger(RdbUniverseRelation.class);
 
-	private static boolean USE_BATCH_MODE = false;
-
 	public static final String UNIVERSE_NAME = "\"__universe__\"";
 
 	public static final String MUTEX_NAME = "\"__mutex__\"";
@@ -65,6 +71,18 @@ public class RdbUniverseRelation implements IRelation {
 
 	public static final String TYPE_NAME = "type";
 
+	/**
+	 * The default maximum number of entries in each direction of the term
+	 * cache.
+	 */
+	public static final int DEFAULT_CACHE_SIZE = 100000;
+
+	/**
+	 * The number of terms that are looked up or inserted with a single
+	 * statement when IDs are assigned in bulk.
+	 */
+	private static final int BULK_SIZE = 256;
+
 	private static final Map<Connection, RdbUniverseRelation> universes;
 
 	private PreparedStatement insertStatement;
@@ -75,6 +93,16 @@ public class RdbUniverseRelation implements IRelation {
 
 	private PreparedStatement sizeStatement;
 
+	private PreparedStatement lookupStatement;
+
+	private PreparedStatement mergeStatement;
+
+	private final Map<TermKey, Integer> termIds;
+
+	private final Map<Integer, ITerm> idTerms;
+
+	private int cacheSize;
+
 	private static final TermNormalizer termNormalizer;
 
 	private static final TermDenormalizer termDenormalizer;
@@ -89,9 +117,58 @@ public class RdbUniverseRelation implements IRelation {
 
 	private RdbUniverseRelation(Connection connection) throws SQLException {
 		this.connection = connection;
+		this.cacheSize = DEFAULT_CACHE_SIZE;
+		this.termIds = createCache();
+		this.idTerms = createCache();
+
 		createTable();
 	}
 
+	private <K, V> Map<K, V> createCache() {
+		return new LinkedHashMap<K, V>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+				return size() > cacheSize;
+			}
+		};
+	}
+
+	/**
+	 * Sets the maximum number of entries in each direction of the term cache.
+	 * 
+	 * @param cacheSize
+	 *            The maximum number of cached terms, a value of zero disables
+	 *            the cache.
+	 */
+	public void setCacheSize(int cacheSize) {
+		if (cacheSize < 0) {
+			throw new IllegalArgumentException(
+					"The cache size must not be negative");
+		}
+
+		this.cacheSize = cacheSize;
+
+		clearCache();
+	}
+
+	/**
+	 * Forgets all cached terms and IDs, e.g. after a rollback removed the
+	 * terms which were added in the transaction.
+	 */
+	public void clearCache() {
+		termIds.clear();
+		idTerms.clear();
+	}
+
+	private void cache(TermKey key, int id, ITerm term) {
+		if (cacheSize > 0) {
+			termIds.put(key, id);
+			idTerms.put(id, term);
+		}
+	}
+
 	@Override
 	public boolean add(ITuple tuple) {
 		if (tuple.size() != 1) {
@@ -107,25 +184,74 @@ public class RdbUniverseRelation implements IRelation {
 		}
 
 		IConcreteTerm constant = (IConcreteTerm) term;
+		TermKey key = new TermKey(constant);
+
+		if (termIds.containsKey(key)) {
+			return false;
+		}
+
+		return insert(key, constant) != -1;
+	}
+
+	/**
+	 * Returns the ID of the specified term, and adds the term to the universe
+	 * if it is not part of it yet.
+	 * 
+	 * @param term
+	 *            The term.
+	 * @return The ID of the term, or -1 if the term is not a ground constant
+	 *         or could not be added.
+	 */
+	public int getOrAddId(ITerm term) {
+		if (!term.isGround() || !(term instanceof IConcreteTerm)) {
+			return -1;
+		}
 
+		IConcreteTerm constant = (IConcreteTerm) term;
+		TermKey key = new TermKey(constant);
+
+		Integer id = termIds.get(key);
+
+		if (id != null) {
+			return id;
+		}
+
+		int termId = insert(key, constant);
+
+		if (termId != -1) {
+			return termId;
+		}
+
+		return getId(term);
+	}
+
+	/**
+	 * Inserts the specified term and returns its newly assigned ID, or -1 if
+	 * the term already exists or could not be inserted.
+	 */
+	private int insert(TermKey key, IConcreteTerm constant) {
 		String common = termNormalizer.createString(constant);
-		String canonical = constant.toCanonicalString();
-		String type = constant.getDatatypeIRI().toString();
+
+		ResultSet resultSet = null;
 
 		try {
 			createInsertStatement();
 
 			insertStatement.setString(1, common);
-			insertStatement.setString(2, canonical);
-			insertStatement.setString(3, type);
-
-			if (USE_BATCH_MODE) {
-				insertStatement.setString(4, canonical);
-				insertStatement.setString(5, type);
-			}
+			insertStatement.setString(2, key.canonical);
+			insertStatement.setString(3, key.type);
 
 			logger.debug("Executing " + insertStatement);
-			return insertStatement.executeUpdate() > 0;
+
+			if (insertStatement.executeUpdate() > 0) {
+				resultSet = insertStatement.getGeneratedKeys();
+
+				if (resultSet.next()) {
+					int termId = resultSet.getInt(1);
+					cache(key, termId, constant);
+					return termId;
+				}
+			}
 		} catch (SQLException e) {
 			// If the INSERT fails due to a unique index violation, we can
 			// ignore the exception.
@@ -134,37 +260,165 @@ public class RdbUniverseRelation implements IRelation {
 						"Failed to execute query (error code: "
 								+ e.getErrorCode() + ")", e);
 			}
+		} finally {
+			RdbUtils.closeResultSet(resultSet);
 		}
 
-		return false;
+		return -1;
+	}
+
+	/**
+	 * Adds all the specified terms to the universe, assigning IDs to the
+	 * terms that are not yet part of it in bulk. Afterwards, the IDs of the
+	 * terms are cached, as long as they fit into the cache.
+	 * 
+	 * @param terms
+	 *            The terms to add, terms which are not ground constants are
+	 *            ignored.
+	 */
+	public void addAll(Collection<? extends ITerm> terms) {
+		Map<TermKey, IConcreteTerm> missing = new LinkedHashMap<TermKey, IConcreteTerm>();
+
+		for (ITerm term : terms) {
+			if (term.isGround() && term instanceof IConcreteTerm) {
+				IConcreteTerm constant = (IConcreteTerm) term;
+				TermKey key = new TermKey(constant);
+
+				if (!termIds.containsKey(key)) {
+					missing.put(key, constant);
+				}
+			}
+		}
+
+		if (missing.isEmpty()) {
+			return;
+		}
+
+		try {
+			lookup(missing);
+
+			if (!missing.isEmpty()) {
+				merge(missing);
+				lookup(missing);
+			}
+		} catch (SQLException e) {
+			logger.error("Failed to add terms in bulk, adding them one by one",
+					e);
+
+			for (IConcreteTerm constant : missing.values()) {
+				getOrAddId(constant);
+			}
+		}
+	}
+
+	/**
+	 * Looks up the IDs of the specified terms, caches them, and removes the
+	 * terms that were found from the map.
+	 */
+	private void lookup(Map<TermKey, IConcreteTerm> terms) throws SQLException {
+		createLookupStatement();
+
+		List<TermKey> keys = new ArrayList<TermKey>(terms.keySet());
+
+		for (int start = 0; start < keys.size(); start += BULK_SIZE) {
+			int end = Math.min(start + BULK_SIZE, keys.size());
+
+			// Unused parameters are filled with the last canonical string of
+			// the chunk.
+			for (int i = 0; i < BULK_SIZE; i++) {
+				TermKey key = keys.get(Math.min(start + i, end - 1));
+				lookupStatement.setString(i + 1, key.canonical);
+			}
+
+			ResultSet resultSet = null;
+
+			try {
+				logger.debug("Executing " + lookupStatement);
+				resultSet = lookupStatement.executeQuery();
+
+				while (resultSet.next()) {
+					int termId = resultSet.getInt(1);
+					TermKey key = new TermKey(resultSet.getString(2),
+							resultSet.getString(3));
+
+					IConcreteTerm constant = terms.remove(key);
+
+					if (constant != null) {
+						cache(key, termId, constant);
+					}
+				}
+			} finally {
+				RdbUtils.closeResultSet(resultSet);
+			}
+		}
+	}
+
+	private void createLookupStatement() throws SQLException {
+		if (lookupStatement == null) {
+			List<String> questionMarks = new ArrayList<String>();
+
+			for (int i = 0; i < BULK_SIZE; i++) {
+				questionMarks.add("?");
+			}
+
+			String sqlFormat = "SELECT %s, %s, %s FROM %s WHERE %s IN (%s)";
+			String sql = String.format(sqlFormat, ID_NAME, CANONICAL_NAME,
+					TYPE_NAME, UNIVERSE_NAME, CANONICAL_NAME,
+					RdbUtils.join(questionMarks, ", "));
+
+			lookupStatement = connection.prepareStatement(sql);
+		}
+	}
+
+	/**
+	 * Inserts the specified terms in batches. Terms that have been inserted
+	 * concurrently in the meantime are merged with the existing rows, which
+	 * keep their IDs.
+	 */
+	private void merge(Map<TermKey, IConcreteTerm> terms) throws SQLException {
+		createMergeStatement();
+
+		int count = 0;
+
+		for (Map.Entry<TermKey, IConcreteTerm> entry : terms.entrySet()) {
+			TermKey key = entry.getKey();
+
+			mergeStatement.setString(1,
+					termNormalizer.createString(entry.getValue()));
+			mergeStatement.setString(2, key.canonical);
+			mergeStatement.setString(3, key.type);
+			mergeStatement.addBatch();
+
+			if (++count % BULK_SIZE == 0) {
+				mergeStatement.executeBatch();
+			}
+		}
+
+		if (count % BULK_SIZE != 0) {
+			mergeStatement.executeBatch();
+		}
+
+		logger.debug("Added {} terms to the universe", count);
+	}
+
+	private void createMergeStatement() throws SQLException {
+		if (mergeStatement == null) {
+			String sqlFormat = "MERGE INTO %s(%s, %s, %s) KEY(%s, %s) VALUES (?, ?, ?)";
+			String sql = String.format(sqlFormat, UNIVERSE_NAME, COMMON_NAME,
+					CANONICAL_NAME, TYPE_NAME, CANONICAL_NAME, TYPE_NAME);
+
+			mergeStatement = connection.prepareStatement(sql);
+		}
 	}
 
 	private void createInsertStatement() throws SQLException {
 		if (insertStatement == null) {
-			String querySql;
-
-			if (USE_BATCH_MODE) {
-				String queryFormat = "INSERT INTO %s(%s, %s, %s) "
-						+ "SELECT ?, ?, ? FROM %s "
-						+ "LEFT OUTER JOIN %s ON %s = ? AND %s = ? "
-						+ "WHERE %s.i = 1 AND %s IS NULL AND %s IS NULL "
-						+ "GROUP BY %s AND %s";
-
-				String canonicalAttribute = UNIVERSE_NAME + "." + CANONICAL_NAME;
-				String typeAttribute = UNIVERSE_NAME + "." + TYPE_NAME;
-
-				querySql = String.format(queryFormat, UNIVERSE_NAME,
-						COMMON_NAME, CANONICAL_NAME, TYPE_NAME, MUTEX_NAME,
-						UNIVERSE_NAME, canonicalAttribute, typeAttribute,
-						MUTEX_NAME, canonicalAttribute, typeAttribute,
-						canonicalAttribute, typeAttribute);
-			} else {
-				String queryFormat = "INSERT INTO %s(%s, %s, %s) VALUES (?, ?, ?)";
-				querySql = String.format(queryFormat, UNIVERSE_NAME,
-						COMMON_NAME, CANONICAL_NAME, TYPE_NAME);
-			}
+			String queryFormat = "INSERT INTO %s(%s, %s, %s) VALUES (?, ?, ?)";
+			String querySql = String.format(queryFormat, UNIVERSE_NAME,
+					COMMON_NAME, CANONICAL_NAME, TYPE_NAME);
 
-			insertStatement = connection.prepareStatement(querySql);
+			insertStatement = connection.prepareStatement(querySql,
+					Statement.RETURN_GENERATED_KEYS);
 		}
 	}
 
@@ -174,22 +428,27 @@ public class RdbUniverseRelation implements IRelation {
 		}
 
 		IConcreteTerm constant = (IConcreteTerm) term;
+		TermKey key = new TermKey(constant);
 
-		String canonical = constant.toCanonicalString();
-		String type = constant.getDatatypeIRI().toString();
+		Integer id = termIds.get(key);
+
+		if (id != null) {
+			return id;
+		}
 
 		ResultSet resultSet = null;
 
 		try {
 			createGetIdStatement();
 
-			getIdStatement.setString(1, canonical);
-			getIdStatement.setString(2, type);
+			getIdStatement.setString(1, key.canonical);
+			getIdStatement.setString(2, key.type);
 
 			resultSet = getIdStatement.executeQuery();
 
 			if (resultSet.next()) {
 				int termId = resultSet.getInt(1);
+				cache(key, termId, constant);
 				return termId;
 			}
 		} catch (SQLException e) {
@@ -246,6 +505,12 @@ public class RdbUniverseRelation implements IRelation {
 	}
 
 	public ITerm getTerm(int id) {
+		ITerm cachedTerm = idTerms.get(id);
+
+		if (cachedTerm != null) {
+			return cachedTerm;
+		}
+
 		ResultSet resultSet = null;
 
 		try {
@@ -261,7 +526,13 @@ public class RdbUniverseRelation implements IRelation {
 				String type = resultSet.getString("type");
 
 				if (canonical != null && type != null) {
-					return termDenormalizer.createTerm(canonical, type);
+					ITerm term = termDenormalizer.createTerm(canonical, type);
+
+					if (term != null) {
+						cache(new TermKey(canonical, type), id, term);
+					}
+
+					return term;
 				}
 			}
 		} catch (SQLException e) {
@@ -368,6 +639,12 @@ public class RdbUniverseRelation implements IRelation {
 
 		RdbUtils.closeStatement(sizeStatement);
 		sizeStatement = null;
+
+		RdbUtils.closeStatement(lookupStatement);
+		lookupStatement = null;
+
+		RdbUtils.closeStatement(mergeStatement);
+		mergeStatement = null;
 	}
 
 	public static RdbUniverseRelation getInstance(Connection connection)
@@ -382,4 +659,44 @@ public class RdbUniverseRelation implements IRelation {
 		return universe;
 	}
 
+	/**
+	 * Identifies a term the same way as the unique index of the universe
+	 * table, i.e. by its canonical string and its datatype. Terms which are
+	 * equal but of different datatypes, such as 1 and 1.0, have different
+	 * keys.
+	 */
+	private static final class TermKey {
+
+		private final String canonical;
+
+		private final String type;
+
+		public TermKey(IConcreteTerm constant) {
+			this(constant.toCanonicalString(), constant.getDatatypeIRI()
+					.toString());
+		}
+
+		public TermKey(String canonical, String type) {
+			this.canonical = canonical;
+			this.type = type;
+		}
+
+		@Override
+		public int hashCode() {
+			return canonical.hashCode() * 31 + type.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof TermKey)) {
+				return false;
+			}
+
+			TermKey thatKey = (TermKey) obj;
+			return canonical.equals(thatKey.canonical)
+					&& type.equals(thatKey.type);
+		}
+
+	}
+
 }
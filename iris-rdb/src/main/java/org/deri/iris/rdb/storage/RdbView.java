@@ -173,8 +173,7 @@ public class RdbView extends AbstractRdbRelation {
 		for (int i = 0; i < viewCriteria.size(); i++) {
 			ITerm term = viewCriteria.get(i);
 
-			universe.add(term);
-			int termId = universe.getId(term);
+			int termId = universe.getOrAddId(term);
 
 			// TODO Check if normalized representation should be used.
 			if (termId > -1) {
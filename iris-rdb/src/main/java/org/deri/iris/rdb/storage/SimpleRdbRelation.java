@@ -29,6 +29,9 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.deri.iris.api.basics.ITuple;
 import org.deri.iris.api.terms.IConcreteTerm;
@@ -38,12 +41,46 @@ import org.deri.iris.rdb.utils.RdbUtils;
 import org.deri.iris.storage.IRelation;
 
 /**
+ * <p>
  * This relation may return duplicate tuples.
+ * </p>
+ * <p>
+ * Tuples are read in windows of consecutive rows, so that iterating over the
+ * relation by calling {@link #get(int)} with increasing indices only issues a
+ * query for each window. The buffered window and the size of the relation are
+ * kept until any relation of the same connection is modified.
+ * </p>
  */
 public class SimpleRdbRelation extends AbstractRdbRelation {
 
 	public static final String LEFT_TABLE_ALIAS = "rightTable";
 
+	/**
+	 * The number of tuples whose terms are added to the universe at once, when
+	 * tuples are copied from a relation that is not stored in the database.
+	 */
+	private static final int UNIVERSE_CHUNK_SIZE = 1024;
+
+	/**
+	 * Relations that are not stored in the database and have at least this
+	 * many tuples are loaded in batches.
+	 */
+	private static final int BULK_LOAD_THRESHOLD = 64;
+
+	/**
+	 * The number of tuples that are read at once by {@link #get(int)}.
+	 */
+	private static final int WINDOW_SIZE = 1024;
+
+	/**
+	 * Counts the modifications of tables and views for each connection. As a
+	 * view may depend on any table, cached data of a relation is only valid
+	 * as long as the counter of its connection does not change.
+	 */
+	private static final Map<Connection, AtomicLong> modificationCounts = new WeakHashMap<Connection, AtomicLong>();
+
+	private final AtomicLong modificationCount;
+
 	private String tableName;
 
 	private int arity;
@@ -52,12 +89,24 @@ public class SimpleRdbRelation extends AbstractRdbRelation {
 
 	private PreparedStatement insertStatement;
 
+	private PreparedStatement mergeStatement;
+
 	private PreparedStatement getTupleStatement;
 
 	private PreparedStatement sizeStatement;
 
 	private PreparedStatement containsStatement;
 
+	private List<ITuple> window;
+
+	private int windowStart;
+
+	private long windowModificationCount;
+
+	private int size;
+
+	private long sizeModificationCount;
+
 	public SimpleRdbRelation(Connection connection, String tableName, int arity)
 			throws SQLException {
 		super(connection);
@@ -66,6 +115,40 @@ public class SimpleRdbRelation extends AbstractRdbRelation {
 		this.arity = arity;
 
 		this.universe = RdbUniverseRelation.getInstance(connection);
+		this.modificationCount = getModificationCount(connection);
+
+		// The table or view may have been (re)created right before.
+		modified();
+		this.sizeModificationCount = -1;
+		this.windowModificationCount = -1;
+	}
+
+	private static synchronized AtomicLong getModificationCount(
+			Connection connection) {
+		AtomicLong count = modificationCounts.get(connection);
+
+		if (count == null) {
+			count = new AtomicLong();
+			modificationCounts.put(connection, count);
+		}
+
+		return count;
+	}
+
+	/**
+	 * Invalidates the cached data of all relations of the specified
+	 * connection. This method must be called whenever tables or views are
+	 * modified without using the methods of this class.
+	 * 
+	 * @param connection
+	 *            The connection that was used to modify the database.
+	 */
+	public static void modified(Connection connection) {
+		getModificationCount(connection).incrementAndGet();
+	}
+
+	private void modified() {
+		modificationCount.incrementAndGet();
 	}
 
 	@Override
@@ -80,16 +163,13 @@ public class SimpleRdbRelation extends AbstractRdbRelation {
 
 	@Override
 	public boolean add(ITuple tuple) {
-		return add(tuple, false);
-	}
-
-	private boolean add(ITuple tuple, boolean batched) {
 		if (tuple.size() != getArity()) {
 			return false;
 		}
 
 		try {
 			createInsertStatement();
+			modified();
 
 			int i = 1;
 			for (ITerm term : tuple) {
@@ -98,13 +178,8 @@ public class SimpleRdbRelation extends AbstractRdbRelation {
 				i++;
 			}
 
-			if (batched) {
-				logger.debug("Add to batch " + insertStatement);
-				insertStatement.addBatch();
-			} else {
-				logger.debug("Executing " + insertStatement);
-				return insertStatement.executeUpdate() > 0;
-			}
+			logger.debug("Executing " + insertStatement);
+			return insertStatement.executeUpdate() > 0;
 		} catch (SQLException e) {
 			// If the INSERT fails due to a unique index violation, we can
 			// ignore the exception.
@@ -155,8 +230,7 @@ public class SimpleRdbRelation extends AbstractRdbRelation {
 			return -1;
 		}
 
-		universe.add(term);
-		return universe.getId(term);
+		return universe.getOrAddId(term);
 	}
 
 	@Override
@@ -174,18 +248,142 @@ public class SimpleRdbRelation extends AbstractRdbRelation {
 			return addAllOneByOne(otherRelation);
 		}
 
+		if (getArity() > 0 && relation.size() >= BULK_LOAD_THRESHOLD) {
+			try {
+				return bulkLoad(relation);
+			} catch (SQLException e) {
+				logger.error("Failed to bulk load tuples into " + getTableName()
+						+ ", adding them one by one", e);
+			}
+		}
+
 		logger.debug("Adding tuples one by one");
 
 		boolean allAdded = false;
 
 		int size = relation.size();
-		for (int i = 0; i < size; i++) {
+		for (int start = 0; start < size; start += UNIVERSE_CHUNK_SIZE) {
+			List<ITuple> tuples = addChunkToUniverse(relation, start);
+
+			for (ITuple tuple : tuples) {
+				allAdded |= add(tuple);
+			}
+		}
+
+		return allAdded;
+	}
+
+	/**
+	 * Returns the tuples of the chunk of the specified relation starting at
+	 * the specified index, after the IDs of all their terms have been assigned
+	 * at once, so that the tuples can be inserted without looking up each
+	 * term.
+	 */
+	private List<ITuple> addChunkToUniverse(IRelation relation, int start) {
+		int end = Math.min(start + UNIVERSE_CHUNK_SIZE, relation.size());
+
+		List<ITuple> tuples = new ArrayList<ITuple>(end - start);
+		List<ITerm> terms = new ArrayList<ITerm>();
+
+		for (int i = start; i < end; i++) {
+			ITuple tuple = relation.get(i);
+			tuples.add(tuple);
+			terms.addAll(tuple);
+		}
+
+		universe.addAll(terms);
+
+		return tuples;
+	}
+
+	/**
+	 * Adds all tuples of the specified relation. Unlike
+	 * {@link #addAll(IRelation)}, a failure is not logged and skipped, but
+	 * reported to the caller, which can roll back the transaction.
+	 * 
+	 * @param relation
+	 *            The relation to add the tuples of.
+	 * @return <code>true</code> if any tuple was added.
+	 * @throws SQLException
+	 *             If the tuples could not be added.
+	 */
+	public boolean load(IRelation relation) throws SQLException {
+		if (relation instanceof IRdbRelation) {
+			return addAll((IRdbRelation) relation);
+		}
+
+		if (getArity() > 0) {
+			return bulkLoad(relation);
+		}
+
+		boolean allAdded = false;
+
+		for (int i = 0; i < relation.size(); i++) {
 			allAdded |= add(relation.get(i));
 		}
 
 		return allAdded;
 	}
 
+	/**
+	 * Inserts the tuples of the specified relation directly into the table in
+	 * JDBC batches. The MERGE statement skips the tuples which are already
+	 * part of this relation. No table is created or dropped, which would
+	 * commit the current transaction. A term that can not be added to the
+	 * universe fails the load.
+	 */
+	private boolean bulkLoad(IRelation relation) throws SQLException {
+		int sizeBefore = size();
+
+		createMergeStatement();
+
+		int size = relation.size();
+		for (int start = 0; start < size; start += UNIVERSE_CHUNK_SIZE) {
+			List<ITuple> tuples = addChunkToUniverse(relation, start);
+
+			for (ITuple tuple : tuples) {
+				int i = 1;
+				for (ITerm term : tuple) {
+					int id = addToUniverse(term);
+
+					if (id < 0) {
+						throw new SQLException("Failed to add the term "
+								+ term + " to the universe");
+					}
+
+					mergeStatement.setInt(i, id);
+					i++;
+				}
+
+				mergeStatement.addBatch();
+			}
+
+			modified();
+
+			logger.debug("Executing batch " + mergeStatement);
+			mergeStatement.executeBatch();
+		}
+
+		return size() > sizeBefore;
+	}
+
+	private void createMergeStatement() throws SQLException {
+		if (mergeStatement == null) {
+			String attributes = RdbUtils.join(getAttributes(), ", ");
+			List<String> questionMarkList = new ArrayList<String>();
+
+			for (int i = 0; i < getArity(); i++) {
+				questionMarkList.add("?");
+			}
+
+			String sqlFormat = "MERGE INTO %s(%s) KEY(%s) VALUES (%s)";
+			String sql = String.format(sqlFormat, getTableName(), attributes,
+					attributes, RdbUtils.join(questionMarkList, ", "));
+
+			mergeStatement = getConnection().prepareStatement(sql);
+		}
+	}
+
 	public boolean addAll(IRdbRelation otherRelation) throws SQLException {
 		if (otherRelation instanceof RdbUniverseRelation) {
 			logger.warn("Attempted to copy universe relation");
@@ -221,6 +419,7 @@ public class SimpleRdbRelation extends AbstractRdbRelation {
 					+ " to " + getTableName());
 
 			call = connection.prepareCall(sql);
+			modified();
 
 			logger.debug("Executing " + call);
 			int rowCount = call.executeUpdate();
@@ -296,6 +495,12 @@ public class SimpleRdbRelation extends AbstractRdbRelation {
 
 	@Override
 	public int size() {
+		long currentModificationCount = modificationCount.get();
+
+		if (sizeModificationCount == currentModificationCount) {
+			return size;
+		}
+
 		ResultSet resultSet = null;
 
 		try {
@@ -305,7 +510,9 @@ public class SimpleRdbRelation extends AbstractRdbRelation {
 			resultSet = sizeStatement.executeQuery();
 
 			if (resultSet.next()) {
-				return resultSet.getInt("size");
+				size = resultSet.getInt("size");
+				sizeModificationCount = currentModificationCount;
+				return size;
 			}
 		} catch (SQLException e) {
 			logger.error("Failed to execute query", e);
@@ -339,50 +546,98 @@ public class SimpleRdbRelation extends AbstractRdbRelation {
 
 	@Override
 	public ITuple get(int index) {
+		if (index < 0) {
+			return null;
+		}
+
+		long currentModificationCount = modificationCount.get();
+
+		if (windowModificationCount != currentModificationCount
+				|| index < windowStart
+				|| index >= windowStart + WINDOW_SIZE) {
+			if (!readWindow(index)) {
+				return null;
+			}
+
+			windowModificationCount = currentModificationCount;
+		}
+
+		int offset = index - windowStart;
+
+		if (offset < window.size()) {
+			return window.get(offset);
+		}
+
+		return null;
+	}
+
+	/**
+	 * Reads the window of tuples starting at the specified index. Tuples that
+	 * contain terms which can not be resolved are represented by
+	 * <code>null</code>.
+	 */
+	private boolean readWindow(int start) {
 		ResultSet resultSet = null;
 
 		try {
 			createGetTupleStatement();
 
-			// In H2 the first row has the row number 1.
-			getTupleStatement.setInt(1, index + 1);
+			getTupleStatement.setInt(1, WINDOW_SIZE);
+			getTupleStatement.setInt(2, start);
 
 			logger.debug("Executing " + getTupleStatement);
 			resultSet = getTupleStatement.executeQuery();
 
-			List<Integer> termIds = new ArrayList<Integer>();
+			List<ITuple> tuples = new ArrayList<ITuple>(WINDOW_SIZE);
 
-			if (resultSet.next()) {
-				List<ITerm> terms = new ArrayList<ITerm>();
+			while (resultSet.next()) {
+				List<ITerm> terms = new ArrayList<ITerm>(getArity());
 
-				for (String attribute : getAttributes()) {
-					int termId = resultSet.getInt(attribute);
-					termIds.add(termId);
-					ITerm term = universe.getTerm(termId);
+				for (int i = 1; i <= getArity(); i++) {
+					ITerm term = universe.getTerm(resultSet.getInt(i));
 
-					if (term != null) {
-						terms.add(term);
-					} else {
-						return null;
+					if (term == null) {
+						terms = null;
+						break;
 					}
+
+					terms.add(term);
 				}
 
-				return Factory.BASIC.createTuple(terms);
+				tuples.add(terms != null ? Factory.BASIC.createTuple(terms)
+						: null);
 			}
+
+			window = tuples;
+			windowStart = start;
+
+			return true;
 		} catch (SQLException e) {
-			logger.error("Failed to execute query " + insertStatement, e);
+			logger.error("Failed to execute query " + getTupleStatement, e);
 		} finally {
 			RdbUtils.closeResultSet(resultSet);
 		}
 
-		return null;
+		return false;
 	}
 
 	private void createGetTupleStatement() throws SQLException {
 		if (getTupleStatement == null) {
-			String sqlFormat = "SELECT * FROM "
-					+ "(SELECT *, ROWNUM AS num FROM %s) WHERE num = ?";
-			String sql = String.format(sqlFormat, getTableName());
+			String attributes = "*";
+
+			String order = "";
+
+			if (getArity() > 0) {
+				attributes = RdbUtils.join(getAttributes(), ", ");
+
+				// Without an order, consecutive windows may overlap or miss
+				// rows, as the database is free to return them in any order.
+				order = " ORDER BY " + attributes;
+			}
+
+			String sqlFormat = "SELECT %s FROM %s%s LIMIT ? OFFSET ?";
+			String sql = String.format(sqlFormat, attributes, getTableName(),
+					order);
 
 			Connection connection = getConnection();
 
@@ -459,8 +714,10 @@ public class SimpleRdbRelation extends AbstractRdbRelation {
 
 	@Override
 	public void drop() {
-		// There is nothing to drop, so we only close the relation.
+		// There is nothing to drop, so we only close the relation. The table
+		// or view is usually dropped by the caller.
 		close();
+		modified();
 	}
 
 	@Override
@@ -476,12 +733,18 @@ public class SimpleRdbRelation extends AbstractRdbRelation {
 		RdbUtils.closeStatement(insertStatement);
 		insertStatement = null;
 
+		RdbUtils.closeStatement(mergeStatement);
+		mergeStatement = null;
+
 		RdbUtils.closeStatement(sizeStatement);
 		sizeStatement = null;
 
 		RdbUtils.closeStatement(containsStatement);
 		containsStatement = null;
 
+		window = null;
+		windowModificationCount = -1;
+
 		// Do not close the universe, as it may be used somewhere else.
 	}
 
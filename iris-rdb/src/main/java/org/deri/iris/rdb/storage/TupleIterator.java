@@ -55,6 +55,8 @@ public class TupleIterator implements CloseableIterator<ITuple> {
 
 	private final IRdbRelation relation;
 
+	private final RdbUniverseRelation universe;
+
 	private ITuple next;
 
 	/**
@@ -72,6 +74,7 @@ public class TupleIterator implements CloseableIterator<ITuple> {
 			throws SQLException {
 		this.connection = connection;
 		this.relation = relation;
+		this.universe = RdbUniverseRelation.getInstance(connection);
 
 		String attributes;
 
@@ -138,8 +141,7 @@ public class TupleIterator implements CloseableIterator<ITuple> {
 						// in the universe relation.
 						int id = resultSet.getInt(i);
 
-						ITerm term = RdbUniverseRelation
-								.getInstance(connection).getTerm(id);
+						ITerm term = universe.getTerm(id);
 
 						if (term != null) {
 							terms.add(term);
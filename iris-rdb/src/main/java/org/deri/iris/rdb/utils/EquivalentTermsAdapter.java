@@ -22,6 +22,7 @@
  */
 package org.deri.iris.rdb.utils;
 
+import java.util.Collection;
 import java.util.Set;
 
 import org.deri.iris.api.basics.ITuple;
@@ -60,6 +61,21 @@ public class EquivalentTermsAdapter implements IEquivalentTerms {
 		return null;
 	}
 	
+	@Override
+	public long getVersion() {
+		return equivalenceRelation.size();
+	}
+
+	@Override
+	public Collection<ITerm> getChangedSince(long version) {
+		return null;
+	}
+
+	@Override
+	public void caughtUp(Object user, long version) {
+		// No changes are kept.
+	}
+
 	@Override
 	public String toString() {
 		return equivalenceRelation.toString();
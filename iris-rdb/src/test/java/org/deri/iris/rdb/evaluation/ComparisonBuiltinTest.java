@@ -0,0 +1,95 @@
+/*
+ * Integrated Rule Inference System (IRIS):
+ * An extensible rule inference system for datalog with extensions.
+ * 
+ * Copyright (C) 2011 Semantic Technology Institute (STI) Innsbruck, 
+ * University of Innsbruck, Technikerstrasse 21a, 6020 Innsbruck, Austria.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ */
+package org.deri.iris.rdb.evaluation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+import org.deri.iris.factory.Factory;
+import org.deri.iris.storage.IRelation;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test for the evaluation of comparisons, which are partly evaluated in the
+ * database and partly by the built-in atoms.
+ */
+public class ComparisonBuiltinTest extends ProgramEvaluationTest {
+
+	@Override
+	public Collection<String> createExpressions() {
+		Collection<String> expressions = new ArrayList<String>();
+
+		// Create facts.
+		expressions.add("value(1).");
+		expressions.add("value(5).");
+		expressions.add("value(12).");
+		expressions.add("value(7.5).");
+		expressions.add("value(_double(3.0)).");
+		expressions.add("value('abc').");
+		expressions.add("value('xyz').");
+
+		// Create rules.
+		expressions.add("small(?X) :- value(?X), ?X < 10.");
+		expressions.add("early(?X) :- value(?X), ?X <= 'm'.");
+		expressions.add("other(?X) :- value(?X), ?X != 5.");
+
+		return expressions;
+	}
+
+	@Test
+	public void testNumbers() throws Exception {
+		IRelation relation = evaluate("?- small(?X).");
+
+		Assert.assertTrue(relation.contains(Helper.createConstantTuple(1)));
+		Assert.assertTrue(relation.contains(Helper.createConstantTuple(5)));
+		Assert.assertTrue(relation.contains(Helper.createConstantTuple(Factory.CONCRETE
+				.createDecimal(7.5))));
+		Assert.assertTrue(relation.contains(Helper.createConstantTuple(Factory.CONCRETE
+				.createDouble(3.0))));
+
+		Assert.assertEquals("Relation does not have correct size", 4,
+				relation.size());
+	}
+
+	@Test
+	public void testStrings() throws Exception {
+		IRelation relation = evaluate("?- early(?X).");
+
+		Assert.assertTrue(relation.contains(Helper.createConstantTuple("abc")));
+
+		Assert.assertEquals("Relation does not have correct size", 1,
+				relation.size());
+	}
+
+	@Test
+	public void testNotEqual() throws Exception {
+		IRelation relation = evaluate("?- other(?X).");
+
+		Assert.assertFalse(relation.contains(Helper.createConstantTuple(5)));
+
+		Assert.assertEquals("Relation does not have correct size", 6,
+				relation.size());
+	}
+
+}
@@ -0,0 +1,101 @@
+/*
+ * Integrated Rule Inference System (IRIS):
+ * An extensible rule inference system for datalog with extensions.
+ * 
+ * Copyright (C) 2011 Semantic Technology Institute (STI) Innsbruck, 
+ * University of Innsbruck, Technikerstrasse 21a, 6020 Innsbruck, Austria.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ */
+package org.deri.iris.rdb.evaluation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+import org.deri.iris.storage.IRelation;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test for the semi-naive evaluation of recursive rules, which are compiled
+ * into single SQL statements.
+ */
+public class RecursiveRuleTest extends ProgramEvaluationTest {
+
+	@Override
+	public Collection<String> createExpressions() {
+		Collection<String> expressions = new ArrayList<String>();
+
+		// Create facts.
+		expressions.add("edge('a', 'b').");
+		expressions.add("edge('b', 'c').");
+		expressions.add("edge('c', 'd').");
+		expressions.add("edge('d', 'b').");
+		expressions.add("node('a').");
+		expressions.add("node('b').");
+		expressions.add("node('c').");
+		expressions.add("node('d').");
+		expressions.add("node('e').");
+
+		// Create rules.
+		expressions.add("path(?X, ?Y) :- edge(?X, ?Y).");
+		expressions.add("path(?X, ?Z) :- path(?X, ?Y), edge(?Y, ?Z).");
+		expressions.add("cycle(?X) :- path(?X, ?X).");
+		expressions.add("fromA(?X) :- path('a', ?X).");
+		expressions.add("unreachable(?X) :- node(?X), not fromA(?X).");
+
+		return expressions;
+	}
+
+	@Test
+	public void testTransitiveClosure() throws Exception {
+		IRelation relation = evaluate("?- path(?X, ?Y).");
+
+		Assert.assertTrue(relation.contains(Helper.createConstantTuple("a",
+				"d")));
+		Assert.assertTrue(relation.contains(Helper.createConstantTuple("d",
+				"d")));
+		Assert.assertFalse(relation.contains(Helper.createConstantTuple("b",
+				"a")));
+
+		Assert.assertEquals("Relation does not have correct size", 12,
+				relation.size());
+	}
+
+	@Test
+	public void testRepeatedVariables() throws Exception {
+		IRelation relation = evaluate("?- cycle(?X).");
+
+		Assert.assertTrue(relation.contains(Helper.createConstantTuple("b")));
+		Assert.assertTrue(relation.contains(Helper.createConstantTuple("c")));
+		Assert.assertTrue(relation.contains(Helper.createConstantTuple("d")));
+
+		Assert.assertEquals("Relation does not have correct size", 3,
+				relation.size());
+	}
+
+	@Test
+	public void testNegation() throws Exception {
+		IRelation relation = evaluate("?- unreachable(?X).");
+
+		Assert.assertTrue(relation.contains(Helper.createConstantTuple("a")));
+		Assert.assertTrue(relation.contains(Helper.createConstantTuple("e")));
+
+		Assert.assertEquals("Relation does not have correct size", 2,
+				relation.size());
+	}
+
+}
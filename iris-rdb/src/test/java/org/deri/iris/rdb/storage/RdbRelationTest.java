@@ -23,9 +23,15 @@
 package org.deri.iris.rdb.storage;
 
 import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.Set;
 
 import junit.framework.Assert;
 
+import org.deri.iris.api.basics.ITuple;
+import org.deri.iris.factory.Factory;
+import org.deri.iris.storage.IRelation;
+import org.deri.iris.storage.simple.SimpleRelationFactory;
 import org.junit.Test;
 
 public class RdbRelationTest extends AbstractRdbRelationTest {
@@ -49,6 +55,93 @@ public class RdbRelationTest extends AbstractRdbRelationTest {
 		Assert.assertEquals(3, relation1.size());
 	}
 
+	@Test
+	public void testAddAllInMemory() {
+		relation1.add(tuple1);
+
+		IRelation relation = new SimpleRelationFactory().createRelation();
+		relation.add(tuple1);
+
+		for (int i = 0; i < 1000; i++) {
+			ITuple tuple = Factory.BASIC.createTuple(
+					Factory.CONCRETE.createInt(i), stringTerm);
+			relation.add(tuple);
+			relation.add(tuple);
+		}
+
+		Assert.assertTrue(relation1.addAll(relation));
+		Assert.assertEquals(1001, relation1.size());
+		Assert.assertTrue(relation1.contains(tuple1));
+		Assert.assertTrue(relation1.contains(Factory.BASIC.createTuple(
+				Factory.CONCRETE.createInt(999), stringTerm)));
+
+		Assert.assertFalse(relation1.addAll(relation));
+		Assert.assertEquals(1001, relation1.size());
+	}
+
+	@Test
+	public void testGet() {
+		IRelation relation = new SimpleRelationFactory().createRelation();
+
+		for (int i = 0; i < 2500; i++) {
+			relation.add(Factory.BASIC.createTuple(
+					Factory.CONCRETE.createInt(i), intTerm));
+		}
+
+		relation1.addAll(relation);
+
+		int size = relation1.size();
+		Assert.assertEquals(2500, size);
+
+		Set<ITuple> tuples = new HashSet<ITuple>();
+
+		for (int i = 0; i < size; i++) {
+			tuples.add(relation1.get(i));
+		}
+
+		Assert.assertEquals(2500, tuples.size());
+		Assert.assertNull(relation1.get(size));
+
+		// The cached size and window must not survive a modification.
+		Assert.assertTrue(relation1.add(tuple1));
+		Assert.assertEquals(2501, relation1.size());
+		Assert.assertNotNull(relation1.get(2500));
+	}
+
+	@Test
+	public void testLoadIsRolledBack() throws SQLException {
+		IRelation relation = new SimpleRelationFactory().createRelation();
+
+		for (int i = 0; i < 1000; i++) {
+			relation.add(Factory.BASIC.createTuple(
+					Factory.CONCRETE.createInt(i), stringTerm));
+		}
+
+		connection.setAutoCommit(false);
+
+		// Nothing may commit the transaction while the tuples are loaded.
+		Assert.assertTrue(relation1.load(relation));
+		Assert.assertEquals(1000, relation1.size());
+
+		connection.rollback();
+		connection.setAutoCommit(true);
+
+		SimpleRdbRelation.modified(connection);
+		RdbUniverseRelation.getInstance(connection).clearCache();
+
+		Assert.assertEquals(0, relation1.size());
+	}
+
+	@Test(expected = SQLException.class)
+	public void testLoadFailsOnTermOutsideUniverse() throws SQLException {
+		IRelation relation = new SimpleRelationFactory().createRelation();
+		relation.add(Factory.BASIC.createTuple(
+				Factory.TERM.createVariable("X"), stringTerm));
+
+		// The failure must reach the caller, so it can roll back.
+		relation1.load(relation);
+	}
+
 	@Test
 	public void testContains() {
 		Assert.assertFalse(relation1.contains(tuple1));
@@ -0,0 +1,126 @@
+/*
+ * Integrated Rule Inference System (IRIS):
+ * An extensible rule inference system for datalog with extensions.
+ * 
+ * Copyright (C) 2011 Semantic Technology Institute (STI) Innsbruck, 
+ * University of Innsbruck, Technikerstrasse 21a, 6020 Innsbruck, Austria.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, 
+ * MA  02110-1301, USA.
+ */
+package org.deri.iris.rdb.storage;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.deri.iris.api.terms.ITerm;
+import org.deri.iris.factory.Factory;
+import org.deri.iris.rdb.utils.RdbUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RdbUniverseRelationTest {
+
+	private Connection connection;
+
+	private RdbUniverseRelation universe;
+
+	@Before
+	public void setUp() throws Exception {
+		connection = RdbUtils.createConnection();
+		universe = RdbUniverseRelation.getInstance(connection);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		universe.close();
+		connection.close();
+	}
+
+	@Test
+	public void testGetOrAddId() {
+		ITerm term = Factory.TERM.createString("foo");
+
+		int id = universe.getOrAddId(term);
+
+		Assert.assertTrue(id != -1);
+		Assert.assertEquals(id, universe.getOrAddId(term));
+		Assert.assertEquals(id, universe.getId(term));
+		Assert.assertEquals(term, universe.getTerm(id));
+		Assert.assertEquals(1, universe.size());
+	}
+
+	@Test
+	public void testEqualTermsOfDifferentTypes() {
+		ITerm integer = Factory.CONCRETE.createInteger(1);
+		ITerm decimal = Factory.CONCRETE.createDecimal(1.0);
+
+		int integerId = universe.getOrAddId(integer);
+		int decimalId = universe.getOrAddId(decimal);
+
+		Assert.assertTrue(integerId != decimalId);
+		Assert.assertEquals(integerId, universe.getId(integer));
+		Assert.assertEquals(decimalId, universe.getId(decimal));
+	}
+
+	@Test
+	public void testAddAll() {
+		List<ITerm> terms = new ArrayList<ITerm>();
+
+		for (int i = 0; i < 1000; i++) {
+			terms.add(Factory.TERM.createString("term" + i));
+		}
+
+		int existingId = universe.getOrAddId(terms.get(500));
+
+		universe.addAll(terms);
+
+		Assert.assertEquals(terms.size(), universe.size());
+		Assert.assertEquals(existingId, universe.getId(terms.get(500)));
+
+		for (ITerm term : terms) {
+			int id = universe.getId(term);
+
+			Assert.assertTrue(id != -1);
+			Assert.assertEquals(term, universe.getTerm(id));
+		}
+	}
+
+	@Test
+	public void testEviction() {
+		universe.setCacheSize(10);
+
+		List<Integer> ids = new ArrayList<Integer>();
+
+		for (int i = 0; i < 100; i++) {
+			ids.add(universe.getOrAddId(Factory.TERM.createString("term" + i)));
+		}
+
+		// Evicted terms are read from the database again.
+		for (int i = 0; i < 100; i++) {
+			ITerm term = Factory.TERM.createString("term" + i);
+
+			Assert.assertEquals(ids.get(i).intValue(), universe.getId(term));
+			Assert.assertEquals(term, universe.getTerm(ids.get(i)));
+		}
+
+		universe.setCacheSize(RdbUniverseRelation.DEFAULT_CACHE_SIZE);
+	}
+
+}